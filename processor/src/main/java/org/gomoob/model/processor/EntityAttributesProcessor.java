@@ -0,0 +1,461 @@
+/**
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2017, GOMOOB All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided with
+ * the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.gomoob.model.processor;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.Name;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * Annotation processor which generates reflection free attribute accessors for all the concrete
+ * subclasses of `org.gomoob.model.AbstractEntity` which are compiled.
+ *
+ * <p>
+ * For each entity class `com.mycompany.User` a class named `com.mycompany.User_Attributes` which
+ * implements `org.gomoob.model.attribute.IGeneratedAttributes` is generated. This class contains
+ * a static table of the attribute names and types and switch based `get` / `set` methods. The
+ * `EntityAttributes` registry of the model library automatically uses it at runtime.
+ * </p>
+ * <p>
+ * An attribute is handled by the generated class if its field is visible from the package of the
+ * entity and is not final. All the other attributes, for example the private fields, continue to be
+ * accessed using cached reflective accessors. The generated class reads and writes the fields
+ * directly like the reflective accessors and never calls getters or setters, so the attributes
+ * behave the same way whether the generated class is on the classpath or not.
+ * </p>
+ *
+ * @author GOMOOB SARL (contact@gomoob.com)
+ */
+@SupportedAnnotationTypes("*")
+public class EntityAttributesProcessor extends AbstractProcessor {
+
+  /**
+   * The name of the base class of all the entities.
+   */
+  private static final String ABSTRACT_ENTITY_CLASS_NAME = "org.gomoob.model.AbstractEntity";
+
+  /**
+   * The name of the base class of the entities having a primitive `int` technical identifier.
+   */
+  private static final String ABSTRACT_INT_ID_ENTITY_CLASS_NAME =
+      "org.gomoob.model.AbstractIntIdEntity";
+
+  /**
+   * The name of the base class of the entities having a primitive `long` technical identifier.
+   */
+  private static final String ABSTRACT_LONG_ID_ENTITY_CLASS_NAME =
+      "org.gomoob.model.AbstractLongIdEntity";
+
+  /**
+   * The name of the lazy holder of the JSON metadata, the fields of this type store `JSONObject`
+   * attributes.
+   */
+  private static final String JSON_METADATA_CLASS_NAME = "org.gomoob.model.metadata.JsonMetadata";
+
+  /**
+   * The suffix appended to the name of an entity class to get the name of the generated class.
+   */
+  private static final String CLASS_NAME_SUFFIX = "_Attributes";
+
+  /**
+   * The name of the interface implemented by the generated classes.
+   */
+  private static final String GENERATED_ATTRIBUTES_INTERFACE_NAME =
+      "org.gomoob.model.attribute.IGeneratedAttributes";
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean process(final Set<? extends TypeElement> annotations,
+      final RoundEnvironment roundEnv) {
+    TypeElement abstractEntity =
+        this.processingEnv.getElementUtils().getTypeElement(ABSTRACT_ENTITY_CLASS_NAME);
+
+    // The model library is not available on the compilation class path, nothing to generate
+    if (abstractEntity == null) {
+      return false;
+    }
+
+    for (TypeElement type : ElementFilter.typesIn(roundEnv.getRootElements())) {
+      this.processType(type, abstractEntity);
+    }
+
+    // Other processors can also process the annotations of the entities
+    return false;
+  }
+
+  /**
+   * Appends to a list the attributes of an entity class, including the attributes inherited from
+   * its parent classes, which can be accessed without reflection.
+   *
+   * @param type the entity class.
+   * @param attributes the list to fill.
+   */
+  private void collectAttributes(final TypeElement type, final List<Attribute> attributes) {
+    DeclaredType declaredType = (DeclaredType) type.asType();
+
+    for (VariableElement field : this.collectFields(type)) {
+      // The primitive technical identifiers are accessed by the reflective accessors of the model
+      // library which return `null` for the `0` identifier
+      if (isPrimitiveId(field)) {
+        continue;
+      }
+
+      // The JSON metadata are converted from and to 'JSONObject' by the reflective accessors
+      if (field.asType().toString().equals(JSON_METADATA_CLASS_NAME)) {
+        continue;
+      }
+
+      String name = field.getSimpleName().toString();
+      TypeMirror fieldType =
+          this.processingEnv.getTypeUtils().asMemberOf(declaredType, field);
+
+      // Only the fields visible from the generated class are accessed directly, getters and
+      // setters are never used because they could behave differently from the reflective accessors
+      if (this.isVisible(field, type) && !field.getModifiers().contains(Modifier.FINAL)) {
+        attributes.add(new Attribute(name, fieldType, "e." + name, "e." + name + " = %s"));
+      }
+    }
+  }
+
+  /**
+   * Collects the fields of an entity class and of all its parent classes, the same way as the
+   * `EntityAttributes` class of the model library does at runtime.
+   *
+   * @param type the entity class.
+   *
+   * @return the fields which store the attributes of the entity class, the fields of the parent
+   *         classes come first.
+   */
+  private Collection<VariableElement> collectFields(final TypeElement type) {
+    LinkedList<TypeElement> hierarchy = new LinkedList<TypeElement>();
+    for (TypeElement current = type; current != null
+        && !current.getQualifiedName().contentEquals(Object.class.getName());
+        current = (TypeElement) this.processingEnv.getTypeUtils()
+            .asElement(current.getSuperclass())) {
+      hierarchy.addFirst(current);
+    }
+
+    Map<String, VariableElement> fields = new LinkedHashMap<String, VariableElement>();
+    for (TypeElement current : hierarchy) {
+      for (VariableElement field : ElementFilter.fieldsIn(current.getEnclosedElements())) {
+        if (!field.getModifiers().contains(Modifier.STATIC)
+            && !(field.getModifiers().contains(Modifier.TRANSIENT)
+                && current.getQualifiedName().contentEquals(ABSTRACT_ENTITY_CLASS_NAME))) {
+          fields.put(isPrimitiveId(field) ? "id" : field.getSimpleName().toString(), field);
+        }
+      }
+    }
+
+    return fields.values();
+  }
+
+  /**
+   * Generates the attribute accessors class of an entity.
+   *
+   * @param type the entity class.
+   * @param attributes the attributes handled by the generated class.
+   *
+   * @throws IOException if the generated source file cannot be written.
+   */
+  private void generate(final TypeElement type, final List<Attribute> attributes)
+      throws IOException {
+    String packageName = this.getPackage(type).getQualifiedName().toString();
+    String binaryName = this.processingEnv.getElementUtils().getBinaryName(type).toString();
+    String simpleName =
+        (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1))
+            + CLASS_NAME_SUFFIX;
+    String entityName = type.getQualifiedName().toString();
+
+    JavaFileObject sourceFile = this.processingEnv.getFiler().createSourceFile(
+        packageName.isEmpty() ? simpleName : packageName + "." + simpleName, type);
+
+    try (PrintWriter out = new PrintWriter(sourceFile.openWriter())) {
+      if (!packageName.isEmpty()) {
+        out.println("package " + packageName + ";");
+        out.println();
+      }
+
+      out.println("/**");
+      out.println(" * Attribute accessors of the {@link " + entityName + "} entity.");
+      out.println(" *");
+      out.println(" * <p>");
+      out.println(" * This class has been generated by the `" + this.getClass().getName() + "`");
+      out.println(" * annotation processor, do not modify it.");
+      out.println(" * </p>");
+      out.println(" */");
+      out.println("public final class " + simpleName + " implements "
+          + GENERATED_ATTRIBUTES_INTERFACE_NAME + " {");
+      out.println();
+
+      out.println("  /**");
+      out.println("   * The names of the attributes handled by this class.");
+      out.println("   */");
+      out.print("  public static final String[] ATTRIBUTE_NAMES = {");
+      for (int i = 0; i < attributes.size(); ++i) {
+        out.print((i == 0 ? "" : ", ") + "\"" + attributes.get(i).name + "\"");
+      }
+      out.println("};");
+      out.println();
+
+      out.println("  /**");
+      out.println("   * The types of the attributes handled by this class.");
+      out.println("   */");
+      out.print("  public static final Class<?>[] ATTRIBUTE_TYPES = {");
+      for (int i = 0; i < attributes.size(); ++i) {
+        out.print((i == 0 ? "" : ", ")
+            + this.processingEnv.getTypeUtils().erasure(attributes.get(i).type) + ".class");
+      }
+      out.println("};");
+      out.println();
+
+      out.println("  @Override");
+      out.println("  public Object get(final Object entity, final int index) {");
+      out.println("    final " + entityName + " e = (" + entityName + ") entity;");
+      out.println();
+      out.println("    switch (index) {");
+      for (int i = 0; i < attributes.size(); ++i) {
+        out.println("      case " + i + ":");
+        out.println("        return " + attributes.get(i).getExpression + ";");
+      }
+      out.println("      default:");
+      out.println("        throw new IndexOutOfBoundsException(\"No attribute at index \" + index"
+          + " + \" !\");");
+      out.println("    }");
+      out.println("  }");
+      out.println();
+
+      out.println("  @Override");
+      out.println("  public String[] getAttributeNames() {");
+      out.println("    return ATTRIBUTE_NAMES.clone();");
+      out.println("  }");
+      out.println();
+
+      out.println("  @Override");
+      out.println("  @SuppressWarnings({\"unchecked\", \"rawtypes\"})");
+      out.println("  public void set(final Object entity, final int index, final Object value) {");
+      out.println("    final " + entityName + " e = (" + entityName + ") entity;");
+      out.println();
+      out.println("    switch (index) {");
+      for (int i = 0; i < attributes.size(); ++i) {
+        Attribute attribute = attributes.get(i);
+        out.println("      case " + i + ":");
+        out.println("        " + String.format(attribute.setStatement,
+            "(" + this.getCastTypeName(attribute.type) + ") value") + ";");
+        out.println("        return;");
+      }
+      out.println("      default:");
+      out.println("        throw new IndexOutOfBoundsException(\"No attribute at index \" + index"
+          + " + \" !\");");
+      out.println("    }");
+      out.println("  }");
+      out.println("}");
+    }
+  }
+
+  /**
+   * Gets the name of the type used to cast a value before setting it in an attribute.
+   *
+   * @param type the type of the attribute.
+   *
+   * @return the name of the type used in the cast.
+   */
+  private String getCastTypeName(final TypeMirror type) {
+    if (type.getKind().isPrimitive()) {
+      return this.processingEnv.getTypeUtils().boxedClass((PrimitiveType) type).getQualifiedName()
+          .toString();
+    }
+
+    return this.processingEnv.getTypeUtils().erasure(type).toString();
+  }
+
+  /**
+   * Gets the package of an element.
+   *
+   * @param element the element.
+   *
+   * @return the package of the element.
+   */
+  private PackageElement getPackage(final Element element) {
+    return this.processingEnv.getElementUtils().getPackageOf(element);
+  }
+
+  /**
+   * Checks if a field is the primitive technical identifier of
+   * `org.gomoob.model.AbstractIntIdEntity` or `org.gomoob.model.AbstractLongIdEntity`, this field
+   * stores the `id` attribute of the entity.
+   *
+   * @param field the field to check.
+   *
+   * @return `true` if the field is a primitive technical identifier, `false` otherwise.
+   */
+  private static boolean isPrimitiveId(final VariableElement field) {
+    Name className = ((TypeElement) field.getEnclosingElement()).getQualifiedName();
+
+    return className.contentEquals(ABSTRACT_INT_ID_ENTITY_CLASS_NAME)
+        || className.contentEquals(ABSTRACT_LONG_ID_ENTITY_CLASS_NAME);
+  }
+
+  /**
+   * Checks if a member of an entity class (or of one of its parent classes) is visible from the
+   * generated class, the generated class is always in the same package as the entity class.
+   *
+   * @param member the member to check.
+   * @param type the entity class.
+   *
+   * @return `true` if the member is visible from the generated class, `false` otherwise.
+   */
+  private boolean isVisible(final Element member, final TypeElement type) {
+    Set<Modifier> modifiers = member.getModifiers();
+
+    if (modifiers.contains(Modifier.PUBLIC)) {
+      return true;
+    }
+
+    return !modifiers.contains(Modifier.PRIVATE)
+        && this.getPackage(member).equals(this.getPackage(type));
+  }
+
+  /**
+   * Processes a class and its nested classes, if the class is a concrete entity class its attribute
+   * accessors are generated.
+   *
+   * @param type the class to process.
+   * @param abstractEntity the base class of all the entities.
+   */
+  private void processType(final TypeElement type, final TypeElement abstractEntity) {
+    for (TypeElement nestedType : ElementFilter.typesIn(type.getEnclosedElements())) {
+      this.processType(nestedType, abstractEntity);
+    }
+
+    Set<Modifier> modifiers = type.getModifiers();
+
+    if (type.getKind() != ElementKind.CLASS || modifiers.contains(Modifier.ABSTRACT)
+        || modifiers.contains(Modifier.PRIVATE) || !type.getTypeParameters().isEmpty()
+        || (type.getNestingKind() == NestingKind.MEMBER && !modifiers.contains(Modifier.STATIC))
+        || !this.processingEnv.getTypeUtils().isSubtype(
+            this.processingEnv.getTypeUtils().erasure(type.asType()),
+            this.processingEnv.getTypeUtils().erasure(abstractEntity.asType()))) {
+      return;
+    }
+
+    List<Attribute> attributes = new ArrayList<Attribute>();
+    this.collectAttributes(type, attributes);
+
+    if (attributes.isEmpty()) {
+      return;
+    }
+
+    try {
+      this.generate(type, attributes);
+    } catch (IOException ioex) {
+      this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+          "Fail to generate attribute accessors : " + ioex.getMessage(), type);
+    }
+  }
+
+  /**
+   * Attribute handled by a generated class.
+   *
+   * @author GOMOOB SARL (contact@gomoob.com)
+   */
+  private static final class Attribute {
+
+    /**
+     * The Java expression used to get the attribute value from an entity named `e`.
+     */
+    private final String getExpression;
+
+    /**
+     * The name of the attribute.
+     */
+    private final String name;
+
+    /**
+     * The Java statement used to set the attribute value on an entity named `e`, the statement
+     * contains a `%s` placeholder which is replaced by the value to set.
+     */
+    private final String setStatement;
+
+    /**
+     * The type of the attribute.
+     */
+    private final TypeMirror type;
+
+    /**
+     * Creates a new attribute handled by a generated class.
+     *
+     * @param name the name of the attribute.
+     * @param type the type of the attribute.
+     * @param getExpression the Java expression used to get the attribute value.
+     * @param setStatement the Java statement used to set the attribute value.
+     */
+    private Attribute(final String name, final TypeMirror type, final String getExpression,
+        final String setStatement) {
+      this.name = name;
+      this.type = type;
+      this.getExpression = getExpression;
+      this.setStatement = setStatement;
+    }
+  }
+}
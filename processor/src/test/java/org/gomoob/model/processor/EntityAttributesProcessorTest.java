@@ -0,0 +1,176 @@
+/**
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2017, GOMOOB All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided with
+ * the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.gomoob.model.processor;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.gomoob.model.IEntity;
+import org.gomoob.model.attribute.EntityAttributes;
+import org.gomoob.model.attribute.IGeneratedAttributes;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test case for the {@link EntityAttributesProcessor} class.
+ *
+ * @author GOMOOB SARL (contact@gomoob.com)
+ */
+public class EntityAttributesProcessorTest {
+
+  /**
+   * The name of the class of the attributes accessed using generated accessors.
+   */
+  private static final String GENERATED_ATTRIBUTE_CLASS_NAME =
+      "org.gomoob.model.attribute.GeneratedEntityAttribute";
+
+  /**
+   * Temporary folder in which one the sources are compiled.
+   */
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  /**
+   * Test method for {@link EntityAttributesProcessor#process(java.util.Set,
+   * javax.annotation.processing.RoundEnvironment)}.
+   *
+   * @throws Exception if an unexpected error occurs.
+   */
+  @Test
+  public void testProcess() throws Exception {
+    Path directory = this.temporaryFolder.getRoot().toPath();
+
+    this.write(directory, "com/mycompany/User.java",
+        "package com.mycompany;\n"
+        + "public class User extends org.gomoob.model.AbstractEntity<Integer> {\n"
+        + "  String login;\n"
+        + "  private int age;\n"
+        + "  private final String notAccessible = null;\n"
+        + "  public int getAge() { return this.age; }\n"
+        + "  public void setAge(final int age) { this.age = age * 2; }\n"
+        + "}\n");
+    this.write(directory, "com/mycompany/AbstractUser.java",
+        "package com.mycompany;\n"
+        + "public abstract class AbstractUser extends org.gomoob.model.AbstractEntity<Integer> {\n"
+        + "  String login;\n"
+        + "}\n");
+    this.write(directory, "com/mycompany/NotAnEntity.java",
+        "package com.mycompany;\n"
+        + "public class NotAnEntity {\n"
+        + "  String login;\n"
+        + "}\n");
+
+    // Compiles the sources with the annotation processor
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    try (StandardJavaFileManager fileManager =
+        compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8)) {
+      JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, null,
+          Arrays.asList("-d", directory.toString(), "-s", directory.toString(), "-classpath",
+              System.getProperty("java.class.path")),
+          null, fileManager.getJavaFileObjects(
+              directory.resolve("com/mycompany/User.java").toFile(),
+              directory.resolve("com/mycompany/AbstractUser.java").toFile(),
+              directory.resolve("com/mycompany/NotAnEntity.java").toFile()));
+      task.setProcessors(Collections.singletonList(new EntityAttributesProcessor()));
+
+      Assert.assertTrue(task.call());
+    }
+
+    // Only concrete entities have generated attribute accessors
+    Path generatedDirectory = directory.resolve("com/mycompany");
+    Assert.assertTrue(Files.exists(generatedDirectory.resolve("User_Attributes.java")));
+    Assert.assertFalse(Files.exists(generatedDirectory.resolve("AbstractUser_Attributes.java")));
+    Assert.assertFalse(Files.exists(generatedDirectory.resolve("NotAnEntity_Attributes.java")));
+
+    try (URLClassLoader classLoader = new URLClassLoader(new URL[] {directory.toUri().toURL()},
+        this.getClass().getClassLoader())) {
+      IGeneratedAttributes generatedAttributes = (IGeneratedAttributes) classLoader
+          .loadClass("com.mycompany.User_Attributes").getDeclaredConstructor().newInstance();
+
+      // Only the fields visible from the package of the entity are handled by the generated class
+      Assert.assertArrayEquals(new String[] {"login"}, generatedAttributes.getAttributeNames());
+
+      Class<?> userClass = classLoader.loadClass("com.mycompany.User");
+      @SuppressWarnings("unchecked")
+      IEntity<Integer> user =
+          (IEntity<Integer>) userClass.getDeclaredConstructor().newInstance();
+
+      generatedAttributes.set(user, 0, "jdoe");
+      Assert.assertEquals("jdoe", generatedAttributes.get(user, 0));
+
+      // The generated accessors are used by the entity itself
+      EntityAttributes attributes = EntityAttributes.of(userClass);
+      Assert.assertEquals(GENERATED_ATTRIBUTE_CLASS_NAME,
+          attributes.getAttribute("login").getClass().getName());
+      user.set("login", "jsmith");
+      Assert.assertEquals("jsmith", user.get("login"));
+      Assert.assertEquals("jsmith", generatedAttributes.get(user, 0));
+
+      // The other attributes use the reflective accessors which never call getters or setters
+      Assert.assertNotEquals(GENERATED_ATTRIBUTE_CLASS_NAME,
+          attributes.getAttribute("age").getClass().getName());
+      Assert.assertNotEquals(GENERATED_ATTRIBUTE_CLASS_NAME,
+          attributes.getAttribute("id").getClass().getName());
+      user.set("age", 42);
+      Assert.assertEquals(42, user.get("age"));
+      user.setId(1);
+      Assert.assertEquals(1, user.get("id"));
+      Assert.assertNull(user.get("notAccessible"));
+    }
+  }
+
+  /**
+   * Writes a source file.
+   *
+   * @param directory the root directory of the sources.
+   * @param path the path of the source file relative to the root directory.
+   * @param content the content of the source file.
+   *
+   * @throws IOException if the source file cannot be written.
+   */
+  private void write(final Path directory, final String path, final String content)
+      throws IOException {
+    File file = directory.resolve(path).toFile();
+    file.getParentFile().mkdirs();
+    Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+  }
+}
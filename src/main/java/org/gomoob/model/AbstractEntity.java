@@ -28,54 +28,201 @@
 
 package org.gomoob.model;
 
+import java.io.ObjectStreamException;
 import java.io.Serializable;
-import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.gomoob.model.attribute.AttributeKey;
+import org.gomoob.model.attribute.EntityAttribute;
+import org.gomoob.model.attribute.EntityAttributes;
+import org.gomoob.model.codec.SerializedEntity;
 
 /**
  * Abstract class to be extended by Java entities mapped to a database.
  *
+ * <p>
+ * The attributes modified using the generic setters of the entity (`set()`, `setAll()`, `setInt()`,
+ * etc.) are tracked as dirty attributes until `clearDirty()` is called. The attributes modified
+ * using the specific setters of the subclasses are not tracked unless these setters call
+ * `markDirty()`.
+ * </p>
+ * <p>
+ * By default entities are only equal to themselves, entity classes annotated with
+ * {@link IdEquality} use an equality based on their technical identifier instead.
+ * </p>
+ * <p>
+ * Entities are serializable, the entities of classes annotated with
+ * {@link CompactSerialization} are serialized using a compact binary form when this form preserves
+ * them, see {@link SerializedEntity}.
+ * </p>
+ *
  * @author Baptiste GAILLARD (baptiste.gaillard@gomoob.com)
  *
  * @param <IDT> the type of the technical identifier associated to this entity.
  */
-public abstract class AbstractEntity<IDT extends Serializable> implements IEntity<IDT> {
+public abstract class AbstractEntity<IDT extends Serializable>
+    implements IEntity<IDT>, Serializable {
+
+  /**
+   * Indicates for each entity class if it uses the identifier based equality.
+   */
+  private static final ClassValue<Boolean> ID_EQUALITY = new ClassValue<Boolean>() {
+    @Override
+    protected Boolean computeValue(final Class<?> type) {
+      return type.isAnnotationPresent(IdEquality.class);
+    }
+  };
+
+  /**
+   * The version of the serialized form.
+   */
+  private static final long serialVersionUID = 1L;
 
   /**
    * Technical identifier of the entity. This is is most cases mapped to a primary key in database.
    */
   protected IDT id = null;
 
+  /**
+   * Bit set of the first 64 dirty attributes of the entity, indexed by attribute index.
+   */
+  private transient long dirtyAttributes;
+
+  /**
+   * Bit set of the dirty attributes of the entity having an index greater than 63, this bit set is
+   * only allocated for entities having more than 64 attributes.
+   */
+  private transient long[] extraDirtyAttributes;
+
+  /**
+   * The technical identifier for which one the hash code of the entity has been computed, `null` if
+   * the hash code has not been computed yet. This field is volatile so that a thread which reads it
+   * also reads the associated `idHashCode`.
+   */
+  private transient volatile Object hashedId;
+
+  /**
+   * The hash code of the entity computed from the technical identifier `hashedId`.
+   */
+  private transient int idHashCode;
+
   /**
    * {@inheritDoc}
    */
   @Override
-  public Object get(final String attributeName) {
-    String errorMessage = "Fail to get value of property '" + attributeName + "' !";
-    Field field = null;
+  public void clearDirty() {
+    this.dirtyAttributes = 0L;
+    this.extraDirtyAttributes = null;
+  }
+
+  /**
+   * Checks if this entity is equal to an other object.
+   *
+   * <p>
+   * If the entity class is annotated with {@link IdEquality} the entity is equal to the entities of
+   * the same class having an equal non `null` technical identifier. Otherwise, or if the entity
+   * does not have any technical identifier yet, the entity is only equal to itself.
+   * </p>
+   *
+   * @param obj the object to compare with.
+   *
+   * @return `true` if this entity is equal to `obj`, `false` otherwise.
+   */
+  @Override
+  public boolean equals(final Object obj) {
+    if (this == obj) {
+      return true;
+    }
 
-    try {
-      field = this.getClass().getDeclaredField(attributeName);
-    } catch (NoSuchFieldException nsfex) {
-      throw new RuntimeException(errorMessage, nsfex);
+    if (obj == null || obj.getClass() != this.getClass() || !hasIdEquality(this.getClass())) {
+      return false;
     }
 
-    // Backup the property accessibility
-    boolean accessible = field.isAccessible();
-
-    field.setAccessible(true);
-    Object attributeValue = null;
-    try {
-      attributeValue = field.get(this);
-    } catch (IllegalArgumentException iaex) {
-      throw new RuntimeException(errorMessage, iaex);
-    } catch (IllegalAccessException iaccex) {
-      throw new RuntimeException(errorMessage, iaccex);
+    IDT id = this.getId();
+    return id != null && id.equals(((AbstractEntity<?>) obj).getId());
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Object get(final String attributeName) {
+    return EntityAttributes.of(this.getClass()).get(this, attributeName);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public <T> T get(final AttributeKey<?, T> key) {
+    return key.get(this);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Object[] getAll(final String... attributeNames) {
+    EntityAttributes attributes = EntityAttributes.of(this.getClass());
+    Object[] attributeValues = new Object[attributeNames.length];
+
+    for (int i = 0; i < attributeNames.length; ++i) {
+      attributeValues[i] = attributes.get(this, attributeNames[i]);
     }
 
-    // Restore the property accessibility
-    field.setAccessible(accessible);
+    return attributeValues;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean getBoolean(final String attributeName) {
+    return EntityAttributes.of(this.getClass()).getBoolean(this, attributeName);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public double getDouble(final String attributeName) {
+    return EntityAttributes.of(this.getClass()).getDouble(this, attributeName);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int getInt(final String attributeName) {
+    return EntityAttributes.of(this.getClass()).getInt(this, attributeName);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public long getLong(final String attributeName) {
+    return EntityAttributes.of(this.getClass()).getLong(this, attributeName);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Set<String> getDirtyAttributes() {
+    Set<String> dirtyAttributeNames = new LinkedHashSet<String>();
+    EntityAttributes attributes = EntityAttributes.of(this.getClass());
+
+    for (int i = 0; i < attributes.getAttributes().size(); ++i) {
+      if (this.isDirty(i)) {
+        dirtyAttributeNames.add(attributes.getAttribute(i).getName());
+      }
+    }
 
-    return attributeValue;
+    return dirtyAttributeNames;
   }
 
   /**
@@ -86,34 +233,191 @@ public abstract class AbstractEntity<IDT extends Serializable> implements IEntit
     return this.id;
   }
 
+  /**
+   * Checks if an entity class uses the identifier based equality.
+   *
+   * @param type the entity class.
+   *
+   * @return `true` if the entity class is annotated with {@link IdEquality}, `false` otherwise.
+   */
+  static boolean hasIdEquality(final Class<?> type) {
+    return ID_EQUALITY.get(type);
+  }
+
+  /**
+   * Gets the hash code of this entity.
+   *
+   * <p>
+   * If the entity class is annotated with {@link IdEquality} and the entity has a technical
+   * identifier the hash code is the hash code of the technical identifier, it is computed only once
+   * per technical identifier. Otherwise the identity hash code of the entity is returned.
+   * </p>
+   *
+   * @return the hash code of this entity.
+   */
+  @Override
+  public int hashCode() {
+    IDT id = this.getId();
+
+    if (id == null || !hasIdEquality(this.getClass())) {
+      return System.identityHashCode(this);
+    }
+
+    if (id != this.hashedId) {
+      this.idHashCode = id.hashCode();
+      this.hashedId = id;
+    }
+
+    return this.idHashCode;
+  }
+
   /**
    * {@inheritDoc}
    */
   @Override
-  public void set(final String attributeName, Object attributeValue) {
-    String errorMessage = "Fail to set value of property '" + attributeName + "' !";
-    Field field = null;
+  public boolean isDirty() {
+    if (this.dirtyAttributes != 0L) {
+      return true;
+    }
+
+    if (this.extraDirtyAttributes != null) {
+      for (long extraDirtyAttributes : this.extraDirtyAttributes) {
+        if (extraDirtyAttributes != 0L) {
+          return true;
+        }
+      }
+    }
+
+    return false;
+  }
 
-    try {
-      field = this.getClass().getDeclaredField(attributeName);
-    } catch (NoSuchFieldException nsfex) {
-      throw new RuntimeException(errorMessage, nsfex);
+  /**
+   * Checks if an attribute is dirty.
+   *
+   * @param index the index of the attribute to check.
+   *
+   * @return `true` if the attribute is dirty, `false` otherwise.
+   */
+  private boolean isDirty(final int index) {
+    if (index < 64) {
+      return (this.dirtyAttributes & (1L << index)) != 0L;
+    }
+
+    int extraIndex = (index >>> 6) - 1;
+    return this.extraDirtyAttributes != null && extraIndex < this.extraDirtyAttributes.length
+        && (this.extraDirtyAttributes[extraIndex] & (1L << index)) != 0L;
+  }
+
+  /**
+   * Marks an attribute as dirty.
+   *
+   * @param index the index of the attribute to mark.
+   */
+  private void markDirty(final int index) {
+    if (index < 64) {
+      this.dirtyAttributes |= 1L << index;
+      return;
+    }
+
+    int extraIndex = (index >>> 6) - 1;
+    if (this.extraDirtyAttributes == null) {
+      this.extraDirtyAttributes = new long[extraIndex + 1];
+    } else if (extraIndex >= this.extraDirtyAttributes.length) {
+      this.extraDirtyAttributes = Arrays.copyOf(this.extraDirtyAttributes, extraIndex + 1);
     }
 
-    // Backup the property accessibility
-    boolean accessible = field.isAccessible();
+    this.extraDirtyAttributes[extraIndex] |= 1L << index;
+  }
+
+  /**
+   * Marks an attribute as dirty, this function has to be called by the specific setters of the
+   * subclasses which want their modifications to be tracked.
+   *
+   * @param attributeName the name of the modified attribute.
+   *
+   * @throws RuntimeException if no attribute named `attributeName` exists.
+   */
+  protected void markDirty(final String attributeName) {
+    this.markDirty(
+        EntityAttributes.of(this.getClass()).getAttributeToSet(attributeName).getIndex());
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void set(final String attributeName, Object attributeValue) {
+    EntityAttribute attribute =
+        EntityAttributes.of(this.getClass()).getAttributeToSet(attributeName);
+    attribute.set(this, attributeValue);
+    this.markDirty(attribute.getIndex());
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public <T> void set(final AttributeKey<?, T> key, final T attributeValue) {
+    key.set(this, attributeValue);
+    this.markDirty(key.getIndex());
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void setAll(final Map<String, ?> attributeValues) {
+    EntityAttributes attributes = EntityAttributes.of(this.getClass());
 
-    field.setAccessible(true);
-    try {
-      field.set(this, attributeValue);
-    } catch (IllegalArgumentException iaex) {
-      throw new RuntimeException(errorMessage, iaex);
-    } catch (IllegalAccessException iaccex) {
-      throw new RuntimeException(errorMessage, iaccex);
+    for (Map.Entry<String, ?> entry : attributeValues.entrySet()) {
+      EntityAttribute attribute = attributes.getAttributeToSet(entry.getKey());
+      attribute.set(this, entry.getValue());
+      this.markDirty(attribute.getIndex());
     }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void setBoolean(final String attributeName, final boolean attributeValue) {
+    EntityAttribute attribute =
+        EntityAttributes.of(this.getClass()).getAttributeToSet(attributeName);
+    attribute.setBoolean(this, attributeValue);
+    this.markDirty(attribute.getIndex());
+  }
 
-    // Restore the property accessibility
-    field.setAccessible(accessible);
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void setDouble(final String attributeName, final double attributeValue) {
+    EntityAttribute attribute =
+        EntityAttributes.of(this.getClass()).getAttributeToSet(attributeName);
+    attribute.setDouble(this, attributeValue);
+    this.markDirty(attribute.getIndex());
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void setInt(final String attributeName, final int attributeValue) {
+    EntityAttribute attribute =
+        EntityAttributes.of(this.getClass()).getAttributeToSet(attributeName);
+    attribute.setInt(this, attributeValue);
+    this.markDirty(attribute.getIndex());
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void setLong(final String attributeName, final long attributeValue) {
+    EntityAttribute attribute =
+        EntityAttributes.of(this.getClass()).getAttributeToSet(attributeName);
+    attribute.setLong(this, attributeValue);
+    this.markDirty(attribute.getIndex());
   }
 
   /**
@@ -123,4 +427,19 @@ public abstract class AbstractEntity<IDT extends Serializable> implements IEntit
   public void setId(IDT id) {
     this.id = id;
   }
+
+  /**
+   * Replaces this entity by its compact serialized form when it is serialized using Java
+   * serialization, entities whose class is not annotated with {@link CompactSerialization} or which
+   * cannot use the compact form are serialized using the default Java serialization.
+   *
+   * @return the serialized form of this entity, or this entity itself if it has to be serialized
+   *         using the default Java serialization.
+   *
+   * @throws ObjectStreamException never, this exception is declared by the Java serialization
+   *           contract.
+   */
+  protected Object writeReplace() throws ObjectStreamException {
+    return SerializedEntity.replace(this);
+  }
 }
@@ -41,6 +41,11 @@ import java.util.Date;
 public abstract class AbstractEntityWithCreationDate<IDT extends Serializable>
     extends AbstractEntity<IDT> implements IEntityWithCreationDate<IDT> {
 
+  /**
+   * The version of the serialized form.
+   */
+  private static final long serialVersionUID = 1L;
+
   /**
    * The creation date of the entity.
    */
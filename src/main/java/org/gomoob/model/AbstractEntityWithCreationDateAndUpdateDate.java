@@ -41,6 +41,11 @@ import java.util.Date;
 public class AbstractEntityWithCreationDateAndUpdateDate<IDT extends Serializable> extends
     AbstractEntityWithCreationDate<IDT> implements IEntityWithCreationDateAndUpdateDate<IDT> {
 
+  /**
+   * The version of the serialized form.
+   */
+  private static final long serialVersionUID = 1L;
+
   /**
    * The update date of the entity.
    */
@@ -0,0 +1,129 @@
+/**
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2017, GOMOOB All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided with
+ * the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.gomoob.model;
+
+/**
+ * Abstract class to be extended by Java entities mapped to a database and having an `int` technical
+ * identifier.
+ *
+ * <p>
+ * The technical identifier is stored in a primitive `int` field instead of an `Integer` object,
+ * this saves one object per entity and allows to compare identifiers without unboxing using
+ * `getIntId()`. The value `0` means that the entity does not have any technical identifier yet,
+ * `getId()` then returns `null`.
+ * </p>
+ * <p>
+ * The primitive identifier is stored in a private `id` field which hides the `id` field of
+ * {@link AbstractEntity}, so the subclasses cannot assign the inherited `id` field by mistake
+ * (`this.id` does not compile in them). The hidden field is never used, it only costs one unused
+ * reference per entity. The primitive identifier is exposed as the `id` attribute of the entity,
+ * this attribute is an `int` attribute which can be read and written without boxing using
+ * `getInt("id")` and `setInt("id", value)`. Like `getId()`, the `get("id")` method returns
+ * `null` if the entity does not have any technical identifier yet.
+ * </p>
+ *
+ * @author GOMOOB SARL (contact@gomoob.com)
+ */
+public abstract class AbstractIntIdEntity extends AbstractEntity<Integer> {
+
+  /**
+   * The version of the serialized form.
+   */
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Technical identifier of the entity, `0` if the entity does not have any technical identifier
+   * yet.
+   */
+  private int id;
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean equals(final Object obj) {
+    if (this == obj) {
+      return true;
+    }
+
+    if (obj == null || obj.getClass() != this.getClass() || !hasIdEquality(this.getClass())) {
+      return false;
+    }
+
+    return this.id != 0 && this.id == ((AbstractIntIdEntity) obj).id;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Integer getId() {
+    return this.id == 0 ? null : Integer.valueOf(this.id);
+  }
+
+  /**
+   * Gets the technical identifier of the entity without boxing.
+   *
+   * @return the technical identifier of the entity, `0` if the entity does not have any technical
+   *         identifier yet.
+   */
+  public int getIntId() {
+    return this.id;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int hashCode() {
+    if (this.id == 0 || !hasIdEquality(this.getClass())) {
+      return System.identityHashCode(this);
+    }
+
+    return Integer.hashCode(this.id);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void setId(final Integer id) {
+    this.id = id == null ? 0 : id.intValue();
+  }
+
+  /**
+   * Sets the technical identifier of the entity without boxing.
+   *
+   * @param id the technical identifier of the entity, `0` if the entity does not have any technical
+   *          identifier.
+   */
+  public void setIntId(final int id) {
+    this.id = id;
+  }
+}
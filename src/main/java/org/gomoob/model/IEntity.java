@@ -29,6 +29,11 @@
 package org.gomoob.model;
 
 import java.io.Serializable;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+import org.gomoob.model.attribute.AttributeKey;
 
 /**
  * Interface which represents a Business Entity.
@@ -39,6 +44,19 @@ import java.io.Serializable;
  */
 public interface IEntity<IDT extends Serializable> {
 
+  /**
+   * Clears the dirty attributes of this entity, this is typically called once the entity has been
+   * persisted.
+   *
+   * <p>
+   * The default implementation does nothing, entities which extend {@link AbstractEntity} track
+   * their dirty attributes.
+   * </p>
+   */
+  public default void clearDirty() {
+    // Entities which do not track their dirty attributes have nothing to clear
+  }
+
   /**
    * Gets the value of an attribute of this entity by reflection.
    *
@@ -48,6 +66,126 @@ public interface IEntity<IDT extends Serializable> {
    */
   public Object get(final String attributeName);
 
+  /**
+   * Gets the value of an attribute of this entity using a typed attribute key.
+   *
+   * <p>
+   * The default implementation gets the attribute by name, entities which extend
+   * {@link AbstractEntity} directly use the attribute index resolved by the key.
+   * </p>
+   *
+   * @param key the key of the attribute for which one to get a value.
+   *
+   * @return the value of the attribute associated to <code>key</code>.
+   */
+  public default <T> T get(final AttributeKey<?, T> key) {
+    return key.getType().cast(this.get(key.getName()));
+  }
+
+  /**
+   * Gets the values of several attributes of this entity.
+   *
+   * <p>
+   * The default implementation calls `get(String)` for each attribute, entities which extend
+   * {@link AbstractEntity} resolve the attributes of their class only once. If the same attributes
+   * of the same entity class are always read prefer a precompiled
+   * {@link org.gomoob.model.attribute.AttributeAccessPlan}.
+   * </p>
+   *
+   * @param attributeNames the names of the attributes for which ones to get values.
+   *
+   * @return an array which contains the values of the attributes, in the same order as the
+   *         provided attribute names.
+   */
+  public default Object[] getAll(final String... attributeNames) {
+    Object[] attributeValues = new Object[attributeNames.length];
+
+    for (int i = 0; i < attributeNames.length; ++i) {
+      attributeValues[i] = this.get(attributeNames[i]);
+    }
+
+    return attributeValues;
+  }
+
+  /**
+   * Gets the value of an attribute of this entity as a `boolean`.
+   *
+   * <p>
+   * The default implementation unboxes the value returned by `get(String)`, entities which extend
+   * {@link AbstractEntity} read primitive attributes without boxing.
+   * </p>
+   *
+   * @param attributeName the name of the attribute for which one to get a value.
+   *
+   * @return the value of the attribute having a name equals to <code>attributeName</code>.
+   */
+  public default boolean getBoolean(final String attributeName) {
+    return (Boolean) this.get(attributeName);
+  }
+
+  /**
+   * Gets the value of an attribute of this entity as a `double`.
+   *
+   * <p>
+   * The default implementation unboxes the value returned by `get(String)`, entities which extend
+   * {@link AbstractEntity} read primitive attributes without boxing.
+   * </p>
+   *
+   * @param attributeName the name of the attribute for which one to get a value.
+   *
+   * @return the value of the attribute having a name equals to <code>attributeName</code>.
+   */
+  public default double getDouble(final String attributeName) {
+    return ((Number) this.get(attributeName)).doubleValue();
+  }
+
+  /**
+   * Gets the value of an attribute of this entity as an `int`.
+   *
+   * <p>
+   * The default implementation unboxes the value returned by `get(String)`, entities which extend
+   * {@link AbstractEntity} read primitive attributes without boxing.
+   * </p>
+   *
+   * @param attributeName the name of the attribute for which one to get a value.
+   *
+   * @return the value of the attribute having a name equals to <code>attributeName</code>.
+   */
+  public default int getInt(final String attributeName) {
+    return ((Number) this.get(attributeName)).intValue();
+  }
+
+  /**
+   * Gets the value of an attribute of this entity as a `long`.
+   *
+   * <p>
+   * The default implementation unboxes the value returned by `get(String)`, entities which extend
+   * {@link AbstractEntity} read primitive attributes without boxing.
+   * </p>
+   *
+   * @param attributeName the name of the attribute for which one to get a value.
+   *
+   * @return the value of the attribute having a name equals to <code>attributeName</code>.
+   */
+  public default long getLong(final String attributeName) {
+    return ((Number) this.get(attributeName)).longValue();
+  }
+
+  /**
+   * Gets the names of the attributes which have been modified since the entity has been created or
+   * since the last call to `clearDirty()`.
+   *
+   * <p>
+   * The default implementation returns an empty set, entities which extend {@link AbstractEntity}
+   * track their dirty attributes.
+   * </p>
+   *
+   * @return the names of the dirty attributes, in the order of the attributes of the entity class.
+   */
+  public default Set<String> getDirtyAttributes() {
+    return Collections.emptySet();
+  }
+
   /**
    * Gets the technical identifier of the entity. This is is most cases mapped to a primary key in
    * database.
@@ -56,6 +194,21 @@ public interface IEntity<IDT extends Serializable> {
    */
   public IDT getId();
 
+  /**
+   * Checks if at least one attribute of this entity has been modified since the entity has been
+   * created or since the last call to `clearDirty()`.
+   *
+   * <p>
+   * The default implementation returns `false`, entities which extend {@link AbstractEntity} track
+   * their dirty attributes.
+   * </p>
+   *
+   * @return `true` if at least one attribute is dirty, `false` otherwise.
+   */
+  public default boolean isDirty() {
+    return false;
+  }
+
   /**
    * Sets the value of an attribute of this entity by reflection.
    *
@@ -64,6 +217,97 @@ public interface IEntity<IDT extends Serializable> {
    */
   public void set(final String attributeName, final Object attributeValue);
 
+  /**
+   * Sets the value of an attribute of this entity using a typed attribute key.
+   *
+   * <p>
+   * The default implementation sets the attribute by name, entities which extend
+   * {@link AbstractEntity} directly use the attribute index resolved by the key.
+   * </p>
+   *
+   * @param key the key of the attribute for which one to set a value.
+   * @param attributeValue the value of the attribute to set.
+   */
+  public default <T> void set(final AttributeKey<?, T> key, final T attributeValue) {
+    this.set(key.getName(), attributeValue);
+  }
+
+  /**
+   * Sets the values of several attributes of this entity.
+   *
+   * <p>
+   * The default implementation calls `set(String, Object)` for each attribute, entities which
+   * extend {@link AbstractEntity} resolve the attributes of their class only once.
+   * </p>
+   *
+   * @param attributeValues the values of the attributes to set, indexed by attribute name.
+   */
+  public default void setAll(final Map<String, ?> attributeValues) {
+    for (Map.Entry<String, ?> entry : attributeValues.entrySet()) {
+      this.set(entry.getKey(), entry.getValue());
+    }
+  }
+
+  /**
+   * Sets the value of an attribute of this entity from a `boolean`.
+   *
+   * <p>
+   * The default implementation boxes the value and calls `set(String, Object)`, entities which
+   * extend {@link AbstractEntity} write primitive attributes without boxing.
+   * </p>
+   *
+   * @param attributeName the name of the attribute for which one to set a value.
+   * @param attributeValue the value of the attribute to set.
+   */
+  public default void setBoolean(final String attributeName, final boolean attributeValue) {
+    this.set(attributeName, attributeValue);
+  }
+
+  /**
+   * Sets the value of an attribute of this entity from a `double`.
+   *
+   * <p>
+   * The default implementation boxes the value and calls `set(String, Object)`, entities which
+   * extend {@link AbstractEntity} write primitive attributes without boxing.
+   * </p>
+   *
+   * @param attributeName the name of the attribute for which one to set a value.
+   * @param attributeValue the value of the attribute to set.
+   */
+  public default void setDouble(final String attributeName, final double attributeValue) {
+    this.set(attributeName, attributeValue);
+  }
+
+  /**
+   * Sets the value of an attribute of this entity from an `int`.
+   *
+   * <p>
+   * The default implementation boxes the value and calls `set(String, Object)`, entities which
+   * extend {@link AbstractEntity} write primitive attributes without boxing.
+   * </p>
+   *
+   * @param attributeName the name of the attribute for which one to set a value.
+   * @param attributeValue the value of the attribute to set.
+   */
+  public default void setInt(final String attributeName, final int attributeValue) {
+    this.set(attributeName, attributeValue);
+  }
+
+  /**
+   * Sets the value of an attribute of this entity from a `long`.
+   *
+   * <p>
+   * The default implementation boxes the value and calls `set(String, Object)`, entities which
+   * extend {@link AbstractEntity} write primitive attributes without boxing.
+   * </p>
+   *
+   * @param attributeName the name of the attribute for which one to set a value.
+   * @param attributeValue the value of the attribute to set.
+   */
+  public default void setLong(final String attributeName, final long attributeValue) {
+    this.set(attributeName, attributeValue);
+  }
+
   /**
    * Sets the technical identifier of the entity. This is is most cases mapped to a primary key in
    * database.
@@ -4,6 +4,7 @@
 
 package org.gomoob.model;
 
+import org.gomoob.model.metadata.Metadata;
 import org.json.JSONObject;
 
 /**
@@ -29,6 +30,25 @@ public interface IState extends IEntityWithCreationDate<String> {
      */
     public JSONObject getMetadata();
 
+    /**
+     * Gets the generic metadata attached to this state as immutable and compact metadata, the returned metadata are not
+     * modified when the JSON object returned by {@link #getMetadata()} is modified.
+     *
+     * <p>
+     * The default implementation converts the JSON object returned by {@link #getMetadata()}, implementations which
+     * keep the metadata in a compact form return them without conversion.
+     * </p>
+     *
+     * @return the immutable metadata, `null` if no metadata are attached to this state.
+     *
+     * @throws IllegalArgumentException if a value of the metadata cannot be stored in immutable metadata.
+     */
+    public default Metadata getMetadataView() {
+        JSONObject metadata = this.getMetadata();
+
+        return metadata == null ? null : Metadata.of(metadata);
+    }
+
     /**
      * Gets the name of the state.
      *
@@ -52,6 +72,20 @@ public interface IState extends IEntityWithCreationDate<String> {
      */
     public void setMetadata(final JSONObject metadata);
 
+    /**
+     * Sets the generic metadata attached to this state using immutable and compact metadata, for example a copy of the
+     * metadata returned by {@link #getMetadataView()} with one modified value.
+     *
+     * <p>
+     * The default implementation converts the metadata into a JSON object and calls {@link #setMetadata(JSONObject)}.
+     * </p>
+     *
+     * @param metadata the immutable metadata, `null` to remove the metadata.
+     */
+    public default void setMetadataView(final Metadata metadata) {
+        this.setMetadata(metadata == null ? null : metadata.toJSONObject());
+    }
+
     /**
      * Sets the name of the state.
      *
@@ -28,6 +28,8 @@ package org.gomoob.model.action;
 
 import org.gomoob.model.AbstractEntityWithCreationDate;
 import org.gomoob.model.IAction;
+import org.gomoob.model.metadata.JsonMetadata;
+import org.gomoob.model.metadata.Metadata;
 import org.json.JSONObject;
 
 /**
@@ -37,23 +39,47 @@ import org.json.JSONObject;
  */
 public class Action extends AbstractEntityWithCreationDate<String> implements IAction {
 
+    /**
+     * The version of the serialized form.
+     */
+    private static final long serialVersionUID = 1L;
+
     /**
      * The generic metadata attached to this action, this is an array which can contain any keys or values. This is
-     * useful to make the action usable in every application.
+     * useful to make the action usable in every application. The metadata are kept as raw JSON bytes until they are
+     * read, the `metadata` attribute is nevertheless a `JSONObject` attribute which is parsed by the generic getters.
      */
-    private JSONObject metadata;
+    private JsonMetadata metadata;
 
     /**
      * The name of the action.
      */
     private String name;
 
+    /**
+     * Gets the lazy holder of the generic metadata attached to this action, reading the holder does not parse the
+     * metadata.
+     *
+     * @return the holder of the metadata, `null` if no metadata are attached to this action.
+     */
+    public JsonMetadata getJsonMetadata() {
+        return this.metadata;
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public JSONObject getMetadata() {
-        return this.metadata;
+        return this.metadata == null ? null : this.metadata.getJSONObject();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Metadata getMetadataView() {
+        return this.metadata == null ? null : this.metadata.getMetadataView();
     }
 
     /**
@@ -64,12 +90,30 @@ public class Action extends AbstractEntityWithCreationDate<String> implements IA
         return this.name;
     }
 
+    /**
+     * Sets the lazy holder of the generic metadata attached to this action, for example to attach the raw bytes of JSON
+     * metadata without parsing them.
+     *
+     * @param metadata the holder of the metadata, `null` to remove the metadata.
+     */
+    public void setJsonMetadata(final JsonMetadata metadata) {
+        this.metadata = metadata;
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public void setMetadata(final JSONObject metadata) {
-        this.metadata = metadata;
+        this.metadata = metadata == null ? null : new JsonMetadata(metadata);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setMetadataView(final Metadata metadata) {
+        this.metadata = metadata == null ? null : new JsonMetadata(metadata);
     }
 
     /**
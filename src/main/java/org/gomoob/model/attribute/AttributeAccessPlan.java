@@ -0,0 +1,202 @@
+/**
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2017, GOMOOB All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided with
+ * the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.gomoob.model.attribute;
+
+/**
+ * Precompiled plan used to read or write a fixed list of attributes of an entity class in one pass.
+ *
+ * <p>
+ * An access plan resolves the attributes only once, when it is compiled, it can then be reused to
+ * copy attribute values from or to an `Object[]` array for any number of entities. This is useful
+ * for serializers or database mappers which always handle the same attributes of the same entity
+ * class, for example :
+ * </p>
+ *
+ * <pre>
+ * AttributeAccessPlan&lt;User&gt; plan = AttributeAccessPlan.compile(User.class, "id", "login");
+ * Object[] row = new Object[plan.size()];
+ *
+ * for (User user : users) {
+ *   plan.read(user, row);
+ *   ...
+ * }
+ * </pre>
+ *
+ * <p>
+ * Access plans are immutable and thread safe.
+ * </p>
+ *
+ * @author GOMOOB SARL (contact@gomoob.com)
+ *
+ * @param <E> the type of the entities accessed by the plan.
+ */
+public final class AttributeAccessPlan<E> {
+
+  /**
+   * The attributes accessed by the plan, in the order of the values arrays.
+   */
+  private final EntityAttribute[] attributes;
+
+  /**
+   * The class of the entities accessed by the plan.
+   */
+  private final Class<E> entityClass;
+
+  /**
+   * Creates a new access plan.
+   *
+   * @param entityClass the class of the entities accessed by the plan.
+   * @param attributes the attributes accessed by the plan.
+   */
+  private AttributeAccessPlan(final Class<E> entityClass, final EntityAttribute[] attributes) {
+    this.entityClass = entityClass;
+    this.attributes = attributes;
+  }
+
+  /**
+   * Compiles a new access plan.
+   *
+   * @param entityClass the class of the entities accessed by the plan.
+   * @param attributeNames the names of the attributes accessed by the plan, in the order of the
+   *          values arrays.
+   *
+   * @return the compiled access plan.
+   *
+   * @throws IllegalArgumentException if the entity class does not have an attribute with one of the
+   *           provided names.
+   */
+  public static <E> AttributeAccessPlan<E> compile(final Class<E> entityClass,
+      final String... attributeNames) {
+    EntityAttributes entityAttributes = EntityAttributes.of(entityClass);
+    EntityAttribute[] attributes = new EntityAttribute[attributeNames.length];
+
+    for (int i = 0; i < attributeNames.length; ++i) {
+      attributes[i] = entityAttributes.getAttribute(attributeNames[i]);
+
+      if (attributes[i] == null) {
+        throw new IllegalArgumentException("No attribute named '" + attributeNames[i]
+            + "' has been found in class '" + entityClass.getName() + "' !");
+      }
+    }
+
+    return new AttributeAccessPlan<E>(entityClass, attributes);
+  }
+
+  /**
+   * Checks that a values array has the size expected by the plan.
+   *
+   * @param values the values array to check.
+   *
+   * @throws IllegalArgumentException if the size of the array is not equal to the number of
+   *           attributes of the plan.
+   */
+  private void checkValues(final Object[] values) {
+    if (values.length != this.attributes.length) {
+      throw new IllegalArgumentException("The values array must have a length equal to "
+          + this.attributes.length + " !");
+    }
+  }
+
+  /**
+   * Gets the names of the attributes accessed by the plan.
+   *
+   * @return the names of the attributes accessed by the plan, in the order of the values arrays.
+   */
+  public String[] getAttributeNames() {
+    String[] attributeNames = new String[this.attributes.length];
+
+    for (int i = 0; i < this.attributes.length; ++i) {
+      attributeNames[i] = this.attributes[i].getName();
+    }
+
+    return attributeNames;
+  }
+
+  /**
+   * Gets the class of the entities accessed by the plan.
+   *
+   * @return the class of the entities accessed by the plan.
+   */
+  public Class<E> getEntityClass() {
+    return this.entityClass;
+  }
+
+  /**
+   * Reads the attributes of an entity into a new array.
+   *
+   * @param entity the entity to read.
+   *
+   * @return an array which contains the values of the attributes.
+   */
+  public Object[] read(final E entity) {
+    Object[] values = new Object[this.attributes.length];
+    this.read(entity, values);
+
+    return values;
+  }
+
+  /**
+   * Reads the attributes of an entity into an existing array.
+   *
+   * @param entity the entity to read.
+   * @param values the array to fill with the values of the attributes, its length must be equal to
+   *          the number of attributes of the plan.
+   */
+  public void read(final E entity, final Object[] values) {
+    this.checkValues(values);
+
+    for (int i = 0; i < this.attributes.length; ++i) {
+      values[i] = this.attributes[i].get(entity);
+    }
+  }
+
+  /**
+   * Gets the number of attributes accessed by the plan.
+   *
+   * @return the number of attributes accessed by the plan.
+   */
+  public int size() {
+    return this.attributes.length;
+  }
+
+  /**
+   * Writes the attributes of an entity from an array.
+   *
+   * @param entity the entity to write.
+   * @param values the values of the attributes to write, its length must be equal to the number of
+   *          attributes of the plan.
+   */
+  public void write(final E entity, final Object[] values) {
+    this.checkValues(values);
+
+    for (int i = 0; i < this.attributes.length; ++i) {
+      this.attributes[i].set(entity, values[i]);
+    }
+  }
+}
@@ -0,0 +1,218 @@
+/**
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2017, GOMOOB All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided with
+ * the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.gomoob.model.attribute;
+
+/**
+ * Typed key used to get or set an attribute of an entity without using its name.
+ *
+ * <p>
+ * An attribute key is resolved only once, when it is created, into the index of the attribute in
+ * the attributes of its entity class. Getting or setting an attribute using a key is then done
+ * without any string hashing or comparison and without any cast on the caller side. Attribute keys
+ * are immutable and should be stored in static constants, for example :
+ * </p>
+ *
+ * <pre>
+ * public static final AttributeKey&lt;User, String&gt; LOGIN =
+ *     AttributeKey.of(User.class, "login", String.class);
+ * </pre>
+ *
+ * <p>
+ * Because the attributes of the parent classes always come first a key created for an entity class
+ * can also be used with all the subclasses of this entity class.
+ * </p>
+ *
+ * @author GOMOOB SARL (contact@gomoob.com)
+ *
+ * @param <E> the type of the entity which holds the attribute.
+ * @param <T> the type of the attribute, primitive attributes use their wrapper type.
+ */
+public final class AttributeKey<E, T> {
+
+  /**
+   * The accessor of the attribute.
+   */
+  private final EntityAttribute attribute;
+
+  /**
+   * The class of the entity which holds the attribute.
+   */
+  private final Class<E> entityClass;
+
+  /**
+   * The type of the attribute.
+   */
+  private final Class<T> type;
+
+  /**
+   * Creates a new attribute key.
+   *
+   * @param entityClass the class of the entity which holds the attribute.
+   * @param attribute the accessor of the attribute.
+   * @param type the type of the attribute.
+   */
+  private AttributeKey(final Class<E> entityClass, final EntityAttribute attribute,
+      final Class<T> type) {
+    this.entityClass = entityClass;
+    this.attribute = attribute;
+    this.type = type;
+  }
+
+  /**
+   * Creates a new attribute key.
+   *
+   * @param entityClass the class of the entity which holds the attribute.
+   * @param attributeName the name of the attribute.
+   * @param type the type of the attribute.
+   *
+   * @return the created attribute key.
+   *
+   * @throws IllegalArgumentException if the entity class does not have an attribute named
+   *           `attributeName` or if the type of the attribute is not compatible with `type`.
+   */
+  public static <E, T> AttributeKey<E, T> of(final Class<E> entityClass,
+      final String attributeName, final Class<T> type) {
+    EntityAttribute attribute = EntityAttributes.of(entityClass).getAttribute(attributeName);
+
+    if (attribute == null) {
+      throw new IllegalArgumentException("No attribute named '" + attributeName
+          + "' has been found in class '" + entityClass.getName() + "' !");
+    }
+
+    Class<?> attributeType = wrap(attribute.getType());
+    Class<?> keyType = wrap(type);
+    if (!keyType.isAssignableFrom(attributeType) && !attributeType.isAssignableFrom(keyType)) {
+      throw new IllegalArgumentException("Attribute '" + attributeName + "' is of type '"
+          + attribute.getType().getName() + "' which is not compatible with type '"
+          + type.getName() + "' !");
+    }
+
+    // Primitive class literals (i.e `int.class`) are typed with their wrapper type
+    @SuppressWarnings("unchecked")
+    Class<T> wrappedType = (Class<T>) wrap(type);
+
+    return new AttributeKey<E, T>(entityClass, attribute, wrappedType);
+  }
+
+  /**
+   * Gets the wrapper type of a primitive type.
+   *
+   * @param type the type to wrap.
+   *
+   * @return the wrapper type of `type` if `type` is a primitive type, `type` otherwise.
+   */
+  private static Class<?> wrap(final Class<?> type) {
+    if (!type.isPrimitive()) {
+      return type;
+    } else if (type == int.class) {
+      return Integer.class;
+    } else if (type == long.class) {
+      return Long.class;
+    } else if (type == double.class) {
+      return Double.class;
+    } else if (type == boolean.class) {
+      return Boolean.class;
+    } else if (type == float.class) {
+      return Float.class;
+    } else if (type == short.class) {
+      return Short.class;
+    } else if (type == byte.class) {
+      return Byte.class;
+    }
+
+    return Character.class;
+  }
+
+  /**
+   * Gets the value of the attribute on an entity.
+   *
+   * @param entity the entity for which one to get the attribute value, this entity must be an
+   *          instance of the entity class of the key.
+   *
+   * @return the value of the attribute.
+   */
+  public T get(final Object entity) {
+    return this.type.cast(this.attribute.get(entity));
+  }
+
+  /**
+   * Gets the class of the entity which holds the attribute.
+   *
+   * @return the class of the entity which holds the attribute.
+   */
+  public Class<E> getEntityClass() {
+    return this.entityClass;
+  }
+
+  /**
+   * Gets the index of the attribute in the attributes of the entity class.
+   *
+   * @return the index of the attribute.
+   */
+  public int getIndex() {
+    return this.attribute.getIndex();
+  }
+
+  /**
+   * Gets the name of the attribute.
+   *
+   * @return the name of the attribute.
+   */
+  public String getName() {
+    return this.attribute.getName();
+  }
+
+  /**
+   * Gets the type of the attribute.
+   *
+   * @return the type of the attribute.
+   */
+  public Class<T> getType() {
+    return this.type;
+  }
+
+  /**
+   * Sets the value of the attribute on an entity.
+   *
+   * @param entity the entity for which one to set the attribute value, this entity must be an
+   *          instance of the entity class of the key.
+   * @param value the value of the attribute to set.
+   */
+  public void set(final Object entity, final T value) {
+    this.attribute.set(entity, value);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString() {
+    return this.entityClass.getName() + "#" + this.getName();
+  }
+}
@@ -0,0 +1,604 @@
+/**
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2017, GOMOOB All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided with
+ * the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.gomoob.model.attribute;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.WrongMethodTypeException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Type;
+
+import org.gomoob.model.metadata.JsonMetadata;
+import org.json.JSONObject;
+
+/**
+ * Cached accessor used to read and write one attribute of an entity class.
+ *
+ * <p>
+ * An attribute accessor is resolved only once per entity class by {@link EntityAttributes}, the
+ * underlying field is made accessible at this moment and is then accessed through method handles.
+ * No reflective lookup, no accessibility change and no allocation happen when an attribute is read
+ * or written successfully.
+ * </p>
+ *
+ * <p>
+ * When the entity class has been processed by the `model-processor` annotation processor the
+ * attribute is read and written through the generated {@link IGeneratedAttributes} class instead.
+ * </p>
+ *
+ * <p>
+ * The attributes stored in a {@link JsonMetadata} field are `JSONObject` attributes, `get` parses
+ * the metadata and `set` accepts a `JSONObject` or a {@link JsonMetadata}. The codecs and the JSON
+ * readers and writers use {@link #getStoredValue(Object)} to copy the raw metadata without parsing
+ * them.
+ * </p>
+ *
+ * @author GOMOOB SARL (contact@gomoob.com)
+ */
+public class EntityAttribute {
+
+  /**
+   * The type of a generic getter method handle, that's to say `(Object) Object`.
+   */
+  private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+  /**
+   * The type of a generic setter method handle, that's to say `(Object, Object) void`.
+   */
+  private static final MethodType SETTER_TYPE =
+      MethodType.methodType(void.class, Object.class, Object.class);
+
+  /**
+   * The method handle used to copy the value of the attribute from an entity to an other one,
+   * that's to say `(Object target, Object source) void`, this method handle never boxes primitive
+   * values.
+   */
+  private final MethodHandle copier;
+
+  /**
+   * The method handle used to get the value of the attribute.
+   */
+  private final MethodHandle getter;
+
+  /**
+   * The method handle used to get the value of the attribute as a `boolean`, `null` if the
+   * attribute cannot be converted to a `boolean`.
+   */
+  private final MethodHandle booleanGetter;
+
+  /**
+   * The method handle used to set the value of the attribute from a `boolean`, `null` if a
+   * `boolean` cannot be converted to the type of the attribute.
+   */
+  private final MethodHandle booleanSetter;
+
+  /**
+   * The method handle used to get the value of the attribute as a `double`, `null` if the attribute
+   * cannot be converted to a `double`.
+   */
+  private final MethodHandle doubleGetter;
+
+  /**
+   * The method handle used to set the value of the attribute from a `double`, `null` if a `double`
+   * cannot be converted to the type of the attribute.
+   */
+  private final MethodHandle doubleSetter;
+
+  /**
+   * The method handle used to get the value of the attribute as an `int`, `null` if the attribute
+   * cannot be converted to an `int`.
+   */
+  private final MethodHandle intGetter;
+
+  /**
+   * The method handle used to set the value of the attribute from an `int`, `null` if an `int`
+   * cannot be converted to the type of the attribute.
+   */
+  private final MethodHandle intSetter;
+
+  /**
+   * The method handle used to get the value of the attribute as a `long`, `null` if the attribute
+   * cannot be converted to a `long`.
+   */
+  private final MethodHandle longGetter;
+
+  /**
+   * The method handle used to set the value of the attribute from a `long`, `null` if a `long`
+   * cannot be converted to the type of the attribute.
+   */
+  private final MethodHandle longSetter;
+
+  /**
+   * The index of the attribute in the attributes of its entity class.
+   */
+  private final int index;
+
+  /**
+   * The name of the attribute.
+   */
+  private final String name;
+
+  /**
+   * The method handle used to set the value of the attribute.
+   */
+  private final MethodHandle setter;
+
+  /**
+   * The method handle used to get the value stored in the field of the attribute.
+   */
+  private final MethodHandle storedGetter;
+
+  /**
+   * The type of the field which stores the attribute value.
+   */
+  private final Class<?> storedType;
+
+  /**
+   * The generic type of the attribute, for example a type variable for the technical identifier of
+   * the entities.
+   */
+  private final Type genericType;
+
+  /**
+   * The type of the attribute.
+   */
+  private final Class<?> type;
+
+  /**
+   * The boxed `0` value of the attribute type if `0` means that the attribute has no value, `null`
+   * otherwise.
+   */
+  private final Object zero;
+
+  /**
+   * Creates a new accessor for an attribute.
+   *
+   * @param field the field which stores the attribute value.
+   * @param index the index of the attribute in the attributes of its entity class.
+   */
+  EntityAttribute(final Field field, final int index) {
+    this(field, field.getName(), index, false);
+  }
+
+  /**
+   * Creates a new accessor for an attribute, the attribute can have a name different from the name
+   * of the field which stores its value.
+   *
+   * @param field the field which stores the attribute value.
+   * @param name the name of the attribute.
+   * @param index the index of the attribute in the attributes of its entity class.
+   * @param zeroIsNull `true` if the field is a primitive field in which one `0` means that the
+   *          attribute has no value, `get` then returns `null` for `0` and `set` stores `0` for
+   *          `null`. The primitive accessors and `copy` read and write the field as is.
+   */
+  EntityAttribute(final Field field, final String name, final int index,
+      final boolean zeroIsNull) {
+    boolean jsonMetadata = field.getType() == JsonMetadata.class;
+
+    this.index = index;
+    this.name = name;
+    this.storedType = field.getType();
+    this.type = jsonMetadata ? JSONObject.class : field.getType();
+    this.genericType = jsonMetadata ? JSONObject.class : field.getGenericType();
+
+    field.setAccessible(true);
+
+    MethodHandle fieldGetter = null;
+    MethodHandle fieldSetter = null;
+    MethodHandle getterHandle = null;
+    MethodHandle setterHandle = null;
+    try {
+      MethodHandles.Lookup lookup = MethodHandles.lookup();
+      fieldGetter = lookup.unreflectGetter(field);
+      fieldSetter = lookup.unreflectSetter(field);
+      getterHandle = fieldGetter;
+      setterHandle = fieldSetter;
+
+      // The JSON metadata are converted from and to 'JSONObject'
+      if (jsonMetadata) {
+        getterHandle = MethodHandles.filterReturnValue(fieldGetter,
+            lookup.findStatic(EntityAttribute.class, "toJSONObject",
+                MethodType.methodType(JSONObject.class, JsonMetadata.class)));
+        setterHandle = MethodHandles.filterArguments(fieldSetter, 1,
+            lookup.findStatic(EntityAttribute.class, "toJsonMetadata",
+                MethodType.methodType(JsonMetadata.class, Object.class)));
+      }
+    } catch (IllegalAccessException | NoSuchMethodException ex) {
+      throw new RuntimeException("Fail to access property '" + this.name + "' !", ex);
+    }
+
+    this.getter = getterHandle.asType(GETTER_TYPE);
+    this.setter = setterHandle.asType(SETTER_TYPE);
+    this.storedGetter = fieldGetter.asType(GETTER_TYPE);
+
+    // The default value of an array element is the boxed 0 of the primitive type
+    this.zero = zeroIsNull ? Array.get(Array.newInstance(this.type, 1), 0) : null;
+    this.copier = MethodHandles.collectArguments(fieldSetter, 1, fieldGetter).asType(SETTER_TYPE);
+
+    // Primitive accessors, the method handles perform the widening, boxing and unboxing conversions
+    // allowed by Java, they are not available if no conversion exists
+    this.booleanGetter = adapt(fieldGetter, MethodType.methodType(boolean.class, Object.class));
+    this.booleanSetter =
+        adapt(fieldSetter, MethodType.methodType(void.class, Object.class, boolean.class));
+    this.doubleGetter = adapt(fieldGetter, MethodType.methodType(double.class, Object.class));
+    this.doubleSetter =
+        adapt(fieldSetter, MethodType.methodType(void.class, Object.class, double.class));
+    this.intGetter = adapt(fieldGetter, MethodType.methodType(int.class, Object.class));
+    this.intSetter = adapt(fieldSetter, MethodType.methodType(void.class, Object.class, int.class));
+    this.longGetter = adapt(fieldGetter, MethodType.methodType(long.class, Object.class));
+    this.longSetter =
+        adapt(fieldSetter, MethodType.methodType(void.class, Object.class, long.class));
+  }
+
+  /**
+   * Adapts a method handle to a new type.
+   *
+   * @param methodHandle the method handle to adapt.
+   * @param type the new type of the method handle.
+   *
+   * @return the adapted method handle or `null` if the method handle cannot be adapted.
+   */
+  private static MethodHandle adapt(final MethodHandle methodHandle, final MethodType type) {
+    try {
+      return methodHandle.asType(type);
+    } catch (WrongMethodTypeException wmtex) {
+      return null;
+    }
+  }
+
+  /**
+   * Converts the value of a JSON metadata field to the value of its `JSONObject` attribute.
+   *
+   * @param metadata the value of the field.
+   *
+   * @return the parsed metadata, `null` if `metadata` is `null`.
+   */
+  private static JSONObject toJSONObject(final JsonMetadata metadata) {
+    return metadata == null ? null : metadata.getJSONObject();
+  }
+
+  /**
+   * Converts the value of a `JSONObject` attribute to the value of its JSON metadata field.
+   *
+   * @param value the value of the attribute, a `JSONObject`, a {@link JsonMetadata} or `null`.
+   *
+   * @return the value of the field.
+   *
+   * @throws IllegalArgumentException if the value is neither a `JSONObject` nor a
+   *           {@link JsonMetadata}.
+   */
+  private static JsonMetadata toJsonMetadata(final Object value) {
+    if (value == null || value instanceof JsonMetadata) {
+      return (JsonMetadata) value;
+    } else if (value instanceof JSONObject) {
+      return new JsonMetadata((JSONObject) value);
+    }
+
+    throw new IllegalArgumentException(
+        "Cannot convert value of type '" + value.getClass().getName() + "' to JSON metadata !");
+  }
+
+  /**
+   * Creates the exception thrown when a primitive accessor is not available.
+   *
+   * @param operation the operation which failed, `get` or `set`.
+   * @param primitiveType the primitive type of the accessor.
+   *
+   * @return the exception to throw.
+   */
+  private RuntimeException unsupportedConversion(final String operation,
+      final Class<?> primitiveType) {
+    return new RuntimeException(
+        "Fail to " + operation + " value of property '" + this.name + "' !",
+        new IllegalStateException("Property '" + this.name + "' of type '" + this.type.getName()
+            + "' cannot be converted to '" + primitiveType.getName() + "' !"));
+  }
+
+  /**
+   * Copies the value of this attribute from an entity to an other entity, the value is copied by
+   * reference and no boxing is performed if the attribute is a primitive attribute.
+   *
+   * @param source the entity from which one to read the attribute value.
+   * @param target the entity in which one to write the attribute value.
+   */
+  public void copy(final Object source, final Object target) {
+    try {
+      this.copier.invokeExact(target, source);
+    } catch (Throwable t) {
+      throw new RuntimeException("Fail to copy value of property '" + this.name + "' !", t);
+    }
+  }
+
+  /**
+   * Gets the value of this attribute on an entity.
+   *
+   * @param entity the entity for which one to get the attribute value.
+   *
+   * @return the value of the attribute.
+   */
+  public Object get(final Object entity) {
+    try {
+      Object value = (Object) this.getter.invokeExact(entity);
+
+      return this.zero != null && this.zero.equals(value) ? null : value;
+    } catch (Throwable t) {
+      throw new RuntimeException("Fail to get value of property '" + this.name + "' !", t);
+    }
+  }
+
+  /**
+   * Gets the value of this attribute on an entity as a `boolean`, no boxing is performed if the
+   * attribute is a primitive attribute.
+   *
+   * @param entity the entity for which one to get the attribute value.
+   *
+   * @return the value of the attribute.
+   */
+  public boolean getBoolean(final Object entity) {
+    if (this.booleanGetter == null) {
+      throw this.unsupportedConversion("get", boolean.class);
+    }
+
+    try {
+      return (boolean) this.booleanGetter.invokeExact(entity);
+    } catch (Throwable t) {
+      throw new RuntimeException("Fail to get value of property '" + this.name + "' !", t);
+    }
+  }
+
+  /**
+   * Gets the value of this attribute on an entity as a `double`, no boxing is performed if the
+   * attribute is a primitive attribute.
+   *
+   * @param entity the entity for which one to get the attribute value.
+   *
+   * @return the value of the attribute.
+   */
+  public double getDouble(final Object entity) {
+    if (this.doubleGetter == null) {
+      throw this.unsupportedConversion("get", double.class);
+    }
+
+    try {
+      return (double) this.doubleGetter.invokeExact(entity);
+    } catch (Throwable t) {
+      throw new RuntimeException("Fail to get value of property '" + this.name + "' !", t);
+    }
+  }
+
+  /**
+   * Gets the generic type of the attribute.
+   *
+   * @return the generic type of the attribute.
+   */
+  public Type getGenericType() {
+    return this.genericType;
+  }
+
+  /**
+   * Gets the index of the attribute in the attributes of its entity class. Because the attributes
+   * of the parent classes always come first an attribute has the same index in all the subclasses
+   * of the class which declares it.
+   *
+   * @return the index of the attribute.
+   */
+  public int getIndex() {
+    return this.index;
+  }
+
+  /**
+   * Gets the value of this attribute on an entity as an `int`, no boxing is performed if the
+   * attribute is a primitive attribute.
+   *
+   * @param entity the entity for which one to get the attribute value.
+   *
+   * @return the value of the attribute.
+   */
+  public int getInt(final Object entity) {
+    if (this.intGetter == null) {
+      throw this.unsupportedConversion("get", int.class);
+    }
+
+    try {
+      return (int) this.intGetter.invokeExact(entity);
+    } catch (Throwable t) {
+      throw new RuntimeException("Fail to get value of property '" + this.name + "' !", t);
+    }
+  }
+
+  /**
+   * Gets the value of this attribute on an entity as a `long`, no boxing is performed if the
+   * attribute is a primitive attribute.
+   *
+   * @param entity the entity for which one to get the attribute value.
+   *
+   * @return the value of the attribute.
+   */
+  public long getLong(final Object entity) {
+    if (this.longGetter == null) {
+      throw this.unsupportedConversion("get", long.class);
+    }
+
+    try {
+      return (long) this.longGetter.invokeExact(entity);
+    } catch (Throwable t) {
+      throw new RuntimeException("Fail to get value of property '" + this.name + "' !", t);
+    }
+  }
+
+  /**
+   * Gets the name of the attribute.
+   *
+   * @return the name of the attribute.
+   */
+  public String getName() {
+    return this.name;
+  }
+
+  /**
+   * Gets the type of the field which stores the attribute value, this is the type of the attribute
+   * except for the `JSONObject` attributes stored in a {@link JsonMetadata} field.
+   *
+   * @return the type of the field which stores the attribute value.
+   */
+  public Class<?> getStoredType() {
+    return this.storedType;
+  }
+
+  /**
+   * Gets the value stored in the field of this attribute on an entity, this is the value of the
+   * attribute except for the `JSONObject` attributes stored in a {@link JsonMetadata} field for
+   * which the {@link JsonMetadata} holder is returned without parsing the metadata.
+   *
+   * @param entity the entity for which one to get the stored value.
+   *
+   * @return the value stored in the field of the attribute.
+   */
+  public Object getStoredValue(final Object entity) {
+    try {
+      Object value = (Object) this.storedGetter.invokeExact(entity);
+
+      return this.zero != null && this.zero.equals(value) ? null : value;
+    } catch (Throwable t) {
+      throw new RuntimeException("Fail to get value of property '" + this.name + "' !", t);
+    }
+  }
+
+  /**
+   * Gets the type of the attribute.
+   *
+   * @return the type of the attribute.
+   */
+  public Class<?> getType() {
+    return this.type;
+  }
+
+  /**
+   * Checks if the attribute is stored in a primitive field in which one `0` means that the
+   * attribute has no value, {@link #get(Object)} then returns `null` for `0` and
+   * {@link #set(Object, Object)} stores `0` for `null`.
+   *
+   * @return `true` if `0` means that the attribute has no value, `false` otherwise.
+   */
+  public boolean isZeroNull() {
+    return this.zero != null;
+  }
+
+  /**
+   * Sets the value of this attribute on an entity.
+   *
+   * @param entity the entity for which one to set the attribute value.
+   * @param value the value of the attribute to set.
+   */
+  public void set(final Object entity, final Object value) {
+    try {
+      this.setter.invokeExact(entity, value == null && this.zero != null ? this.zero : value);
+    } catch (Throwable t) {
+      throw new RuntimeException("Fail to set value of property '" + this.name + "' !", t);
+    }
+  }
+
+  /**
+   * Sets the value of this attribute on an entity from a `boolean`, no boxing is performed if the
+   * attribute is a primitive attribute.
+   *
+   * @param entity the entity for which one to set the attribute value.
+   * @param value the value of the attribute to set.
+   */
+  public void setBoolean(final Object entity, final boolean value) {
+    if (this.booleanSetter == null) {
+      throw this.unsupportedConversion("set", boolean.class);
+    }
+
+    try {
+      this.booleanSetter.invokeExact(entity, value);
+    } catch (Throwable t) {
+      throw new RuntimeException("Fail to set value of property '" + this.name + "' !", t);
+    }
+  }
+
+  /**
+   * Sets the value of this attribute on an entity from a `double`, no boxing is performed if the
+   * attribute is a primitive attribute.
+   *
+   * @param entity the entity for which one to set the attribute value.
+   * @param value the value of the attribute to set.
+   */
+  public void setDouble(final Object entity, final double value) {
+    if (this.doubleSetter == null) {
+      throw this.unsupportedConversion("set", double.class);
+    }
+
+    try {
+      this.doubleSetter.invokeExact(entity, value);
+    } catch (Throwable t) {
+      throw new RuntimeException("Fail to set value of property '" + this.name + "' !", t);
+    }
+  }
+
+  /**
+   * Sets the value of this attribute on an entity from an `int`, no boxing is performed if the
+   * attribute is a primitive attribute.
+   *
+   * @param entity the entity for which one to set the attribute value.
+   * @param value the value of the attribute to set.
+   */
+  public void setInt(final Object entity, final int value) {
+    if (this.intSetter == null) {
+      throw this.unsupportedConversion("set", int.class);
+    }
+
+    try {
+      this.intSetter.invokeExact(entity, value);
+    } catch (Throwable t) {
+      throw new RuntimeException("Fail to set value of property '" + this.name + "' !", t);
+    }
+  }
+
+  /**
+   * Sets the value of this attribute on an entity from a `long`, no boxing is performed if the
+   * attribute is a primitive attribute.
+   *
+   * @param entity the entity for which one to set the attribute value.
+   * @param value the value of the attribute to set.
+   */
+  public void setLong(final Object entity, final long value) {
+    if (this.longSetter == null) {
+      throw this.unsupportedConversion("set", long.class);
+    }
+
+    try {
+      this.longSetter.invokeExact(entity, value);
+    } catch (Throwable t) {
+      throw new RuntimeException("Fail to set value of property '" + this.name + "' !", t);
+    }
+  }
+}
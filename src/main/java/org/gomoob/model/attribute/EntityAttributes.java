@@ -0,0 +1,497 @@
+/**
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2017, GOMOOB All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided with
+ * the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.gomoob.model.attribute;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.gomoob.model.AbstractEntity;
+import org.gomoob.model.AbstractIntIdEntity;
+import org.gomoob.model.AbstractLongIdEntity;
+
+/**
+ * Process wide registry of the attributes of entity classes.
+ *
+ * <p>
+ * The attributes of an entity class are resolved only once, the first time the class is used, and
+ * are then cached for the lifetime of the class. This registry is thread safe and does not prevent
+ * the entity classes from being unloaded.
+ * </p>
+ * <p>
+ * The attributes of an entity class include the attributes declared by all its parent classes
+ * (for example the `id` attribute of {@link org.gomoob.model.AbstractEntity} or the `creationDate`
+ * attribute of {@link org.gomoob.model.AbstractEntityWithCreationDate}), they are flattened in one
+ * index so that any attribute is found with only one lookup.
+ * </p>
+ *
+ * @author GOMOOB SARL (contact@gomoob.com)
+ */
+public final class EntityAttributes {
+
+  /**
+   * The attributes of all the entity classes which have already been used.
+   */
+  private static final ClassValue<EntityAttributes> REGISTRY = new ClassValue<EntityAttributes>() {
+    @Override
+    protected EntityAttributes computeValue(final Class<?> type) {
+      return new EntityAttributes(type);
+    }
+  };
+
+  /**
+   * The attributes of the entity class, indexed by name.
+   */
+  private final Map<String, EntityAttribute> attributesByName;
+
+  /**
+   * The attributes of the entity class, the attributes of the parent classes come first.
+   */
+  private final List<EntityAttribute> attributes;
+
+  /**
+   * The method handle used to create new entities, that's to say `() Object`, `null` if the entity
+   * class cannot be instantiated.
+   */
+  private final MethodHandle constructor;
+
+  /**
+   * The entity class.
+   */
+  private final Class<?> type;
+
+  /**
+   * Creates the attributes of an entity class.
+   *
+   * @param type the entity class.
+   */
+  private EntityAttributes(final Class<?> type) {
+    List<EntityAttribute> attributes = new ArrayList<EntityAttribute>();
+    Map<String, EntityAttribute> attributesByName = new HashMap<String, EntityAttribute>();
+
+    IGeneratedAttributes generatedAttributes = loadGeneratedAttributes(type);
+    Map<String, Integer> generatedIndexes = new HashMap<String, Integer>();
+    if (generatedAttributes != null) {
+      String[] generatedNames = generatedAttributes.getAttributeNames();
+      for (int i = 0; i < generatedNames.length; ++i) {
+        generatedIndexes.put(generatedNames[i], i);
+      }
+    }
+
+    for (Map.Entry<String, Field> entry : collectFields(type).entrySet()) {
+      Field field = entry.getValue();
+      Integer generatedIndex = generatedIndexes.get(entry.getKey());
+      EntityAttribute attribute = null;
+      if (isPrimitiveId(field)) {
+        attribute = new EntityAttribute(field, entry.getKey(), attributes.size(), true);
+      } else if (generatedIndex == null) {
+        attribute = new EntityAttribute(field, attributes.size());
+      } else {
+        attribute = new GeneratedEntityAttribute(field, attributes.size(), generatedAttributes,
+            generatedIndex);
+      }
+      attributes.add(attribute);
+      attributesByName.put(attribute.getName(), attribute);
+    }
+
+    this.type = type;
+    this.attributes = Collections.unmodifiableList(attributes);
+    this.attributesByName = attributesByName;
+    this.constructor = findConstructor(type);
+  }
+
+  /**
+   * Collects the fields of an entity class and of all its parent classes.
+   *
+   * <p>
+   * The fields of the parent classes come first so that the attributes common to several entity
+   * classes always have the same position. If a field hides a field of a parent class then only the
+   * field of the child class is kept, at the position of the hidden field. In the same way the
+   * primitive technical identifier of {@link AbstractIntIdEntity} and {@link AbstractLongIdEntity}
+   * replaces the `id` attribute of {@link AbstractEntity}.
+   * </p>
+   * <p>
+   * Static fields are not attributes, nor are the transient fields declared by
+   * {@link AbstractEntity} which hold the runtime state of the entities (for example their dirty
+   * attributes). The transient fields declared by the entity classes are attributes which are
+   * simply not serialized.
+   * </p>
+   *
+   * @param type the entity class.
+   *
+   * @return the fields which store the attributes of the entity class, indexed by attribute name.
+   */
+  private static Map<String, Field> collectFields(final Class<?> type) {
+    LinkedList<Class<?>> hierarchy = new LinkedList<Class<?>>();
+    for (Class<?> current = type; current != null && current != Object.class;
+        current = current.getSuperclass()) {
+      hierarchy.addFirst(current);
+    }
+
+    Map<String, Field> fields = new LinkedHashMap<String, Field>();
+    for (Class<?> current : hierarchy) {
+      for (Field field : current.getDeclaredFields()) {
+        int modifiers = field.getModifiers();
+        if (!Modifier.isStatic(modifiers) && !field.isSynthetic()
+            && !(Modifier.isTransient(modifiers) && current == AbstractEntity.class)) {
+          fields.put(isPrimitiveId(field) ? "id" : field.getName(), field);
+        }
+      }
+    }
+
+    return fields;
+  }
+
+  /**
+   * Finds the constructor without parameters of an entity class.
+   *
+   * @param type the entity class.
+   *
+   * @return a method handle used to call the constructor or `null` if the entity class cannot be
+   *         instantiated.
+   */
+  private static MethodHandle findConstructor(final Class<?> type) {
+    if (type.isInterface() || type.isArray() || type.isPrimitive()
+        || Modifier.isAbstract(type.getModifiers())) {
+      return null;
+    }
+
+    try {
+      Constructor<?> constructor = type.getDeclaredConstructor();
+      constructor.setAccessible(true);
+
+      return MethodHandles.lookup().unreflectConstructor(constructor)
+          .asType(MethodType.methodType(Object.class));
+    } catch (NoSuchMethodException | IllegalAccessException | RuntimeException ex) {
+      return null;
+    }
+  }
+
+  /**
+   * Gets the attributes of an entity class.
+   *
+   * @param type the entity class.
+   *
+   * @return the attributes of the entity class.
+   */
+  public static EntityAttributes of(final Class<?> type) {
+    return REGISTRY.get(type);
+  }
+
+  /**
+   * Gets the value of an attribute of an entity.
+   *
+   * @param entity the entity for which one to get an attribute value, its class must be the class
+   *          described by this object.
+   * @param attributeName the name of the attribute.
+   *
+   * @return the value of the attribute.
+   */
+  public Object get(final Object entity, final String attributeName) {
+    return this.getAttributeToGet(attributeName).get(entity);
+  }
+
+  /**
+   * Gets an attribute.
+   *
+   * @param attributeName the name of the attribute.
+   *
+   * @return the attribute having a name equals to `attributeName` or `null` if no such attribute
+   *         exists.
+   */
+  public EntityAttribute getAttribute(final String attributeName) {
+    return this.attributesByName.get(attributeName);
+  }
+
+  /**
+   * Gets the value of an attribute of an entity as a `boolean` without boxing.
+   *
+   * @param entity the entity for which one to get an attribute value, its class must be the class
+   *          described by this object.
+   * @param attributeName the name of the attribute.
+   *
+   * @return the value of the attribute.
+   */
+  public boolean getBoolean(final Object entity, final String attributeName) {
+    return this.getAttributeToGet(attributeName).getBoolean(entity);
+  }
+
+  /**
+   * Gets the value of an attribute of an entity as a `double` without boxing.
+   *
+   * @param entity the entity for which one to get an attribute value, its class must be the class
+   *          described by this object.
+   * @param attributeName the name of the attribute.
+   *
+   * @return the value of the attribute.
+   */
+  public double getDouble(final Object entity, final String attributeName) {
+    return this.getAttributeToGet(attributeName).getDouble(entity);
+  }
+
+  /**
+   * Gets the value of an attribute of an entity as an `int` without boxing.
+   *
+   * @param entity the entity for which one to get an attribute value, its class must be the class
+   *          described by this object.
+   * @param attributeName the name of the attribute.
+   *
+   * @return the value of the attribute.
+   */
+  public int getInt(final Object entity, final String attributeName) {
+    return this.getAttributeToGet(attributeName).getInt(entity);
+  }
+
+  /**
+   * Gets the value of an attribute of an entity as a `long` without boxing.
+   *
+   * @param entity the entity for which one to get an attribute value, its class must be the class
+   *          described by this object.
+   * @param attributeName the name of the attribute.
+   *
+   * @return the value of the attribute.
+   */
+  public long getLong(final Object entity, final String attributeName) {
+    return this.getAttributeToGet(attributeName).getLong(entity);
+  }
+
+  /**
+   * Gets an attribute by index.
+   *
+   * @param index the index of the attribute.
+   *
+   * @return the attribute at position `index`.
+   *
+   * @throws IndexOutOfBoundsException if no attribute exists at position `index`.
+   */
+  public EntityAttribute getAttribute(final int index) {
+    return this.attributes.get(index);
+  }
+
+  /**
+   * Gets all the attributes of the entity class.
+   *
+   * @return an unmodifiable list of attributes.
+   */
+  public List<EntityAttribute> getAttributes() {
+    return this.attributes;
+  }
+
+  /**
+   * Gets the entity class described by this object.
+   *
+   * @return the entity class.
+   */
+  public Class<?> getType() {
+    return this.type;
+  }
+
+  /**
+   * Gets an attribute which is about to be read, this function throws the same exception as
+   * `get(Object, String)` if the attribute does not exist.
+   *
+   * @param attributeName the name of the attribute.
+   *
+   * @return the attribute.
+   *
+   * @throws RuntimeException if no attribute named `attributeName` exists.
+   */
+  public EntityAttribute getAttributeToGet(final String attributeName) {
+    EntityAttribute attribute = this.attributesByName.get(attributeName);
+
+    if (attribute == null) {
+      throw new RuntimeException("Fail to get value of property '" + attributeName + "' !",
+          new NoSuchFieldException(attributeName));
+    }
+
+    return attribute;
+  }
+
+  /**
+   * Gets an attribute which is about to be written, this function throws the same exception as
+   * `set(Object, String, Object)` if the attribute does not exist.
+   *
+   * @param attributeName the name of the attribute.
+   *
+   * @return the attribute.
+   *
+   * @throws RuntimeException if no attribute named `attributeName` exists.
+   */
+  public EntityAttribute getAttributeToSet(final String attributeName) {
+    EntityAttribute attribute = this.attributesByName.get(attributeName);
+
+    if (attribute == null) {
+      throw new RuntimeException("Fail to set value of property '" + attributeName + "' !",
+          new NoSuchFieldException(attributeName));
+    }
+
+    return attribute;
+  }
+
+  /**
+   * Checks if a field is the primitive technical identifier of {@link AbstractIntIdEntity} or
+   * {@link AbstractLongIdEntity}, this field stores the `id` attribute and `0` means that the
+   * entity does not have any technical identifier yet.
+   *
+   * @param field the field to check.
+   *
+   * @return `true` if the field is a primitive technical identifier, `false` otherwise.
+   */
+  private static boolean isPrimitiveId(final Field field) {
+    return field.getDeclaringClass() == AbstractIntIdEntity.class
+        || field.getDeclaringClass() == AbstractLongIdEntity.class;
+  }
+
+  /**
+   * Loads the attribute accessors generated for an entity class by the `model-processor` annotation
+   * processor.
+   *
+   * @param type the entity class.
+   *
+   * @return the generated attribute accessors or `null` if no accessors have been generated for the
+   *         entity class.
+   */
+  private static IGeneratedAttributes loadGeneratedAttributes(final Class<?> type) {
+    Class<?> generatedType = null;
+
+    try {
+      generatedType = Class.forName(type.getName() + IGeneratedAttributes.CLASS_NAME_SUFFIX, true,
+          type.getClassLoader());
+    } catch (ClassNotFoundException cnfex) {
+      return null;
+    }
+
+    if (!IGeneratedAttributes.class.isAssignableFrom(generatedType)) {
+      return null;
+    }
+
+    try {
+      return (IGeneratedAttributes) generatedType.getDeclaredConstructor().newInstance();
+    } catch (ReflectiveOperationException roex) {
+      throw new RuntimeException("Fail to instantiate generated attributes class '"
+          + generatedType.getName() + "' !", roex);
+    }
+  }
+
+  /**
+   * Creates a new entity using the constructor without parameters of the entity class.
+   *
+   * @return the created entity.
+   *
+   * @throws IllegalStateException if the entity class does not have a constructor without
+   *           parameters.
+   */
+  public Object newEntity() {
+    if (this.constructor == null) {
+      throw new IllegalStateException(
+          "No constructor without parameters has been found in class '" + this.type.getName()
+              + "' !");
+    }
+
+    try {
+      return (Object) this.constructor.invokeExact();
+    } catch (Throwable t) {
+      throw new RuntimeException("Fail to instantiate class '" + this.type.getName() + "' !", t);
+    }
+  }
+
+  /**
+   * Sets the value of an attribute of an entity.
+   *
+   * @param entity the entity for which one to set an attribute value, its class must be the class
+   *          described by this object.
+   * @param attributeName the name of the attribute.
+   * @param attributeValue the value of the attribute to set.
+   */
+  public void set(final Object entity, final String attributeName, final Object attributeValue) {
+    this.getAttributeToSet(attributeName).set(entity, attributeValue);
+  }
+
+  /**
+   * Sets the value of an attribute of an entity from a `boolean` without boxing.
+   *
+   * @param entity the entity for which one to set an attribute value, its class must be the class
+   *          described by this object.
+   * @param attributeName the name of the attribute.
+   * @param attributeValue the value of the attribute to set.
+   */
+  public void setBoolean(final Object entity, final String attributeName,
+      final boolean attributeValue) {
+    this.getAttributeToSet(attributeName).setBoolean(entity, attributeValue);
+  }
+
+  /**
+   * Sets the value of an attribute of an entity from a `double` without boxing.
+   *
+   * @param entity the entity for which one to set an attribute value, its class must be the class
+   *          described by this object.
+   * @param attributeName the name of the attribute.
+   * @param attributeValue the value of the attribute to set.
+   */
+  public void setDouble(final Object entity, final String attributeName,
+      final double attributeValue) {
+    this.getAttributeToSet(attributeName).setDouble(entity, attributeValue);
+  }
+
+  /**
+   * Sets the value of an attribute of an entity from an `int` without boxing.
+   *
+   * @param entity the entity for which one to set an attribute value, its class must be the class
+   *          described by this object.
+   * @param attributeName the name of the attribute.
+   * @param attributeValue the value of the attribute to set.
+   */
+  public void setInt(final Object entity, final String attributeName,
+      final int attributeValue) {
+    this.getAttributeToSet(attributeName).setInt(entity, attributeValue);
+  }
+
+  /**
+   * Sets the value of an attribute of an entity from a `long` without boxing.
+   *
+   * @param entity the entity for which one to set an attribute value, its class must be the class
+   *          described by this object.
+   * @param attributeName the name of the attribute.
+   * @param attributeValue the value of the attribute to set.
+   */
+  public void setLong(final Object entity, final String attributeName,
+      final long attributeValue) {
+    this.getAttributeToSet(attributeName).setLong(entity, attributeValue);
+  }
+}
@@ -0,0 +1,89 @@
+/**
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2017, GOMOOB All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided with
+ * the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.gomoob.model.attribute;
+
+import java.lang.reflect.Field;
+
+/**
+ * Attribute accessor which delegates to a class generated by the `model-processor` annotation
+ * processor.
+ *
+ * @author GOMOOB SARL (contact@gomoob.com)
+ */
+final class GeneratedEntityAttribute extends EntityAttribute {
+
+  /**
+   * The generated attribute accessors.
+   */
+  private final IGeneratedAttributes generatedAttributes;
+
+  /**
+   * The index of the attribute in the generated attribute accessors.
+   */
+  private final int generatedIndex;
+
+  /**
+   * Creates a new accessor for an attribute handled by generated code.
+   *
+   * @param field the field which stores the attribute value.
+   * @param index the index of the attribute in the attributes of its entity class.
+   * @param generatedAttributes the generated attribute accessors.
+   * @param generatedIndex the index of the attribute in the generated attribute accessors.
+   */
+  GeneratedEntityAttribute(final Field field, final int index,
+      final IGeneratedAttributes generatedAttributes, final int generatedIndex) {
+    super(field, index);
+    this.generatedAttributes = generatedAttributes;
+    this.generatedIndex = generatedIndex;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Object get(final Object entity) {
+    try {
+      return this.generatedAttributes.get(entity, this.generatedIndex);
+    } catch (RuntimeException rex) {
+      throw new RuntimeException("Fail to get value of property '" + this.getName() + "' !", rex);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void set(final Object entity, final Object value) {
+    try {
+      this.generatedAttributes.set(entity, this.generatedIndex, value);
+    } catch (RuntimeException rex) {
+      throw new RuntimeException("Fail to set value of property '" + this.getName() + "' !", rex);
+    }
+  }
+}
@@ -0,0 +1,77 @@
+/**
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2017, GOMOOB All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided with
+ * the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.gomoob.model.attribute;
+
+/**
+ * Interface implemented by the attribute accessors generated by the `model-processor` annotation
+ * processor.
+ *
+ * <p>
+ * For an entity class named `com.mycompany.User` the annotation processor generates a class named
+ * `com.mycompany.User_Attributes`, this class is automatically picked up by
+ * {@link EntityAttributes} and is then used to read and write the attributes of the entity without
+ * reflection.
+ * </p>
+ *
+ * @author GOMOOB SARL (contact@gomoob.com)
+ */
+public interface IGeneratedAttributes {
+
+  /**
+   * The suffix appended to the name of an entity class to get the name of its generated attribute
+   * accessors class.
+   */
+  public static final String CLASS_NAME_SUFFIX = "_Attributes";
+
+  /**
+   * Gets the value of an attribute of an entity.
+   *
+   * @param entity the entity for which one to get an attribute value.
+   * @param index the index of the attribute in the array returned by `getAttributeNames()`.
+   *
+   * @return the value of the attribute.
+   */
+  public Object get(final Object entity, final int index);
+
+  /**
+   * Gets the names of the attributes handled by the generated class.
+   *
+   * @return the names of the attributes handled by the generated class.
+   */
+  public String[] getAttributeNames();
+
+  /**
+   * Sets the value of an attribute of an entity.
+   *
+   * @param entity the entity for which one to set an attribute value.
+   * @param index the index of the attribute in the array returned by `getAttributeNames()`.
+   * @param value the value of the attribute to set.
+   */
+  public void set(final Object entity, final int index, final Object value);
+}
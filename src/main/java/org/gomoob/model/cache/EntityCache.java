@@ -0,0 +1,516 @@
+/**
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2017, GOMOOB All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided with
+ * the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.gomoob.model.cache;
+
+import java.io.Serializable;
+import java.util.Date;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+import org.gomoob.model.IEntity;
+import org.gomoob.model.IEntityWithCreationDateAndUpdateDate;
+
+/**
+ * Process wide read through cache of entities of one entity class.
+ *
+ * <p>
+ * The cache loads the entities using a loader function the first time they are requested, then :
+ * </p>
+ * <ul>
+ * <li>concurrent requests for an entity which is being loaded wait for the same load, the loader is
+ * never called several times concurrently for the same technical identifier (single flight) ;</li>
+ * <li>once an entity is older than the refresh delay it is refreshed asynchronously using an
+ * executor while the cached entity continues to be returned ;</li>
+ * <li>once an entity is older than the expiration delay it is loaded again synchronously ;</li>
+ * <li>when the cache contains more entities than its maximum size the oldest cached entities are
+ * evicted.</li>
+ * </ul>
+ * <p>
+ * If an update date loader is provided and the entities implement
+ * {@link IEntityWithCreationDateAndUpdateDate} a refresh first loads only the update date of the
+ * entity, the entity itself is only loaded again if its update date has changed. This is useful
+ * when loading an update date is much cheaper than loading a whole entity.
+ * </p>
+ *
+ * <pre>
+ * EntityCache&lt;Integer, User&gt; cache = new EntityCache&lt;Integer, User&gt;(
+ *     id -&gt; userDao.findById(id), 10000, 10, 5, TimeUnit.MINUTES, executor);
+ * User user = cache.get(12);
+ * </pre>
+ *
+ * <p>
+ * The cached entities are shared by all the threads of the process, they should not be modified.
+ * Entity caches are thread safe.
+ * </p>
+ *
+ * @author GOMOOB SARL (contact@gomoob.com)
+ *
+ * @param <IDT> the type of the technical identifiers of the cached entities.
+ * @param <E> the type of the cached entities.
+ */
+public class EntityCache<IDT extends Serializable, E extends IEntity<IDT>> {
+
+  /**
+   * Entry of the cache.
+   */
+  private final class Entry {
+
+    /**
+     * The technical identifier of the cached entity.
+     */
+    private final IDT id;
+
+    /**
+     * The future holding the cached entity.
+     */
+    private volatile CompletableFuture<E> future = new CompletableFuture<E>();
+
+    /**
+     * The time at which one the cached entity has been loaded or validated, in nanoseconds.
+     */
+    private volatile long loadTime;
+
+    /**
+     * Indicates if an asynchronous refresh of the entry is in progress.
+     */
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    /**
+     * Creates a new entry.
+     *
+     * @param id the technical identifier of the cached entity.
+     */
+    private Entry(final IDT id) {
+      this.id = id;
+    }
+  }
+
+  /**
+   * The clock used to measure the age of the entries, in nanoseconds.
+   */
+  private final LongSupplier clock;
+
+  /**
+   * The cache entries, indexed by technical identifier.
+   */
+  private final ConcurrentMap<IDT, Entry> entries = new ConcurrentHashMap<IDT, Entry>();
+
+  /**
+   * The cache entries, in insertion order, used to evict the oldest entries.
+   *
+   * <p>
+   * Removing an element from the middle of the queue is costly, so the entries which are removed
+   * from the cache are left in the queue. Those dead entries are skipped by the eviction and purged
+   * once enough entries have been removed.
+   * </p>
+   */
+  private final Queue<Entry> evictionQueue = new ConcurrentLinkedQueue<Entry>();
+
+  /**
+   * The number of entries removed from the cache since the last purge of the eviction queue, this
+   * is an upper bound of the number of dead entries in the eviction queue.
+   */
+  private final AtomicInteger removedEntries = new AtomicInteger();
+
+  /**
+   * The executor used to refresh the entries asynchronously.
+   */
+  private final Executor executor;
+
+  /**
+   * The delay after which one an entry is loaded again synchronously, in nanoseconds.
+   */
+  private final long expireAfterNanos;
+
+  /**
+   * The function used to load an entity, this function returns `null` if the entity does not
+   * exist.
+   */
+  private final Function<? super IDT, ? extends E> loader;
+
+  /**
+   * The maximum number of entities kept in the cache.
+   */
+  private final int maxSize;
+
+  /**
+   * The delay after which one an entry is refreshed asynchronously, in nanoseconds.
+   */
+  private final long refreshAfterNanos;
+
+  /**
+   * The function used to load the update date of an entity, `null` if no such function is
+   * available.
+   */
+  private final Function<? super IDT, ? extends Date> updateDateLoader;
+
+  /**
+   * Creates a new entity cache.
+   *
+   * @param loader the function used to load an entity, this function returns `null` if the entity
+   *          does not exist.
+   * @param maxSize the maximum number of entities kept in the cache.
+   * @param expireAfter the delay after which one an entity is loaded again synchronously.
+   * @param refreshAfter the delay after which one an entity is refreshed asynchronously, this delay
+   *          should be lower than `expireAfter`.
+   * @param unit the unit of `expireAfter` and `refreshAfter`.
+   * @param executor the executor used to refresh the entities asynchronously.
+   *
+   * @throws IllegalArgumentException if the maximum size is not strictly positive.
+   */
+  public EntityCache(final Function<? super IDT, ? extends E> loader, final int maxSize,
+      final long expireAfter, final long refreshAfter, final TimeUnit unit,
+      final Executor executor) {
+    this(loader, null, maxSize, expireAfter, refreshAfter, unit, executor);
+  }
+
+  /**
+   * Creates a new entity cache which checks the update dates of the entities before refreshing
+   * them.
+   *
+   * @param loader the function used to load an entity, this function returns `null` if the entity
+   *          does not exist.
+   * @param updateDateLoader the function used to load the update date of an entity, the entity is
+   *          only loaded again by a refresh if its update date has changed.
+   * @param maxSize the maximum number of entities kept in the cache.
+   * @param expireAfter the delay after which one an entity is loaded again synchronously.
+   * @param refreshAfter the delay after which one an entity is refreshed asynchronously, this delay
+   *          should be lower than `expireAfter`.
+   * @param unit the unit of `expireAfter` and `refreshAfter`.
+   * @param executor the executor used to refresh the entities asynchronously.
+   *
+   * @throws IllegalArgumentException if the maximum size is not strictly positive.
+   */
+  public EntityCache(final Function<? super IDT, ? extends E> loader,
+      final Function<? super IDT, ? extends Date> updateDateLoader, final int maxSize,
+      final long expireAfter, final long refreshAfter, final TimeUnit unit,
+      final Executor executor) {
+    this(loader, updateDateLoader, maxSize, expireAfter, refreshAfter, unit, executor,
+        System::nanoTime);
+  }
+
+  /**
+   * Creates a new entity cache using a specific clock.
+   *
+   * @param loader the function used to load an entity.
+   * @param updateDateLoader the function used to load the update date of an entity, can be `null`.
+   * @param maxSize the maximum number of entities kept in the cache.
+   * @param expireAfter the delay after which one an entity is loaded again synchronously.
+   * @param refreshAfter the delay after which one an entity is refreshed asynchronously.
+   * @param unit the unit of `expireAfter` and `refreshAfter`.
+   * @param executor the executor used to refresh the entities asynchronously.
+   * @param clock the clock used to measure the age of the entries, in nanoseconds.
+   */
+  EntityCache(final Function<? super IDT, ? extends E> loader,
+      final Function<? super IDT, ? extends Date> updateDateLoader, final int maxSize,
+      final long expireAfter, final long refreshAfter, final TimeUnit unit,
+      final Executor executor, final LongSupplier clock) {
+    if (maxSize <= 0) {
+      throw new IllegalArgumentException("The maximum size must be strictly positive !");
+    }
+
+    this.loader = loader;
+    this.updateDateLoader = updateDateLoader;
+    this.maxSize = maxSize;
+    this.expireAfterNanos = unit.toNanos(expireAfter);
+    this.refreshAfterNanos = unit.toNanos(refreshAfter);
+    this.executor = executor;
+    this.clock = clock;
+  }
+
+  /**
+   * Evicts the oldest entries until the cache does not contain more entities than its maximum size.
+   */
+  private void evict() {
+    while (this.entries.size() > this.maxSize) {
+      Entry entry = this.evictionQueue.poll();
+
+      if (entry == null) {
+        return;
+      }
+
+      // Dead entries have already been removed from the cache and are simply skipped
+      this.entries.remove(entry.id, entry);
+    }
+  }
+
+  /**
+   * Gets an entity, the entity is loaded if it is not cached or if it has expired.
+   *
+   * @param id the technical identifier of the entity.
+   *
+   * @return the entity or `null` if it does not exist.
+   *
+   * @throws RuntimeException if the entity cannot be loaded.
+   */
+  public E get(final IDT id) {
+    Entry entry = this.entries.get(id);
+
+    if (entry == null) {
+      Entry newEntry = new Entry(id);
+      entry = this.entries.putIfAbsent(id, newEntry);
+
+      if (entry == null) {
+        this.evictionQueue.add(newEntry);
+        this.evict();
+
+        return this.load(newEntry);
+      }
+    }
+
+    CompletableFuture<E> future = entry.future;
+
+    if (!future.isDone()) {
+      return join(future);
+    }
+
+    long age = this.clock.getAsLong() - entry.loadTime;
+
+    if (age >= this.expireAfterNanos) {
+      return this.reload(entry);
+    }
+
+    if (age >= this.refreshAfterNanos && entry.refreshing.compareAndSet(false, true)) {
+      Entry refreshedEntry = entry;
+
+      try {
+        this.executor.execute(() -> this.refresh(refreshedEntry));
+      } catch (RejectedExecutionException reex) {
+        refreshedEntry.refreshing.set(false);
+      }
+    }
+
+    return join(future);
+  }
+
+  /**
+   * Removes an entity from the cache.
+   *
+   * @param id the technical identifier of the entity.
+   */
+  public void invalidate(final IDT id) {
+    if (this.entries.remove(id) != null) {
+      this.retire();
+    }
+  }
+
+  /**
+   * Removes all the entities from the cache.
+   */
+  public void invalidateAll() {
+    this.entries.clear();
+    this.evictionQueue.clear();
+    this.removedEntries.set(0);
+  }
+
+  /**
+   * Waits for a future and returns its value.
+   *
+   * @param future the future to wait for.
+   *
+   * @return the value of the future.
+   *
+   * @throws RuntimeException if the future has failed.
+   */
+  private static <T> T join(final CompletableFuture<T> future) {
+    try {
+      return future.join();
+    } catch (CompletionException cex) {
+      if (cex.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) cex.getCause();
+      }
+
+      throw new RuntimeException("Fail to load entity !", cex.getCause());
+    }
+  }
+
+  /**
+   * Loads the entity of a new entry and completes the entry, the other threads which request the
+   * same entity wait for this load.
+   *
+   * @param entry the entry to load.
+   *
+   * @return the loaded entity.
+   */
+  private E load(final Entry entry) {
+    E entity = null;
+
+    try {
+      entity = this.loader.apply(entry.id);
+    } catch (RuntimeException | Error ex) {
+      this.remove(entry);
+      entry.future.completeExceptionally(ex);
+      throw ex;
+    }
+
+    entry.loadTime = this.clock.getAsLong();
+
+    // Entities which do not exist are not cached, the waiting threads still get the result
+    if (entity == null) {
+      this.remove(entry);
+    }
+
+    entry.future.complete(entity);
+
+    return entity;
+  }
+
+  /**
+   * Puts an entity in the cache, for example after the entity has been saved.
+   *
+   * @param entity the entity to cache, its technical identifier must not be `null`.
+   */
+  public void put(final E entity) {
+    Entry entry = new Entry(entity.getId());
+    entry.loadTime = this.clock.getAsLong();
+    entry.future.complete(entity);
+
+    Entry previousEntry = this.entries.put(entry.id, entry);
+    if (previousEntry != null) {
+      this.retire();
+    }
+
+    this.evictionQueue.add(entry);
+    this.evict();
+  }
+
+  /**
+   * Refreshes an entry asynchronously, the cached entity continues to be returned during the
+   * refresh and is kept if the refresh fails.
+   *
+   * @param entry the entry to refresh.
+   */
+  private void refresh(final Entry entry) {
+    try {
+      E entity = entry.future.join();
+
+      if (this.updateDateLoader != null && entity instanceof IEntityWithCreationDateAndUpdateDate) {
+        Date updateDate = ((IEntityWithCreationDateAndUpdateDate<?>) entity).getUpdateDate();
+
+        if (updateDate != null && updateDate.equals(this.updateDateLoader.apply(entry.id))) {
+          entry.loadTime = this.clock.getAsLong();
+          return;
+        }
+      }
+
+      E loadedEntity = this.loader.apply(entry.id);
+
+      if (loadedEntity == null) {
+        this.remove(entry);
+      } else {
+        entry.future = CompletableFuture.completedFuture(loadedEntity);
+        entry.loadTime = this.clock.getAsLong();
+      }
+    } catch (RuntimeException rex) {
+      // The cached entity is kept until it expires
+    } finally {
+      entry.refreshing.set(false);
+    }
+  }
+
+  /**
+   * Loads again the entity of an expired entry, the other threads which request the same entity
+   * wait for this load.
+   *
+   * @param entry the expired entry.
+   *
+   * @return the loaded entity.
+   */
+  private E reload(final Entry entry) {
+    CompletableFuture<E> future = null;
+
+    synchronized (entry) {
+      // An other thread could have loaded the entry while we were waiting
+      if (this.clock.getAsLong() - entry.loadTime < this.expireAfterNanos) {
+        future = entry.future;
+      } else {
+        try {
+          E entity = this.loader.apply(entry.id);
+
+          if (entity == null) {
+            this.remove(entry);
+          }
+
+          entry.future = CompletableFuture.completedFuture(entity);
+          entry.loadTime = this.clock.getAsLong();
+
+          return entity;
+        } catch (RuntimeException rex) {
+          this.remove(entry);
+          throw rex;
+        }
+      }
+    }
+
+    return join(future);
+  }
+
+  /**
+   * Removes an entry from the cache if it is still cached.
+   *
+   * @param entry the entry to remove.
+   */
+  private void remove(final Entry entry) {
+    if (this.entries.remove(entry.id, entry)) {
+      this.retire();
+    }
+  }
+
+  /**
+   * Records that an entry has been removed from the cache while being left in the eviction queue,
+   * the dead entries are purged from the eviction queue once more than `maxSize` entries have been
+   * removed so that the queue never grows much larger than the cache.
+   */
+  private void retire() {
+    if (this.removedEntries.incrementAndGet() > this.maxSize) {
+      this.removedEntries.set(0);
+      this.evictionQueue.removeIf(entry -> this.entries.get(entry.id) != entry);
+    }
+  }
+
+  /**
+   * Gets the number of entities kept in the cache.
+   *
+   * @return the number of cached entities.
+   */
+  public int size() {
+    return this.entries.size();
+  }
+}
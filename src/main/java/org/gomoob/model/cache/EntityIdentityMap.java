@@ -0,0 +1,306 @@
+/**
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2017, GOMOOB All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided with
+ * the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.gomoob.model.cache;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.gomoob.model.IEntity;
+
+/**
+ * Identity map which guarantees that only one instance of an entity is used in a unit of work (for
+ * example while handling one request).
+ *
+ * <p>
+ * The entities are registered using their class and their technical identifier, loading the same
+ * entity several times during a unit of work then always returns the first loaded instance and does
+ * not require any additional database round trip :
+ * </p>
+ *
+ * <pre>
+ * EntityIdentityMap identityMap = new EntityIdentityMap(1000);
+ * User user = identityMap.load(User.class, 12, id -&gt; userDao.findById(id));
+ * </pre>
+ *
+ * <p>
+ * An identity map can be bounded, in this case the least recently used entities are evicted when
+ * the maximum size is reached. An evicted entity is simply loaded again the next time it is used.
+ * </p>
+ * <p>
+ * Identity maps are not thread safe, they are designed to be confined to one unit of work.
+ * </p>
+ *
+ * @author GOMOOB SARL (contact@gomoob.com)
+ */
+public class EntityIdentityMap {
+
+  /**
+   * Key of an entity in the identity map.
+   */
+  private static final class Key {
+
+    /**
+     * The class of the entity.
+     */
+    private final Class<?> type;
+
+    /**
+     * The technical identifier of the entity.
+     */
+    private final Serializable id;
+
+    /**
+     * Creates a new key.
+     *
+     * @param type the class of the entity.
+     * @param id the technical identifier of the entity.
+     */
+    private Key(final Class<?> type, final Serializable id) {
+      this.type = type;
+      this.id = id;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(final Object obj) {
+      if (this == obj) {
+        return true;
+      }
+
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+
+      Key key = (Key) obj;
+      return this.type == key.type && this.id.equals(key.id);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+      return 31 * this.type.hashCode() + this.id.hashCode();
+    }
+  }
+
+  /**
+   * The registered entities, in access order.
+   */
+  private final LinkedHashMap<Key, IEntity<?>> entities;
+
+  /**
+   * The maximum number of entities kept in the identity map.
+   */
+  private final int maxSize;
+
+  /**
+   * Creates a new unbounded identity map.
+   */
+  public EntityIdentityMap() {
+    this(Integer.MAX_VALUE);
+  }
+
+  /**
+   * Creates a new bounded identity map.
+   *
+   * @param maxSize the maximum number of entities kept in the identity map, the least recently used
+   *          entities are evicted when this size is reached.
+   *
+   * @throws IllegalArgumentException if the maximum size is not strictly positive.
+   */
+  public EntityIdentityMap(final int maxSize) {
+    if (maxSize <= 0) {
+      throw new IllegalArgumentException("The maximum size must be strictly positive !");
+    }
+
+    this.maxSize = maxSize;
+    this.entities = new LinkedHashMap<Key, IEntity<?>>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(final Map.Entry<Key, IEntity<?>> eldest) {
+        return this.size() > EntityIdentityMap.this.maxSize;
+      }
+    };
+  }
+
+  /**
+   * Removes all the entities from the identity map.
+   */
+  public void clear() {
+    this.entities.clear();
+  }
+
+  /**
+   * Checks if an entity is registered in the identity map.
+   *
+   * @param type the class of the entity.
+   * @param id the technical identifier of the entity.
+   *
+   * @return `true` if an entity of class `type` having the technical identifier `id` is registered,
+   *         `false` otherwise.
+   */
+  public boolean contains(final Class<?> type, final Serializable id) {
+    return id != null && this.entities.containsKey(new Key(type, id));
+  }
+
+  /**
+   * Gets a registered entity.
+   *
+   * @param type the class of the entity, this must be the exact class of the registered entity.
+   * @param id the technical identifier of the entity.
+   *
+   * @return the registered entity or `null` if no entity of class `type` having the technical
+   *         identifier `id` is registered.
+   */
+  public <E extends IEntity<?>> E get(final Class<E> type, final Serializable id) {
+    if (id == null) {
+      return null;
+    }
+
+    return type.cast(this.entities.get(new Key(type, id)));
+  }
+
+  /**
+   * Gets the maximum number of entities kept in the identity map.
+   *
+   * @return the maximum number of entities kept in the identity map.
+   */
+  public int getMaxSize() {
+    return this.maxSize;
+  }
+
+  /**
+   * Gets a registered entity or loads and registers it if it is not registered yet.
+   *
+   * @param type the class of the entity, the loaded entity is registered under this class even if
+   *          the loader returns an instance of a subclass, for example a proxy.
+   * @param id the technical identifier of the entity.
+   * @param loader the function used to load the entity if it is not registered, this function can
+   *          return `null` if the entity does not exist.
+   *
+   * @return the registered entity, or `null` if the entity is not registered and the loader does
+   *         not find it.
+   */
+  public <IDT extends Serializable, E extends IEntity<IDT>> E load(final Class<E> type,
+      final IDT id, final Function<? super IDT, ? extends E> loader) {
+    E entity = this.get(type, id);
+
+    if (entity == null) {
+      entity = loader.apply(id);
+
+      if (entity != null) {
+        entity = this.register(type, entity);
+      }
+    }
+
+    return entity;
+  }
+
+  /**
+   * Registers an entity.
+   *
+   * <p>
+   * If an entity of the same class having the same technical identifier is already registered then
+   * the registered entity is kept and returned, this guarantees that only one instance of the
+   * entity is used in the unit of work.
+   * </p>
+   *
+   * @param entity the entity to register.
+   *
+   * @return the entity which is registered in the identity map.
+   *
+   * @throws IllegalArgumentException if the entity does not have any technical identifier.
+   */
+  public <E extends IEntity<?>> E register(final E entity) {
+    return this.register(entity.getClass(), entity);
+  }
+
+  /**
+   * Registers an entity under a class.
+   *
+   * @param type the class under which one to register the entity.
+   * @param entity the entity to register.
+   *
+   * @return the entity which is registered in the identity map.
+   *
+   * @throws IllegalArgumentException if the entity does not have any technical identifier.
+   */
+  @SuppressWarnings("unchecked")
+  private <E extends IEntity<?>> E register(final Class<?> type, final E entity) {
+    Serializable id = entity.getId();
+
+    if (id == null) {
+      throw new IllegalArgumentException(
+          "Cannot register an entity without technical identifier !");
+    }
+
+    Key key = new Key(type, id);
+    IEntity<?> registeredEntity = this.entities.get(key);
+
+    if (registeredEntity != null) {
+      return (E) registeredEntity;
+    }
+
+    this.entities.put(key, entity);
+
+    return entity;
+  }
+
+  /**
+   * Unregisters an entity.
+   *
+   * @param type the class of the entity.
+   * @param id the technical identifier of the entity.
+   *
+   * @return the unregistered entity or `null` if no entity of class `type` having the technical
+   *         identifier `id` is registered.
+   */
+  public <E extends IEntity<?>> E remove(final Class<E> type, final Serializable id) {
+    if (id == null) {
+      return null;
+    }
+
+    return type.cast(this.entities.remove(new Key(type, id)));
+  }
+
+  /**
+   * Gets the number of entities registered in the identity map.
+   *
+   * @return the number of registered entities.
+   */
+  public int size() {
+    return this.entities.size();
+  }
+}
@@ -0,0 +1,337 @@
+/**
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2017, GOMOOB All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided with
+ * the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.gomoob.model.codec;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Source of the bytes read by an {@link EntityCodec}, this is the counterpart of
+ * {@link BinaryOutput}.
+ *
+ * @author GOMOOB SARL (contact@gomoob.com)
+ */
+abstract class BinaryInput {
+
+  /**
+   * Input which reads a byte buffer, starting at its current position.
+   *
+   * @author GOMOOB SARL (contact@gomoob.com)
+   */
+  static final class OfBuffer extends BinaryInput {
+
+    /**
+     * The buffer to read.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * Creates a new input.
+     *
+     * @param buffer the buffer to read.
+     */
+    OfBuffer(final ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    /**
+     * Gets the position of the input in the buffer.
+     *
+     * @return the position of the input in the buffer.
+     */
+    int position() {
+      return this.buffer.position();
+    }
+
+    /**
+     * Moves the input to a position of the buffer.
+     *
+     * @param position the position to move to.
+     *
+     * @return this input.
+     */
+    OfBuffer position(final int position) {
+      this.buffer.position(position);
+
+      return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    int readByte() {
+      return this.buffer.get() & 0xFF;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    byte[] readBytes() {
+      byte[] bytes = new byte[this.readUnsignedVarInt()];
+      this.buffer.get(bytes);
+
+      return bytes;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    String readString() {
+      int length = this.readUnsignedVarInt();
+
+      if (!this.buffer.hasArray()) {
+        byte[] bytes = new byte[length];
+        this.buffer.get(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+      }
+
+      // Strings are decoded directly from the array of heap buffers
+      if (length > this.buffer.remaining()) {
+        throw new BufferUnderflowException();
+      }
+
+      String string = new String(this.buffer.array(),
+          this.buffer.arrayOffset() + this.buffer.position(), length, StandardCharsets.UTF_8);
+      this.buffer.position(this.buffer.position() + length);
+
+      return string;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    void skip(final int length) {
+      this.buffer.position(this.buffer.position() + length);
+    }
+  }
+
+  /**
+   * Input which reads an input stream, the `IOException`s thrown by the stream are wrapped into
+   * `UncheckedIOException`s.
+   *
+   * <p>
+   * The bytes are read one by one so that no byte after the decoded entity is consumed, the stream
+   * should be buffered.
+   * </p>
+   *
+   * @author GOMOOB SARL (contact@gomoob.com)
+   */
+  static final class OfStream extends BinaryInput {
+
+    /**
+     * The stream to read.
+     */
+    private final InputStream stream;
+
+    /**
+     * Creates a new input.
+     *
+     * @param stream the stream to read.
+     */
+    OfStream(final InputStream stream) {
+      this.stream = stream;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    int readByte() {
+      int value;
+
+      try {
+        value = this.stream.read();
+      } catch (IOException ioex) {
+        throw new UncheckedIOException(ioex);
+      }
+
+      if (value == -1) {
+        throw new UncheckedIOException(new EOFException("Unexpected end of stream !"));
+      }
+
+      return value;
+    }
+  }
+
+  /**
+   * Reads one byte.
+   *
+   * @return the read byte, between 0 and 255.
+   */
+  abstract int readByte();
+
+  /**
+   * Reads bytes written by {@link BinaryOutput#writeBytes(byte[])}.
+   *
+   * @return the read bytes.
+   */
+  byte[] readBytes() {
+    byte[] bytes = new byte[this.readUnsignedVarInt()];
+
+    for (int i = 0; i < bytes.length; ++i) {
+      bytes[i] = (byte) this.readByte();
+    }
+
+    return bytes;
+  }
+
+  /**
+   * Reads a `double` written by {@link BinaryOutput#writeDouble(double)}.
+   *
+   * @return the read value.
+   */
+  double readDouble() {
+    return Double.longBitsToDouble(this.readFixedLong());
+  }
+
+  /**
+   * Reads an `int` written by {@link BinaryOutput#writeFixedInt(int)}.
+   *
+   * @return the read value.
+   */
+  int readFixedInt() {
+    return this.readByte() << 24 | this.readByte() << 16 | this.readByte() << 8 | this.readByte();
+  }
+
+  /**
+   * Reads a `long` written by {@link BinaryOutput#writeFixedLong(long)}.
+   *
+   * @return the read value.
+   */
+  long readFixedLong() {
+    return (long) this.readFixedInt() << 32 | this.readFixedInt() & 0xFFFFFFFFL;
+  }
+
+  /**
+   * Reads a `float` written by {@link BinaryOutput#writeFloat(float)}.
+   *
+   * @return the read value.
+   */
+  float readFloat() {
+    return Float.intBitsToFloat(this.readFixedInt());
+  }
+
+  /**
+   * Reads a string written by {@link BinaryOutput#writeString(String)}.
+   *
+   * @return the read string.
+   */
+  String readString() {
+    return new String(this.readBytes(), StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Reads an `int` written by {@link BinaryOutput#writeUnsignedVarInt(int)}.
+   *
+   * @return the read value.
+   */
+  int readUnsignedVarInt() {
+    int value = 0;
+
+    for (int shift = 0; shift < 32; shift += 7) {
+      int b = this.readByte();
+      value |= (b & 0x7F) << shift;
+
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+
+    throw new IllegalStateException("Invalid variable length integer !");
+  }
+
+  /**
+   * Reads an `int` written by {@link BinaryOutput#writeVarInt(int)}.
+   *
+   * @return the read value.
+   */
+  int readVarInt() {
+    int value = this.readUnsignedVarInt();
+
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  /**
+   * Reads a `long` written by {@link BinaryOutput#writeVarLong(long)}.
+   *
+   * @return the read value.
+   */
+  long readVarLong() {
+    long value = 0;
+
+    for (int shift = 0; shift < 64; shift += 7) {
+      int b = this.readByte();
+      value |= (long) (b & 0x7F) << shift;
+
+      if ((b & 0x80) == 0) {
+        return (value >>> 1) ^ -(value & 1);
+      }
+    }
+
+    throw new IllegalStateException("Invalid variable length integer !");
+  }
+
+  /**
+   * Skips bytes.
+   *
+   * @param length the number of bytes to skip.
+   */
+  void skip(final int length) {
+    for (int i = 0; i < length; ++i) {
+      this.readByte();
+    }
+  }
+
+  /**
+   * Skips a string written by {@link BinaryOutput#writeString(String)}.
+   */
+  void skipString() {
+    this.skip(this.readUnsignedVarInt());
+  }
+
+  /**
+   * Skips a variable length number written by {@link BinaryOutput#writeUnsignedVarInt(int)},
+   * {@link BinaryOutput#writeVarInt(int)} or {@link BinaryOutput#writeVarLong(long)}.
+   */
+  void skipVarNumber() {
+    while ((this.readByte() & 0x80) != 0) {
+      // Nothing to do
+    }
+  }
+}
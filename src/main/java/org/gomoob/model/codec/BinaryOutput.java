@@ -0,0 +1,317 @@
+/**
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2017, GOMOOB All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided with
+ * the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.gomoob.model.codec;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Destination of the bytes written by an {@link EntityCodec}.
+ *
+ * <p>
+ * Numbers are written using variable length encodings (zigzag encoded integers for signed values)
+ * and strings are written as UTF-8 bytes prefixed by their length, without intermediate arrays.
+ * </p>
+ *
+ * @author GOMOOB SARL (contact@gomoob.com)
+ */
+abstract class BinaryOutput {
+
+  /**
+   * Output which writes into a byte buffer, starting at its current position.
+   *
+   * @author GOMOOB SARL (contact@gomoob.com)
+   */
+  static final class OfBuffer extends BinaryOutput {
+
+    /**
+     * The buffer to write.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * Creates a new output.
+     *
+     * @param buffer the buffer to write.
+     */
+    OfBuffer(final ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    void writeByte(final int value) {
+      this.buffer.put((byte) value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    void writeBytes(final ByteBuffer bytes) {
+      this.writeUnsignedVarInt(bytes.remaining());
+      this.buffer.put(bytes);
+    }
+  }
+
+  /**
+   * Output which writes into a growable byte array.
+   *
+   * @author GOMOOB SARL (contact@gomoob.com)
+   */
+  static final class OfBytes extends BinaryOutput {
+
+    /**
+     * The written bytes.
+     */
+    private byte[] bytes = new byte[128];
+
+    /**
+     * The number of written bytes.
+     */
+    private int size;
+
+    /**
+     * Gets a copy of the written bytes.
+     *
+     * @return a copy of the written bytes.
+     */
+    byte[] toByteArray() {
+      return Arrays.copyOf(this.bytes, this.size);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    void writeByte(final int value) {
+      if (this.size == this.bytes.length) {
+        this.bytes = Arrays.copyOf(this.bytes, this.size << 1);
+      }
+
+      this.bytes[this.size++] = (byte) value;
+    }
+  }
+
+  /**
+   * Output which writes into an output stream, the `IOException`s thrown by the stream are
+   * wrapped into `UncheckedIOException`s.
+   *
+   * @author GOMOOB SARL (contact@gomoob.com)
+   */
+  static final class OfStream extends BinaryOutput {
+
+    /**
+     * The stream to write.
+     */
+    private final OutputStream stream;
+
+    /**
+     * Creates a new output.
+     *
+     * @param stream the stream to write.
+     */
+    OfStream(final OutputStream stream) {
+      this.stream = stream;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    void writeByte(final int value) {
+      try {
+        this.stream.write(value);
+      } catch (IOException ioex) {
+        throw new UncheckedIOException(ioex);
+      }
+    }
+  }
+
+  /**
+   * Writes one byte.
+   *
+   * @param value the byte to write, only the 8 lowest bits are written.
+   */
+  abstract void writeByte(int value);
+
+  /**
+   * Writes bytes prefixed by the number of bytes.
+   *
+   * @param bytes the bytes to write, the remaining bytes of the buffer are written and the position
+   *          of the buffer is moved to its limit.
+   */
+  void writeBytes(final ByteBuffer bytes) {
+    this.writeUnsignedVarInt(bytes.remaining());
+
+    while (bytes.hasRemaining()) {
+      this.writeByte(bytes.get());
+    }
+  }
+
+  /**
+   * Writes a `double` using 8 bytes.
+   *
+   * @param value the value to write.
+   */
+  void writeDouble(final double value) {
+    this.writeFixedLong(Double.doubleToRawLongBits(value));
+  }
+
+  /**
+   * Writes an `int` using 4 bytes, the most significant byte first.
+   *
+   * @param value the value to write.
+   */
+  void writeFixedInt(final int value) {
+    this.writeByte(value >>> 24);
+    this.writeByte(value >>> 16);
+    this.writeByte(value >>> 8);
+    this.writeByte(value);
+  }
+
+  /**
+   * Writes a `long` using 8 bytes, the most significant byte first.
+   *
+   * @param value the value to write.
+   */
+  void writeFixedLong(final long value) {
+    this.writeFixedInt((int) (value >>> 32));
+    this.writeFixedInt((int) value);
+  }
+
+  /**
+   * Writes a `float` using 4 bytes.
+   *
+   * @param value the value to write.
+   */
+  void writeFloat(final float value) {
+    this.writeFixedInt(Float.floatToRawIntBits(value));
+  }
+
+  /**
+   * Writes a string as UTF-8 bytes prefixed by the number of bytes.
+   *
+   * @param value the string to write.
+   */
+  void writeString(final String value) {
+    int length = value.length();
+    int utf8Length = length;
+
+    for (int i = 0; i < length; ++i) {
+      char c = value.charAt(i);
+
+      if (c < 0x80) {
+        continue;
+      } else if (c < 0x800) {
+        utf8Length += 1;
+      } else if (!Character.isSurrogate(c)) {
+        utf8Length += 2;
+      } else if (Character.isHighSurrogate(c) && i + 1 < length
+          && Character.isLowSurrogate(value.charAt(i + 1))) {
+        // A surrogate pair is written using 4 bytes
+        utf8Length += 2;
+        ++i;
+      }
+    }
+
+    this.writeUnsignedVarInt(utf8Length);
+
+    for (int i = 0; i < length; ++i) {
+      char c = value.charAt(i);
+
+      if (c < 0x80) {
+        this.writeByte(c);
+      } else if (c < 0x800) {
+        this.writeByte(0xC0 | (c >>> 6));
+        this.writeByte(0x80 | (c & 0x3F));
+      } else if (Character.isHighSurrogate(c) && i + 1 < length
+          && Character.isLowSurrogate(value.charAt(i + 1))) {
+        int codePoint = Character.toCodePoint(c, value.charAt(++i));
+        this.writeByte(0xF0 | (codePoint >>> 18));
+        this.writeByte(0x80 | ((codePoint >>> 12) & 0x3F));
+        this.writeByte(0x80 | ((codePoint >>> 6) & 0x3F));
+        this.writeByte(0x80 | (codePoint & 0x3F));
+      } else if (Character.isSurrogate(c)) {
+        // Unpaired surrogates are replaced by '?' like 'String.getBytes()' does
+        this.writeByte('?');
+      } else {
+        this.writeByte(0xE0 | (c >>> 12));
+        this.writeByte(0x80 | ((c >>> 6) & 0x3F));
+        this.writeByte(0x80 | (c & 0x3F));
+      }
+    }
+  }
+
+  /**
+   * Writes a positive `int` using 1 to 5 bytes.
+   *
+   * @param value the value to write.
+   */
+  void writeUnsignedVarInt(final int value) {
+    int remaining = value;
+
+    while ((remaining & ~0x7F) != 0) {
+      this.writeByte((remaining & 0x7F) | 0x80);
+      remaining >>>= 7;
+    }
+
+    this.writeByte(remaining);
+  }
+
+  /**
+   * Writes an `int` using 1 to 5 bytes, values close to 0 use less bytes.
+   *
+   * @param value the value to write.
+   */
+  void writeVarInt(final int value) {
+    this.writeUnsignedVarInt((value << 1) ^ (value >> 31));
+  }
+
+  /**
+   * Writes a `long` using 1 to 10 bytes, values close to 0 use less bytes.
+   *
+   * @param value the value to write.
+   */
+  void writeVarLong(final long value) {
+    long remaining = (value << 1) ^ (value >> 63);
+
+    while ((remaining & ~0x7FL) != 0) {
+      this.writeByte(((int) remaining & 0x7F) | 0x80);
+      remaining >>>= 7;
+    }
+
+    this.writeByte((int) remaining);
+  }
+}
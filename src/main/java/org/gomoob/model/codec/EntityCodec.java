@@ -0,0 +1,873 @@
+/**
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2017, GOMOOB All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided with
+ * the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.gomoob.model.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.gomoob.model.ITranslation;
+import org.gomoob.model.attribute.EntityAttribute;
+import org.gomoob.model.attribute.EntityAttributes;
+import org.gomoob.model.metadata.JsonMetadata;
+import org.gomoob.model.translation.Translation;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Precompiled binary codec used to encode the entities of one entity class into byte buffers or
+ * streams and to decode them.
+ *
+ * <p>
+ * A codec is compiled only once per entity class, the first time the class is used. The attribute
+ * values of an entity are written in the order of the attributes of the entity class, by groups of
+ * 8 attributes. Each group starts with a byte which indicates the non `null` attributes of the
+ * group and is followed by the values of the non `null` attributes of the group :
+ * </p>
+ * <ul>
+ * <li>`boolean` and `double` attributes are written using 1 and 8 bytes ;</li>
+ * <li>`int` and `long` attributes are written using a variable number of bytes, values close to 0
+ * use less bytes ;</li>
+ * <li>`String` attributes and enum attributes (using the name of their constant) are written as
+ * UTF-8 bytes prefixed by their length ;</li>
+ * <li>`Date` attributes (for example `creationDate` and `updateDate`) are written as a variable
+ * length number of milliseconds since the epoch ;</li>
+ * <li>all the other attributes are written using a type tag followed by the value, the supported
+ * values are strings, primitive wrappers, `BigDecimal`, `BigInteger`, `Date`, `JSONObject`,
+ * `JSONArray`, translations and the `Map` and `List` of supported values, maps, lists and
+ * translations are prefixed by their number of elements ;</li>
+ * <li>{@link JsonMetadata} values (the metadata of actions and states) are written as their raw
+ * UTF-8 bytes and are decoded without being parsed.</li>
+ * </ul>
+ * <p>
+ * The encoded form does not contain the name of the entity class nor the names of the attributes,
+ * it is designed to be decoded by the codec of the same entity class in the same version.
+ * </p>
+ * <p>
+ * Codecs are immutable and thread safe.
+ * </p>
+ *
+ * @author GOMOOB SARL (contact@gomoob.com)
+ *
+ * @param <E> the type of the entities encoded by the codec.
+ */
+public final class EntityCodec<E> {
+
+  /**
+   * Kind of the `boolean` attributes, the kinds of the primitive attributes are the lowest ones.
+   */
+  private static final int KIND_BOOLEAN = 0;
+
+  /**
+   * Kind of the `double` attributes.
+   */
+  private static final int KIND_DOUBLE = 1;
+
+  /**
+   * Kind of the `int` attributes.
+   */
+  private static final int KIND_INT = 2;
+
+  /**
+   * Kind of the `long` attributes.
+   */
+  private static final int KIND_LONG = 3;
+
+  /**
+   * Kind of the `Date` attributes.
+   */
+  private static final int KIND_DATE = 4;
+
+  /**
+   * Kind of the enum attributes.
+   */
+  private static final int KIND_ENUM = 5;
+
+  /**
+   * Kind of the `String` attributes.
+   */
+  private static final int KIND_STRING = 6;
+
+  /**
+   * Kind of the attributes written using a type tag.
+   */
+  private static final int KIND_VALUE = 7;
+
+  /**
+   * The codecs of all the entity classes which have already been encoded or decoded.
+   */
+  private static final ClassValue<EntityCodec<?>> REGISTRY = new ClassValue<EntityCodec<?>>() {
+    @Override
+    protected EntityCodec<?> computeValue(final Class<?> type) {
+      return new EntityCodec<Object>(type);
+    }
+  };
+
+  /**
+   * Type tag of the `null` values.
+   */
+  private static final byte TAG_NULL = 0;
+
+  /**
+   * Type tag of the `String` values.
+   */
+  private static final byte TAG_STRING = 1;
+
+  /**
+   * Type tag of the `Integer` values.
+   */
+  private static final byte TAG_INTEGER = 2;
+
+  /**
+   * Type tag of the `Long` values.
+   */
+  private static final byte TAG_LONG = 3;
+
+  /**
+   * Type tag of the `Boolean` values.
+   */
+  private static final byte TAG_BOOLEAN = 4;
+
+  /**
+   * Type tag of the `Double` values.
+   */
+  private static final byte TAG_DOUBLE = 5;
+
+  /**
+   * Type tag of the `Float` values.
+   */
+  private static final byte TAG_FLOAT = 6;
+
+  /**
+   * Type tag of the `Short` values.
+   */
+  private static final byte TAG_SHORT = 7;
+
+  /**
+   * Type tag of the `Byte` values.
+   */
+  private static final byte TAG_BYTE = 8;
+
+  /**
+   * Type tag of the `Character` values.
+   */
+  private static final byte TAG_CHARACTER = 9;
+
+  /**
+   * Type tag of the `Date` values.
+   */
+  private static final byte TAG_DATE = 10;
+
+  /**
+   * Type tag of the `BigDecimal` values.
+   */
+  private static final byte TAG_BIG_DECIMAL = 11;
+
+  /**
+   * Type tag of the `BigInteger` values.
+   */
+  private static final byte TAG_BIG_INTEGER = 12;
+
+  /**
+   * Type tag of the `JSONObject` values.
+   */
+  private static final byte TAG_JSON_OBJECT = 13;
+
+  /**
+   * Type tag of the `JSONArray` values.
+   */
+  private static final byte TAG_JSON_ARRAY = 14;
+
+  /**
+   * Type tag of the {@link ITranslation} values.
+   */
+  private static final byte TAG_TRANSLATION = 15;
+
+  /**
+   * Type tag of the `Map` values.
+   */
+  private static final byte TAG_MAP = 16;
+
+  /**
+   * Type tag of the `List` values.
+   */
+  private static final byte TAG_LIST = 17;
+
+  /**
+   * Type tag of the {@link JsonMetadata} values.
+   */
+  private static final byte TAG_JSON_METADATA = 18;
+
+  /**
+   * The attributes of the entity class.
+   */
+  private final EntityAttribute[] attributes;
+
+  /**
+   * The attributes registry of the entity class, used to create new entities.
+   */
+  private final EntityAttributes entityAttributes;
+
+  /**
+   * The kinds of the attributes, in the order of the attributes.
+   */
+  private final int[] kinds;
+
+  /**
+   * Creates a new codec.
+   *
+   * @param type the entity class.
+   */
+  private EntityCodec(final Class<?> type) {
+    List<EntityAttribute> attributes = EntityAttributes.of(type).getAttributes();
+
+    this.entityAttributes = EntityAttributes.of(type);
+    this.attributes = attributes.toArray(new EntityAttribute[attributes.size()]);
+    this.kinds = new int[this.attributes.length];
+
+    for (int i = 0; i < this.attributes.length; ++i) {
+      Class<?> attributeType = this.attributes[i].getType();
+
+      if (attributeType == boolean.class) {
+        this.kinds[i] = KIND_BOOLEAN;
+      } else if (attributeType == double.class) {
+        this.kinds[i] = KIND_DOUBLE;
+      } else if (attributeType == int.class) {
+        this.kinds[i] = KIND_INT;
+      } else if (attributeType == long.class) {
+        this.kinds[i] = KIND_LONG;
+      } else if (attributeType == Date.class) {
+        this.kinds[i] = KIND_DATE;
+      } else if (attributeType.isEnum()) {
+        this.kinds[i] = KIND_ENUM;
+      } else if (attributeType == String.class) {
+        this.kinds[i] = KIND_STRING;
+      } else {
+        this.kinds[i] = KIND_VALUE;
+      }
+    }
+  }
+
+  /**
+   * Decodes an entity.
+   *
+   * @param buffer the buffer to read, the entity is read from the current position of the buffer
+   *          and the position is moved after the entity.
+   *
+   * @return the decoded entity.
+   *
+   * @throws BufferUnderflowException if the buffer does not contain a whole entity.
+   * @throws IllegalStateException if the entity class does not have a constructor without
+   *           parameters.
+   */
+  public E decode(final ByteBuffer buffer) {
+    E entity = this.newEntity();
+    this.decode(buffer, entity);
+
+    return entity;
+  }
+
+  /**
+   * Decodes an entity into an existing entity.
+   *
+   * @param buffer the buffer to read, the entity is read from the current position of the buffer
+   *          and the position is moved after the entity.
+   * @param entity the entity in which one to write the decoded attribute values.
+   *
+   * @throws BufferUnderflowException if the buffer does not contain a whole entity.
+   */
+  public void decode(final ByteBuffer buffer, final E entity) {
+    this.read(new BinaryInput.OfBuffer(buffer), entity);
+  }
+
+  /**
+   * Decodes an entity from a stream, the stream should be buffered because the bytes are read one
+   * by one to never consume the bytes which follow the entity.
+   *
+   * @param stream the stream to read.
+   *
+   * @return the decoded entity.
+   *
+   * @throws IOException if the stream cannot be read or ends before the end of the entity.
+   * @throws IllegalStateException if the entity class does not have a constructor without
+   *           parameters.
+   */
+  public E decode(final InputStream stream) throws IOException {
+    E entity = this.newEntity();
+    this.decode(stream, entity);
+
+    return entity;
+  }
+
+  /**
+   * Decodes an entity from a stream into an existing entity, the stream should be buffered because
+   * the bytes are read one by one to never consume the bytes which follow the entity.
+   *
+   * @param stream the stream to read.
+   * @param entity the entity in which one to write the decoded attribute values.
+   *
+   * @throws IOException if the stream cannot be read or ends before the end of the entity.
+   */
+  public void decode(final InputStream stream, final E entity) throws IOException {
+    try {
+      this.read(new BinaryInput.OfStream(stream), entity);
+    } catch (UncheckedIOException uioex) {
+      throw uioex.getCause();
+    }
+  }
+
+  /**
+   * Encodes an entity into a new byte array.
+   *
+   * @param entity the entity to encode.
+   *
+   * @return the encoded entity.
+   *
+   * @throws IllegalArgumentException if an attribute value of the entity cannot be encoded.
+   */
+  public byte[] encode(final E entity) {
+    BinaryOutput.OfBytes output = new BinaryOutput.OfBytes();
+    this.write(entity, output);
+
+    return output.toByteArray();
+  }
+
+  /**
+   * Encodes an entity into a buffer.
+   *
+   * @param entity the entity to encode.
+   * @param buffer the buffer to write, the entity is written at the current position of the buffer
+   *          and the position is moved after the entity.
+   *
+   * @throws BufferOverflowException if the buffer is too small, the position of the buffer is then
+   *           undefined.
+   * @throws IllegalArgumentException if an attribute value of the entity cannot be encoded.
+   */
+  public void encode(final E entity, final ByteBuffer buffer) {
+    this.write(entity, new BinaryOutput.OfBuffer(buffer));
+  }
+
+  /**
+   * Encodes an entity into a stream, the stream should be buffered because the bytes are written
+   * one by one.
+   *
+   * @param entity the entity to encode.
+   * @param stream the stream to write.
+   *
+   * @throws IOException if the stream cannot be written.
+   * @throws IllegalArgumentException if an attribute value of the entity cannot be encoded.
+   */
+  public void encode(final E entity, final OutputStream stream) throws IOException {
+    try {
+      this.write(entity, new BinaryOutput.OfStream(stream));
+    } catch (UncheckedIOException uioex) {
+      throw uioex.getCause();
+    }
+  }
+
+  /**
+   * Gets an enum constant.
+   *
+   * @param enumType the enum class.
+   * @param name the name of the constant.
+   *
+   * @return the enum constant.
+   */
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  private static Object enumValue(final Class<?> enumType, final String name) {
+    return Enum.valueOf((Class<? extends Enum>) enumType, name);
+  }
+
+  /**
+   * Gets the number of attributes of the entity class.
+   *
+   * @return the number of attributes of the entity class.
+   */
+  int getAttributeCount() {
+    return this.attributes.length;
+  }
+
+  /**
+   * Creates a new entity.
+   *
+   * @return the created entity.
+   */
+  @SuppressWarnings("unchecked")
+  private E newEntity() {
+    return (E) this.entityAttributes.newEntity();
+  }
+
+  /**
+   * Gets the codec of an entity class.
+   *
+   * @param type the entity class.
+   *
+   * @return the codec of the entity class.
+   */
+  @SuppressWarnings("unchecked")
+  public static <E> EntityCodec<E> of(final Class<E> type) {
+    return (EntityCodec<E>) REGISTRY.get(type);
+  }
+
+  /**
+   * Decodes an entity into an existing entity.
+   *
+   * @param input the input to read.
+   * @param entity the entity in which one to write the decoded attribute values.
+   */
+  private void read(final BinaryInput input, final E entity) {
+    int presence = 0;
+
+    for (int i = 0; i < this.attributes.length; ++i) {
+      EntityAttribute attribute = this.attributes[i];
+
+      // Each group of 8 attributes starts with the bits of its non null attributes
+      if ((i & 7) == 0) {
+        presence = input.readByte();
+      }
+
+      if ((presence & (1 << (i & 7))) == 0) {
+        attribute.set(entity, null);
+        continue;
+      }
+
+      switch (this.kinds[i]) {
+        case KIND_BOOLEAN:
+          attribute.setBoolean(entity, input.readByte() != 0);
+          break;
+        case KIND_DOUBLE:
+          attribute.setDouble(entity, input.readDouble());
+          break;
+        case KIND_INT:
+          attribute.setInt(entity, input.readVarInt());
+          break;
+        case KIND_LONG:
+          attribute.setLong(entity, input.readVarLong());
+          break;
+        default:
+          attribute.set(entity, this.readAttribute(input, i));
+          break;
+      }
+    }
+  }
+
+  /**
+   * Reads the value of one attribute written by `write()`.
+   *
+   * @param input the input to read.
+   * @param index the index of the attribute.
+   *
+   * @return the read value, primitive values are boxed.
+   */
+  Object readAttribute(final BinaryInput input, final int index) {
+    switch (this.kinds[index]) {
+      case KIND_BOOLEAN:
+        return input.readByte() != 0;
+      case KIND_DOUBLE:
+        return input.readDouble();
+      case KIND_INT:
+        return input.readVarInt();
+      case KIND_LONG:
+        return input.readVarLong();
+      case KIND_DATE:
+        return new Date(input.readVarLong());
+      case KIND_ENUM:
+        return enumValue(this.attributes[index].getType(), input.readString());
+      case KIND_STRING:
+        return input.readString();
+      default:
+        return readValue(input);
+    }
+  }
+
+  /**
+   * Reads a value written by `writeValue()`.
+   *
+   * @param input the input to read.
+   *
+   * @return the read value.
+   */
+  private static Object readValue(final BinaryInput input) {
+    int tag = input.readByte();
+
+    switch (tag) {
+      case TAG_NULL:
+        return null;
+      case TAG_STRING:
+        return input.readString();
+      case TAG_INTEGER:
+        return input.readVarInt();
+      case TAG_LONG:
+        return input.readVarLong();
+      case TAG_BOOLEAN:
+        return input.readByte() != 0;
+      case TAG_DOUBLE:
+        return input.readDouble();
+      case TAG_FLOAT:
+        return input.readFloat();
+      case TAG_SHORT:
+        return (short) input.readVarInt();
+      case TAG_BYTE:
+        return (byte) input.readByte();
+      case TAG_CHARACTER:
+        return (char) input.readUnsignedVarInt();
+      case TAG_DATE:
+        return new Date(input.readVarLong());
+      case TAG_BIG_DECIMAL:
+        return new BigDecimal(input.readString());
+      case TAG_BIG_INTEGER:
+        return new BigInteger(input.readString());
+      case TAG_JSON_OBJECT:
+        return new JSONObject(input.readString());
+      case TAG_JSON_ARRAY:
+        return new JSONArray(input.readString());
+      case TAG_TRANSLATION: {
+        ITranslation translation = new Translation();
+        translation.setLanguageCode((String) readValue(input));
+
+        int size = input.readUnsignedVarInt();
+        for (int i = 0; i < size; ++i) {
+          translation.setAttributeTranslation(input.readString(), (String) readValue(input));
+        }
+
+        return translation;
+      }
+      case TAG_MAP: {
+        int size = input.readUnsignedVarInt();
+        Map<Object, Object> map = new HashMap<Object, Object>(size * 4 / 3 + 1);
+
+        for (int i = 0; i < size; ++i) {
+          map.put(readValue(input), readValue(input));
+        }
+
+        return map;
+      }
+      case TAG_LIST: {
+        int size = input.readUnsignedVarInt();
+        List<Object> list = new ArrayList<Object>(size);
+
+        for (int i = 0; i < size; ++i) {
+          list.add(readValue(input));
+        }
+
+        return list;
+      }
+      case TAG_JSON_METADATA:
+        return new JsonMetadata(input.readBytes());
+      default:
+        throw new IllegalStateException("Invalid type tag '" + tag + "' !");
+    }
+  }
+
+  /**
+   * Scans an encoded entity without decoding it.
+   *
+   * @param input the input to read, the input is moved after the entity.
+   * @param offsets the array in which one to write the absolute offsets of the attribute values in
+   *          the buffer, in the order of the attributes, `-1` is written for the `null` values.
+   */
+  void scan(final BinaryInput.OfBuffer input, final int[] offsets) {
+    int presence = 0;
+
+    for (int i = 0; i < this.attributes.length; ++i) {
+      if ((i & 7) == 0) {
+        presence = input.readByte();
+      }
+
+      if ((presence & (1 << (i & 7))) == 0) {
+        offsets[i] = -1;
+        continue;
+      }
+
+      offsets[i] = input.position();
+
+      switch (this.kinds[i]) {
+        case KIND_BOOLEAN:
+          input.skip(1);
+          break;
+        case KIND_DOUBLE:
+          input.skip(8);
+          break;
+        case KIND_INT:
+        case KIND_LONG:
+        case KIND_DATE:
+          input.skipVarNumber();
+          break;
+        case KIND_ENUM:
+        case KIND_STRING:
+          input.skipString();
+          break;
+        default:
+          skipValue(input);
+          break;
+      }
+    }
+  }
+
+  /**
+   * Skips a value written by `writeValue()`.
+   *
+   * @param input the input to read.
+   */
+  private static void skipValue(final BinaryInput input) {
+    int tag = input.readByte();
+
+    switch (tag) {
+      case TAG_NULL:
+        break;
+      case TAG_STRING:
+      case TAG_BIG_DECIMAL:
+      case TAG_BIG_INTEGER:
+      case TAG_JSON_OBJECT:
+      case TAG_JSON_ARRAY:
+      case TAG_JSON_METADATA:
+        input.skipString();
+        break;
+      case TAG_INTEGER:
+      case TAG_LONG:
+      case TAG_SHORT:
+      case TAG_CHARACTER:
+      case TAG_DATE:
+        input.skipVarNumber();
+        break;
+      case TAG_BOOLEAN:
+      case TAG_BYTE:
+        input.skip(1);
+        break;
+      case TAG_FLOAT:
+        input.skip(4);
+        break;
+      case TAG_DOUBLE:
+        input.skip(8);
+        break;
+      case TAG_TRANSLATION: {
+        skipValue(input);
+
+        int size = input.readUnsignedVarInt();
+        for (int i = 0; i < size; ++i) {
+          input.skipString();
+          skipValue(input);
+        }
+        break;
+      }
+      case TAG_MAP: {
+        int size = input.readUnsignedVarInt();
+        for (int i = 0; i < size << 1; ++i) {
+          skipValue(input);
+        }
+        break;
+      }
+      case TAG_LIST: {
+        int size = input.readUnsignedVarInt();
+        for (int i = 0; i < size; ++i) {
+          skipValue(input);
+        }
+        break;
+      }
+      default:
+        throw new IllegalStateException("Invalid type tag '" + tag + "' !");
+    }
+  }
+
+  /**
+   * Encodes an entity.
+   *
+   * @param entity the entity to encode.
+   * @param output the output to write.
+   *
+   * @throws IllegalArgumentException if an attribute value of the entity cannot be encoded.
+   */
+  private void write(final E entity, final BinaryOutput output) {
+    for (int group = 0; group < this.attributes.length; group += 8) {
+      int end = Math.min(group + 8, this.attributes.length);
+      int presence = 0;
+
+      // Primitive attributes are never null, the JSON metadata are written without being parsed
+      for (int i = group; i < end; ++i) {
+        if (this.kinds[i] <= KIND_LONG || this.attributes[i].getStoredValue(entity) != null) {
+          presence |= 1 << (i - group);
+        }
+      }
+
+      output.writeByte(presence);
+
+      for (int i = group; i < end; ++i) {
+        EntityAttribute attribute = this.attributes[i];
+
+        switch (this.kinds[i]) {
+          case KIND_BOOLEAN:
+            output.writeByte(attribute.getBoolean(entity) ? 1 : 0);
+            break;
+          case KIND_DOUBLE:
+            output.writeDouble(attribute.getDouble(entity));
+            break;
+          case KIND_INT:
+            output.writeVarInt(attribute.getInt(entity));
+            break;
+          case KIND_LONG:
+            output.writeVarLong(attribute.getLong(entity));
+            break;
+          default:
+            if ((presence & (1 << (i - group))) != 0) {
+              this.writeAttribute(output, i, attribute.getStoredValue(entity));
+            }
+            break;
+        }
+      }
+    }
+  }
+
+  /**
+   * Writes the value of one non primitive attribute.
+   *
+   * @param output the output to write.
+   * @param index the index of the attribute.
+   * @param value the value to write.
+   *
+   * @throws IllegalArgumentException if the value cannot be encoded.
+   */
+  private void writeAttribute(final BinaryOutput output, final int index, final Object value) {
+    switch (this.kinds[index]) {
+      case KIND_DATE:
+        output.writeVarLong(((Date) value).getTime());
+        break;
+      case KIND_ENUM:
+        output.writeString(((Enum<?>) value).name());
+        break;
+      case KIND_STRING:
+        output.writeString((String) value);
+        break;
+      default:
+        writeValue(output, this.attributes[index].getName(), value);
+        break;
+    }
+  }
+
+  /**
+   * Writes a value using a type tag.
+   *
+   * @param output the output to write.
+   * @param attributeName the name of the attribute which holds the value, used in error messages.
+   * @param value the value to write.
+   *
+   * @throws IllegalArgumentException if the value cannot be encoded.
+   */
+  private static void writeValue(final BinaryOutput output, final String attributeName,
+      final Object value) {
+    if (value == null) {
+      output.writeByte(TAG_NULL);
+    } else if (value instanceof String) {
+      output.writeByte(TAG_STRING);
+      output.writeString((String) value);
+    } else if (value instanceof Integer) {
+      output.writeByte(TAG_INTEGER);
+      output.writeVarInt((Integer) value);
+    } else if (value instanceof Long) {
+      output.writeByte(TAG_LONG);
+      output.writeVarLong((Long) value);
+    } else if (value instanceof Boolean) {
+      output.writeByte(TAG_BOOLEAN);
+      output.writeByte((Boolean) value ? 1 : 0);
+    } else if (value instanceof Double) {
+      output.writeByte(TAG_DOUBLE);
+      output.writeDouble((Double) value);
+    } else if (value instanceof Float) {
+      output.writeByte(TAG_FLOAT);
+      output.writeFloat((Float) value);
+    } else if (value instanceof Short) {
+      output.writeByte(TAG_SHORT);
+      output.writeVarInt((Short) value);
+    } else if (value instanceof Byte) {
+      output.writeByte(TAG_BYTE);
+      output.writeByte((Byte) value);
+    } else if (value instanceof Character) {
+      output.writeByte(TAG_CHARACTER);
+      output.writeUnsignedVarInt((Character) value);
+    } else if (value instanceof Date) {
+      output.writeByte(TAG_DATE);
+      output.writeVarLong(((Date) value).getTime());
+    } else if (value instanceof BigDecimal) {
+      output.writeByte(TAG_BIG_DECIMAL);
+      output.writeString(value.toString());
+    } else if (value instanceof BigInteger) {
+      output.writeByte(TAG_BIG_INTEGER);
+      output.writeString(value.toString());
+    } else if (value instanceof JSONObject) {
+      output.writeByte(TAG_JSON_OBJECT);
+      output.writeString(value.toString());
+    } else if (value instanceof JSONArray) {
+      output.writeByte(TAG_JSON_ARRAY);
+      output.writeString(value.toString());
+    } else if (value instanceof JsonMetadata) {
+      output.writeByte(TAG_JSON_METADATA);
+      output.writeBytes(((JsonMetadata) value).getByteBuffer());
+    } else if (value instanceof ITranslation) {
+      ITranslation translation = (ITranslation) value;
+      output.writeByte(TAG_TRANSLATION);
+      writeValue(output, attributeName, translation.getLanguageCode());
+      output.writeUnsignedVarInt(translation.getAttributeTranslations().size());
+
+      for (Map.Entry<String, String> entry : translation.getAttributeTranslations().entrySet()) {
+        output.writeString(entry.getKey());
+        writeValue(output, attributeName, entry.getValue());
+      }
+    } else if (value instanceof Map) {
+      Map<?, ?> map = (Map<?, ?>) value;
+      output.writeByte(TAG_MAP);
+      output.writeUnsignedVarInt(map.size());
+
+      for (Map.Entry<?, ?> entry : map.entrySet()) {
+        writeValue(output, attributeName, entry.getKey());
+        writeValue(output, attributeName, entry.getValue());
+      }
+    } else if (value instanceof List) {
+      List<?> list = (List<?>) value;
+      output.writeByte(TAG_LIST);
+      output.writeUnsignedVarInt(list.size());
+
+      for (Object element : list) {
+        writeValue(output, attributeName, element);
+      }
+    } else {
+      throw new IllegalArgumentException("Cannot encode value of property '" + attributeName
+          + "' of type '" + value.getClass().getName() + "' !");
+    }
+  }
+}
@@ -0,0 +1,405 @@
+/**
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2017, GOMOOB All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided with
+ * the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.gomoob.model.codec;
+
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Set;
+
+import org.gomoob.model.IEntity;
+import org.gomoob.model.attribute.EntityAttribute;
+import org.gomoob.model.attribute.EntityAttributes;
+import org.gomoob.model.metadata.JsonMetadata;
+
+/**
+ * Read only view of an entity encoded by an {@link EntityCodec}, the attribute values are read
+ * directly from the buffer which contains the encoded entity.
+ *
+ * <p>
+ * A cursor is a flyweight, it can be moved from one encoded entity to another without allocating
+ * any object. This allows to browse and filter a large number of encoded entities and to decode
+ * only the matching ones :
+ * </p>
+ *
+ * <pre>
+ * EntityCursor&lt;Product&gt; cursor = new EntityCursor&lt;&gt;(Product.class);
+ *
+ * while (buffer.hasRemaining()) {
+ *   if (cursor.moveTo(buffer).getInt("stock") == 0) {
+ *     products.add(cursor.materialize());
+ *   }
+ * }
+ * </pre>
+ * <p>
+ * Only the values of the attributes which are read are decoded, the primitive attributes can be
+ * read without boxing using `getBoolean()`, `getDouble()`, `getInt()` and `getLong()`. A cursor
+ * does not track dirty attributes and cannot be modified. Cursors are not thread safe.
+ * </p>
+ *
+ * @author GOMOOB SARL (contact@gomoob.com)
+ *
+ * @param <E> the type of the encoded entities.
+ */
+public final class EntityCursor<E> implements IEntity<Serializable> {
+
+  /**
+   * The codec used to encode the entities.
+   */
+  private final EntityCodec<E> codec;
+
+  /**
+   * The attributes of the entity class.
+   */
+  private final EntityAttributes entityAttributes;
+
+  /**
+   * The entity class.
+   */
+  private final Class<E> entityClass;
+
+  /**
+   * The input used to read the view of the buffer.
+   */
+  private BinaryInput.OfBuffer input;
+
+  /**
+   * The number of bytes of the current entity.
+   */
+  private int length;
+
+  /**
+   * The offset of the current entity in the buffer, `-1` if the cursor is not positioned on an
+   * entity.
+   */
+  private int offset = -1;
+
+  /**
+   * The absolute offsets of the attribute values of the current entity, `-1` for the `null`
+   * values.
+   */
+  private final int[] offsets;
+
+  /**
+   * The buffer the cursor has been moved to the last time.
+   */
+  private ByteBuffer source;
+
+  /**
+   * A view of the buffer the cursor has been moved to the last time, used to read the attribute
+   * values without modifying the position of the buffer.
+   */
+  private ByteBuffer view;
+
+  /**
+   * Creates a new cursor.
+   *
+   * @param entityClass the class of the encoded entities.
+   */
+  public EntityCursor(final Class<E> entityClass) {
+    this.entityClass = entityClass;
+    this.codec = EntityCodec.of(entityClass);
+    this.entityAttributes = EntityAttributes.of(entityClass);
+    this.offsets = new int[this.codec.getAttributeCount()];
+  }
+
+  /**
+   * Throws an exception if the cursor is not positioned on an entity.
+   *
+   * @throws IllegalStateException if the cursor is not positioned on an entity.
+   */
+  private void checkPositioned() {
+    if (this.offset == -1) {
+      throw new IllegalStateException("The cursor is not positioned on an entity !");
+    }
+  }
+
+  /**
+   * Cursors do not track dirty attributes, this function does nothing.
+   */
+  @Override
+  public void clearDirty() {
+    // Nothing to do
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Object get(final String attributeName) {
+    EntityAttribute attribute = this.getAttributeToGet(attributeName);
+    int index = attribute.getIndex();
+
+    if (this.offsets[index] == -1) {
+      return null;
+    }
+
+    Object value = this.codec.readAttribute(this.input.position(this.offsets[index]), index);
+
+    // The JSON metadata are values of 'JSONObject' attributes
+    if (attribute.getStoredType() == JsonMetadata.class && value instanceof JsonMetadata) {
+      return ((JsonMetadata) value).getJSONObject();
+    }
+
+    // A primitive '0' means no value for the identifiers of the primitive identifier entities
+    return attribute.isZeroNull() && ((Number) value).longValue() == 0L ? null : value;
+  }
+
+  /**
+   * Gets an attribute which is about to be read.
+   *
+   * @param attributeName the name of the attribute.
+   *
+   * @return the attribute.
+   *
+   * @throws IllegalStateException if the cursor is not positioned on an entity.
+   * @throws RuntimeException if no attribute named `attributeName` exists.
+   */
+  private EntityAttribute getAttributeToGet(final String attributeName) {
+    this.checkPositioned();
+
+    return this.entityAttributes.getAttributeToGet(attributeName);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean getBoolean(final String attributeName) {
+    EntityAttribute attribute = this.getAttributeToGet(attributeName);
+
+    return attribute.getType() == boolean.class
+        ? this.input.position(this.offsets[attribute.getIndex()]).readByte() != 0
+        : IEntity.super.getBoolean(attributeName);
+  }
+
+  /**
+   * Cursors do not track dirty attributes, this function always returns an empty set.
+   *
+   * @return an empty set.
+   */
+  @Override
+  public Set<String> getDirtyAttributes() {
+    return Collections.emptySet();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public double getDouble(final String attributeName) {
+    EntityAttribute attribute = this.getAttributeToGet(attributeName);
+
+    return attribute.getType() == double.class
+        ? this.input.position(this.offsets[attribute.getIndex()]).readDouble()
+        : IEntity.super.getDouble(attributeName);
+  }
+
+  /**
+   * Gets the class of the encoded entities.
+   *
+   * @return the class of the encoded entities.
+   */
+  public Class<E> getEntityClass() {
+    return this.entityClass;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Serializable getId() {
+    return (Serializable) this.get("id");
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int getInt(final String attributeName) {
+    EntityAttribute attribute = this.getAttributeToGet(attributeName);
+
+    return attribute.getType() == int.class
+        ? this.input.position(this.offsets[attribute.getIndex()]).readVarInt()
+        : IEntity.super.getInt(attributeName);
+  }
+
+  /**
+   * Gets the number of bytes of the current entity.
+   *
+   * @return the number of bytes of the current entity.
+   *
+   * @throws IllegalStateException if the cursor is not positioned on an entity.
+   */
+  public int getLength() {
+    this.checkPositioned();
+
+    return this.length;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public long getLong(final String attributeName) {
+    EntityAttribute attribute = this.getAttributeToGet(attributeName);
+
+    return attribute.getType() == long.class
+        ? this.input.position(this.offsets[attribute.getIndex()]).readVarLong()
+        : IEntity.super.getLong(attributeName);
+  }
+
+  /**
+   * Gets the offset of the current entity in the buffer.
+   *
+   * @return the offset of the current entity in the buffer.
+   *
+   * @throws IllegalStateException if the cursor is not positioned on an entity.
+   */
+  public int getOffset() {
+    this.checkPositioned();
+
+    return this.offset;
+  }
+
+  /**
+   * Cursors do not track dirty attributes, this function always returns `false`.
+   *
+   * @return `false`.
+   */
+  @Override
+  public boolean isDirty() {
+    return false;
+  }
+
+  /**
+   * Decodes the current entity.
+   *
+   * @return the decoded entity.
+   *
+   * @throws IllegalStateException if the cursor is not positioned on an entity or if the entity
+   *           class does not have a constructor without parameters.
+   */
+  public E materialize() {
+    this.checkPositioned();
+
+    return this.codec.decode(this.moveView(this.offset));
+  }
+
+  /**
+   * Decodes the current entity into an existing entity.
+   *
+   * @param entity the entity in which one to write the decoded attribute values.
+   *
+   * @throws IllegalStateException if the cursor is not positioned on an entity.
+   */
+  public void materialize(final E entity) {
+    this.checkPositioned();
+    this.codec.decode(this.moveView(this.offset), entity);
+  }
+
+  /**
+   * Moves the cursor to the entity which starts at the current position of a buffer, the position
+   * of the buffer is moved after the entity.
+   *
+   * @param buffer the buffer which contains the encoded entity.
+   *
+   * @return this cursor.
+   */
+  public EntityCursor<E> moveTo(final ByteBuffer buffer) {
+    this.moveTo(buffer, buffer.position());
+    buffer.position(this.offset + this.length);
+
+    return this;
+  }
+
+  /**
+   * Moves the cursor to the entity which starts at an offset of a buffer, the position of the
+   * buffer is not modified.
+   *
+   * @param buffer the buffer which contains the encoded entity.
+   * @param offset the offset of the entity in the buffer.
+   *
+   * @return this cursor.
+   */
+  public EntityCursor<E> moveTo(final ByteBuffer buffer, final int offset) {
+    // The view is only created when the cursor is moved to another buffer
+    if (buffer != this.source) {
+      this.view = buffer.duplicate();
+      this.input = new BinaryInput.OfBuffer(this.view);
+      this.source = buffer;
+    }
+
+    this.offset = -1;
+    this.view.limit(buffer.limit());
+    this.codec.scan(this.input.position(offset), this.offsets);
+    this.length = this.input.position() - offset;
+    this.offset = offset;
+
+    return this;
+  }
+
+  /**
+   * Moves the view of the buffer to an offset.
+   *
+   * @param position the offset to move to.
+   *
+   * @return the view of the buffer.
+   */
+  private ByteBuffer moveView(final int position) {
+    this.view.position(position);
+
+    return this.view;
+  }
+
+  /**
+   * Cursors are read only, this function always throws an `UnsupportedOperationException`.
+   *
+   * @param attributeName the name of the attribute.
+   * @param attributeValue the value of the attribute.
+   *
+   * @throws UnsupportedOperationException always.
+   */
+  @Override
+  public void set(final String attributeName, final Object attributeValue) {
+    throw new UnsupportedOperationException("Entity cursors are read only !");
+  }
+
+  /**
+   * Cursors are read only, this function always throws an `UnsupportedOperationException`.
+   *
+   * @param id the technical identifier.
+   *
+   * @throws UnsupportedOperationException always.
+   */
+  @Override
+  public void setId(final Serializable id) {
+    throw new UnsupportedOperationException("Entity cursors are read only !");
+  }
+}
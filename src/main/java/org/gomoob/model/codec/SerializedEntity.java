@@ -0,0 +1,374 @@
+/**
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2017, GOMOOB All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided with
+ * the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.gomoob.model.codec;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.gomoob.model.AbstractEntity;
+import org.gomoob.model.CompactSerialization;
+import org.gomoob.model.ITranslation;
+import org.gomoob.model.attribute.EntityAttribute;
+import org.gomoob.model.attribute.EntityAttributes;
+import org.gomoob.model.metadata.JsonMetadata;
+import org.gomoob.model.translation.Translation;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Compact serialized form of the entities which extend {@link org.gomoob.model.AbstractEntity}.
+ *
+ * <p>
+ * When an entity of a class annotated with {@link CompactSerialization} is serialized using Java
+ * serialization it is replaced by a serialized entity which writes the entity class, the schema
+ * fingerprint of the entity class and the entity encoded by the {@link EntityCodec} of the entity
+ * class. When it is deserialized the serialized entity is replaced by the decoded entity. This is
+ * much smaller and faster than the default Java serialization, in particular for the translations
+ * of translatable entities.
+ * </p>
+ * <p>
+ * The encoded attributes are not named, so the schema fingerprint is computed from the
+ * `serialVersionUID` of the entity class and from the names and types of its attributes. A
+ * serialized entity whose fingerprint does not match the current entity class (for example because
+ * an attribute has been added, removed or moved) cannot be deserialized.
+ * </p>
+ * <p>
+ * This compact form is only used if it preserves the entity, otherwise the entity is serialized
+ * using the default Java serialization. An entity class uses the compact form if :
+ * </p>
+ * <ul>
+ * <li>it is annotated with {@link CompactSerialization}, the annotation is not inherited ;</li>
+ * <li>it has a constructor without parameters ;</li>
+ * <li>neither the entity class nor its parent classes declare transient fields or the
+ * `writeObject`, `readObject`, `readObjectNoData` and `readResolve` serialization methods ;</li>
+ * <li>the types of all its attributes can hold the values decoded by the {@link EntityCodec}, for
+ * example `Map` or `List` but not `TreeMap`, `Set` or `UUID`.</li>
+ * </ul>
+ * <p>
+ * An entity is also serialized using the default Java serialization if one of its attribute values
+ * would not be decoded as an instance of the same class, for example a `java.sql.Timestamp`, a
+ * `LinkedHashMap`, a `LinkedList` or an `UUID` stored in an `Object` attribute. The codec decodes
+ * dates as `Date`, maps as `HashMap` and lists as `ArrayList`. The dirty attributes are never
+ * serialized.
+ * </p>
+ *
+ * @author GOMOOB SARL (contact@gomoob.com)
+ */
+public final class SerializedEntity implements Externalizable {
+
+  /**
+   * The schema fingerprints of the entity classes.
+   */
+  private static final ClassValue<Long> FINGERPRINTS = new ClassValue<Long>() {
+    @Override
+    protected Long computeValue(final Class<?> type) {
+      return computeFingerprint(type);
+    }
+  };
+
+  /**
+   * The classes of the values which are decoded by the {@link EntityCodec} as instances of the same
+   * class, in addition to the enumerations, the {@link JsonMetadata}, the `HashMap` and the
+   * `ArrayList`.
+   */
+  private static final Set<Class<?>> RESTORED_CLASSES = new HashSet<Class<?>>(
+      Arrays.asList(BigDecimal.class, BigInteger.class, Boolean.class, Byte.class,
+          Character.class, Date.class, Double.class, Float.class, Integer.class, JSONArray.class,
+          JSONObject.class, Long.class, Short.class, String.class, Translation.class));
+
+  /**
+   * The names of the methods which customize the Java serialization of a class.
+   */
+  private static final Set<String> SERIALIZATION_METHOD_NAMES = new HashSet<String>(
+      Arrays.asList("readObject", "readObjectNoData", "readResolve", "writeObject"));
+
+  /**
+   * The attribute types which can hold the values decoded by the {@link EntityCodec}, in addition
+   * to the primitive types and the enumerations.
+   */
+  private static final Set<Class<?>> SUPPORTED_ATTRIBUTE_TYPES = new HashSet<Class<?>>(
+      Arrays.asList(BigDecimal.class, BigInteger.class, Boolean.class, Byte.class,
+          Character.class, Date.class, Double.class, Float.class, Integer.class,
+          ITranslation.class, JSONArray.class, JSONObject.class, JsonMetadata.class, List.class,
+          Long.class, Map.class, Number.class, Object.class, Serializable.class, Short.class,
+          String.class, Translation.class));
+
+  /**
+   * Indicates for each entity class if it uses the compact serialized form.
+   */
+  private static final ClassValue<Boolean> SUPPORTED = new ClassValue<Boolean>() {
+    @Override
+    protected Boolean computeValue(final Class<?> type) {
+      return isCompactFormSupported(type);
+    }
+  };
+
+  /**
+   * The version of the serialized form.
+   */
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * The entity encoded by the codec of its class, `null` once the entity has been deserialized.
+   */
+  private byte[] bytes;
+
+  /**
+   * The serialized or deserialized entity.
+   */
+  private Object entity;
+
+  /**
+   * Creates a new serialized entity, this constructor is only used by Java deserialization.
+   */
+  public SerializedEntity() {
+    // Nothing to do
+  }
+
+  /**
+   * Creates a new serialized entity.
+   *
+   * @param entity the entity to serialize.
+   * @param bytes the entity encoded by the codec of its class.
+   */
+  private SerializedEntity(final Object entity, final byte[] bytes) {
+    this.entity = entity;
+    this.bytes = bytes;
+  }
+
+  /**
+   * Computes the schema fingerprint of an entity class.
+   *
+   * @param type the entity class.
+   *
+   * @return the first 8 bytes of the SHA-1 hash of the name and `serialVersionUID` of the entity
+   *         class followed by the names and types of its attributes.
+   */
+  private static long computeFingerprint(final Class<?> type) {
+    StringBuilder schema = new StringBuilder(type.getName()).append(':')
+        .append(ObjectStreamClass.lookup(type).getSerialVersionUID());
+
+    for (EntityAttribute attribute : EntityAttributes.of(type).getAttributes()) {
+      schema.append(';').append(attribute.getName()).append(':')
+          .append(attribute.getStoredType().getName());
+    }
+
+    try {
+      byte[] hash = MessageDigest.getInstance("SHA-1")
+          .digest(schema.toString().getBytes(StandardCharsets.UTF_8));
+
+      return ByteBuffer.wrap(hash).getLong();
+    } catch (NoSuchAlgorithmException nsaex) {
+      throw new IllegalStateException("The SHA-1 algorithm is not available !", nsaex);
+    }
+  }
+
+  /**
+   * Checks if an entity class uses the compact serialized form.
+   *
+   * @param type the entity class.
+   *
+   * @return `true` if the entities of the class are serialized using the compact form, `false` if
+   *         they are serialized using the default Java serialization.
+   */
+  private static boolean isCompactFormSupported(final Class<?> type) {
+    if (!AbstractEntity.class.isAssignableFrom(type) || Modifier.isAbstract(type.getModifiers())
+        || !type.isAnnotationPresent(CompactSerialization.class)) {
+      return false;
+    }
+
+    try {
+      type.getDeclaredConstructor();
+    } catch (NoSuchMethodException nsmex) {
+      return false;
+    }
+
+    for (Class<?> current = type; current != AbstractEntity.class;
+        current = current.getSuperclass()) {
+      for (Field field : current.getDeclaredFields()) {
+        int modifiers = field.getModifiers();
+
+        if (Modifier.isTransient(modifiers) && !Modifier.isStatic(modifiers)) {
+          return false;
+        }
+      }
+
+      for (Method method : current.getDeclaredMethods()) {
+        if (SERIALIZATION_METHOD_NAMES.contains(method.getName())
+            && !Modifier.isStatic(method.getModifiers())) {
+          return false;
+        }
+      }
+    }
+
+    for (EntityAttribute attribute : EntityAttributes.of(type).getAttributes()) {
+      Class<?> attributeType = attribute.getType();
+
+      if (!attributeType.isPrimitive() && !attributeType.isEnum()
+          && !SUPPORTED_ATTRIBUTE_TYPES.contains(attributeType)) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Checks if a value is decoded by the {@link EntityCodec} as an instance of the same class.
+   *
+   * @param value the value to check.
+   *
+   * @return `true` if the value and all the values it contains are decoded as instances of the same
+   *         class, `false` otherwise.
+   */
+  private static boolean isRestored(final Object value) {
+    if (value == null || value instanceof Enum || value instanceof JsonMetadata) {
+      return true;
+    } else if (value.getClass() == HashMap.class) {
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+        if (!isRestored(entry.getKey()) || !isRestored(entry.getValue())) {
+          return false;
+        }
+      }
+
+      return true;
+    } else if (value.getClass() == ArrayList.class) {
+      for (Object element : (List<?>) value) {
+        if (!isRestored(element)) {
+          return false;
+        }
+      }
+
+      return true;
+    }
+
+    return RESTORED_CLASSES.contains(value.getClass());
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void readExternal(final ObjectInput in) throws IOException, ClassNotFoundException {
+    Object typeObject = in.readObject();
+
+    // Never instantiate a class which would not have been serialized using the compact form
+    if (!(typeObject instanceof Class) || !SUPPORTED.get((Class<?>) typeObject)) {
+      throw new InvalidObjectException("Invalid entity class '" + typeObject + "' !");
+    }
+
+    Class<?> type = (Class<?>) typeObject;
+
+    // The attributes are not named, so they must not have changed since the entity was serialized
+    if (in.readLong() != FINGERPRINTS.get(type)) {
+      throw new InvalidObjectException(
+          "Incompatible serialized form of entity class '" + type.getName() + "' !");
+    }
+
+    byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+
+    try {
+      this.entity = EntityCodec.of(type).decode(ByteBuffer.wrap(bytes));
+    } catch (RuntimeException rex) {
+      InvalidObjectException ioex =
+          new InvalidObjectException("Fail to decode entity of class '" + type.getName() + "' !");
+      ioex.initCause(rex);
+      throw ioex;
+    }
+  }
+
+  /**
+   * Replaces the serialized entity by the deserialized entity.
+   *
+   * @return the deserialized entity.
+   */
+  private Object readResolve() {
+    return this.entity;
+  }
+
+  /**
+   * Gets the object which replaces an entity when it is serialized using Java serialization.
+   *
+   * @param entity the entity to serialize.
+   *
+   * @return the compact serialized form of the entity, or the entity itself if it has to be
+   *         serialized using the default Java serialization.
+   */
+  public static Object replace(final AbstractEntity<?> entity) {
+    if (!SUPPORTED.get(entity.getClass())) {
+      return entity;
+    }
+
+    // The values which would be decoded as instances of other classes are serialized by default
+    for (EntityAttribute attribute : EntityAttributes.of(entity.getClass()).getAttributes()) {
+      if (!attribute.getType().isPrimitive() && !isRestored(attribute.getStoredValue(entity))) {
+        return entity;
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    EntityCodec<Object> codec = EntityCodec.of((Class<Object>) (Class<?>) entity.getClass());
+
+    return new SerializedEntity(entity, codec.encode(entity));
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void writeExternal(final ObjectOutput out) throws IOException {
+    out.writeObject(this.entity.getClass());
+    out.writeLong(FINGERPRINTS.get(this.entity.getClass()));
+    out.writeInt(this.bytes.length);
+    out.write(this.bytes);
+  }
+}
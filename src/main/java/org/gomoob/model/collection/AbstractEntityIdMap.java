@@ -0,0 +1,496 @@
+/**
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2017, GOMOOB All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided with
+ * the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.gomoob.model.collection;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Base class of the hash maps of entities indexed by a primitive technical identifier.
+ *
+ * <p>
+ * This class implements the open addressing with linear probing shared by {@link EntityIntMap} and
+ * {@link EntityLongMap}, the technical identifiers are handled as `long` values and stored by the
+ * subclasses in a primitive array parallel to the array of the entities. A slot holding a `null`
+ * entity is a free slot, the entity having the `0` identifier is stored outside of the slots
+ * arrays.
+ * </p>
+ *
+ * @author GOMOOB SARL (contact@gomoob.com)
+ *
+ * @param <E> the type of the entities stored in the map.
+ */
+abstract class AbstractEntityIdMap<E> implements Iterable<E> {
+
+  /**
+   * The default capacity of the map.
+   */
+  static final int DEFAULT_CAPACITY = 16;
+
+  /**
+   * The maximum capacity of the slots arrays.
+   */
+  private static final int MAX_CAPACITY = 1 << 30;
+
+  /**
+   * The number of bits of the technical identifiers, used to compute the slot indexes.
+   */
+  private final int idBits;
+
+  /**
+   * The number of modifications of the map, used to detect concurrent modifications while
+   * iterating.
+   */
+  int modCount;
+
+  /**
+   * The number of bits the hash codes are shifted to get a slot index.
+   */
+  int shift;
+
+  /**
+   * The number of entities stored in the map, including the entity having the `0` identifier.
+   */
+  private int size;
+
+  /**
+   * The maximum number of entities stored in the slots arrays before the arrays are resized.
+   */
+  private int threshold;
+
+  /**
+   * The entities, in the slots of their technical identifiers.
+   */
+  Object[] values;
+
+  /**
+   * The entity having the `0` identifier, `null` if no such entity is stored in the map.
+   */
+  E zeroValue;
+
+  /**
+   * Creates a new map able to store an expected number of entities without being resized.
+   *
+   * @param idBits the number of bits of the technical identifiers.
+   * @param expectedSize the expected number of entities.
+   *
+   * @throws IllegalArgumentException if the expected number of entities is negative.
+   */
+  AbstractEntityIdMap(final int idBits, final int expectedSize) {
+    if (expectedSize < 0) {
+      throw new IllegalArgumentException("The expected size must be positive !");
+    }
+
+    this.idBits = idBits;
+    this.allocate(capacityFor(expectedSize));
+  }
+
+  /**
+   * Allocates new slots arrays.
+   *
+   * @param capacity the capacity of the arrays, a power of 2.
+   */
+  final void allocate(final int capacity) {
+    this.allocateIds(capacity);
+    this.values = new Object[capacity];
+    this.shift = this.idBits - Integer.numberOfTrailingZeros(capacity);
+    this.threshold = capacity == MAX_CAPACITY ? capacity - 1 : capacity / 3 * 2;
+  }
+
+  /**
+   * Allocates a new array of technical identifiers.
+   *
+   * @param capacity the capacity of the array, a power of 2.
+   */
+  abstract void allocateIds(int capacity);
+
+  /**
+   * Computes the capacity of the slots arrays required to store a number of entities.
+   *
+   * @param size the number of entities.
+   *
+   * @return the capacity, a power of 2.
+   */
+  private static int capacityFor(final int size) {
+    long capacity = Math.max(2L, (long) size * 3 / 2 + 1);
+
+    if (capacity > MAX_CAPACITY) {
+      return MAX_CAPACITY;
+    }
+
+    return Integer.highestOneBit((int) capacity - 1) << 1;
+  }
+
+  /**
+   * Removes all the entities from the map.
+   */
+  public void clear() {
+    this.clearIds();
+    Arrays.fill(this.values, null);
+    this.zeroValue = null;
+    this.size = 0;
+    ++this.modCount;
+  }
+
+  /**
+   * Clears the array of technical identifiers.
+   */
+  abstract void clearIds();
+
+  /**
+   * Finds the first free slot of the probe sequence of a technical identifier.
+   *
+   * @param id the technical identifier, which must not be stored in the slots arrays.
+   *
+   * @return the free slot.
+   */
+  private int freeSlot(final long id) {
+    int mask = this.values.length - 1;
+    int slot = this.slot(id);
+
+    while (this.values[slot] != null) {
+      slot = (slot + 1) & mask;
+    }
+
+    return slot;
+  }
+
+  /**
+   * Gets an entity.
+   *
+   * @param id the technical identifier of the entity.
+   *
+   * @return the entity having the technical identifier `id` or `null` if no such entity is stored
+   *         in the map.
+   */
+  @SuppressWarnings("unchecked")
+  final E getEntity(final long id) {
+    if (id == 0L) {
+      return this.zeroValue;
+    }
+
+    int mask = this.values.length - 1;
+    for (int slot = this.slot(id); this.values[slot] != null; slot = (slot + 1) & mask) {
+      if (this.idAt(slot) == id) {
+        return (E) this.values[slot];
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Gets the technical identifier stored in a slot.
+   *
+   * @param slot the slot.
+   *
+   * @return the technical identifier stored in the slot.
+   */
+  abstract long idAt(int slot);
+
+  /**
+   * Gets the technical identifier of an entity.
+   *
+   * @param entity the entity.
+   *
+   * @return the technical identifier of the entity.
+   *
+   * @throws IllegalArgumentException if the entity does not have any technical identifier.
+   */
+  abstract long idOf(E entity);
+
+  /**
+   * Stores an entity in a free slot while resizing the slots arrays.
+   *
+   * @param id the technical identifier of the entity, which must not be `0`.
+   * @param entity the entity to store.
+   */
+  final void insert(final long id, final Object entity) {
+    int slot = this.freeSlot(id);
+    this.setIdAt(slot, id);
+    this.values[slot] = entity;
+  }
+
+  /**
+   * Checks if the map is empty.
+   *
+   * @return `true` if the map does not contain any entity, `false` otherwise.
+   */
+  public boolean isEmpty() {
+    return this.size == 0;
+  }
+
+  /**
+   * Gets an iterator over the entities of the map.
+   *
+   * @return the iterator, which does not support the removal of entities.
+   */
+  @Override
+  public Iterator<E> iterator() {
+    return new Iterator<E>() {
+      private final int expectedModCount = AbstractEntityIdMap.this.modCount;
+
+      private boolean zeroValueReturned = AbstractEntityIdMap.this.zeroValue == null;
+
+      private int slot = this.nextSlot(0);
+
+      @Override
+      public boolean hasNext() {
+        return !this.zeroValueReturned || this.slot < AbstractEntityIdMap.this.values.length;
+      }
+
+      @Override
+      @SuppressWarnings("unchecked")
+      public E next() {
+        if (AbstractEntityIdMap.this.modCount != this.expectedModCount) {
+          throw new ConcurrentModificationException();
+        }
+
+        if (!this.zeroValueReturned) {
+          this.zeroValueReturned = true;
+          return AbstractEntityIdMap.this.zeroValue;
+        }
+
+        if (this.slot >= AbstractEntityIdMap.this.values.length) {
+          throw new NoSuchElementException();
+        }
+
+        E value = (E) AbstractEntityIdMap.this.values[this.slot];
+        this.slot = this.nextSlot(this.slot + 1);
+
+        return value;
+      }
+
+      private int nextSlot(final int from) {
+        Object[] values = AbstractEntityIdMap.this.values;
+        int next = from;
+        while (next < values.length && values[next] == null) {
+          ++next;
+        }
+
+        return next;
+      }
+    };
+  }
+
+  /**
+   * Stores an entity using its technical identifier.
+   *
+   * @param entity the entity to store.
+   *
+   * @return the entity previously stored with the same technical identifier or `null` if no such
+   *         entity was stored.
+   *
+   * @throws IllegalArgumentException if the entity does not have any technical identifier.
+   */
+  public E put(final E entity) {
+    return this.putEntity(this.idOf(entity), entity);
+  }
+
+  /**
+   * Stores several entities using their technical identifiers, the slots arrays are resized at most
+   * once.
+   *
+   * @param entities the entities to store.
+   *
+   * @throws IllegalArgumentException if one of the entities does not have any technical identifier.
+   */
+  public void putAll(final Collection<? extends E> entities) {
+    int capacity = capacityFor(this.size + entities.size());
+
+    if (capacity > this.values.length) {
+      this.resize(capacity);
+    }
+
+    for (E entity : entities) {
+      this.put(entity);
+    }
+  }
+
+  /**
+   * Stores an entity.
+   *
+   * @param id the technical identifier of the entity.
+   * @param entity the entity to store, must not be `null`.
+   *
+   * @return the entity previously stored with the same technical identifier or `null` if no such
+   *         entity was stored.
+   */
+  @SuppressWarnings("unchecked")
+  final E putEntity(final long id, final E entity) {
+    if (entity == null) {
+      throw new IllegalArgumentException("Cannot store a null entity !");
+    }
+
+    ++this.modCount;
+
+    if (id == 0L) {
+      E previousValue = this.zeroValue;
+      this.zeroValue = entity;
+
+      if (previousValue == null) {
+        ++this.size;
+      }
+
+      return previousValue;
+    }
+
+    int mask = this.values.length - 1;
+    for (int slot = this.slot(id); this.values[slot] != null; slot = (slot + 1) & mask) {
+      if (this.idAt(slot) == id) {
+        E previousValue = (E) this.values[slot];
+        this.values[slot] = entity;
+
+        return previousValue;
+      }
+    }
+
+    if (this.slotsSize() >= this.threshold) {
+      if (this.values.length == MAX_CAPACITY) {
+        throw new IllegalStateException("The map cannot store more entities !");
+      }
+
+      this.resize(this.values.length << 1);
+    }
+
+    this.insert(id, entity);
+    ++this.size;
+
+    return null;
+  }
+
+  /**
+   * Removes an entity.
+   *
+   * @param id the technical identifier of the entity.
+   *
+   * @return the removed entity or `null` if no entity having the technical identifier `id` is
+   *         stored in the map.
+   */
+  @SuppressWarnings("unchecked")
+  final E removeEntity(final long id) {
+    if (id == 0L) {
+      E previousValue = this.zeroValue;
+
+      if (previousValue != null) {
+        this.zeroValue = null;
+        --this.size;
+        ++this.modCount;
+      }
+
+      return previousValue;
+    }
+
+    int mask = this.values.length - 1;
+    for (int slot = this.slot(id); this.values[slot] != null; slot = (slot + 1) & mask) {
+      if (this.idAt(slot) == id) {
+        E previousValue = (E) this.values[slot];
+        this.shiftBackward(slot);
+        --this.size;
+        ++this.modCount;
+
+        return previousValue;
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Resizes the slots arrays and stores all the entities again using
+   * {@link #insert(long, Object)}.
+   *
+   * @param capacity the new capacity of the slots arrays, a power of 2.
+   */
+  abstract void resize(int capacity);
+
+  /**
+   * Stores a technical identifier in a slot.
+   *
+   * @param slot the slot.
+   * @param id the technical identifier to store, `0` to free the slot.
+   */
+  abstract void setIdAt(int slot, long id);
+
+  /**
+   * Frees a slot and moves the following entities of the same probe sequence backward so that no
+   * tombstone is needed.
+   *
+   * @param freedSlot the slot to free.
+   */
+  private void shiftBackward(final int freedSlot) {
+    int mask = this.values.length - 1;
+    int gap = freedSlot;
+
+    for (int slot = (gap + 1) & mask; this.values[slot] != null; slot = (slot + 1) & mask) {
+      int idealSlot = this.slot(this.idAt(slot));
+
+      // The entity can fill the gap if its ideal slot is not between the gap and its slot
+      if (((slot - idealSlot) & mask) >= ((slot - gap) & mask)) {
+        this.setIdAt(gap, this.idAt(slot));
+        this.values[gap] = this.values[slot];
+        gap = slot;
+      }
+    }
+
+    this.setIdAt(gap, 0L);
+    this.values[gap] = null;
+  }
+
+  /**
+   * Gets the number of entities stored in the map.
+   *
+   * @return the number of entities stored in the map.
+   */
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * Computes the ideal slot of a technical identifier.
+   *
+   * @param id the technical identifier.
+   *
+   * @return the ideal slot of the technical identifier.
+   */
+  abstract int slot(long id);
+
+  /**
+   * Gets the number of entities stored in the slots arrays, that's to say without the entity having
+   * the `0` identifier.
+   *
+   * @return the number of entities stored in the slots arrays.
+   */
+  private int slotsSize() {
+    return this.zeroValue == null ? this.size : this.size - 1;
+  }
+}
@@ -0,0 +1,239 @@
+/**
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2017, GOMOOB All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided with
+ * the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.gomoob.model.collection;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.function.ObjIntConsumer;
+
+import org.gomoob.model.AbstractIntIdEntity;
+import org.gomoob.model.IEntity;
+
+/**
+ * Hash map of entities indexed by their `int` technical identifier.
+ *
+ * <p>
+ * This map uses open addressing with linear probing, the technical identifiers are stored in a
+ * `int[]` array and the entities in a parallel array. No `Integer` object and no entry object is
+ * allocated when an entity is added or searched, which makes this map much more compact than a
+ * `HashMap&lt;Integer, E&gt;` holding a large number of entities.
+ * </p>
+ * <p>
+ * The identifiers of {@link AbstractIntIdEntity} entities are read without boxing. Because
+ * {@link AbstractIntIdEntity} uses the `0` identifier to indicate an entity without technical
+ * identifier such an entity cannot be stored using `put(E)`, the `0` identifier is still supported
+ * by `put(int, E)`.
+ * </p>
+ * <p>
+ * This map is not thread safe.
+ * </p>
+ *
+ * @author GOMOOB SARL (contact@gomoob.com)
+ *
+ * @param <E> the type of the entities stored in the map.
+ */
+public class EntityIntMap<E extends IEntity<Integer>> extends AbstractEntityIdMap<E> {
+
+  /**
+   * The technical identifiers of the entities, in the same slots as the entities.
+   */
+  private int[] ids;
+
+  /**
+   * Creates a new map with a default capacity.
+   */
+  public EntityIntMap() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Creates a new map able to store an expected number of entities without being resized.
+   *
+   * @param expectedSize the expected number of entities.
+   *
+   * @throws IllegalArgumentException if the expected number of entities is negative.
+   */
+  public EntityIntMap(final int expectedSize) {
+    super(Integer.SIZE, expectedSize);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  void allocateIds(final int capacity) {
+    this.ids = new int[capacity];
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  void clearIds() {
+    Arrays.fill(this.ids, 0);
+  }
+
+  /**
+   * Checks if an entity having a technical identifier is stored in the map.
+   *
+   * @param id the technical identifier.
+   *
+   * @return `true` if an entity having the technical identifier `id` is stored in the map, `false`
+   *         otherwise.
+   */
+  public boolean containsKey(final int id) {
+    return this.getEntity(id) != null;
+  }
+
+  /**
+   * Iterates over all the entities of the map, without boxing the technical identifiers.
+   *
+   * @param action the action to execute for each entity and its technical identifier.
+   *
+   * @throws ConcurrentModificationException if the map is modified by the action.
+   */
+  @SuppressWarnings("unchecked")
+  public void forEach(final ObjIntConsumer<? super E> action) {
+    int expectedModCount = this.modCount;
+
+    if (this.zeroValue != null) {
+      action.accept(this.zeroValue, 0);
+    }
+
+    for (int i = 0; i < this.ids.length; ++i) {
+      if (this.values[i] != null) {
+        action.accept((E) this.values[i], this.ids[i]);
+      }
+
+      if (this.modCount != expectedModCount) {
+        throw new ConcurrentModificationException();
+      }
+    }
+  }
+
+  /**
+   * Gets an entity.
+   *
+   * @param id the technical identifier of the entity.
+   *
+   * @return the entity having the technical identifier `id` or `null` if no such entity is stored
+   *         in the map.
+   */
+  public E get(final int id) {
+    return this.getEntity(id);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  long idAt(final int slot) {
+    return this.ids[slot];
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  long idOf(final E entity) {
+    if (entity instanceof AbstractIntIdEntity) {
+      int id = ((AbstractIntIdEntity) entity).getIntId();
+
+      // The 0 identifier indicates an entity without technical identifier
+      if (id != 0) {
+        return id;
+      }
+    } else {
+      Integer id = entity.getId();
+
+      if (id != null) {
+        return id.intValue();
+      }
+    }
+
+    throw new IllegalArgumentException("Cannot store an entity without technical identifier !");
+  }
+
+  /**
+   * Stores an entity.
+   *
+   * @param id the technical identifier of the entity.
+   * @param entity the entity to store, must not be `null`.
+   *
+   * @return the entity previously stored with the same technical identifier or `null` if no such
+   *         entity was stored.
+   */
+  public E put(final int id, final E entity) {
+    return this.putEntity(id, entity);
+  }
+
+  /**
+   * Removes an entity.
+   *
+   * @param id the technical identifier of the entity.
+   *
+   * @return the removed entity or `null` if no entity having the technical identifier `id` is
+   *         stored in the map.
+   */
+  public E remove(final int id) {
+    return this.removeEntity(id);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  void resize(final int capacity) {
+    int[] oldIds = this.ids;
+    Object[] oldValues = this.values;
+    this.allocate(capacity);
+
+    for (int i = 0; i < oldIds.length; ++i) {
+      if (oldValues[i] != null) {
+        this.insert(oldIds[i], oldValues[i]);
+      }
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  void setIdAt(final int slot, final long id) {
+    this.ids[slot] = (int) id;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  int slot(final long id) {
+    return ((int) id * 0x9E3779B9) >>> this.shift;
+  }
+}
@@ -0,0 +1,1044 @@
+/**
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2017, GOMOOB All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided with
+ * the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.gomoob.model.collection;
+
+import java.io.Serializable;
+import java.lang.invoke.MethodType;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.gomoob.model.AbstractEntity;
+import org.gomoob.model.AbstractLongIdEntity;
+import org.gomoob.model.IEntity;
+import org.gomoob.model.attribute.EntityAttribute;
+import org.gomoob.model.attribute.EntityAttributes;
+
+/**
+ * Columnar store of a large number of entities of one entity class.
+ *
+ * <p>
+ * The entities are not kept as objects, the table stores one column per attribute of the entity
+ * class instead (structure of arrays). Attributes of type `boolean`, `double`, `int` and `long`
+ * are stored in primitive arrays, all the other attributes are stored in `Object[]` arrays.
+ * Scanning one attribute over all the rows of a table then reads one contiguous array and the table
+ * does not require any object header or reference per entity :
+ * </p>
+ *
+ * <pre>
+ * EntityTable&lt;Order&gt; table = new EntityTable&lt;Order&gt;(Order.class);
+ * table.addAll(orders);
+ *
+ * int amountColumn = table.getColumnIndex("amount");
+ * double total = 0;
+ * for (int row = 0; row &lt; table.size(); ++row) {
+ *   total += table.getDouble(row, amountColumn);
+ * }
+ * </pre>
+ *
+ * <p>
+ * The columns have the same indexes as the attributes of the entity class in
+ * {@link EntityAttributes}. Each row can also be accessed as an {@link IEntity} using a
+ * {@link Row} view.
+ * </p>
+ * <p>
+ * This table is not thread safe.
+ * </p>
+ *
+ * @author GOMOOB SARL (contact@gomoob.com)
+ *
+ * @param <E> the type of the entities stored in the table.
+ */
+public class EntityTable<E extends AbstractEntity<?>> {
+
+  /**
+   * Kind of the columns stored in `Object[]` arrays.
+   */
+  private static final int KIND_OBJECT = 0;
+
+  /**
+   * Kind of the columns stored in `boolean[]` arrays.
+   */
+  private static final int KIND_BOOLEAN = 1;
+
+  /**
+   * Kind of the columns stored in `double[]` arrays.
+   */
+  private static final int KIND_DOUBLE = 2;
+
+  /**
+   * Kind of the columns stored in `int[]` arrays.
+   */
+  private static final int KIND_INT = 3;
+
+  /**
+   * Kind of the columns stored in `long[]` arrays.
+   */
+  private static final int KIND_LONG = 4;
+
+  /**
+   * View of one row of an entity table as an entity.
+   *
+   * <p>
+   * A row view reads and writes the columns of the table directly, it does not track dirty
+   * attributes. A row view is only valid while the table is not cleared.
+   * </p>
+   */
+  public final class Row implements IEntity<Serializable> {
+
+    /**
+     * The index of the row.
+     */
+    private final int index;
+
+    /**
+     * Creates a new row view.
+     *
+     * @param index the index of the row.
+     */
+    private Row(final int index) {
+      this.index = index;
+    }
+
+    /**
+     * Row views do not track dirty attributes, this function does nothing.
+     */
+    @Override
+    public void clearDirty() {
+      // Nothing to do
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object get(final String attributeName) {
+      return EntityTable.this.get(this.index, EntityTable.this.getColumnToGet(attributeName));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean getBoolean(final String attributeName) {
+      return EntityTable.this.getBoolean(this.index,
+          EntityTable.this.getColumnToGet(attributeName));
+    }
+
+    /**
+     * Row views do not track dirty attributes, this function always returns an empty set.
+     *
+     * @return an empty set.
+     */
+    @Override
+    public Set<String> getDirtyAttributes() {
+      return Collections.emptySet();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getDouble(final String attributeName) {
+      return EntityTable.this.getDouble(this.index,
+          EntityTable.this.getColumnToGet(attributeName));
+    }
+
+    /**
+     * Gets the class of the entities stored in the table of the row.
+     *
+     * @return the class of the entities stored in the table of the row.
+     */
+    public Class<E> getEntityClass() {
+      return EntityTable.this.entityClass;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Serializable getId() {
+      return (Serializable) this.get("id");
+    }
+
+    /**
+     * Gets the index of the row in the table.
+     *
+     * @return the index of the row.
+     */
+    public int getIndex() {
+      return this.index;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getInt(final String attributeName) {
+      return EntityTable.this.getInt(this.index, EntityTable.this.getColumnToGet(attributeName));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getLong(final String attributeName) {
+      return EntityTable.this.getLong(this.index, EntityTable.this.getColumnToGet(attributeName));
+    }
+
+    /**
+     * Row views do not track dirty attributes, this function always returns `false`.
+     *
+     * @return `false`.
+     */
+    @Override
+    public boolean isDirty() {
+      return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void set(final String attributeName, final Object attributeValue) {
+      EntityTable.this.set(this.index, EntityTable.this.getColumnToSet(attributeName),
+          attributeValue);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setBoolean(final String attributeName, final boolean attributeValue) {
+      EntityTable.this.setBoolean(this.index, EntityTable.this.getColumnToSet(attributeName),
+          attributeValue);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setDouble(final String attributeName, final double attributeValue) {
+      EntityTable.this.setDouble(this.index, EntityTable.this.getColumnToSet(attributeName),
+          attributeValue);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setId(final Serializable id) {
+      this.set("id", id);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setInt(final String attributeName, final int attributeValue) {
+      EntityTable.this.setInt(this.index, EntityTable.this.getColumnToSet(attributeName),
+          attributeValue);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setLong(final String attributeName, final long attributeValue) {
+      EntityTable.this.setLong(this.index, EntityTable.this.getColumnToSet(attributeName),
+          attributeValue);
+    }
+  }
+
+  /**
+   * The attributes of the entity class, in the order of the columns.
+   */
+  private final EntityAttribute[] attributes;
+
+  /**
+   * The number of rows the columns can store.
+   */
+  private int capacity;
+
+  /**
+   * The columns of the table, each column is a `boolean[]`, `double[]`, `int[]`, `long[]` or
+   * `Object[]` array depending on its kind.
+   */
+  private final Object[] columns;
+
+  /**
+   * The entity class.
+   */
+  private final Class<E> entityClass;
+
+  /**
+   * The attributes of the entity class.
+   */
+  private final EntityAttributes entityAttributes;
+
+  /**
+   * The kinds of the columns.
+   */
+  private final int[] kinds;
+
+  /**
+   * The types of the values stored in the columns, primitive types are replaced by their wrapper
+   * types.
+   */
+  private final Class<?>[] valueTypes;
+
+  /**
+   * The number of rows of the table.
+   */
+  private int size;
+
+  /**
+   * Creates a new table with a default capacity.
+   *
+   * @param entityClass the class of the entities stored in the table.
+   */
+  public EntityTable(final Class<E> entityClass) {
+    this(entityClass, 16);
+  }
+
+  /**
+   * Creates a new table.
+   *
+   * @param entityClass the class of the entities stored in the table.
+   * @param initialCapacity the number of rows the table can store before its columns are resized.
+   *
+   * @throws IllegalArgumentException if the initial capacity is negative.
+   */
+  public EntityTable(final Class<E> entityClass, final int initialCapacity) {
+    if (initialCapacity < 0) {
+      throw new IllegalArgumentException("The initial capacity must be positive !");
+    }
+
+    List<EntityAttribute> attributes = EntityAttributes.of(entityClass).getAttributes();
+
+    this.entityClass = entityClass;
+    this.entityAttributes = EntityAttributes.of(entityClass);
+    this.attributes = attributes.toArray(new EntityAttribute[attributes.size()]);
+    this.capacity = initialCapacity;
+    this.columns = new Object[this.attributes.length];
+    this.kinds = new int[this.attributes.length];
+    this.valueTypes = new Class<?>[this.attributes.length];
+
+    for (int i = 0; i < this.attributes.length; ++i) {
+      Class<?> attributeType = this.attributes[i].getType();
+      this.valueTypes[i] = MethodType.methodType(attributeType).wrap().returnType();
+
+      if (attributeType == boolean.class) {
+        this.kinds[i] = KIND_BOOLEAN;
+        this.columns[i] = new boolean[initialCapacity];
+      } else if (attributeType == double.class) {
+        this.kinds[i] = KIND_DOUBLE;
+        this.columns[i] = new double[initialCapacity];
+      } else if (attributeType == int.class) {
+        this.kinds[i] = KIND_INT;
+        this.columns[i] = new int[initialCapacity];
+      } else if (attributeType == long.class) {
+        this.kinds[i] = KIND_LONG;
+        this.columns[i] = new long[initialCapacity];
+      } else {
+        this.kinds[i] = KIND_OBJECT;
+        this.columns[i] = new Object[initialCapacity];
+      }
+    }
+  }
+
+  /**
+   * Adds an entity to the table, the attribute values of the entity are copied into a new row.
+   *
+   * @param entity the entity to add.
+   *
+   * @return the index of the new row.
+   */
+  public int add(final E entity) {
+    this.ensureCapacity(this.size + 1);
+    this.copy(entity, this.size);
+
+    return this.size++;
+  }
+
+  /**
+   * Adds several entities to the table, the columns are resized at most once.
+   *
+   * @param entities the entities to add.
+   */
+  public void addAll(final Collection<? extends E> entities) {
+    this.ensureCapacity(this.size + entities.size());
+
+    for (E entity : entities) {
+      this.add(entity);
+    }
+  }
+
+  /**
+   * Checks that a row exists.
+   *
+   * @param row the index of the row.
+   *
+   * @throws IndexOutOfBoundsException if the row does not exist.
+   */
+  private void checkRow(final int row) {
+    if (row < 0 || row >= this.size) {
+      throw new IndexOutOfBoundsException("Row: " + row + ", Size: " + this.size);
+    }
+  }
+
+  /**
+   * Removes all the rows of the table, the capacity of the table is kept.
+   */
+  public void clear() {
+    for (int i = 0; i < this.columns.length; ++i) {
+      if (this.kinds[i] == KIND_OBJECT) {
+        Arrays.fill((Object[]) this.columns[i], 0, this.size, null);
+      }
+    }
+
+    this.size = 0;
+  }
+
+  /**
+   * Creates the exception thrown when the value of a cell cannot be converted.
+   *
+   * @param column the index of the column.
+   * @param operation the operation, `get` or `set`.
+   * @param cause the cause of the failure.
+   *
+   * @return the exception to throw.
+   */
+  private RuntimeException conversionFailure(final int column, final String operation,
+      final RuntimeException cause) {
+    return new RuntimeException("Fail to " + operation + " value of property '"
+        + this.attributes[column].getName() + "' !", cause);
+  }
+
+  /**
+   * Copies the attribute values of an entity into a row, the row is not checked.
+   *
+   * @param entity the entity to copy.
+   * @param row the index of the row.
+   */
+  private void copy(final E entity, final int row) {
+    for (int i = 0; i < this.columns.length; ++i) {
+      switch (this.kinds[i]) {
+        case KIND_BOOLEAN:
+          ((boolean[]) this.columns[i])[row] = this.attributes[i].getBoolean(entity);
+          break;
+        case KIND_DOUBLE:
+          ((double[]) this.columns[i])[row] = this.attributes[i].getDouble(entity);
+          break;
+        case KIND_INT:
+          ((int[]) this.columns[i])[row] = this.attributes[i].getInt(entity);
+          break;
+        case KIND_LONG:
+          ((long[]) this.columns[i])[row] = this.attributes[i].getLong(entity);
+          break;
+        default:
+          ((Object[]) this.columns[i])[row] = this.attributes[i].get(entity);
+          break;
+      }
+    }
+  }
+
+  /**
+   * Ensures that the columns can store a number of rows.
+   *
+   * @param minCapacity the number of rows.
+   */
+  private void ensureCapacity(final int minCapacity) {
+    if (minCapacity <= this.capacity) {
+      return;
+    }
+
+    int newCapacity = (int) Math.min(Integer.MAX_VALUE - 8,
+        Math.max(minCapacity, (long) this.capacity + (this.capacity >> 1) + 1));
+
+    for (int i = 0; i < this.columns.length; ++i) {
+      switch (this.kinds[i]) {
+        case KIND_BOOLEAN:
+          this.columns[i] = Arrays.copyOf((boolean[]) this.columns[i], newCapacity);
+          break;
+        case KIND_DOUBLE:
+          this.columns[i] = Arrays.copyOf((double[]) this.columns[i], newCapacity);
+          break;
+        case KIND_INT:
+          this.columns[i] = Arrays.copyOf((int[]) this.columns[i], newCapacity);
+          break;
+        case KIND_LONG:
+          this.columns[i] = Arrays.copyOf((long[]) this.columns[i], newCapacity);
+          break;
+        default:
+          this.columns[i] = Arrays.copyOf((Object[]) this.columns[i], newCapacity);
+          break;
+      }
+    }
+
+    this.capacity = newCapacity;
+  }
+
+  /**
+   * Gets the value of a cell, primitive values are boxed and `0` is returned as `null` for the
+   * attributes in which one `0` means that the attribute has no value, like the technical
+   * identifiers of {@link AbstractLongIdEntity}.
+   *
+   * @param row the index of the row.
+   * @param column the index of the column.
+   *
+   * @return the value of the cell.
+   */
+  public Object get(final int row, final int column) {
+    this.checkRow(row);
+
+    switch (this.kinds[column]) {
+      case KIND_BOOLEAN:
+        return ((boolean[]) this.columns[column])[row];
+      case KIND_DOUBLE:
+        return ((double[]) this.columns[column])[row];
+      case KIND_INT:
+        int intValue = ((int[]) this.columns[column])[row];
+        return intValue == 0 && this.attributes[column].isZeroNull() ? null : intValue;
+      case KIND_LONG:
+        long longValue = ((long[]) this.columns[column])[row];
+        return longValue == 0L && this.attributes[column].isZeroNull() ? null : longValue;
+      default:
+        return ((Object[]) this.columns[column])[row];
+    }
+  }
+
+  /**
+   * Gets the value of a cell of a `boolean` column without boxing.
+   *
+   * @param row the index of the row.
+   * @param column the index of the column.
+   *
+   * @return the value of the cell.
+   *
+   * @throws RuntimeException if the value of the cell cannot be converted to a `boolean`.
+   */
+  public boolean getBoolean(final int row, final int column) {
+    this.checkRow(row);
+
+    switch (this.kinds[column]) {
+      case KIND_BOOLEAN:
+        return ((boolean[]) this.columns[column])[row];
+      case KIND_OBJECT:
+        try {
+          return (Boolean) ((Object[]) this.columns[column])[row];
+        } catch (ClassCastException | NullPointerException ex) {
+          throw this.conversionFailure(column, "get", ex);
+        }
+      default:
+        throw this.unsupportedConversion(column, boolean.class, "get");
+    }
+  }
+
+  /**
+   * Gets the index of the column of an attribute.
+   *
+   * @param attributeName the name of the attribute.
+   *
+   * @return the index of the column.
+   *
+   * @throws IllegalArgumentException if the entity class does not have any attribute named
+   *           `attributeName`.
+   */
+  public int getColumnIndex(final String attributeName) {
+    EntityAttribute attribute = this.entityAttributes.getAttribute(attributeName);
+
+    if (attribute == null) {
+      throw new IllegalArgumentException("No attribute named '" + attributeName
+          + "' has been found in class '" + this.entityClass.getName() + "' !");
+    }
+
+    return attribute.getIndex();
+  }
+
+  /**
+   * Gets the index of the column of an attribute which is about to be read by a row view.
+   *
+   * @param attributeName the name of the attribute.
+   *
+   * @return the index of the column.
+   *
+   * @throws RuntimeException if the entity class does not have any attribute named
+   *           `attributeName`.
+   */
+  private int getColumnToGet(final String attributeName) {
+    return this.entityAttributes.getAttributeToGet(attributeName).getIndex();
+  }
+
+  /**
+   * Gets the index of the column of an attribute which is about to be written by a row view.
+   *
+   * @param attributeName the name of the attribute.
+   *
+   * @return the index of the column.
+   *
+   * @throws RuntimeException if the entity class does not have any attribute named
+   *           `attributeName`.
+   */
+  private int getColumnToSet(final String attributeName) {
+    return this.entityAttributes.getAttributeToSet(attributeName).getIndex();
+  }
+
+  /**
+   * Gets the value of a cell of a `double` column without boxing.
+   *
+   * @param row the index of the row.
+   * @param column the index of the column.
+   *
+   * @return the value of the cell.
+   *
+   * @throws RuntimeException if the value of the cell cannot be converted to a `double`.
+   */
+  public double getDouble(final int row, final int column) {
+    this.checkRow(row);
+
+    switch (this.kinds[column]) {
+      case KIND_DOUBLE:
+        return ((double[]) this.columns[column])[row];
+      case KIND_INT:
+        return ((int[]) this.columns[column])[row];
+      case KIND_LONG:
+        return ((long[]) this.columns[column])[row];
+      case KIND_OBJECT:
+        try {
+          return toDouble(((Object[]) this.columns[column])[row]);
+        } catch (ClassCastException | NullPointerException ex) {
+          throw this.conversionFailure(column, "get", ex);
+        }
+      default:
+        throw this.unsupportedConversion(column, double.class, "get");
+    }
+  }
+
+  /**
+   * Gets the class of the entities stored in the table.
+   *
+   * @return the class of the entities stored in the table.
+   */
+  public Class<E> getEntityClass() {
+    return this.entityClass;
+  }
+
+  /**
+   * Gets the value of a cell of an `int` column without boxing.
+   *
+   * @param row the index of the row.
+   * @param column the index of the column.
+   *
+   * @return the value of the cell.
+   *
+   * @throws RuntimeException if the value of the cell cannot be converted to an `int`.
+   */
+  public int getInt(final int row, final int column) {
+    this.checkRow(row);
+
+    switch (this.kinds[column]) {
+      case KIND_INT:
+        return ((int[]) this.columns[column])[row];
+      case KIND_OBJECT:
+        try {
+          return toInt(((Object[]) this.columns[column])[row]);
+        } catch (ClassCastException | NullPointerException ex) {
+          throw this.conversionFailure(column, "get", ex);
+        }
+      default:
+        throw this.unsupportedConversion(column, int.class, "get");
+    }
+  }
+
+  /**
+   * Gets the value of a cell of a `long` column without boxing.
+   *
+   * @param row the index of the row.
+   * @param column the index of the column.
+   *
+   * @return the value of the cell.
+   *
+   * @throws RuntimeException if the value of the cell cannot be converted to a `long`.
+   */
+  public long getLong(final int row, final int column) {
+    this.checkRow(row);
+
+    switch (this.kinds[column]) {
+      case KIND_INT:
+        return ((int[]) this.columns[column])[row];
+      case KIND_LONG:
+        return ((long[]) this.columns[column])[row];
+      case KIND_OBJECT:
+        try {
+          return toLong(((Object[]) this.columns[column])[row]);
+        } catch (ClassCastException | NullPointerException ex) {
+          throw this.conversionFailure(column, "get", ex);
+        }
+      default:
+        throw this.unsupportedConversion(column, long.class, "get");
+    }
+  }
+
+  /**
+   * Copies the values of a row into an entity.
+   *
+   * @param row the index of the row.
+   * @param entity the entity in which one to copy the values of the row.
+   */
+  public void read(final int row, final E entity) {
+    this.checkRow(row);
+
+    for (int i = 0; i < this.columns.length; ++i) {
+      switch (this.kinds[i]) {
+        case KIND_BOOLEAN:
+          this.attributes[i].setBoolean(entity, ((boolean[]) this.columns[i])[row]);
+          break;
+        case KIND_DOUBLE:
+          this.attributes[i].setDouble(entity, ((double[]) this.columns[i])[row]);
+          break;
+        case KIND_INT:
+          this.attributes[i].setInt(entity, ((int[]) this.columns[i])[row]);
+          break;
+        case KIND_LONG:
+          this.attributes[i].setLong(entity, ((long[]) this.columns[i])[row]);
+          break;
+        default:
+          this.attributes[i].set(entity, ((Object[]) this.columns[i])[row]);
+          break;
+      }
+    }
+  }
+
+  /**
+   * Gets a view of a row as an entity.
+   *
+   * @param row the index of the row.
+   *
+   * @return the view of the row.
+   */
+  public Row row(final int row) {
+    this.checkRow(row);
+
+    return new Row(row);
+  }
+
+  /**
+   * Sets the value of a cell, primitive values are unboxed and widened like by
+   * {@link AbstractEntity#set(String, Object)}, for example an `Integer` can be stored in a `long`
+   * column. `null` is stored as `0` for the attributes in which one `0` means that the attribute
+   * has no value.
+   *
+   * @param row the index of the row.
+   * @param column the index of the column.
+   * @param value the value to set.
+   *
+   * @throws RuntimeException if the value cannot be stored in the column.
+   */
+  public void set(final int row, final int column, final Object value) {
+    this.checkRow(row);
+
+    try {
+      switch (this.kinds[column]) {
+        case KIND_BOOLEAN:
+          ((boolean[]) this.columns[column])[row] = (Boolean) value;
+          break;
+        case KIND_DOUBLE:
+          ((double[]) this.columns[column])[row] = toDouble(value);
+          break;
+        case KIND_INT:
+          ((int[]) this.columns[column])[row] =
+              value == null && this.attributes[column].isZeroNull() ? 0 : toInt(value);
+          break;
+        case KIND_LONG:
+          ((long[]) this.columns[column])[row] =
+              value == null && this.attributes[column].isZeroNull() ? 0L : toLong(value);
+          break;
+        default:
+          ((Object[]) this.columns[column])[row] = this.attributes[column].getType().isPrimitive()
+              ? widen(value, this.valueTypes[column]) : this.valueTypes[column].cast(value);
+          break;
+      }
+    } catch (ClassCastException | NullPointerException ex) {
+      throw this.conversionFailure(column, "set", ex);
+    }
+  }
+
+  /**
+   * Sets the value of a cell of a `boolean` column without boxing.
+   *
+   * @param row the index of the row.
+   * @param column the index of the column.
+   * @param value the value to set.
+   *
+   * @throws RuntimeException if a `boolean` value cannot be converted to the type of the column.
+   */
+  public void setBoolean(final int row, final int column, final boolean value) {
+    this.checkRow(row);
+
+    switch (this.kinds[column]) {
+      case KIND_BOOLEAN:
+        ((boolean[]) this.columns[column])[row] = value;
+        break;
+      case KIND_OBJECT:
+        this.set(row, column, Boolean.valueOf(value));
+        break;
+      default:
+        throw this.unsupportedConversion(column, boolean.class, "set");
+    }
+  }
+
+  /**
+   * Sets the value of a cell of a `double` column without boxing.
+   *
+   * @param row the index of the row.
+   * @param column the index of the column.
+   * @param value the value to set.
+   *
+   * @throws RuntimeException if a `double` value cannot be converted to the type of the column.
+   */
+  public void setDouble(final int row, final int column, final double value) {
+    this.checkRow(row);
+
+    switch (this.kinds[column]) {
+      case KIND_DOUBLE:
+        ((double[]) this.columns[column])[row] = value;
+        break;
+      case KIND_OBJECT:
+        this.set(row, column, Double.valueOf(value));
+        break;
+      default:
+        throw this.unsupportedConversion(column, double.class, "set");
+    }
+  }
+
+  /**
+   * Sets the value of a cell of an `int` column without boxing.
+   *
+   * @param row the index of the row.
+   * @param column the index of the column.
+   * @param value the value to set.
+   *
+   * @throws RuntimeException if an `int` value cannot be converted to the type of the column.
+   */
+  public void setInt(final int row, final int column, final int value) {
+    this.checkRow(row);
+
+    switch (this.kinds[column]) {
+      case KIND_INT:
+        ((int[]) this.columns[column])[row] = value;
+        break;
+      case KIND_LONG:
+        ((long[]) this.columns[column])[row] = value;
+        break;
+      case KIND_DOUBLE:
+        ((double[]) this.columns[column])[row] = value;
+        break;
+      case KIND_OBJECT:
+        this.set(row, column, Integer.valueOf(value));
+        break;
+      default:
+        throw this.unsupportedConversion(column, int.class, "set");
+    }
+  }
+
+  /**
+   * Sets the value of a cell of a `long` column without boxing.
+   *
+   * @param row the index of the row.
+   * @param column the index of the column.
+   * @param value the value to set.
+   *
+   * @throws RuntimeException if a `long` value cannot be converted to the type of the column.
+   */
+  public void setLong(final int row, final int column, final long value) {
+    this.checkRow(row);
+
+    switch (this.kinds[column]) {
+      case KIND_LONG:
+        ((long[]) this.columns[column])[row] = value;
+        break;
+      case KIND_DOUBLE:
+        ((double[]) this.columns[column])[row] = value;
+        break;
+      case KIND_OBJECT:
+        this.set(row, column, Long.valueOf(value));
+        break;
+      default:
+        throw this.unsupportedConversion(column, long.class, "set");
+    }
+  }
+
+  /**
+   * Gets the number of rows of the table.
+   *
+   * @return the number of rows of the table.
+   */
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * Converts a boxed primitive value to a `double`, only the widening primitive conversions are
+   * allowed.
+   *
+   * @param value the value to convert.
+   *
+   * @return the converted value.
+   *
+   * @throws ClassCastException if the value cannot be converted to a `double`.
+   * @throws NullPointerException if the value is `null`.
+   */
+  private static double toDouble(final Object value) {
+    if (value instanceof Double || value instanceof Float) {
+      return ((Number) value).doubleValue();
+    }
+
+    return toLong(value);
+  }
+
+  /**
+   * Converts a boxed primitive value to a `float`, only the widening primitive conversions are
+   * allowed.
+   *
+   * @param value the value to convert.
+   *
+   * @return the converted value.
+   *
+   * @throws ClassCastException if the value cannot be converted to a `float`.
+   * @throws NullPointerException if the value is `null`.
+   */
+  private static float toFloat(final Object value) {
+    if (value instanceof Float) {
+      return (Float) value;
+    }
+
+    return toLong(value);
+  }
+
+  /**
+   * Converts a boxed primitive value to an `int`, only the widening primitive conversions are
+   * allowed.
+   *
+   * @param value the value to convert.
+   *
+   * @return the converted value.
+   *
+   * @throws ClassCastException if the value cannot be converted to an `int`.
+   * @throws NullPointerException if the value is `null`.
+   */
+  private static int toInt(final Object value) {
+    if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+      return ((Number) value).intValue();
+    } else if (value instanceof Character) {
+      return (Character) value;
+    }
+
+    throw new ClassCastException(
+        "Value of type '" + value.getClass().getName() + "' cannot be widened !");
+  }
+
+  /**
+   * Converts a boxed primitive value to a `long`, only the widening primitive conversions are
+   * allowed.
+   *
+   * @param value the value to convert.
+   *
+   * @return the converted value.
+   *
+   * @throws ClassCastException if the value cannot be converted to a `long`.
+   * @throws NullPointerException if the value is `null`.
+   */
+  private static long toLong(final Object value) {
+    if (value instanceof Long) {
+      return (Long) value;
+    }
+
+    return toInt(value);
+  }
+
+  /**
+   * Creates the exception thrown when a column of a primitive kind cannot be converted to or from
+   * a primitive type.
+   *
+   * @param column the index of the column.
+   * @param primitiveType the primitive type of the value to read or write.
+   * @param operation the operation, `get` or `set`.
+   *
+   * @return the exception to throw.
+   */
+  private RuntimeException unsupportedConversion(final int column, final Class<?> primitiveType,
+      final String operation) {
+    EntityAttribute attribute = this.attributes[column];
+
+    return new RuntimeException(
+        "Fail to " + operation + " value of property '" + attribute.getName() + "' !",
+        new IllegalStateException("Property '" + attribute.getName() + "' of type '"
+            + attribute.getType().getName() + "' cannot be converted to '"
+            + primitiveType.getName() + "' !"));
+  }
+
+  /**
+   * Converts a boxed primitive value to the wrapper type of an attribute having a primitive type
+   * which is not stored in a primitive column (`byte`, `char`, `float` or `short`), only the
+   * widening primitive conversions are allowed.
+   *
+   * @param value the value to convert.
+   * @param valueType the wrapper type of the attribute.
+   *
+   * @return the converted value.
+   *
+   * @throws ClassCastException if the value cannot be converted to the wrapper type.
+   * @throws NullPointerException if the value is `null`.
+   */
+  private static Object widen(final Object value, final Class<?> valueType) {
+    if (valueType == Float.class) {
+      return toFloat(value);
+    } else if (valueType == Short.class && value instanceof Byte) {
+      return ((Byte) value).shortValue();
+    } else if (value == null) {
+      throw new NullPointerException();
+    }
+
+    return valueType.cast(value);
+  }
+
+  /**
+   * Copies the attribute values of an entity into a row.
+   *
+   * @param row the index of the row.
+   * @param entity the entity to copy.
+   */
+  public void write(final int row, final E entity) {
+    this.checkRow(row);
+    this.copy(entity, row);
+  }
+}
@@ -0,0 +1,416 @@
+/**
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2017, GOMOOB All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided with
+ * the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.gomoob.model.copy;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.gomoob.model.ITranslation;
+import org.gomoob.model.attribute.EntityAttribute;
+import org.gomoob.model.attribute.EntityAttributes;
+import org.gomoob.model.metadata.JsonMetadata;
+import org.gomoob.model.translation.Translation;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Precompiled copier used to copy entities of one entity class.
+ *
+ * <p>
+ * A copier is compiled only once per entity class, the first time the class is used, it then copies
+ * the attributes of the entities using the method handles of the {@link EntityAttributes} registry
+ * and without any reflective lookup. The copier provides the following copy modes :
+ * </p>
+ * <ul>
+ * <li>a shallow copy which copies all the attribute values by reference ;</li>
+ * <li>a deep copy which also copies the mutable values attached to the entities, that's to say the
+ * translations of translatable entities (`Map` and {@link ITranslation} values), the `JSONObject`,
+ * `JSONArray` and {@link JsonMetadata} values (for example the metadata of actions and states), the
+ * `Date` values and the `Map` and `List` values.</li>
+ * </ul>
+ * <p>
+ * A copied map or list has the same class as the original one (the comparator of a sorted map is
+ * kept) so that it can always be assigned to the attribute, the maps and lists of other classes
+ * (for example unmodifiable ones) are copied by reference.
+ * </p>
+ * <p>
+ * Both modes can create a new entity or copy the attributes into an existing entity. The runtime
+ * state of the entities (for example their dirty attributes) is not copied.
+ * </p>
+ *
+ * <pre>
+ * User snapshot = EntityCopier.of(User.class).deepCopy(user);
+ * </pre>
+ *
+ * <p>
+ * Copiers are immutable and thread safe.
+ * </p>
+ *
+ * @author GOMOOB SARL (contact@gomoob.com)
+ *
+ * @param <E> the type of the entities copied by the copier.
+ */
+public final class EntityCopier<E> {
+
+  /**
+   * The copiers of all the entity classes which have already been copied.
+   */
+  private static final ClassValue<EntityCopier<?>> REGISTRY = new ClassValue<EntityCopier<?>>() {
+    @Override
+    protected EntityCopier<?> computeValue(final Class<?> type) {
+      return new EntityCopier<Object>(type);
+    }
+  };
+
+  /**
+   * The attributes of the entity class.
+   */
+  private final EntityAttribute[] attributes;
+
+  /**
+   * The attributes registry of the entity class, used to create new entities.
+   */
+  private final EntityAttributes entityAttributes;
+
+  /**
+   * The attributes of the entity class which always hold an immutable value.
+   */
+  private final EntityAttribute[] immutableAttributes;
+
+  /**
+   * The attributes of the entity class which can hold a mutable value, only those attributes have
+   * to be handled specifically by a deep copy.
+   */
+  private final EntityAttribute[] mutableAttributes;
+
+  /**
+   * The entity class.
+   */
+  private final Class<?> type;
+
+  /**
+   * Creates a new copier.
+   *
+   * @param type the entity class.
+   */
+  private EntityCopier(final Class<?> type) {
+    this.entityAttributes = EntityAttributes.of(type);
+    List<EntityAttribute> attributes = this.entityAttributes.getAttributes();
+    List<EntityAttribute> mutableAttributes = new ArrayList<EntityAttribute>();
+    List<EntityAttribute> immutableAttributes = new ArrayList<EntityAttribute>();
+
+    for (EntityAttribute attribute : attributes) {
+      if (isImmutable(attribute.getType())) {
+        immutableAttributes.add(attribute);
+      } else {
+        mutableAttributes.add(attribute);
+      }
+    }
+
+    this.type = type;
+    this.attributes = attributes.toArray(new EntityAttribute[attributes.size()]);
+    this.immutableAttributes =
+        immutableAttributes.toArray(new EntityAttribute[immutableAttributes.size()]);
+    this.mutableAttributes =
+        mutableAttributes.toArray(new EntityAttribute[mutableAttributes.size()]);
+  }
+
+  /**
+   * Checks that an entity can be copied by this copier.
+   *
+   * @param entity the entity to check.
+   *
+   * @throws IllegalArgumentException if the entity is not an instance of the entity class of the
+   *           copier.
+   */
+  private void checkEntity(final Object entity) {
+    if (!this.type.isInstance(entity)) {
+      throw new IllegalArgumentException(
+          "The entity to copy must be an instance of class '" + this.type.getName() + "' !");
+    }
+  }
+
+  /**
+   * Creates a shallow copy of an entity, all the attribute values are copied by reference.
+   *
+   * @param entity the entity to copy.
+   *
+   * @return the created copy.
+   *
+   * @throws IllegalStateException if the entity class does not have a constructor without
+   *           parameters.
+   */
+  public E copy(final E entity) {
+    E copy = this.newEntity();
+    this.copyInto(entity, copy);
+
+    return copy;
+  }
+
+  /**
+   * Copies all the attribute values of an entity into an other entity by reference.
+   *
+   * @param source the entity to copy.
+   * @param target the entity in which one to copy the attribute values.
+   */
+  public void copyInto(final E source, final E target) {
+    this.checkEntity(source);
+    this.checkEntity(target);
+
+    for (EntityAttribute attribute : this.attributes) {
+      attribute.copy(source, target);
+    }
+  }
+
+  /**
+   * Copies a value which could be mutable.
+   *
+   * @param value the value to copy.
+   *
+   * @return the copied value, or the value itself if it is immutable or if its type is not known by
+   *         the copier.
+   */
+  private static Object copyValue(final Object value) {
+    if (value instanceof JSONObject) {
+      JSONObject jsonObject = (JSONObject) value;
+      JSONObject copy = new JSONObject();
+
+      for (String key : jsonObject.keySet()) {
+        copy.put(key, copyValue(jsonObject.opt(key)));
+      }
+
+      return copy;
+    } else if (value instanceof JSONArray) {
+      JSONArray jsonArray = (JSONArray) value;
+      JSONArray copy = new JSONArray();
+
+      for (int i = 0; i < jsonArray.length(); ++i) {
+        copy.put(copyValue(jsonArray.get(i)));
+      }
+
+      return copy;
+    } else if (value instanceof JsonMetadata) {
+      return ((JsonMetadata) value).copy();
+    } else if (value instanceof ITranslation) {
+      ITranslation translation = (ITranslation) value;
+      ITranslation copy = new Translation();
+      copy.setLanguageCode(translation.getLanguageCode());
+
+      for (Map.Entry<String, String> entry : translation.getAttributeTranslations().entrySet()) {
+        copy.setAttributeTranslation(entry.getKey(), entry.getValue());
+      }
+
+      return copy;
+    } else if (value instanceof Map) {
+      Map<?, ?> map = (Map<?, ?>) value;
+      Map<Object, Object> copy = newMap(map);
+
+      if (copy == null) {
+        return value;
+      }
+
+      for (Map.Entry<?, ?> entry : map.entrySet()) {
+        copy.put(entry.getKey(), copyValue(entry.getValue()));
+      }
+
+      return copy;
+    } else if (value instanceof List) {
+      List<?> list = (List<?>) value;
+      List<Object> copy = newList(list);
+
+      if (copy == null) {
+        return value;
+      }
+
+      for (Object element : list) {
+        copy.add(copyValue(element));
+      }
+
+      return copy;
+    } else if (value instanceof Date) {
+      return ((Date) value).clone();
+    }
+
+    return value;
+  }
+
+  /**
+   * Creates a deep copy of an entity, the mutable values attached to the entity (translations,
+   * `JSONObject`, `JSONArray`, `Date`, `Map` and `List` values) are copied and all the other
+   * attribute values are copied by reference.
+   *
+   * @param entity the entity to copy.
+   *
+   * @return the created copy.
+   *
+   * @throws IllegalStateException if the entity class does not have a constructor without
+   *           parameters.
+   */
+  public E deepCopy(final E entity) {
+    E copy = this.newEntity();
+    this.deepCopyInto(entity, copy);
+
+    return copy;
+  }
+
+  /**
+   * Copies all the attribute values of an entity into an other entity, the mutable values attached
+   * to the entity (translations, `JSONObject`, `JSONArray`, `Date`, `Map` and `List` values) are
+   * copied and all the other attribute values are copied by reference.
+   *
+   * @param source the entity to copy.
+   * @param target the entity in which one to copy the attribute values.
+   */
+  public void deepCopyInto(final E source, final E target) {
+    this.checkEntity(source);
+    this.checkEntity(target);
+
+    for (EntityAttribute attribute : this.immutableAttributes) {
+      attribute.copy(source, target);
+    }
+
+    for (EntityAttribute attribute : this.mutableAttributes) {
+      attribute.set(target, copyValue(attribute.getStoredValue(source)));
+    }
+  }
+
+  /**
+   * Gets the entity class copied by this copier.
+   *
+   * @return the entity class.
+   */
+  public Class<?> getType() {
+    return this.type;
+  }
+
+  /**
+   * Checks if the values of an attribute type are always immutable.
+   *
+   * @param attributeType the type of the attribute.
+   *
+   * @return `true` if the values of the attribute type are always immutable, `false` otherwise.
+   */
+  private static boolean isImmutable(final Class<?> attributeType) {
+    return attributeType.isPrimitive() || attributeType.isEnum() || attributeType == String.class
+        || attributeType == Boolean.class || attributeType == Character.class
+        || attributeType == Byte.class || attributeType == Short.class
+        || attributeType == Integer.class || attributeType == Long.class
+        || attributeType == Float.class || attributeType == Double.class
+        || attributeType == BigDecimal.class || attributeType == BigInteger.class;
+  }
+
+  /**
+   * Creates a new entity.
+   *
+   * @return the created entity.
+   *
+   * @throws IllegalStateException if the entity class does not have a constructor without
+   *           parameters.
+   */
+  @SuppressWarnings("unchecked")
+  private E newEntity() {
+    return (E) this.entityAttributes.newEntity();
+  }
+
+  /**
+   * Creates an empty list of the same class as a list to copy.
+   *
+   * @param list the list to copy.
+   *
+   * @return the created list or `null` if the class of the list is not known by the copier, in
+   *         this case the list is copied by reference.
+   */
+  private static List<Object> newList(final List<?> list) {
+    Class<?> listClass = list.getClass();
+
+    if (listClass == ArrayList.class) {
+      return new ArrayList<Object>(list.size());
+    } else if (listClass == LinkedList.class) {
+      return new LinkedList<Object>();
+    } else if (listClass == CopyOnWriteArrayList.class) {
+      return new CopyOnWriteArrayList<Object>();
+    }
+
+    return null;
+  }
+
+  /**
+   * Creates an empty map of the same class as a map to copy, the comparator of a sorted map is
+   * kept.
+   *
+   * @param map the map to copy.
+   *
+   * @return the created map or `null` if the class of the map is not known by the copier, in this
+   *         case the map is copied by reference.
+   */
+  @SuppressWarnings("unchecked")
+  private static Map<Object, Object> newMap(final Map<?, ?> map) {
+    Class<?> mapClass = map.getClass();
+    int initialCapacity = map.size() * 4 / 3 + 1;
+
+    if (mapClass == LinkedHashMap.class) {
+      return new LinkedHashMap<Object, Object>(initialCapacity);
+    } else if (mapClass == HashMap.class) {
+      return new HashMap<Object, Object>(initialCapacity);
+    } else if (mapClass == TreeMap.class) {
+      return new TreeMap<Object, Object>((Comparator<Object>) ((TreeMap<?, ?>) map).comparator());
+    } else if (mapClass == ConcurrentHashMap.class) {
+      return new ConcurrentHashMap<Object, Object>(initialCapacity);
+    } else if (mapClass == ConcurrentSkipListMap.class) {
+      return new ConcurrentSkipListMap<Object, Object>(
+          (Comparator<Object>) ((ConcurrentSkipListMap<?, ?>) map).comparator());
+    }
+
+    return null;
+  }
+
+  /**
+   * Gets the copier of an entity class.
+   *
+   * @param type the entity class.
+   *
+   * @return the copier of the entity class.
+   */
+  @SuppressWarnings("unchecked")
+  public static <E> EntityCopier<E> of(final Class<E> type) {
+    return (EntityCopier<E>) REGISTRY.get(type);
+  }
+}
@@ -0,0 +1,127 @@
+/**
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2017, GOMOOB All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided with
+ * the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.gomoob.model.diff;
+
+/**
+ * Change of one attribute value between two versions of an entity.
+ *
+ * <p>
+ * When the change concerns a translation of a translatable entity the change also indicates the
+ * language code of the translation, the attribute name is then the name of the translated
+ * attribute.
+ * </p>
+ *
+ * @author GOMOOB SARL (contact@gomoob.com)
+ */
+public final class AttributeChange {
+
+  /**
+   * The name of the changed attribute.
+   */
+  private final String attributeName;
+
+  /**
+   * The language code of the changed translation, `null` if the change does not concern a
+   * translation.
+   */
+  private final String languageCode;
+
+  /**
+   * The value of the attribute in the new version of the entity.
+   */
+  private final Object newValue;
+
+  /**
+   * The value of the attribute in the old version of the entity.
+   */
+  private final Object oldValue;
+
+  /**
+   * Creates a new attribute change.
+   *
+   * @param attributeName the name of the changed attribute.
+   * @param languageCode the language code of the changed translation, `null` if the change does not
+   *          concern a translation.
+   * @param oldValue the value of the attribute in the old version of the entity.
+   * @param newValue the value of the attribute in the new version of the entity.
+   */
+  public AttributeChange(final String attributeName, final String languageCode,
+      final Object oldValue, final Object newValue) {
+    this.attributeName = attributeName;
+    this.languageCode = languageCode;
+    this.oldValue = oldValue;
+    this.newValue = newValue;
+  }
+
+  /**
+   * Gets the name of the changed attribute.
+   *
+   * @return the name of the changed attribute.
+   */
+  public String getAttributeName() {
+    return this.attributeName;
+  }
+
+  /**
+   * Gets the language code of the changed translation.
+   *
+   * @return the language code of the changed translation, `null` if the change does not concern a
+   *         translation.
+   */
+  public String getLanguageCode() {
+    return this.languageCode;
+  }
+
+  /**
+   * Gets the value of the attribute in the new version of the entity.
+   *
+   * @return the value of the attribute in the new version of the entity.
+   */
+  public Object getNewValue() {
+    return this.newValue;
+  }
+
+  /**
+   * Gets the value of the attribute in the old version of the entity.
+   *
+   * @return the value of the attribute in the old version of the entity.
+   */
+  public Object getOldValue() {
+    return this.oldValue;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString() {
+    return this.attributeName + (this.languageCode == null ? "" : "[" + this.languageCode + "]")
+        + ": " + this.oldValue + " -> " + this.newValue;
+  }
+}
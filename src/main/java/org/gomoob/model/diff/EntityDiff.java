@@ -0,0 +1,423 @@
+/**
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2017, GOMOOB All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided with
+ * the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.gomoob.model.diff;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.gomoob.model.ITranslatableEntity;
+import org.gomoob.model.ITranslation;
+import org.gomoob.model.attribute.EntityAttribute;
+import org.gomoob.model.attribute.EntityAttributes;
+import org.gomoob.model.metadata.JsonMetadata;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Precompiled engine used to compare two versions of the entities of one entity class.
+ *
+ * <p>
+ * A diff engine is compiled only once per entity class, the first time the class is used, it then
+ * compares all the attributes of the entities (including the inherited attributes like
+ * `creationDate` or `updateDate`) using the method handles of the {@link EntityAttributes}
+ * registry. Attributes of type `boolean`, `double`, `int` and `long` are compared without boxing
+ * and values are only compared using `equals()` if they are not the same reference.
+ * </p>
+ * <p>
+ * The translations of translatable entities are compared language by language and attribute by
+ * attribute, each changed translated attribute produces an {@link AttributeChange} having a
+ * language code.
+ * </p>
+ *
+ * <pre>
+ * for (AttributeChange change : EntityDiff.of(User.class).diff(oldUser, newUser)) {
+ *   ...
+ * }
+ * </pre>
+ *
+ * <p>
+ * Diff engines are immutable and thread safe.
+ * </p>
+ *
+ * @author GOMOOB SARL (contact@gomoob.com)
+ *
+ * @param <E> the type of the entities compared by the diff engine.
+ */
+public final class EntityDiff<E> {
+
+  /**
+   * Kind of the attributes compared as objects.
+   */
+  private static final int KIND_OBJECT = 0;
+
+  /**
+   * Kind of the attributes compared as `boolean` values.
+   */
+  private static final int KIND_BOOLEAN = 1;
+
+  /**
+   * Kind of the attributes compared as `double` values.
+   */
+  private static final int KIND_DOUBLE = 2;
+
+  /**
+   * Kind of the attributes compared as `int` values.
+   */
+  private static final int KIND_INT = 3;
+
+  /**
+   * Kind of the attributes compared as `long` values.
+   */
+  private static final int KIND_LONG = 4;
+
+  /**
+   * Kind of the `translations` attribute of translatable entities.
+   */
+  private static final int KIND_TRANSLATIONS = 5;
+
+  /**
+   * The diff engines of all the entity classes which have already been compared.
+   */
+  private static final ClassValue<EntityDiff<?>> REGISTRY = new ClassValue<EntityDiff<?>>() {
+    @Override
+    protected EntityDiff<?> computeValue(final Class<?> type) {
+      return new EntityDiff<Object>(type);
+    }
+  };
+
+  /**
+   * The attributes of the entity class.
+   */
+  private final EntityAttribute[] attributes;
+
+  /**
+   * The kinds of the attributes of the entity class, in the order of the attributes.
+   */
+  private final int[] kinds;
+
+  /**
+   * The entity class.
+   */
+  private final Class<?> type;
+
+  /**
+   * Creates a new diff engine.
+   *
+   * @param type the entity class.
+   */
+  private EntityDiff(final Class<?> type) {
+    List<EntityAttribute> attributes = EntityAttributes.of(type).getAttributes();
+    boolean translatable = ITranslatableEntity.class.isAssignableFrom(type);
+
+    this.type = type;
+    this.attributes = attributes.toArray(new EntityAttribute[attributes.size()]);
+    this.kinds = new int[this.attributes.length];
+
+    for (int i = 0; i < this.attributes.length; ++i) {
+      Class<?> attributeType = this.attributes[i].getType();
+
+      if (attributeType == boolean.class) {
+        this.kinds[i] = KIND_BOOLEAN;
+      } else if (attributeType == double.class) {
+        this.kinds[i] = KIND_DOUBLE;
+      } else if (attributeType == int.class) {
+        this.kinds[i] = KIND_INT;
+      } else if (attributeType == long.class) {
+        this.kinds[i] = KIND_LONG;
+      } else if (translatable && Map.class.isAssignableFrom(attributeType)
+          && "translations".equals(this.attributes[i].getName())) {
+        this.kinds[i] = KIND_TRANSLATIONS;
+      } else {
+        this.kinds[i] = KIND_OBJECT;
+      }
+    }
+  }
+
+  /**
+   * Checks that two entities can be compared by this diff engine.
+   *
+   * @param oldEntity the old version of the entity.
+   * @param newEntity the new version of the entity.
+   *
+   * @throws IllegalArgumentException if one of the entities is not an instance of the entity class
+   *           of the diff engine.
+   */
+  private void checkEntities(final Object oldEntity, final Object newEntity) {
+    if (!this.type.isInstance(oldEntity) || !this.type.isInstance(newEntity)) {
+      throw new IllegalArgumentException(
+          "The entities to compare must be instances of class '" + this.type.getName() + "' !");
+    }
+  }
+
+  /**
+   * Compares two versions of an entity.
+   *
+   * @param oldEntity the old version of the entity.
+   * @param newEntity the new version of the entity.
+   *
+   * @return the changed attributes, in the order of the attributes of the entity class, an empty
+   *         list is returned if no attribute has changed.
+   */
+  public List<AttributeChange> diff(final E oldEntity, final E newEntity) {
+    this.checkEntities(oldEntity, newEntity);
+
+    if (oldEntity == newEntity) {
+      return Collections.emptyList();
+    }
+
+    List<AttributeChange> changes = null;
+
+    for (int i = 0; i < this.attributes.length; ++i) {
+      EntityAttribute attribute = this.attributes[i];
+
+      if (this.kinds[i] == KIND_TRANSLATIONS) {
+        changes = diffTranslations(attribute.getName(), attribute.get(oldEntity),
+            attribute.get(newEntity), changes);
+      } else if (!isEqual(this.kinds[i], attribute, oldEntity, newEntity)) {
+        if (changes == null) {
+          changes = new ArrayList<AttributeChange>();
+        }
+
+        changes.add(new AttributeChange(attribute.getName(), null, attribute.get(oldEntity),
+            attribute.get(newEntity)));
+      }
+    }
+
+    return changes == null ? Collections.<AttributeChange>emptyList() : changes;
+  }
+
+  /**
+   * Compares two versions of the translation of a translatable entity in one language.
+   *
+   * @param attributeName the name of the translations attribute, used if a translation is not an
+   *          {@link ITranslation}.
+   * @param languageCode the language code of the translation.
+   * @param oldValue the old translation.
+   * @param newValue the new translation.
+   * @param changes the changes already found, can be `null`.
+   *
+   * @return the changes already found completed with the changed translated attributes, `null` if
+   *         no change has been found.
+   */
+  private static List<AttributeChange> diffTranslation(final String attributeName,
+      final String languageCode, final Object oldValue, final Object newValue,
+      final List<AttributeChange> changes) {
+    if (oldValue == newValue) {
+      return changes;
+    }
+
+    List<AttributeChange> allChanges = changes == null ? new ArrayList<AttributeChange>() : changes;
+
+    if ((oldValue != null && !(oldValue instanceof ITranslation))
+        || (newValue != null && !(newValue instanceof ITranslation))) {
+      if (!isEqual(oldValue, newValue)) {
+        allChanges.add(new AttributeChange(attributeName, languageCode, oldValue, newValue));
+      }
+
+      return allChanges.isEmpty() ? null : allChanges;
+    }
+
+    Map<String, String> oldAttributeTranslations = oldValue == null
+        ? Collections.<String, String>emptyMap()
+        : ((ITranslation) oldValue).getAttributeTranslations();
+    Map<String, String> newAttributeTranslations = newValue == null
+        ? Collections.<String, String>emptyMap()
+        : ((ITranslation) newValue).getAttributeTranslations();
+
+    for (Map.Entry<String, String> entry : oldAttributeTranslations.entrySet()) {
+      String newAttributeTranslation = newAttributeTranslations.get(entry.getKey());
+
+      if (!isEqual(entry.getValue(), newAttributeTranslation)) {
+        allChanges.add(new AttributeChange(entry.getKey(), languageCode, entry.getValue(),
+            newAttributeTranslation));
+      }
+    }
+
+    for (Map.Entry<String, String> entry : newAttributeTranslations.entrySet()) {
+      if (!oldAttributeTranslations.containsKey(entry.getKey()) && entry.getValue() != null) {
+        allChanges.add(new AttributeChange(entry.getKey(), languageCode, null, entry.getValue()));
+      }
+    }
+
+    return allChanges.isEmpty() ? null : allChanges;
+  }
+
+  /**
+   * Compares two versions of the translations of a translatable entity.
+   *
+   * @param attributeName the name of the translations attribute.
+   * @param oldValue the old translations.
+   * @param newValue the new translations.
+   * @param changes the changes already found, can be `null`.
+   *
+   * @return the changes already found completed with the changed translations, `null` if no change
+   *         has been found.
+   */
+  private static List<AttributeChange> diffTranslations(final String attributeName,
+      final Object oldValue, final Object newValue, final List<AttributeChange> changes) {
+    if (oldValue == newValue) {
+      return changes;
+    }
+
+    Map<?, ?> oldTranslations = oldValue == null ? Collections.emptyMap() : (Map<?, ?>) oldValue;
+    Map<?, ?> newTranslations = newValue == null ? Collections.emptyMap() : (Map<?, ?>) newValue;
+    List<AttributeChange> allChanges = changes;
+
+    for (Map.Entry<?, ?> entry : oldTranslations.entrySet()) {
+      allChanges = diffTranslation(attributeName, String.valueOf(entry.getKey()), entry.getValue(),
+          newTranslations.get(entry.getKey()), allChanges);
+    }
+
+    for (Map.Entry<?, ?> entry : newTranslations.entrySet()) {
+      if (!oldTranslations.containsKey(entry.getKey())) {
+        allChanges = diffTranslation(attributeName, String.valueOf(entry.getKey()), null,
+            entry.getValue(), allChanges);
+      }
+    }
+
+    return allChanges;
+  }
+
+  /**
+   * Gets the entity class compared by this diff engine.
+   *
+   * @return the entity class.
+   */
+  public Class<?> getType() {
+    return this.type;
+  }
+
+  /**
+   * Checks if at least one attribute differs between two versions of an entity, this function stops
+   * at the first difference and only allocates changes to compare translations.
+   *
+   * @param oldEntity the old version of the entity.
+   * @param newEntity the new version of the entity.
+   *
+   * @return `true` if at least one attribute has changed, `false` otherwise.
+   */
+  public boolean hasChanges(final E oldEntity, final E newEntity) {
+    this.checkEntities(oldEntity, newEntity);
+
+    if (oldEntity == newEntity) {
+      return false;
+    }
+
+    for (int i = 0; i < this.attributes.length; ++i) {
+      EntityAttribute attribute = this.attributes[i];
+
+      if (this.kinds[i] == KIND_TRANSLATIONS) {
+        if (diffTranslations(attribute.getName(), attribute.get(oldEntity),
+            attribute.get(newEntity), null) != null) {
+          return true;
+        }
+      } else if (!isEqual(this.kinds[i], attribute, oldEntity, newEntity)) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Checks if an attribute has the same value in two entities.
+   *
+   * @param kind the kind of the attribute.
+   * @param attribute the attribute to compare.
+   * @param oldEntity the old version of the entity.
+   * @param newEntity the new version of the entity.
+   *
+   * @return `true` if the attribute has the same value in both entities, `false` otherwise.
+   */
+  private static boolean isEqual(final int kind, final EntityAttribute attribute,
+      final Object oldEntity, final Object newEntity) {
+    switch (kind) {
+      case KIND_BOOLEAN:
+        return attribute.getBoolean(oldEntity) == attribute.getBoolean(newEntity);
+      case KIND_DOUBLE:
+        return Double.doubleToLongBits(attribute.getDouble(oldEntity)) == Double
+            .doubleToLongBits(attribute.getDouble(newEntity));
+      case KIND_INT:
+        return attribute.getInt(oldEntity) == attribute.getInt(newEntity);
+      case KIND_LONG:
+        return attribute.getLong(oldEntity) == attribute.getLong(newEntity);
+      default:
+        // The stored values are compared so raw JSON metadata are compared without being parsed
+        return isEqual(attribute.getStoredValue(oldEntity), attribute.getStoredValue(newEntity));
+    }
+  }
+
+  /**
+   * Checks if two stored attribute values are equal, `JSONObject`, `JSONArray` and
+   * {@link JsonMetadata} values are compared by content, {@link JsonMetadata} having the same raw
+   * bytes are compared without being parsed.
+   *
+   * @param oldValue the old value.
+   * @param newValue the new value.
+   *
+   * @return `true` if the values are equal, `false` otherwise.
+   */
+  private static boolean isEqual(final Object oldValue, final Object newValue) {
+    if (oldValue == newValue) {
+      return true;
+    }
+
+    if (oldValue == null || newValue == null) {
+      return false;
+    }
+
+    if (oldValue instanceof JSONObject) {
+      return ((JSONObject) oldValue).similar(newValue);
+    }
+
+    if (oldValue instanceof JSONArray) {
+      return ((JSONArray) oldValue).similar(newValue);
+    }
+
+    if (oldValue instanceof JsonMetadata) {
+      return ((JsonMetadata) oldValue).similar(newValue);
+    }
+
+    return oldValue.equals(newValue);
+  }
+
+  /**
+   * Gets the diff engine of an entity class.
+   *
+   * @param type the entity class.
+   *
+   * @return the diff engine of the entity class.
+   */
+  @SuppressWarnings("unchecked")
+  public static <E> EntityDiff<E> of(final Class<E> type) {
+    return (EntityDiff<E>) REGISTRY.get(type);
+  }
+}
@@ -0,0 +1,751 @@
+/**
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2017, GOMOOB All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided with
+ * the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.gomoob.model.json;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.reflect.GenericDeclaration;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.gomoob.model.IEntity;
+import org.gomoob.model.ITranslatableEntity;
+import org.gomoob.model.ITranslation;
+import org.gomoob.model.attribute.EntityAttribute;
+import org.gomoob.model.attribute.EntityAttributes;
+import org.gomoob.model.metadata.JsonMetadata;
+import org.gomoob.model.translation.Translation;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Precompiled streaming JSON reader used to create the entities of one entity class from JSON
+ * documents without building `JSONObject` trees.
+ *
+ * <p>
+ * A reader is compiled only once per entity class, the first time the class is used. The JSON
+ * documents are read using a pull parser and the attribute values are written directly into the
+ * entities using their precompiled attribute accessors, so only the entity being read is kept in
+ * memory. This allows to read very large arrays of entities with `readArray(Reader, Consumer)`.
+ * </p>
+ * <p>
+ * The JSON properties are converted to the types of the attributes, the reader accepts the
+ * documents written by {@link EntityJsonWriter} :
+ * </p>
+ * <ul>
+ * <li>dates (for example `creationDate` and `updateDate`) can be ISO 8601 strings, with or without
+ * time and time zone (UTC is used by default), or numbers of milliseconds since the epoch ;</li>
+ * <li>the `translations` attribute of translatable entities is read from a JSON object which
+ * associates language codes to JSON objects of attribute translations, each translation is read
+ * directly into a {@link Translation} ;</li>
+ * <li>the technical identifiers are converted to the type of identifier of the entity class ;</li>
+ * <li>the {@link JsonMetadata} (for example the metadata of actions and states) are copied as
+ * compact UTF-8 bytes without being parsed into `JSONObject` trees ;</li>
+ * <li>the properties which do not match any attribute are ignored.</li>
+ * </ul>
+ * <p>
+ * The attributes are set without marking them dirty. Readers are immutable and thread safe.
+ * </p>
+ *
+ * @author GOMOOB SARL (contact@gomoob.com)
+ *
+ * @param <E> the type of the entities read.
+ */
+public final class EntityJsonReader<E> {
+
+  /**
+   * Kind of the `boolean` attributes.
+   */
+  private static final int KIND_BOOLEAN = 0;
+
+  /**
+   * Kind of the `double` attributes.
+   */
+  private static final int KIND_DOUBLE = 1;
+
+  /**
+   * Kind of the `int` attributes.
+   */
+  private static final int KIND_INT = 2;
+
+  /**
+   * Kind of the `long` attributes.
+   */
+  private static final int KIND_LONG = 3;
+
+  /**
+   * Kind of the `translations` attribute of the translatable entities.
+   */
+  private static final int KIND_TRANSLATIONS = 4;
+
+  /**
+   * Kind of the other attributes.
+   */
+  private static final int KIND_VALUE = 5;
+
+  /**
+   * The readers of all the entity classes which have already been read.
+   */
+  private static final ClassValue<EntityJsonReader<?>> REGISTRY =
+      new ClassValue<EntityJsonReader<?>>() {
+        @Override
+        protected EntityJsonReader<?> computeValue(final Class<?> type) {
+          return new EntityJsonReader<Object>(type);
+        }
+      };
+
+  /**
+   * The attributes registry of the entity class.
+   */
+  private final EntityAttributes entityAttributes;
+
+  /**
+   * The kinds of the attributes, indexed by attribute index.
+   */
+  private final int[] kinds;
+
+  /**
+   * The types of the attribute values, indexed by attribute index, the type variables (for example
+   * the type of the technical identifier) are resolved using the entity class.
+   */
+  private final Class<?>[] valueTypes;
+
+  /**
+   * Creates a new reader.
+   *
+   * @param type the entity class.
+   */
+  private EntityJsonReader(final Class<?> type) {
+    this.entityAttributes = EntityAttributes.of(type);
+
+    List<EntityAttribute> attributes = this.entityAttributes.getAttributes();
+    this.kinds = new int[attributes.size()];
+    this.valueTypes = new Class<?>[attributes.size()];
+
+    for (EntityAttribute attribute : attributes) {
+      Class<?> attributeType = attribute.getType();
+      int index = attribute.getIndex();
+
+      // The JSON metadata are kept as raw bytes until they are read
+      this.valueTypes[index] = attribute.getStoredType() == JsonMetadata.class
+          ? JsonMetadata.class : resolveType(type, attribute);
+
+      if (attributeType == boolean.class) {
+        this.kinds[index] = KIND_BOOLEAN;
+      } else if (attributeType == double.class) {
+        this.kinds[index] = KIND_DOUBLE;
+      } else if (attributeType == int.class) {
+        this.kinds[index] = KIND_INT;
+      } else if (attributeType == long.class) {
+        this.kinds[index] = KIND_LONG;
+      } else if (ITranslatableEntity.class.isAssignableFrom(type)
+          && attribute.getName().equals("translations") && attributeType == Map.class) {
+        this.kinds[index] = KIND_TRANSLATIONS;
+      } else {
+        this.kinds[index] = KIND_VALUE;
+      }
+    }
+  }
+
+  /**
+   * Copies a JSON value without building any object, the copied value is written without
+   * whitespaces.
+   *
+   * @param parser the parser to read.
+   * @param output the output to write.
+   *
+   * @throws IOException if the value is invalid.
+   */
+  private static void copyValue(final JsonParser parser, final JsonOutput output)
+      throws IOException {
+    switch (parser.peek()) {
+      case JsonParser.BEGIN_OBJECT: {
+        parser.beginObject();
+        output.write('{');
+
+        for (boolean first = true; parser.hasNext(); first = false) {
+          if (!first) {
+            output.write(',');
+          }
+
+          output.writeString(parser.nextName());
+          output.write(':');
+          copyValue(parser, output);
+        }
+
+        parser.endObject();
+        output.write('}');
+        break;
+      }
+      case JsonParser.BEGIN_ARRAY: {
+        parser.beginArray();
+        output.write('[');
+
+        for (boolean first = true; parser.hasNext(); first = false) {
+          if (!first) {
+            output.write(',');
+          }
+
+          copyValue(parser, output);
+        }
+
+        parser.endArray();
+        output.write(']');
+        break;
+      }
+      case JsonParser.STRING:
+        output.writeString(parser.nextString());
+        break;
+      case JsonParser.NUMBER:
+        output.writeUnescaped(parser.nextNumber());
+        break;
+      case JsonParser.TRUE:
+      case JsonParser.FALSE:
+        output.writeUnescaped(String.valueOf(parser.nextBoolean()));
+        break;
+      default:
+        parser.nextNull();
+        output.writeUnescaped("null");
+        break;
+    }
+  }
+
+  /**
+   * Creates a new entity.
+   *
+   * @return the created entity.
+   */
+  @SuppressWarnings("unchecked")
+  private E newEntity() {
+    return (E) this.entityAttributes.newEntity();
+  }
+
+  /**
+   * Gets the reader of an entity class.
+   *
+   * @param type the entity class.
+   *
+   * @return the reader of the entity class.
+   */
+  @SuppressWarnings("unchecked")
+  public static <E> EntityJsonReader<E> of(final Class<E> type) {
+    return (EntityJsonReader<E>) REGISTRY.get(type);
+  }
+
+  /**
+   * Parses a date.
+   *
+   * @param parser the parser used to report errors.
+   * @param text the ISO 8601 date to parse.
+   *
+   * @return the parsed date.
+   *
+   * @throws IOException if the date is invalid.
+   */
+  private static Date parseDate(final JsonParser parser, final String text) throws IOException {
+    try {
+      if (text.length() <= 10) {
+        return new Date(
+            LocalDate.parse(text).atStartOfDay().toInstant(ZoneOffset.UTC).toEpochMilli());
+      }
+
+      char last = text.charAt(text.length() - 1);
+      int timeStart = text.indexOf('T');
+
+      if (last == 'Z' || text.indexOf('+', timeStart) != -1 || text.indexOf('-', timeStart) != -1) {
+        return new Date(OffsetDateTime.parse(text).toInstant().toEpochMilli());
+      }
+
+      return new Date(LocalDateTime.parse(text).toInstant(ZoneOffset.UTC).toEpochMilli());
+    } catch (DateTimeParseException dtpex) {
+      throw parser.error("invalid date '" + text + "'");
+    }
+  }
+
+  /**
+   * Reads one entity from a JSON object.
+   *
+   * @param stream the stream to read, the stream is read using the UTF-8 encoding.
+   *
+   * @return the read entity.
+   *
+   * @throws IOException if the stream cannot be read or if the document is invalid.
+   * @throws IllegalStateException if the entity class does not have a constructor without
+   *           parameters.
+   */
+  public E read(final InputStream stream) throws IOException {
+    return this.read(new InputStreamReader(stream, StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Reads one entity from a JSON object.
+   *
+   * @param reader the reader to read, the reader does not need to be buffered.
+   *
+   * @return the read entity.
+   *
+   * @throws IOException if the reader cannot be read or if the document is invalid.
+   * @throws IllegalStateException if the entity class does not have a constructor without
+   *           parameters.
+   */
+  public E read(final Reader reader) throws IOException {
+    E entity = this.newEntity();
+    this.read(reader, entity);
+
+    return entity;
+  }
+
+  /**
+   * Reads the attribute values of an existing entity from a JSON object, the attributes which are
+   * not present in the JSON object are left unchanged.
+   *
+   * @param reader the reader to read, the reader does not need to be buffered.
+   * @param entity the entity in which one to write the attribute values.
+   *
+   * @throws IOException if the reader cannot be read or if the document is invalid.
+   */
+  public void read(final Reader reader, final E entity) throws IOException {
+    JsonParser parser = new JsonParser(reader);
+    this.readEntity(parser, entity);
+
+    if (parser.peek() != JsonParser.END_DOCUMENT) {
+      throw parser.error("expected the end of the document");
+    }
+  }
+
+  /**
+   * Reads any JSON value into strings, numbers, booleans, `null`, maps and lists.
+   *
+   * @param parser the parser to read.
+   *
+   * @return the read value.
+   *
+   * @throws IOException if the value is invalid.
+   */
+  private static Object readAny(final JsonParser parser) throws IOException {
+    switch (parser.peek()) {
+      case JsonParser.BEGIN_OBJECT: {
+        Map<String, Object> map = new LinkedHashMap<String, Object>();
+        parser.beginObject();
+
+        while (parser.hasNext()) {
+          map.put(parser.nextName(), readAny(parser));
+        }
+
+        parser.endObject();
+
+        return map;
+      }
+      case JsonParser.BEGIN_ARRAY: {
+        List<Object> list = new ArrayList<Object>();
+        parser.beginArray();
+
+        while (parser.hasNext()) {
+          list.add(readAny(parser));
+        }
+
+        parser.endArray();
+
+        return list;
+      }
+      case JsonParser.STRING:
+        return parser.nextString();
+      case JsonParser.NUMBER: {
+        String text = parser.nextNumber();
+
+        if (text.indexOf('.') != -1 || text.indexOf('e') != -1 || text.indexOf('E') != -1) {
+          return Double.valueOf(text);
+        }
+
+        BigInteger value = new BigInteger(text);
+
+        if (value.bitLength() < 32) {
+          return value.intValue();
+        }
+
+        return value.bitLength() < 64 ? (Object) value.longValue() : value;
+      }
+      case JsonParser.TRUE:
+      case JsonParser.FALSE:
+        return parser.nextBoolean();
+      default:
+        parser.nextNull();
+        return null;
+    }
+  }
+
+  /**
+   * Reads entities from a JSON array.
+   *
+   * @param stream the stream to read, the stream is read using the UTF-8 encoding.
+   *
+   * @return the read entities.
+   *
+   * @throws IOException if the stream cannot be read or if the document is invalid.
+   * @throws IllegalStateException if the entity class does not have a constructor without
+   *           parameters.
+   */
+  public List<E> readArray(final InputStream stream) throws IOException {
+    return this.readArray(new InputStreamReader(stream, StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Reads entities from a JSON array and gives them to a consumer as soon as they are read, this
+   * allows to read arrays which do not fit in memory.
+   *
+   * @param stream the stream to read, the stream is read using the UTF-8 encoding.
+   * @param consumer the consumer of the read entities.
+   *
+   * @throws IOException if the stream cannot be read or if the document is invalid.
+   * @throws IllegalStateException if the entity class does not have a constructor without
+   *           parameters.
+   */
+  public void readArray(final InputStream stream, final Consumer<? super E> consumer)
+      throws IOException {
+    this.readArray(new InputStreamReader(stream, StandardCharsets.UTF_8), consumer);
+  }
+
+  /**
+   * Reads entities from a JSON array.
+   *
+   * @param reader the reader to read, the reader does not need to be buffered.
+   *
+   * @return the read entities.
+   *
+   * @throws IOException if the reader cannot be read or if the document is invalid.
+   * @throws IllegalStateException if the entity class does not have a constructor without
+   *           parameters.
+   */
+  public List<E> readArray(final Reader reader) throws IOException {
+    List<E> entities = new ArrayList<E>();
+    this.readArray(reader, entities::add);
+
+    return entities;
+  }
+
+  /**
+   * Reads entities from a JSON array and gives them to a consumer as soon as they are read, this
+   * allows to read arrays which do not fit in memory.
+   *
+   * @param reader the reader to read, the reader does not need to be buffered.
+   * @param consumer the consumer of the read entities.
+   *
+   * @throws IOException if the reader cannot be read or if the document is invalid.
+   * @throws IllegalStateException if the entity class does not have a constructor without
+   *           parameters.
+   */
+  public void readArray(final Reader reader, final Consumer<? super E> consumer)
+      throws IOException {
+    JsonParser parser = new JsonParser(reader);
+    parser.beginArray();
+
+    while (parser.hasNext()) {
+      E entity = this.newEntity();
+      this.readEntity(parser, entity);
+      consumer.accept(entity);
+    }
+
+    parser.endArray();
+
+    if (parser.peek() != JsonParser.END_DOCUMENT) {
+      throw parser.error("expected the end of the document");
+    }
+  }
+
+  /**
+   * Reads the attribute values of an entity from a JSON object.
+   *
+   * @param parser the parser to read.
+   * @param entity the entity in which one to write the attribute values.
+   *
+   * @throws IOException if the JSON object is invalid.
+   */
+  private void readEntity(final JsonParser parser, final Object entity) throws IOException {
+    parser.beginObject();
+
+    while (parser.hasNext()) {
+      EntityAttribute attribute = this.entityAttributes.getAttribute(parser.nextName());
+
+      if (attribute == null) {
+        parser.skipValue();
+        continue;
+      }
+
+      int index = attribute.getIndex();
+      int kind = this.kinds[index];
+
+      if (kind <= KIND_LONG && parser.peek() == JsonParser.NULL) {
+        if (!attribute.isZeroNull()) {
+          throw parser.error("cannot set null to property '" + attribute.getName() + "'");
+        }
+
+        // A primitive '0' means no value, for example for the primitive identifiers
+        parser.nextNull();
+        attribute.set(entity, null);
+        continue;
+      }
+
+      try {
+        switch (kind) {
+          case KIND_BOOLEAN:
+            attribute.setBoolean(entity, parser.nextBoolean());
+            break;
+          case KIND_DOUBLE:
+            attribute.setDouble(entity, Double.parseDouble(parser.nextNumber()));
+            break;
+          case KIND_INT:
+            attribute.setInt(entity, Integer.parseInt(parser.nextNumber()));
+            break;
+          case KIND_LONG:
+            attribute.setLong(entity, Long.parseLong(parser.nextNumber()));
+            break;
+          case KIND_TRANSLATIONS:
+            attribute.set(entity, readTranslations(parser));
+            break;
+          default:
+            attribute.set(entity, readValue(parser, this.valueTypes[index], attribute.getName()));
+            break;
+        }
+      } catch (NumberFormatException nfex) {
+        throw parser.error("invalid number for property '" + attribute.getName() + "'");
+      }
+    }
+
+    parser.endObject();
+  }
+
+  /**
+   * Reads a translation from a JSON object of attribute translations.
+   *
+   * @param parser the parser to read.
+   * @param languageCode the language code of the translation.
+   *
+   * @return the read translation.
+   *
+   * @throws IOException if the JSON object is invalid.
+   */
+  private static ITranslation readTranslation(final JsonParser parser, final String languageCode)
+      throws IOException {
+    ITranslation translation = new Translation();
+    translation.setLanguageCode(languageCode);
+    parser.beginObject();
+
+    while (parser.hasNext()) {
+      String attributeName = parser.nextName();
+
+      if (parser.peek() == JsonParser.NULL) {
+        parser.nextNull();
+        translation.setAttributeTranslation(attributeName, null);
+      } else {
+        translation.setAttributeTranslation(attributeName, parser.nextString());
+      }
+    }
+
+    parser.endObject();
+
+    return translation;
+  }
+
+  /**
+   * Reads the translations of a translatable entity from a JSON object which associates language
+   * codes to JSON objects of attribute translations.
+   *
+   * @param parser the parser to read.
+   *
+   * @return the read translations, `null` if the value is `null`.
+   *
+   * @throws IOException if the JSON object is invalid.
+   */
+  private static Map<String, ITranslation> readTranslations(final JsonParser parser)
+      throws IOException {
+    if (parser.peek() == JsonParser.NULL) {
+      parser.nextNull();
+      return null;
+    }
+
+    Map<String, ITranslation> translations = new HashMap<String, ITranslation>();
+    parser.beginObject();
+
+    while (parser.hasNext()) {
+      String languageCode = parser.nextName();
+      translations.put(languageCode, readTranslation(parser, languageCode));
+    }
+
+    parser.endObject();
+
+    return translations;
+  }
+
+  /**
+   * Reads a value and converts it to a type.
+   *
+   * @param parser the parser to read.
+   * @param type the type of the value.
+   * @param attributeName the name of the attribute which holds the value, used in error messages.
+   *
+   * @return the read value.
+   *
+   * @throws IOException if the value is invalid or cannot be converted to the type.
+   */
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  private static Object readValue(final JsonParser parser, final Class<?> type,
+      final String attributeName) throws IOException {
+    int token = parser.peek();
+
+    if (token == JsonParser.NULL) {
+      parser.nextNull();
+      return null;
+    }
+
+    if (type == String.class) {
+      return parser.nextString();
+    } else if (type == Integer.class) {
+      return Integer.valueOf(parser.nextNumber());
+    } else if (type == Long.class) {
+      return Long.valueOf(parser.nextNumber());
+    } else if (type == Double.class) {
+      return Double.valueOf(parser.nextNumber());
+    } else if (type == Boolean.class) {
+      return parser.nextBoolean();
+    } else if (type == Float.class) {
+      return Float.valueOf(parser.nextNumber());
+    } else if (type == Short.class) {
+      return Short.valueOf(parser.nextNumber());
+    } else if (type == Byte.class) {
+      return Byte.valueOf(parser.nextNumber());
+    } else if (type == BigDecimal.class) {
+      return new BigDecimal(parser.nextNumber());
+    } else if (type == BigInteger.class) {
+      return new BigInteger(parser.nextNumber());
+    } else if (type == Date.class) {
+      return token == JsonParser.NUMBER ? new Date(Long.parseLong(parser.nextNumber()))
+          : parseDate(parser, parser.nextString());
+    } else if (type.isEnum()) {
+      String name = parser.nextString();
+
+      try {
+        return Enum.valueOf((Class<? extends Enum>) type, name);
+      } catch (IllegalArgumentException iaex) {
+        throw parser.error("invalid value '" + name + "' for property '" + attributeName + "'");
+      }
+    } else if (type == JsonMetadata.class) {
+      if (token != JsonParser.BEGIN_OBJECT) {
+        throw parser.error("expected a JSON object for property '" + attributeName + "'");
+      }
+
+      StringBuilder sb = new StringBuilder();
+      copyValue(parser, new JsonOutput.OfAppendable(sb));
+
+      return new JsonMetadata(sb.toString().getBytes(StandardCharsets.UTF_8));
+    } else if (type == JSONObject.class) {
+      return new JSONObject((Map<?, ?>) readAny(parser));
+    } else if (type == JSONArray.class) {
+      return new JSONArray((Collection<?>) readAny(parser));
+    } else if (type == Translation.class || type == ITranslation.class) {
+      return readTranslation(parser, null);
+    } else if (IEntity.class.isAssignableFrom(type) && !type.isInterface()
+        && !Modifier.isAbstract(type.getModifiers())) {
+      EntityJsonReader<?> reader = of(type);
+      Object entity = reader.newEntity();
+      reader.readEntity(parser, entity);
+
+      return entity;
+    } else if (type.isAssignableFrom(LinkedHashMap.class)
+        || type.isAssignableFrom(ArrayList.class)) {
+      // 'Object', 'Serializable', maps and lists
+      return readAny(parser);
+    }
+
+    throw parser.error("cannot read property '" + attributeName + "' of type '" + type.getName()
+        + "'");
+  }
+
+  /**
+   * Resolves the type of the values of an attribute, the type variables (for example the type of
+   * the technical identifier) are resolved using the generic parent classes of the entity class.
+   *
+   * @param type the entity class.
+   * @param attribute the attribute.
+   *
+   * @return the resolved type, the type of the attribute if it cannot be resolved.
+   */
+  private static Class<?> resolveType(final Class<?> type, final EntityAttribute attribute) {
+    Type genericType = attribute.getGenericType();
+
+    while (genericType instanceof TypeVariable) {
+      TypeVariable<?> variable = (TypeVariable<?>) genericType;
+      GenericDeclaration declaration = variable.getGenericDeclaration();
+      genericType = null;
+
+      // Finds the parent class which gives a value to the type variable
+      for (Class<?> c = type; c != null && c != declaration; c = c.getSuperclass()) {
+        Type parent = c.getGenericSuperclass();
+
+        if (parent instanceof ParameterizedType
+            && ((ParameterizedType) parent).getRawType() == declaration) {
+          TypeVariable<?>[] variables = ((Class<?>) declaration).getTypeParameters();
+
+          for (int i = 0; i < variables.length; ++i) {
+            if (variables[i].equals(variable)) {
+              genericType = ((ParameterizedType) parent).getActualTypeArguments()[i];
+            }
+          }
+        }
+      }
+    }
+
+    if (genericType instanceof Class) {
+      return (Class<?>) genericType;
+    } else if (genericType instanceof ParameterizedType) {
+      return (Class<?>) ((ParameterizedType) genericType).getRawType();
+    }
+
+    return attribute.getType();
+  }
+}
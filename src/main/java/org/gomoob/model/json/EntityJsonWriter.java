@@ -0,0 +1,658 @@
+/**
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2017, GOMOOB All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided with
+ * the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.gomoob.model.json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.gomoob.model.IEntity;
+import org.gomoob.model.ITranslatableEntity;
+import org.gomoob.model.ITranslation;
+import org.gomoob.model.attribute.EntityAttribute;
+import org.gomoob.model.attribute.EntityAttributes;
+import org.gomoob.model.codec.EntityCursor;
+import org.gomoob.model.collection.EntityTable;
+import org.gomoob.model.metadata.JsonMetadata;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Precompiled streaming JSON writer used to write the entities of one entity class without
+ * building `JSONObject` trees.
+ *
+ * <p>
+ * A writer is compiled only once per entity class, the first time the class is used, the JSON
+ * names of the attributes are computed in advance as strings and UTF-8 bytes. An entity is written
+ * as a JSON object having one property per attribute of the entity class, including the inherited
+ * attributes, in the order of the attributes of the entity class :
+ * </p>
+ * <ul>
+ * <li>strings, numbers, booleans and `null` are written as JSON values ;</li>
+ * <li>enum constants are written as strings using their name ;</li>
+ * <li>dates (for example `creationDate` and `updateDate`) are written as ISO 8601 strings in the
+ * UTC time zone with milliseconds, for example `"2017-10-21T09:15:00.000Z"` ;</li>
+ * <li>`JSONObject` and `JSONArray` values are written as is, the {@link JsonMetadata} which have
+ * not been parsed are written by copying their raw bytes ;</li>
+ * <li>translations are written as JSON objects which associate the attribute names to their
+ * translations, so the `translations` attribute of translatable entities is written as a JSON
+ * object which associates language codes to translations ;</li>
+ * <li>maps, lists, arrays and entities are written recursively.</li>
+ * </ul>
+ * <p>
+ * Any {@link IEntity} can be written, the entities of the entity class are read using their
+ * precompiled attribute accessors, the other entities (for example the rows of an
+ * {@link EntityTable}) are read using `IEntity.get()`. The nested entities and the entities
+ * written into arrays are written using the attributes of their entity class, which is the class
+ * of the encoded entities for an {@link EntityCursor} and the class of the entities of the table
+ * for the rows of an {@link EntityTable}.
+ * </p>
+ * <p>
+ * Translatable entities can also be written in a requested language without calling
+ * {@link ITranslatableEntity#applyTranslation(String)}, the translated values are read directly
+ * from the stored translations of the entities, and the attribute values are used when no
+ * translation exists. The `translationLanguageCode` attribute is then written as in the one
+ * language mode (`null` for the default language), when no translation exists in the requested
+ * language it is written with the language of the attribute values. The `translations`
+ * attribute is written `null`. The entities are never modified, so one cached entity can be
+ * written concurrently in several languages.
+ * </p>
+ * <p>
+ * Writers are immutable and thread safe.
+ * </p>
+ *
+ * @author GOMOOB SARL (contact@gomoob.com)
+ */
+public final class EntityJsonWriter {
+
+  /**
+   * Kind of the `boolean` attributes.
+   */
+  private static final int KIND_BOOLEAN = 0;
+
+  /**
+   * Kind of the `double` attributes.
+   */
+  private static final int KIND_DOUBLE = 1;
+
+  /**
+   * Kind of the `int` attributes.
+   */
+  private static final int KIND_INT = 2;
+
+  /**
+   * Kind of the `long` attributes.
+   */
+  private static final int KIND_LONG = 3;
+
+  /**
+   * Kind of the `String` attributes of the translatable entities which can be translated.
+   */
+  private static final int KIND_TRANSLATABLE = 4;
+
+  /**
+   * Kind of the `translationLanguageCode` attribute of the translatable entities.
+   */
+  private static final int KIND_TRANSLATION_LANGUAGE_CODE = 5;
+
+  /**
+   * Kind of the `translations` attribute of the translatable entities.
+   */
+  private static final int KIND_TRANSLATIONS = 6;
+
+  /**
+   * Kind of the other attributes.
+   */
+  private static final int KIND_VALUE = 7;
+
+  /**
+   * The writers of all the entity classes which have already been written.
+   */
+  private static final ClassValue<EntityJsonWriter> REGISTRY = new ClassValue<EntityJsonWriter>() {
+    @Override
+    protected EntityJsonWriter computeValue(final Class<?> type) {
+      return new EntityJsonWriter(type);
+    }
+  };
+
+  /**
+   * The attributes of the entity class.
+   */
+  private final EntityAttribute[] attributes;
+
+  /**
+   * The kinds of the attributes, in the order of the attributes.
+   */
+  private final int[] kinds;
+
+  /**
+   * The UTF-8 bytes of the JSON names of the attributes, in the order of the attributes.
+   */
+  private final byte[][] nameBytes;
+
+  /**
+   * The JSON names of the attributes followed by a colon, in the order of the attributes.
+   */
+  private final String[] names;
+
+  /**
+   * The entity class.
+   */
+  private final Class<?> type;
+
+  /**
+   * Creates a new writer.
+   *
+   * @param type the entity class.
+   */
+  private EntityJsonWriter(final Class<?> type) {
+    List<EntityAttribute> attributes = EntityAttributes.of(type).getAttributes();
+
+    this.type = type;
+    this.attributes = attributes.toArray(new EntityAttribute[attributes.size()]);
+    this.kinds = new int[this.attributes.length];
+    this.names = new String[this.attributes.length];
+    this.nameBytes = new byte[this.attributes.length][];
+
+    boolean translatable = ITranslatableEntity.class.isAssignableFrom(type);
+
+    for (int i = 0; i < this.attributes.length; ++i) {
+      Class<?> attributeType = this.attributes[i].getType();
+      String attributeName = this.attributes[i].getName();
+
+      if (attributeType == boolean.class) {
+        this.kinds[i] = KIND_BOOLEAN;
+      } else if (attributeType == double.class) {
+        this.kinds[i] = KIND_DOUBLE;
+      } else if (attributeType == int.class) {
+        this.kinds[i] = KIND_INT;
+      } else if (attributeType == long.class) {
+        this.kinds[i] = KIND_LONG;
+      } else if (translatable && attributeName.equals("translationLanguageCode")) {
+        this.kinds[i] = KIND_TRANSLATION_LANGUAGE_CODE;
+      } else if (translatable && attributeName.equals("translations")) {
+        this.kinds[i] = KIND_TRANSLATIONS;
+      } else if (translatable && attributeType == String.class
+          && !attributeName.equals("defaultLanguageCode")) {
+        this.kinds[i] = KIND_TRANSLATABLE;
+      } else {
+        this.kinds[i] = KIND_VALUE;
+      }
+
+      // The attribute names are Java identifiers, they never have to be escaped
+      this.names[i] = (i == 0 ? "\"" : ",\"") + attributeName + "\":";
+      this.nameBytes[i] = this.names[i].getBytes(StandardCharsets.UTF_8);
+    }
+  }
+
+  /**
+   * Gets the class of the entity attributes of an entity.
+   *
+   * @param entity the entity.
+   *
+   * @return the class of the entity attributes of the entity, the class of the encoded entities
+   *         for entity cursors and the class of the entities of the table for table rows.
+   */
+  private static Class<?> getEntityClass(final IEntity<?> entity) {
+    if (entity instanceof EntityCursor) {
+      return ((EntityCursor<?>) entity).getEntityClass();
+    } else if (entity instanceof EntityTable.Row) {
+      return ((EntityTable<?>.Row) entity).getEntityClass();
+    }
+
+    return entity.getClass();
+  }
+
+  /**
+   * Gets the value of an attribute of an entity.
+   *
+   * @param entity the entity.
+   * @param typed `true` if the entity is an instance of the entity class, in this case the value is
+   *          read using the precompiled attribute accessor and the JSON metadata are not parsed.
+   * @param attribute the attribute.
+   *
+   * @return the value of the attribute.
+   */
+  private static Object getValue(final IEntity<?> entity, final boolean typed,
+      final EntityAttribute attribute) {
+    return typed ? attribute.getStoredValue(entity) : entity.get(attribute.getName());
+  }
+
+  /**
+   * Gets the writer of an entity class.
+   *
+   * @param type the entity class.
+   *
+   * @return the writer of the entity class.
+   */
+  public static EntityJsonWriter of(final Class<?> type) {
+    return REGISTRY.get(type);
+  }
+
+  /**
+   * Writes an entity into a string.
+   *
+   * @param entity the entity to write.
+   *
+   * @return the JSON representation of the entity.
+   *
+   * @throws IllegalArgumentException if an attribute value of the entity cannot be written.
+   */
+  public String toJson(final IEntity<?> entity) {
+    return this.toJson(entity, null);
+  }
+
+  /**
+   * Writes an entity into a string, translatable entities are written in a language.
+   *
+   * @param entity the entity to write.
+   * @param languageCode the code of the language in which one to write the translatable entities,
+   *          `null` to write the translatable entities as they are.
+   *
+   * @return the JSON representation of the entity.
+   *
+   * @throws IllegalArgumentException if an attribute value of the entity cannot be written.
+   */
+  public String toJson(final IEntity<?> entity, final String languageCode) {
+    StringBuilder sb = new StringBuilder();
+
+    try {
+      this.write(entity, languageCode, sb);
+    } catch (IOException ioex) {
+      // Never happens with a 'StringBuilder'
+      throw new IllegalStateException(ioex);
+    }
+
+    return sb.toString();
+  }
+
+  /**
+   * Writes an entity into an `Appendable`.
+   *
+   * @param entity the entity to write.
+   * @param appendable the `Appendable` to write.
+   *
+   * @throws IOException if the `Appendable` cannot be written.
+   * @throws IllegalArgumentException if an attribute value of the entity cannot be written.
+   */
+  public void write(final IEntity<?> entity, final Appendable appendable) throws IOException {
+    this.write(entity, null, appendable);
+  }
+
+  /**
+   * Writes an entity into a stream using the UTF-8 encoding.
+   *
+   * @param entity the entity to write.
+   * @param stream the stream to write, the stream is not flushed.
+   *
+   * @throws IOException if the stream cannot be written.
+   * @throws IllegalArgumentException if an attribute value of the entity cannot be written.
+   */
+  public void write(final IEntity<?> entity, final OutputStream stream) throws IOException {
+    this.write(entity, null, stream);
+  }
+
+  /**
+   * Writes an entity into an `Appendable`, translatable entities are written in a language.
+   *
+   * @param entity the entity to write.
+   * @param languageCode the code of the language in which one to write the translatable entities,
+   *          `null` to write the translatable entities as they are.
+   * @param appendable the `Appendable` to write.
+   *
+   * @throws IOException if the `Appendable` cannot be written.
+   * @throws IllegalArgumentException if an attribute value of the entity cannot be written.
+   */
+  public void write(final IEntity<?> entity, final String languageCode,
+      final Appendable appendable) throws IOException {
+    this.writeEntity(entity, languageCode, new JsonOutput.OfAppendable(appendable));
+  }
+
+  /**
+   * Writes an entity into a stream using the UTF-8 encoding, translatable entities are written in
+   * a language.
+   *
+   * @param entity the entity to write.
+   * @param languageCode the code of the language in which one to write the translatable entities,
+   *          `null` to write the translatable entities as they are.
+   * @param stream the stream to write, the stream is not flushed.
+   *
+   * @throws IOException if the stream cannot be written.
+   * @throws IllegalArgumentException if an attribute value of the entity cannot be written.
+   */
+  public void write(final IEntity<?> entity, final String languageCode, final OutputStream stream)
+      throws IOException {
+    JsonOutput output = new JsonOutput.OfStream(stream);
+    this.writeEntity(entity, languageCode, output);
+    output.flush();
+  }
+
+  /**
+   * Writes entities as a JSON array into an `Appendable`.
+   *
+   * @param entities the entities to write, the entities can be instances of different entity
+   *          classes.
+   * @param appendable the `Appendable` to write.
+   *
+   * @throws IOException if the `Appendable` cannot be written.
+   * @throws IllegalArgumentException if an attribute value of an entity cannot be written.
+   */
+  public static void writeArray(final Iterable<? extends IEntity<?>> entities,
+      final Appendable appendable) throws IOException {
+    writeArray(entities, null, appendable);
+  }
+
+  /**
+   * Writes entities as a JSON array into a stream using the UTF-8 encoding.
+   *
+   * @param entities the entities to write, the entities can be instances of different entity
+   *          classes.
+   * @param stream the stream to write, the stream is not flushed.
+   *
+   * @throws IOException if the stream cannot be written.
+   * @throws IllegalArgumentException if an attribute value of an entity cannot be written.
+   */
+  public static void writeArray(final Iterable<? extends IEntity<?>> entities,
+      final OutputStream stream) throws IOException {
+    writeArray(entities, null, stream);
+  }
+
+  /**
+   * Writes entities as a JSON array into an `Appendable`, translatable entities are written in a
+   * language.
+   *
+   * @param entities the entities to write, the entities can be instances of different entity
+   *          classes.
+   * @param languageCode the code of the language in which one to write the translatable entities,
+   *          `null` to write the translatable entities as they are.
+   * @param appendable the `Appendable` to write.
+   *
+   * @throws IOException if the `Appendable` cannot be written.
+   * @throws IllegalArgumentException if an attribute value of an entity cannot be written.
+   */
+  public static void writeArray(final Iterable<? extends IEntity<?>> entities,
+      final String languageCode, final Appendable appendable) throws IOException {
+    writeValue(entities, languageCode, new JsonOutput.OfAppendable(appendable), null);
+  }
+
+  /**
+   * Writes entities as a JSON array into a stream using the UTF-8 encoding, translatable entities
+   * are written in a language.
+   *
+   * @param entities the entities to write, the entities can be instances of different entity
+   *          classes.
+   * @param languageCode the code of the language in which one to write the translatable entities,
+   *          `null` to write the translatable entities as they are.
+   * @param stream the stream to write, the stream is not flushed.
+   *
+   * @throws IOException if the stream cannot be written.
+   * @throws IllegalArgumentException if an attribute value of an entity cannot be written.
+   */
+  public static void writeArray(final Iterable<? extends IEntity<?>> entities,
+      final String languageCode, final OutputStream stream) throws IOException {
+    JsonOutput output = new JsonOutput.OfStream(stream);
+    writeValue(entities, languageCode, output, null);
+    output.flush();
+  }
+
+  /**
+   * Writes a `double` value.
+   *
+   * @param value the value to write.
+   * @param output the output to write.
+   * @param attributeName the name of the attribute which holds the value, used in error messages.
+   *
+   * @throws IOException if the value cannot be written.
+   * @throws IllegalArgumentException if the value is not finite.
+   */
+  private static void writeDouble(final double value, final JsonOutput output,
+      final String attributeName) throws IOException {
+    if (Double.isNaN(value) || Double.isInfinite(value)) {
+      throw new IllegalArgumentException(
+          "Cannot write non finite value of property '" + attributeName + "' !");
+    }
+
+    output.writeUnescaped(Double.toString(value));
+  }
+
+  /**
+   * Writes an entity.
+   *
+   * @param entity the entity to write.
+   * @param languageCode the code of the language in which one to write the translatable entities,
+   *          `null` to write the translatable entities as they are.
+   * @param output the output to write.
+   *
+   * @throws IOException if the entity cannot be written.
+   */
+  private void writeEntity(final IEntity<?> entity, final String languageCode,
+      final JsonOutput output) throws IOException {
+    // The entities of other classes are read using their generic getters
+    boolean typed = this.type.isInstance(entity);
+
+    // The translated values are read from the stored translations, the entity is never modified
+    boolean translated = languageCode != null && entity instanceof ITranslatableEntity;
+    String translationLanguageCode = null;
+    Map<String, String> attributeTranslations = null;
+
+    if (translated) {
+      ITranslatableEntity<?> translatableEntity = (ITranslatableEntity<?>) entity;
+      String currentLanguageCode = translatableEntity.getTranslationLanguageCode() != null
+          ? translatableEntity.getTranslationLanguageCode()
+          : translatableEntity.getDefaultLanguageCode();
+
+      // Without translation in the requested language the attribute values are written, they are
+      // labeled with the language in which one they are
+      translationLanguageCode = translatableEntity.getTranslationLanguageCode();
+
+      if (languageCode.equals(currentLanguageCode)) {
+        translationLanguageCode = languageCode;
+      } else if (translatableEntity.getTranslations() != null) {
+        ITranslation translation = translatableEntity.getTranslations().get(languageCode);
+
+        if (translation != null) {
+          translationLanguageCode = languageCode;
+          attributeTranslations = translation.getAttributeTranslations();
+        }
+      }
+
+      if (languageCode.equals(translatableEntity.getDefaultLanguageCode())) {
+        translationLanguageCode = null;
+      }
+    }
+
+    output.write('{');
+
+    for (int i = 0; i < this.attributes.length; ++i) {
+      EntityAttribute attribute = this.attributes[i];
+      output.writeRaw(this.names[i], this.nameBytes[i]);
+
+      switch (this.kinds[i]) {
+        case KIND_BOOLEAN:
+          output.writeUnescaped(String.valueOf(typed ? attribute.getBoolean(entity)
+              : entity.getBoolean(attribute.getName())));
+          break;
+        case KIND_DOUBLE:
+          writeDouble(typed ? attribute.getDouble(entity) : entity.getDouble(attribute.getName()),
+              output, attribute.getName());
+          break;
+        case KIND_INT:
+          writeLong(typed ? attribute.getInt(entity) : entity.getInt(attribute.getName()), output,
+              attribute.isZeroNull());
+          break;
+        case KIND_LONG:
+          writeLong(typed ? attribute.getLong(entity) : entity.getLong(attribute.getName()), output,
+              attribute.isZeroNull());
+          break;
+        case KIND_TRANSLATABLE:
+          writeValue(attributeTranslations != null
+              && attributeTranslations.containsKey(attribute.getName())
+                  ? attributeTranslations.get(attribute.getName())
+                  : getValue(entity, typed, attribute),
+              languageCode, output, attribute.getName());
+          break;
+        case KIND_TRANSLATION_LANGUAGE_CODE:
+          writeValue(translated ? translationLanguageCode : getValue(entity, typed, attribute),
+              languageCode, output, attribute.getName());
+          break;
+        case KIND_TRANSLATIONS:
+          writeValue(translated ? null : getValue(entity, typed, attribute), languageCode, output,
+              attribute.getName());
+          break;
+        default:
+          writeValue(getValue(entity, typed, attribute), languageCode, output, attribute.getName());
+          break;
+      }
+    }
+
+    output.write('}');
+  }
+
+  /**
+   * Writes a `long` value.
+   *
+   * @param value the value to write.
+   * @param output the output to write.
+   * @param zeroIsNull `true` if `0` means that the attribute which holds the value has no value,
+   *          `0` is then written as `null`.
+   *
+   * @throws IOException if the value cannot be written.
+   */
+  private static void writeLong(final long value, final JsonOutput output,
+      final boolean zeroIsNull) throws IOException {
+    if (value == 0L && zeroIsNull) {
+      output.writeUnescaped("null");
+    } else {
+      output.writeLong(value);
+    }
+  }
+
+  /**
+   * Writes any supported value.
+   *
+   * @param value the value to write.
+   * @param languageCode the code of the language in which one to write the translatable entities,
+   *          `null` to write the translatable entities as they are.
+   * @param output the output to write.
+   * @param attributeName the name of the attribute which holds the value, used in error messages.
+   *
+   * @throws IOException if the value cannot be written.
+   * @throws IllegalArgumentException if the value cannot be written.
+   */
+  private static void writeValue(final Object value, final String languageCode,
+      final JsonOutput output, final String attributeName) throws IOException {
+    if (value == null || value == JSONObject.NULL) {
+      output.writeUnescaped("null");
+    } else if (value instanceof String) {
+      output.writeString((String) value);
+    } else if (value instanceof Integer || value instanceof Long || value instanceof Short
+        || value instanceof Byte) {
+      output.writeLong(((Number) value).longValue());
+    } else if (value instanceof Double || value instanceof Float) {
+      writeDouble(((Number) value).doubleValue(), output, attributeName);
+    } else if (value instanceof BigDecimal || value instanceof BigInteger) {
+      output.writeUnescaped(value.toString());
+    } else if (value instanceof Boolean) {
+      output.writeUnescaped(value.toString());
+    } else if (value instanceof Date) {
+      output.writeDate(((Date) value).getTime());
+    } else if (value instanceof Enum) {
+      output.writeString(((Enum<?>) value).name());
+    } else if (value instanceof Character) {
+      output.writeString(value.toString());
+    } else if (value instanceof JSONObject || value instanceof JSONArray) {
+      output.writeUnescaped(value.toString());
+    } else if (value instanceof JsonMetadata) {
+      JsonMetadata metadata = (JsonMetadata) value;
+
+      if (metadata.isParsed()) {
+        output.writeUnescaped(metadata.getJSONObject().toString());
+      } else {
+        output.writeUtf8(metadata.getByteBuffer());
+      }
+    } else if (value instanceof ITranslation) {
+      writeValue(((ITranslation) value).getAttributeTranslations(), languageCode, output,
+          attributeName);
+    } else if (value instanceof IEntity) {
+      IEntity<?> entity = (IEntity<?>) value;
+      of(getEntityClass(entity)).writeEntity(entity, languageCode, output);
+    } else if (value instanceof Map) {
+      boolean first = true;
+      output.write('{');
+
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+        if (!first) {
+          output.write(',');
+        }
+
+        output.writeString(String.valueOf(entry.getKey()));
+        output.write(':');
+        writeValue(entry.getValue(), languageCode, output, attributeName);
+        first = false;
+      }
+
+      output.write('}');
+    } else if (value instanceof Iterable) {
+      boolean first = true;
+      output.write('[');
+
+      for (Object element : (Iterable<?>) value) {
+        if (!first) {
+          output.write(',');
+        }
+
+        writeValue(element, languageCode, output, attributeName);
+        first = false;
+      }
+
+      output.write(']');
+    } else if (value instanceof Object[]) {
+      Object[] array = (Object[]) value;
+      output.write('[');
+
+      for (int i = 0; i < array.length; ++i) {
+        if (i > 0) {
+          output.write(',');
+        }
+
+        writeValue(array[i], languageCode, output, attributeName);
+      }
+
+      output.write(']');
+    } else {
+      throw new IllegalArgumentException("Cannot write value of property '" + attributeName
+          + "' of type '" + value.getClass().getName() + "' !");
+    }
+  }
+}
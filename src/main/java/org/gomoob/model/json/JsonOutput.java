@@ -0,0 +1,417 @@
+/**
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2017, GOMOOB All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided with
+ * the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.gomoob.model.json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * Destination of the characters written by an {@link EntityJsonWriter}.
+ *
+ * @author GOMOOB SARL (contact@gomoob.com)
+ */
+abstract class JsonOutput {
+
+  /**
+   * The hexadecimal digits used to escape control characters.
+   */
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+  /**
+   * Output which writes into an `Appendable`.
+   *
+   * @author GOMOOB SARL (contact@gomoob.com)
+   */
+  static final class OfAppendable extends JsonOutput {
+
+    /**
+     * The `Appendable` to write.
+     */
+    private final Appendable appendable;
+
+    /**
+     * Creates a new output.
+     *
+     * @param appendable the `Appendable` to write.
+     */
+    OfAppendable(final Appendable appendable) {
+      this.appendable = appendable;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    void write(final char c) throws IOException {
+      this.appendable.append(c);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    void writeRaw(final String string, final byte[] utf8Bytes) throws IOException {
+      this.appendable.append(string);
+    }
+  }
+
+  /**
+   * Output which writes UTF-8 bytes into an output stream, the bytes are buffered until `flush()`
+   * is called.
+   *
+   * @author GOMOOB SARL (contact@gomoob.com)
+   */
+  static final class OfStream extends JsonOutput {
+
+    /**
+     * The buffered bytes.
+     */
+    private final byte[] buffer = new byte[8192];
+
+    /**
+     * The number of buffered bytes.
+     */
+    private int size;
+
+    /**
+     * The stream to write.
+     */
+    private final OutputStream stream;
+
+    /**
+     * A high surrogate waiting for its low surrogate, `0` if no high surrogate is waiting.
+     */
+    private char highSurrogate;
+
+    /**
+     * Creates a new output.
+     *
+     * @param stream the stream to write.
+     */
+    OfStream(final OutputStream stream) {
+      this.stream = stream;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    void flush() throws IOException {
+      this.stream.write(this.buffer, 0, this.size);
+      this.size = 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    void write(final char c) throws IOException {
+      if (this.size + 5 > this.buffer.length) {
+        this.flush();
+      }
+
+      // Unpaired surrogates are replaced by '?' like 'String.getBytes()' does
+      if (this.highSurrogate != 0 && !Character.isLowSurrogate(c)) {
+        this.highSurrogate = 0;
+        this.buffer[this.size++] = '?';
+      }
+
+      if (c < 0x80) {
+        this.buffer[this.size++] = (byte) c;
+      } else if (c < 0x800) {
+        this.buffer[this.size++] = (byte) (0xC0 | (c >>> 6));
+        this.buffer[this.size++] = (byte) (0x80 | (c & 0x3F));
+      } else if (Character.isHighSurrogate(c)) {
+        this.highSurrogate = c;
+      } else if (Character.isLowSurrogate(c) && this.highSurrogate != 0) {
+        int codePoint = Character.toCodePoint(this.highSurrogate, c);
+        this.highSurrogate = 0;
+        this.buffer[this.size++] = (byte) (0xF0 | (codePoint >>> 18));
+        this.buffer[this.size++] = (byte) (0x80 | ((codePoint >>> 12) & 0x3F));
+        this.buffer[this.size++] = (byte) (0x80 | ((codePoint >>> 6) & 0x3F));
+        this.buffer[this.size++] = (byte) (0x80 | (codePoint & 0x3F));
+      } else if (Character.isLowSurrogate(c)) {
+        this.buffer[this.size++] = '?';
+      } else {
+        this.buffer[this.size++] = (byte) (0xE0 | (c >>> 12));
+        this.buffer[this.size++] = (byte) (0x80 | ((c >>> 6) & 0x3F));
+        this.buffer[this.size++] = (byte) (0x80 | (c & 0x3F));
+      }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    void writeRaw(final String string, final byte[] utf8Bytes) throws IOException {
+      if (this.size + utf8Bytes.length > this.buffer.length) {
+        this.flush();
+
+        if (utf8Bytes.length > this.buffer.length) {
+          this.stream.write(utf8Bytes);
+          return;
+        }
+      }
+
+      System.arraycopy(utf8Bytes, 0, this.buffer, this.size, utf8Bytes.length);
+      this.size += utf8Bytes.length;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    void writeUtf8(final ByteBuffer utf8Bytes) throws IOException {
+      // The bytes are copied without being decoded
+      while (utf8Bytes.hasRemaining()) {
+        if (this.size == this.buffer.length) {
+          this.flush();
+        }
+
+        int length = Math.min(utf8Bytes.remaining(), this.buffer.length - this.size);
+        utf8Bytes.get(this.buffer, this.size, length);
+        this.size += length;
+      }
+    }
+  }
+
+  /**
+   * Writes the buffered characters to the underlying destination, the default implementation does
+   * nothing.
+   *
+   * @throws IOException if the characters cannot be written.
+   */
+  void flush() throws IOException {
+    // Nothing to do
+  }
+
+  /**
+   * Writes one character.
+   *
+   * @param c the character to write.
+   *
+   * @throws IOException if the character cannot be written.
+   */
+  abstract void write(char c) throws IOException;
+
+  /**
+   * Writes a date as an ISO 8601 string in the UTC time zone with milliseconds, for example
+   * `"2017-10-21T09:15:00.000Z"`.
+   *
+   * @param millis the number of milliseconds since the epoch.
+   *
+   * @throws IOException if the date cannot be written.
+   */
+  void writeDate(final long millis) throws IOException {
+    long epochDay = Math.floorDiv(millis, 86400000L);
+    int millisOfDay = (int) Math.floorMod(millis, 86400000L);
+
+    // Converts the epoch day to a year, a month and a day of month, see
+    // 'http://howardhinnant.github.io/date_algorithms.html#civil_from_days'
+    long z = epochDay + 719468;
+    long era = Math.floorDiv(z, 146097);
+    long dayOfEra = z - era * 146097;
+    long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+    long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+    long shiftedMonth = (5 * dayOfYear + 2) / 153;
+    int day = (int) (dayOfYear - (153 * shiftedMonth + 2) / 5 + 1);
+    int month = (int) (shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9);
+    long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+    // Years which cannot be written using 4 digits use the format of 'Instant'
+    if (year < 0 || year > 9999) {
+      this.writeString(Instant.ofEpochMilli(millis).toString());
+      return;
+    }
+
+    this.write('"');
+    this.writeDigits((int) year, 4);
+    this.write('-');
+    this.writeDigits(month, 2);
+    this.write('-');
+    this.writeDigits(day, 2);
+    this.write('T');
+    this.writeDigits(millisOfDay / 3600000, 2);
+    this.write(':');
+    this.writeDigits(millisOfDay / 60000 % 60, 2);
+    this.write(':');
+    this.writeDigits(millisOfDay / 1000 % 60, 2);
+    this.write('.');
+    this.writeDigits(millisOfDay % 1000, 3);
+    this.write('Z');
+    this.write('"');
+  }
+
+  /**
+   * Writes a positive number using a fixed number of digits.
+   *
+   * @param value the number to write.
+   * @param digits the number of digits to write.
+   *
+   * @throws IOException if the number cannot be written.
+   */
+  private void writeDigits(final int value, final int digits) throws IOException {
+    int divisor = 1;
+
+    for (int i = 1; i < digits; ++i) {
+      divisor *= 10;
+    }
+
+    for (; divisor > 0; divisor /= 10) {
+      this.write((char) ('0' + value / divisor % 10));
+    }
+  }
+
+  /**
+   * Writes a `long` number.
+   *
+   * @param value the number to write.
+   *
+   * @throws IOException if the number cannot be written.
+   */
+  void writeLong(final long value) throws IOException {
+    if (value == Long.MIN_VALUE) {
+      this.writeUnescaped("-9223372036854775808");
+      return;
+    }
+
+    long remaining = value;
+
+    if (remaining < 0) {
+      this.write('-');
+      remaining = -remaining;
+    }
+
+    long divisor = 1;
+
+    while (divisor <= remaining / 10) {
+      divisor *= 10;
+    }
+
+    for (; divisor > 0; divisor /= 10) {
+      this.write((char) ('0' + remaining / divisor % 10));
+    }
+  }
+
+  /**
+   * Writes characters which have been converted to UTF-8 bytes in advance, for example the
+   * precomputed attribute names.
+   *
+   * @param string the characters to write.
+   * @param utf8Bytes the UTF-8 bytes of the characters to write.
+   *
+   * @throws IOException if the characters cannot be written.
+   */
+  abstract void writeRaw(String string, byte[] utf8Bytes) throws IOException;
+
+  /**
+   * Writes a JSON string, the characters which cannot be written as is are escaped.
+   *
+   * @param string the string to write.
+   *
+   * @throws IOException if the string cannot be written.
+   */
+  void writeString(final String string) throws IOException {
+    this.write('"');
+
+    for (int i = 0; i < string.length(); ++i) {
+      char c = string.charAt(i);
+
+      switch (c) {
+        case '"':
+        case '\\':
+          this.write('\\');
+          this.write(c);
+          break;
+        case '\b':
+          this.write('\\');
+          this.write('b');
+          break;
+        case '\f':
+          this.write('\\');
+          this.write('f');
+          break;
+        case '\n':
+          this.write('\\');
+          this.write('n');
+          break;
+        case '\r':
+          this.write('\\');
+          this.write('r');
+          break;
+        case '\t':
+          this.write('\\');
+          this.write('t');
+          break;
+        default:
+          if (c < 0x20 || c == 0x2028 || c == 0x2029) {
+            this.write('\\');
+            this.write('u');
+            this.write(HEX_DIGITS[c >>> 12]);
+            this.write(HEX_DIGITS[(c >>> 8) & 0xF]);
+            this.write(HEX_DIGITS[(c >>> 4) & 0xF]);
+            this.write(HEX_DIGITS[c & 0xF]);
+          } else {
+            this.write(c);
+          }
+          break;
+      }
+    }
+
+    this.write('"');
+  }
+
+  /**
+   * Writes the characters of a string without escaping them, for example numbers or JSON texts.
+   *
+   * @param string the string to write.
+   *
+   * @throws IOException if the string cannot be written.
+   */
+  void writeUnescaped(final String string) throws IOException {
+    for (int i = 0; i < string.length(); ++i) {
+      this.write(string.charAt(i));
+    }
+  }
+
+  /**
+   * Writes UTF-8 bytes as is, for example the raw bytes of JSON metadata.
+   *
+   * @param utf8Bytes the UTF-8 bytes to write, the remaining bytes of the buffer are written and
+   *          the position of the buffer is moved to its limit.
+   *
+   * @throws IOException if the bytes cannot be written.
+   */
+  void writeUtf8(final ByteBuffer utf8Bytes) throws IOException {
+    this.writeUnescaped(StandardCharsets.UTF_8.decode(utf8Bytes).toString());
+  }
+}
@@ -0,0 +1,684 @@
+/**
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2017, GOMOOB All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided with
+ * the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.gomoob.model.json;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Pull parser used to read JSON documents token by token without building trees.
+ *
+ * <p>
+ * The parser reads its characters by blocks and keeps only the current token in memory, so large
+ * documents can be read with a constant memory usage. Malformed documents are reported using
+ * `IOException`s which indicate the offset of the error.
+ * </p>
+ *
+ * @author GOMOOB SARL (contact@gomoob.com)
+ */
+final class JsonParser {
+
+  /**
+   * Token which indicates the beginning of an array.
+   */
+  static final int BEGIN_ARRAY = 1;
+
+  /**
+   * Token which indicates the end of an array.
+   */
+  static final int END_ARRAY = 2;
+
+  /**
+   * Token which indicates the beginning of an object.
+   */
+  static final int BEGIN_OBJECT = 3;
+
+  /**
+   * Token which indicates the end of an object.
+   */
+  static final int END_OBJECT = 4;
+
+  /**
+   * Token which indicates the name of an object property.
+   */
+  static final int NAME = 5;
+
+  /**
+   * Token which indicates a string.
+   */
+  static final int STRING = 6;
+
+  /**
+   * Token which indicates a number.
+   */
+  static final int NUMBER = 7;
+
+  /**
+   * Token which indicates the `true` literal.
+   */
+  static final int TRUE = 8;
+
+  /**
+   * Token which indicates the `false` literal.
+   */
+  static final int FALSE = 9;
+
+  /**
+   * Token which indicates the `null` literal.
+   */
+  static final int NULL = 10;
+
+  /**
+   * Token which indicates the end of the document.
+   */
+  static final int END_DOCUMENT = 11;
+
+  /**
+   * Value of `peeked` when no token has been peeked.
+   */
+  private static final int NONE = 0;
+
+  /**
+   * Names of the tokens used in error messages, indexed by token.
+   */
+  private static final String[] TOKEN_NAMES = {"NONE", "BEGIN_ARRAY", "END_ARRAY", "BEGIN_OBJECT",
+      "END_OBJECT", "NAME", "STRING", "NUMBER", "TRUE", "FALSE", "NULL", "END_DOCUMENT"};
+
+  /**
+   * State of an array without any element.
+   */
+  private static final int EMPTY_ARRAY = 0;
+
+  /**
+   * State of an array having at least one element.
+   */
+  private static final int NONEMPTY_ARRAY = 1;
+
+  /**
+   * State of an object without any property.
+   */
+  private static final int EMPTY_OBJECT = 2;
+
+  /**
+   * State of an object having at least one property.
+   */
+  private static final int NONEMPTY_OBJECT = 3;
+
+  /**
+   * State of an object when the name of a property has been read and its value has not.
+   */
+  private static final int DANGLING_NAME = 4;
+
+  /**
+   * State of the document before its value has been read.
+   */
+  private static final int EMPTY_DOCUMENT = 5;
+
+  /**
+   * State of the document after its value has been read.
+   */
+  private static final int NONEMPTY_DOCUMENT = 6;
+
+  /**
+   * The characters read from the reader.
+   */
+  private final char[] buffer = new char[8192];
+
+  /**
+   * The offset in the document of the first character of `buffer`.
+   */
+  private long bufferOffset;
+
+  /**
+   * The number of characters in `buffer`.
+   */
+  private int limit;
+
+  /**
+   * The token which has been peeked, `NONE` if no token has been peeked.
+   */
+  private int peeked = NONE;
+
+  /**
+   * The position of the next character to read in `buffer`.
+   */
+  private int position;
+
+  /**
+   * The reader to read.
+   */
+  private final Reader reader;
+
+  /**
+   * The states of the arrays and objects being read, the first state is the state of the document.
+   */
+  private int[] stack = new int[32];
+
+  /**
+   * The number of states in `stack`.
+   */
+  private int stackSize;
+
+  /**
+   * Builder used to read the tokens which are split across several blocks of characters or which
+   * contain escape sequences.
+   */
+  private final StringBuilder builder = new StringBuilder();
+
+  /**
+   * Creates a new parser.
+   *
+   * @param reader the reader to read, the reader does not need to be buffered.
+   */
+  JsonParser(final Reader reader) {
+    this.reader = reader;
+    this.stack[this.stackSize++] = EMPTY_DOCUMENT;
+  }
+
+  /**
+   * Consumes the beginning of an array.
+   *
+   * @throws IOException if the next token is not the beginning of an array.
+   */
+  void beginArray() throws IOException {
+    this.expect(BEGIN_ARRAY);
+    this.push(EMPTY_ARRAY);
+  }
+
+  /**
+   * Consumes the beginning of an object.
+   *
+   * @throws IOException if the next token is not the beginning of an object.
+   */
+  void beginObject() throws IOException {
+    this.expect(BEGIN_OBJECT);
+    this.push(EMPTY_OBJECT);
+  }
+
+  /**
+   * Consumes the end of an array.
+   *
+   * @throws IOException if the next token is not the end of an array.
+   */
+  void endArray() throws IOException {
+    this.expect(END_ARRAY);
+    this.stackSize--;
+  }
+
+  /**
+   * Consumes the end of an object.
+   *
+   * @throws IOException if the next token is not the end of an object.
+   */
+  void endObject() throws IOException {
+    this.expect(END_OBJECT);
+    this.stackSize--;
+  }
+
+  /**
+   * Creates an exception which reports a syntax error at the current offset.
+   *
+   * @param message the description of the error.
+   *
+   * @return the created exception.
+   */
+  IOException error(final String message) {
+    return new IOException(
+        "Invalid JSON at offset " + (this.bufferOffset + this.position) + ", " + message + " !");
+  }
+
+  /**
+   * Consumes the peeked token.
+   *
+   * @param token the expected token.
+   *
+   * @throws IOException if the next token is not the expected token.
+   */
+  private void expect(final int token) throws IOException {
+    int next = this.peek();
+
+    if (next != token) {
+      throw this.error("expected " + TOKEN_NAMES[token] + " but was " + TOKEN_NAMES[next]);
+    }
+
+    this.peeked = NONE;
+  }
+
+  /**
+   * Makes sure that characters are available in `buffer`.
+   *
+   * @return `true` if at least one character is available, `false` if the end of the document has
+   *         been reached.
+   *
+   * @throws IOException if the reader cannot be read.
+   */
+  private boolean fill() throws IOException {
+    if (this.position < this.limit) {
+      return true;
+    }
+
+    this.bufferOffset += this.limit;
+    this.position = 0;
+    this.limit = 0;
+
+    int count = 0;
+    while ((count = this.reader.read(this.buffer)) == 0) {
+      // A reader may return 0 characters, try again
+    }
+
+    if (count == -1) {
+      return false;
+    }
+
+    this.limit = count;
+
+    return true;
+  }
+
+  /**
+   * Indicates if the current array or object has another element.
+   *
+   * @return `true` if the current array or object has another element, `false` otherwise.
+   *
+   * @throws IOException if the next token cannot be read.
+   */
+  boolean hasNext() throws IOException {
+    int next = this.peek();
+
+    return next != END_ARRAY && next != END_OBJECT && next != END_DOCUMENT;
+  }
+
+  /**
+   * Consumes a `true` or `false` literal.
+   *
+   * @return the value of the literal.
+   *
+   * @throws IOException if the next token is not a boolean.
+   */
+  boolean nextBoolean() throws IOException {
+    if (this.peek() == TRUE) {
+      this.peeked = NONE;
+      return true;
+    }
+
+    this.expect(FALSE);
+
+    return false;
+  }
+
+  /**
+   * Reads the next non whitespace character.
+   *
+   * @return the next non whitespace character, `-1` if the end of the document has been reached.
+   *
+   * @throws IOException if the reader cannot be read.
+   */
+  private int nextCharacter() throws IOException {
+    while (this.fill()) {
+      char c = this.buffer[this.position++];
+
+      if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+        return c;
+      }
+    }
+
+    return -1;
+  }
+
+  /**
+   * Consumes the name of an object property.
+   *
+   * @return the name of the property.
+   *
+   * @throws IOException if the next token is not a property name.
+   */
+  String nextName() throws IOException {
+    this.expect(NAME);
+
+    return this.readString();
+  }
+
+  /**
+   * Consumes a `null` literal.
+   *
+   * @throws IOException if the next token is not `null`.
+   */
+  void nextNull() throws IOException {
+    this.expect(NULL);
+  }
+
+  /**
+   * Consumes a number.
+   *
+   * @return the text of the number.
+   *
+   * @throws IOException if the next token is not a number.
+   */
+  String nextNumber() throws IOException {
+    this.expect(NUMBER);
+    this.builder.setLength(0);
+
+    while (this.fill()) {
+      char c = this.buffer[this.position];
+
+      if ((c < '0' || c > '9') && c != '-' && c != '+' && c != '.' && c != 'e' && c != 'E') {
+        break;
+      }
+
+      this.builder.append(c);
+      this.position++;
+    }
+
+    return this.builder.toString();
+  }
+
+  /**
+   * Consumes a string.
+   *
+   * @return the string.
+   *
+   * @throws IOException if the next token is not a string.
+   */
+  String nextString() throws IOException {
+    this.expect(STRING);
+
+    return this.readString();
+  }
+
+  /**
+   * Gets the type of the next token without consuming it.
+   *
+   * @return the type of the next token.
+   *
+   * @throws IOException if the next token cannot be read or is invalid.
+   */
+  int peek() throws IOException {
+    if (this.peeked != NONE) {
+      return this.peeked;
+    }
+
+    int c;
+
+    switch (this.stack[this.stackSize - 1]) {
+      case EMPTY_ARRAY:
+        this.stack[this.stackSize - 1] = NONEMPTY_ARRAY;
+        c = this.nextCharacter();
+
+        if (c == ']') {
+          return this.peeked = END_ARRAY;
+        }
+
+        return this.peekValue(c);
+      case NONEMPTY_ARRAY:
+        c = this.nextCharacter();
+
+        if (c == ']') {
+          return this.peeked = END_ARRAY;
+        } else if (c != ',') {
+          throw this.error("expected ',' or ']'");
+        }
+
+        return this.peekValue(this.nextCharacter());
+      case EMPTY_OBJECT:
+      case NONEMPTY_OBJECT:
+        c = this.nextCharacter();
+
+        if (c == '}') {
+          return this.peeked = END_OBJECT;
+        } else if (this.stack[this.stackSize - 1] == NONEMPTY_OBJECT) {
+          if (c != ',') {
+            throw this.error("expected ',' or '}'");
+          }
+
+          c = this.nextCharacter();
+        }
+
+        if (c != '"') {
+          throw this.error("expected a property name");
+        }
+
+        this.stack[this.stackSize - 1] = DANGLING_NAME;
+
+        return this.peeked = NAME;
+      case DANGLING_NAME:
+        this.stack[this.stackSize - 1] = NONEMPTY_OBJECT;
+
+        if (this.nextCharacter() != ':') {
+          throw this.error("expected ':'");
+        }
+
+        return this.peekValue(this.nextCharacter());
+      case EMPTY_DOCUMENT:
+        this.stack[this.stackSize - 1] = NONEMPTY_DOCUMENT;
+
+        return this.peekValue(this.nextCharacter());
+      default:
+        if (this.nextCharacter() != -1) {
+          throw this.error("expected the end of the document");
+        }
+
+        return this.peeked = END_DOCUMENT;
+    }
+  }
+
+  /**
+   * Peeks a literal, the first character of the literal has already been read.
+   *
+   * @param literal the literal to read.
+   * @param token the token of the literal.
+   *
+   * @return the token of the literal.
+   *
+   * @throws IOException if the next characters are not the literal.
+   */
+  private int peekLiteral(final String literal, final int token) throws IOException {
+    for (int i = 1; i < literal.length(); ++i) {
+      if (!this.fill() || this.buffer[this.position++] != literal.charAt(i)) {
+        throw this.error("expected '" + literal + "'");
+      }
+    }
+
+    return this.peeked = token;
+  }
+
+  /**
+   * Peeks a value.
+   *
+   * @param c the first character of the value.
+   *
+   * @return the token of the value.
+   *
+   * @throws IOException if the value is invalid.
+   */
+  private int peekValue(final int c) throws IOException {
+    switch (c) {
+      case '{':
+        return this.peeked = BEGIN_OBJECT;
+      case '[':
+        return this.peeked = BEGIN_ARRAY;
+      case '"':
+        return this.peeked = STRING;
+      case 't':
+        return this.peekLiteral("true", TRUE);
+      case 'f':
+        return this.peekLiteral("false", FALSE);
+      case 'n':
+        return this.peekLiteral("null", NULL);
+      default:
+        if (c == '-' || c >= '0' && c <= '9') {
+          // The number is read when it is consumed
+          this.position--;
+          return this.peeked = NUMBER;
+        }
+
+        throw this.error(c == -1 ? "unexpected end of document" : "expected a value");
+    }
+  }
+
+  /**
+   * Pushes the state of a new array or object.
+   *
+   * @param state the state to push.
+   */
+  private void push(final int state) {
+    if (this.stackSize == this.stack.length) {
+      this.stack = Arrays.copyOf(this.stack, this.stackSize << 1);
+    }
+
+    this.stack[this.stackSize++] = state;
+  }
+
+  /**
+   * Reads a string, the opening quote has already been read.
+   *
+   * @return the string.
+   *
+   * @throws IOException if the string is invalid.
+   */
+  private String readString() throws IOException {
+    // Strings without escape sequences which are not split across blocks are read directly
+    for (int i = this.position; i < this.limit; ++i) {
+      char c = this.buffer[i];
+
+      if (c == '"') {
+        String string = new String(this.buffer, this.position, i - this.position);
+        this.position = i + 1;
+
+        return string;
+      } else if (c == '\\') {
+        break;
+      }
+    }
+
+    this.builder.setLength(0);
+
+    while (this.fill()) {
+      char c = this.buffer[this.position++];
+
+      if (c == '"') {
+        return this.builder.toString();
+      } else if (c != '\\') {
+        this.builder.append(c);
+        continue;
+      }
+
+      if (!this.fill()) {
+        break;
+      }
+
+      c = this.buffer[this.position++];
+
+      switch (c) {
+        case 'b':
+          this.builder.append('\b');
+          break;
+        case 'f':
+          this.builder.append('\f');
+          break;
+        case 'n':
+          this.builder.append('\n');
+          break;
+        case 'r':
+          this.builder.append('\r');
+          break;
+        case 't':
+          this.builder.append('\t');
+          break;
+        case 'u': {
+          int value = 0;
+
+          for (int i = 0; i < 4; ++i) {
+            int digit = this.fill() ? Character.digit(this.buffer[this.position++], 16) : -1;
+
+            if (digit == -1) {
+              throw this.error("invalid unicode escape sequence");
+            }
+
+            value = (value << 4) | digit;
+          }
+
+          this.builder.append((char) value);
+          break;
+        }
+        default:
+          // '"', '\' and '/'
+          this.builder.append(c);
+          break;
+      }
+    }
+
+    throw this.error("unterminated string");
+  }
+
+  /**
+   * Skips the next value, including all the elements of the arrays and objects.
+   *
+   * @throws IOException if the value is invalid.
+   */
+  void skipValue() throws IOException {
+    int depth = 0;
+
+    do {
+      switch (this.peek()) {
+        case BEGIN_ARRAY:
+          this.beginArray();
+          depth++;
+          break;
+        case BEGIN_OBJECT:
+          this.beginObject();
+          depth++;
+          break;
+        case END_ARRAY:
+          this.endArray();
+          depth--;
+          break;
+        case END_OBJECT:
+          this.endObject();
+          depth--;
+          break;
+        case NAME:
+          this.nextName();
+          break;
+        case STRING:
+          this.nextString();
+          break;
+        case NUMBER:
+          this.nextNumber();
+          break;
+        case END_DOCUMENT:
+          throw this.error("unexpected end of document");
+        default:
+          // Literals
+          this.peeked = NONE;
+          break;
+      }
+    } while (depth > 0);
+  }
+}
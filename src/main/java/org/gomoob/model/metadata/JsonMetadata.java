@@ -0,0 +1,317 @@
+/**
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2017, GOMOOB All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided with
+ * the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.gomoob.model.metadata;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.json.JSONObject;
+
+/**
+ * Lazy holder of the JSON metadata attached to actions and states.
+ *
+ * <p>
+ * The metadata are kept as the raw UTF-8 bytes of a JSON object and are parsed into a `JSONObject`
+ * only when {@link #getJSONObject()} is called for the first time. Until then, the codecs and the
+ * JSON readers and writers copy the raw bytes as is, so entities whose metadata are never read can
+ * be ingested and written again without building any `JSONObject` tree.
+ * </p>
+ * <p>
+ * The metadata can also be read as immutable {@link Metadata} using {@link #getMetadataView()},
+ * the raw bytes are then replaced by the compact metadata, which are shared without being copied.
+ * Once parsed into a `JSONObject`, the `JSONObject` becomes the value of the metadata and can be
+ * modified, the raw bytes or the compact metadata are released and are computed again from the
+ * `JSONObject` when they are requested. The metadata are parsed only once even if several threads
+ * read them at the same time.
+ * </p>
+ * <p>
+ * The raw bytes and the immutable metadata are interned when a default {@link MetadataPool} is
+ * installed, so equal metadata attached to many entities are kept in memory only once.
+ * </p>
+ *
+ * @author GOMOOB SARL (contact@gomoob.com)
+ */
+public final class JsonMetadata {
+
+  /**
+   * The raw UTF-8 bytes of the JSON object, `null` once the metadata have been parsed.
+   */
+  private byte[] bytes;
+
+  /**
+   * The parsed JSON object, `null` until the metadata have been parsed into a JSON object.
+   */
+  private volatile JSONObject jsonObject;
+
+  /**
+   * The immutable metadata, `null` if the metadata are held as raw bytes or as a JSON object.
+   */
+  private volatile Metadata view;
+
+  /**
+   * Creates new metadata from the raw UTF-8 bytes of a JSON object.
+   *
+   * @param bytes the UTF-8 bytes of a JSON object, the array is not copied and must not be modified
+   *          after the call, the bytes are only validated when the metadata are parsed.
+   *
+   * @throws IllegalArgumentException if `bytes` is `null`.
+   */
+  public JsonMetadata(final byte[] bytes) {
+    if (bytes == null) {
+      throw new IllegalArgumentException("The bytes of JSON metadata must not be null !");
+    }
+
+    // Equal metadata share the same bytes when a default pool is installed
+    MetadataPool pool = MetadataPool.getDefault();
+    this.bytes = pool == null ? bytes : pool.intern(bytes);
+  }
+
+  /**
+   * Creates new metadata from a JSON object.
+   *
+   * @param jsonObject the JSON object, the JSON object is not copied.
+   *
+   * @throws IllegalArgumentException if `jsonObject` is `null`.
+   */
+  public JsonMetadata(final JSONObject jsonObject) {
+    if (jsonObject == null) {
+      throw new IllegalArgumentException("The JSON object of JSON metadata must not be null !");
+    }
+
+    this.jsonObject = jsonObject;
+  }
+
+  /**
+   * Creates new metadata from immutable metadata.
+   *
+   * @param view the immutable metadata.
+   *
+   * @throws IllegalArgumentException if `view` is `null`.
+   */
+  public JsonMetadata(final Metadata view) {
+    if (view == null) {
+      throw new IllegalArgumentException("The view of JSON metadata must not be null !");
+    }
+
+    MetadataPool pool = MetadataPool.getDefault();
+    this.view = pool == null ? view : pool.intern(view);
+  }
+
+  /**
+   * Creates a deep copy of the metadata, the raw bytes and the immutable metadata are shared by the
+   * copies because they are never modified.
+   *
+   * @return the created copy.
+   */
+  public JsonMetadata copy() {
+    Metadata currentView = this.view;
+
+    return currentView != null ? new JsonMetadata(currentView)
+        : new JsonMetadata(this.getSharedBytes());
+  }
+
+  /**
+   * Gets the UTF-8 bytes of the JSON object as a read-only buffer, the raw bytes are not copied.
+   *
+   * @return a read-only buffer over the raw bytes if the metadata are held as raw bytes, over new
+   *         bytes computed from the `JSONObject` or from the immutable metadata otherwise.
+   */
+  public ByteBuffer getByteBuffer() {
+    return ByteBuffer.wrap(this.getSharedBytes()).asReadOnlyBuffer();
+  }
+
+  /**
+   * Gets a copy of the UTF-8 bytes of the JSON object, use {@link #getByteBuffer()} to read the raw
+   * bytes without copying them.
+   *
+   * @return a copy of the raw bytes if the metadata are held as raw bytes, new bytes computed from
+   *         the `JSONObject` or from the immutable metadata otherwise.
+   */
+  public synchronized byte[] getBytes() {
+    return this.bytes != null ? this.bytes.clone() : this.getSharedBytes();
+  }
+
+  /**
+   * Gets the metadata as a `JSONObject`, the metadata are parsed the first time this method is
+   * called.
+   *
+   * @return the JSON object of the metadata, the same JSON object is returned by all the calls.
+   *
+   * @throws org.json.JSONException if the raw bytes are not a valid JSON object.
+   */
+  public JSONObject getJSONObject() {
+    JSONObject parsed = this.jsonObject;
+
+    if (parsed == null) {
+      synchronized (this) {
+        parsed = this.jsonObject;
+
+        if (parsed == null) {
+          parsed = this.view != null ? this.view.toJSONObject()
+              : new JSONObject(new String(this.bytes, StandardCharsets.UTF_8));
+          this.jsonObject = parsed;
+          this.bytes = null;
+          this.view = null;
+        }
+      }
+    }
+
+    return parsed;
+  }
+
+  /**
+   * Gets the metadata as immutable metadata, the raw bytes are parsed and replaced by the immutable
+   * metadata the first time this method is called.
+   *
+   * @return the immutable metadata, if the metadata have been parsed into a `JSONObject` the
+   *         immutable metadata are a snapshot of the `JSONObject`.
+   *
+   * @throws org.json.JSONException if the raw bytes are not a valid JSON object.
+   * @throws IllegalArgumentException if a value of the JSON object cannot be stored in immutable
+   *           metadata.
+   */
+  public Metadata getMetadataView() {
+    Metadata currentView = this.view;
+
+    if (currentView == null) {
+      synchronized (this) {
+        currentView = this.view;
+
+        if (currentView == null && this.jsonObject != null) {
+          // The JSON object can be modified, so the snapshot is not kept
+          return Metadata.of(this.jsonObject);
+        } else if (currentView == null) {
+          currentView = Metadata.of(new JSONObject(new String(this.bytes, StandardCharsets.UTF_8)));
+
+          MetadataPool pool = MetadataPool.getDefault();
+          if (pool != null) {
+            currentView = pool.intern(currentView);
+          }
+
+          this.view = currentView;
+          this.bytes = null;
+        }
+      }
+    }
+
+    return currentView;
+  }
+
+  /**
+   * Gets the UTF-8 bytes of the JSON object without copying the raw bytes.
+   *
+   * @return the raw bytes if the metadata are held as raw bytes, this array must not be modified,
+   *         new bytes computed from the `JSONObject` or from the immutable metadata otherwise.
+   */
+  private synchronized byte[] getSharedBytes() {
+    if (this.bytes != null) {
+      return this.bytes;
+    }
+
+    return (this.jsonObject != null ? this.jsonObject.toString() : this.view.toString())
+        .getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Checks if the metadata have already been parsed into a `JSONObject`.
+   *
+   * @return `true` if the metadata have already been parsed, `false` otherwise.
+   */
+  public boolean isParsed() {
+    return this.jsonObject != null;
+  }
+
+  /**
+   * Checks if the metadata are held as raw bytes.
+   *
+   * @return `true` if the metadata are held as raw bytes, `false` otherwise.
+   */
+  private synchronized boolean isRaw() {
+    return this.bytes != null;
+  }
+
+  /**
+   * Checks if the metadata are similar to other metadata, metadata having the same raw bytes are
+   * compared without being parsed, the other metadata are compared by content. Neither the
+   * metadata nor the other metadata are modified, raw bytes which have to be parsed are not
+   * replaced by the parsed metadata.
+   *
+   * @param other the object to compare.
+   *
+   * @return `true` if the other object is similar JSON metadata, `false` otherwise.
+   */
+  public boolean similar(final Object other) {
+    if (other == this) {
+      return true;
+    }
+
+    if (!(other instanceof JsonMetadata)) {
+      return false;
+    }
+
+    JsonMetadata otherMetadata = (JsonMetadata) other;
+
+    if (this.isRaw() && otherMetadata.isRaw()
+        && this.getByteBuffer().equals(otherMetadata.getByteBuffer())) {
+      return true;
+    }
+
+    return this.toMetadata().equals(otherMetadata.toMetadata());
+  }
+
+  /**
+   * Gets the metadata as immutable metadata without modifying the metadata, unlike
+   * {@link #getMetadataView()} the raw bytes are parsed into temporary immutable metadata.
+   *
+   * @return the immutable metadata.
+   *
+   * @throws org.json.JSONException if the raw bytes are not a valid JSON object.
+   */
+  private synchronized Metadata toMetadata() {
+    if (this.view != null) {
+      return this.view;
+    }
+
+    return Metadata.of(this.jsonObject != null ? this.jsonObject
+        : new JSONObject(new String(this.bytes, StandardCharsets.UTF_8)));
+  }
+
+  /**
+   * Gets the metadata as a JSON string.
+   *
+   * @return the JSON string of the metadata.
+   */
+  @Override
+  public String toString() {
+    JSONObject parsed = this.jsonObject;
+
+    return parsed != null ? parsed.toString()
+        : StandardCharsets.UTF_8.decode(this.getByteBuffer()).toString();
+  }
+}
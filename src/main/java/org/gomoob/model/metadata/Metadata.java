@@ -0,0 +1,645 @@
+/**
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2017, GOMOOB All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided with
+ * the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.gomoob.model.metadata;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Immutable and compact metadata, this is a read only alternative to the `JSONObject` metadata of
+ * actions and states.
+ *
+ * <p>
+ * The keys and the values are packed into one array, sorted by key, so a metadata instance only
+ * uses 2 objects whatever its size and a value is found using a binary search. The values are
+ * normalized when they are stored :
+ * </p>
+ * <ul>
+ * <li>`String`, `Boolean`, `Double`, `BigDecimal` and `null` values are stored as is ;</li>
+ * <li>integer numbers are stored as `Long` values, or as `BigInteger` values if they do not fit in
+ * a `long`, and `Float` values are stored as `Double` values ;</li>
+ * <li>JSON objects are stored as nested metadata and JSON arrays and lists are stored as
+ * unmodifiable lists of normalized values.</li>
+ * </ul>
+ * <p>
+ * The {@link #with(String, Object)} and {@link #without(String)} methods create modified copies,
+ * the values (including the nested metadata and lists) are shared by the copies without being
+ * copied. Metadata are compared by content and are thread safe.
+ * </p>
+ *
+ * <pre>
+ * Metadata metadata = Metadata.EMPTY.with("source", "web").with("retries", 3);
+ * long retries = metadata.getLong("retries");
+ * </pre>
+ *
+ * @author GOMOOB SARL (contact@gomoob.com)
+ */
+public final class Metadata {
+
+  /**
+   * The metadata without any key.
+   */
+  public static final Metadata EMPTY = new Metadata(new Object[0]);
+
+  /**
+   * The keys and the values, the key of an entry is followed by its value and the entries are
+   * sorted by key.
+   */
+  private final Object[] entries;
+
+  /**
+   * The cached hash code, `0` if it has not been computed yet.
+   */
+  private int hash;
+
+  /**
+   * Creates new metadata.
+   *
+   * @param entries the keys and the values, sorted by key.
+   */
+  private Metadata(final Object[] entries) {
+    this.entries = entries;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean equals(final Object other) {
+    if (other == this) {
+      return true;
+    }
+
+    if (!(other instanceof Metadata)) {
+      return false;
+    }
+
+    Metadata otherMetadata = (Metadata) other;
+
+    return this.hashCode() == otherMetadata.hashCode()
+        && Arrays.equals(this.entries, otherMetadata.entries);
+  }
+
+  /**
+   * Gets a value.
+   *
+   * @param key the key of the value.
+   *
+   * @return the normalized value, `null` if the value is `null` or if no value is associated to the
+   *         key.
+   */
+  public Object get(final String key) {
+    int index = this.indexOf(key);
+
+    return index < 0 ? null : this.entries[index + 1];
+  }
+
+  /**
+   * Gets a `boolean` value.
+   *
+   * @param key the key of the value.
+   *
+   * @return the value.
+   *
+   * @throws IllegalArgumentException if no value is associated to the key or if the value is not a
+   *           boolean.
+   */
+  public boolean getBoolean(final String key) {
+    Object value = this.getRequired(key);
+
+    if (!(value instanceof Boolean)) {
+      throw notOfType(key, "boolean");
+    }
+
+    return (Boolean) value;
+  }
+
+  /**
+   * Gets a `double` value.
+   *
+   * @param key the key of the value.
+   *
+   * @return the value.
+   *
+   * @throws IllegalArgumentException if no value is associated to the key or if the value is not a
+   *           number.
+   */
+  public double getDouble(final String key) {
+    Object value = this.getRequired(key);
+
+    if (!(value instanceof Number)) {
+      throw notOfType(key, "double");
+    }
+
+    return ((Number) value).doubleValue();
+  }
+
+  /**
+   * Gets an `int` value.
+   *
+   * @param key the key of the value.
+   *
+   * @return the value.
+   *
+   * @throws IllegalArgumentException if no value is associated to the key or if the value is not an
+   *           integer which fits in an `int`.
+   */
+  public int getInt(final String key) {
+    Object value = this.getRequired(key);
+
+    if (!(value instanceof Long) || (Long) value != ((Long) value).intValue()) {
+      throw notOfType(key, "int");
+    }
+
+    return ((Long) value).intValue();
+  }
+
+  /**
+   * Gets the key of an entry.
+   *
+   * @param index the index of the entry, the entries are sorted by key.
+   *
+   * @return the key of the entry.
+   *
+   * @throws IndexOutOfBoundsException if the index is invalid.
+   */
+  public String getKey(final int index) {
+    if (index < 0 || index >= this.size()) {
+      throw new IndexOutOfBoundsException("Invalid metadata index '" + index + "' !");
+    }
+
+    return (String) this.entries[index << 1];
+  }
+
+  /**
+   * Gets a list value.
+   *
+   * @param key the key of the value.
+   *
+   * @return the unmodifiable list of normalized values, `null` if the value is `null` or if no
+   *         value is associated to the key.
+   *
+   * @throws IllegalArgumentException if the value is not a list.
+   */
+  @SuppressWarnings("unchecked")
+  public List<Object> getList(final String key) {
+    Object value = this.get(key);
+
+    if (value != null && !(value instanceof List)) {
+      throw notOfType(key, "list");
+    }
+
+    return (List<Object>) value;
+  }
+
+  /**
+   * Gets a `long` value.
+   *
+   * @param key the key of the value.
+   *
+   * @return the value.
+   *
+   * @throws IllegalArgumentException if no value is associated to the key or if the value is not an
+   *           integer which fits in a `long`.
+   */
+  public long getLong(final String key) {
+    Object value = this.getRequired(key);
+
+    if (!(value instanceof Long)) {
+      throw notOfType(key, "long");
+    }
+
+    return (Long) value;
+  }
+
+  /**
+   * Gets a nested metadata value.
+   *
+   * @param key the key of the value.
+   *
+   * @return the nested metadata, `null` if the value is `null` or if no value is associated to the
+   *         key.
+   *
+   * @throws IllegalArgumentException if the value is not a nested metadata.
+   */
+  public Metadata getMetadata(final String key) {
+    Object value = this.get(key);
+
+    if (value != null && !(value instanceof Metadata)) {
+      throw notOfType(key, "metadata");
+    }
+
+    return (Metadata) value;
+  }
+
+  /**
+   * Gets a value which must be associated to a key.
+   *
+   * @param key the key of the value.
+   *
+   * @return the value.
+   *
+   * @throws IllegalArgumentException if no value is associated to the key or if the value is
+   *           `null`.
+   */
+  private Object getRequired(final String key) {
+    Object value = this.get(key);
+
+    if (value == null) {
+      throw new IllegalArgumentException("No metadata value with the key '" + key + "' !");
+    }
+
+    return value;
+  }
+
+  /**
+   * Gets a `String` value.
+   *
+   * @param key the key of the value.
+   *
+   * @return the value, `null` if the value is `null` or if no value is associated to the key.
+   *
+   * @throws IllegalArgumentException if the value is not a string.
+   */
+  public String getString(final String key) {
+    Object value = this.get(key);
+
+    if (value != null && !(value instanceof String)) {
+      throw notOfType(key, "String");
+    }
+
+    return (String) value;
+  }
+
+  /**
+   * Gets the value of an entry.
+   *
+   * @param index the index of the entry, the entries are sorted by key.
+   *
+   * @return the normalized value of the entry.
+   *
+   * @throws IndexOutOfBoundsException if the index is invalid.
+   */
+  public Object getValue(final int index) {
+    if (index < 0 || index >= this.size()) {
+      throw new IndexOutOfBoundsException("Invalid metadata index '" + index + "' !");
+    }
+
+    return this.entries[(index << 1) + 1];
+  }
+
+  /**
+   * Checks if a value is associated to a key.
+   *
+   * @param key the key to check.
+   *
+   * @return `true` if a value, which can be `null`, is associated to the key, `false` otherwise.
+   */
+  public boolean has(final String key) {
+    return this.indexOf(key) >= 0;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int hashCode() {
+    int h = this.hash;
+
+    if (h == 0) {
+      h = Arrays.hashCode(this.entries);
+      this.hash = h;
+    }
+
+    return h;
+  }
+
+  /**
+   * Finds the position of a key in the entries.
+   *
+   * @param key the key to find.
+   *
+   * @return the position of the key in the entries if the key exists, `-(p + 1)` where `p` is the
+   *         position where the key would be inserted otherwise.
+   */
+  private int indexOf(final String key) {
+    int low = 0;
+    int high = (this.entries.length >> 1) - 1;
+
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      int comparison = ((String) this.entries[middle << 1]).compareTo(key);
+
+      if (comparison < 0) {
+        low = middle + 1;
+      } else if (comparison > 0) {
+        high = middle - 1;
+      } else {
+        return middle << 1;
+      }
+    }
+
+    return -((low << 1) + 1);
+  }
+
+  /**
+   * Normalizes a value before storing it.
+   *
+   * @param value the value to normalize.
+   *
+   * @return the normalized value.
+   *
+   * @throws IllegalArgumentException if the type of the value is not supported or if the value is a
+   *           non finite number.
+   */
+  private static Object normalize(final Object value) {
+    if (value == null || value == JSONObject.NULL) {
+      return null;
+    } else if (value instanceof String || value instanceof Boolean || value instanceof Long
+        || value instanceof BigDecimal || value instanceof Metadata) {
+      return value;
+    } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+      return ((Number) value).longValue();
+    } else if (value instanceof Double || value instanceof Float) {
+      double doubleValue = ((Number) value).doubleValue();
+
+      if (Double.isNaN(doubleValue) || Double.isInfinite(doubleValue)) {
+        throw new IllegalArgumentException("Cannot store a non finite metadata value !");
+      }
+
+      return doubleValue;
+    } else if (value instanceof BigInteger) {
+      BigInteger bigInteger = (BigInteger) value;
+
+      return bigInteger.bitLength() < 64 ? (Object) bigInteger.longValue() : bigInteger;
+    } else if (value instanceof JSONObject) {
+      return of((JSONObject) value);
+    } else if (value instanceof JSONArray) {
+      JSONArray jsonArray = (JSONArray) value;
+      List<Object> list = new ArrayList<Object>(jsonArray.length());
+
+      for (int i = 0; i < jsonArray.length(); ++i) {
+        list.add(normalize(jsonArray.get(i)));
+      }
+
+      return Collections.unmodifiableList(list);
+    } else if (value instanceof List) {
+      List<?> values = (List<?>) value;
+      List<Object> list = new ArrayList<Object>(values.size());
+
+      for (Object element : values) {
+        list.add(normalize(element));
+      }
+
+      return Collections.unmodifiableList(list);
+    }
+
+    throw new IllegalArgumentException(
+        "Cannot store a metadata value of type '" + value.getClass().getName() + "' !");
+  }
+
+  /**
+   * Creates the exception thrown when a value does not have the expected type.
+   *
+   * @param key the key of the value.
+   * @param type the name of the expected type.
+   *
+   * @return the created exception.
+   */
+  private static IllegalArgumentException notOfType(final String key, final String type) {
+    return new IllegalArgumentException(
+        "The metadata value with the key '" + key + "' is not a '" + type + "' !");
+  }
+
+  /**
+   * Creates metadata from a JSON object.
+   *
+   * @param jsonObject the JSON object to convert, the JSON object is not referenced by the created
+   *          metadata.
+   *
+   * @return the created metadata.
+   *
+   * @throws IllegalArgumentException if a value of the JSON object cannot be stored.
+   */
+  public static Metadata of(final JSONObject jsonObject) {
+    String[] keys = jsonObject.keySet().toArray(new String[jsonObject.length()]);
+    Arrays.sort(keys);
+
+    Object[] entries = new Object[keys.length << 1];
+
+    for (int i = 0; i < keys.length; ++i) {
+      entries[i << 1] = keys[i];
+      entries[(i << 1) + 1] = normalize(jsonObject.opt(keys[i]));
+    }
+
+    return entries.length == 0 ? EMPTY : new Metadata(entries);
+  }
+
+  /**
+   * Gets the number of entries.
+   *
+   * @return the number of entries.
+   */
+  public int size() {
+    return this.entries.length >> 1;
+  }
+
+  /**
+   * Converts the metadata into a new JSON object.
+   *
+   * @return the created JSON object.
+   */
+  public JSONObject toJSONObject() {
+    JSONObject jsonObject = new JSONObject();
+
+    for (int i = 0; i < this.entries.length; i += 2) {
+      jsonObject.put((String) this.entries[i], toJSONValue(this.entries[i + 1]));
+    }
+
+    return jsonObject;
+  }
+
+  /**
+   * Converts a normalized value into a value which can be put in a JSON object.
+   *
+   * @param value the value to convert.
+   *
+   * @return the converted value.
+   */
+  private static Object toJSONValue(final Object value) {
+    if (value == null) {
+      return JSONObject.NULL;
+    } else if (value instanceof Metadata) {
+      return ((Metadata) value).toJSONObject();
+    } else if (value instanceof List) {
+      JSONArray jsonArray = new JSONArray();
+
+      for (Object element : (List<?>) value) {
+        jsonArray.put(toJSONValue(element));
+      }
+
+      return jsonArray;
+    }
+
+    return value;
+  }
+
+  /**
+   * Gets the metadata as a JSON string, without whitespaces and with the keys sorted.
+   *
+   * @return the JSON string of the metadata.
+   */
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    writeValue(sb, this);
+
+    return sb.toString();
+  }
+
+  /**
+   * Creates a copy of the metadata where a value is associated to a key, the other values are
+   * shared with this metadata.
+   *
+   * @param key the key of the value.
+   * @param value the value to associate to the key.
+   *
+   * @return the created copy, or this metadata if the value is already associated to the key.
+   *
+   * @throws IllegalArgumentException if the key is `null`, if the type of the value is not
+   *           supported or if the value is a non finite number.
+   */
+  public Metadata with(final String key, final Object value) {
+    if (key == null) {
+      throw new IllegalArgumentException("The key of a metadata value must not be null !");
+    }
+
+    Object normalizedValue = normalize(value);
+    int index = this.indexOf(key);
+
+    if (index >= 0) {
+      Object previousValue = this.entries[index + 1];
+
+      if (previousValue == null ? normalizedValue == null : previousValue.equals(normalizedValue)) {
+        return this;
+      }
+
+      Object[] entries = this.entries.clone();
+      entries[index + 1] = normalizedValue;
+
+      return new Metadata(entries);
+    }
+
+    int position = -(index + 1);
+    Object[] entries = new Object[this.entries.length + 2];
+    System.arraycopy(this.entries, 0, entries, 0, position);
+    entries[position] = key;
+    entries[position + 1] = normalizedValue;
+    System.arraycopy(this.entries, position, entries, position + 2, this.entries.length - position);
+
+    return new Metadata(entries);
+  }
+
+  /**
+   * Creates a copy of the metadata without the value associated to a key, the other values are
+   * shared with this metadata.
+   *
+   * @param key the key of the value to remove.
+   *
+   * @return the created copy, or this metadata if no value is associated to the key.
+   */
+  public Metadata without(final String key) {
+    int index = this.indexOf(key);
+
+    if (index < 0) {
+      return this;
+    }
+
+    if (this.entries.length == 2) {
+      return EMPTY;
+    }
+
+    Object[] entries = new Object[this.entries.length - 2];
+    System.arraycopy(this.entries, 0, entries, 0, index);
+    System.arraycopy(this.entries, index + 2, entries, index, entries.length - index);
+
+    return new Metadata(entries);
+  }
+
+  /**
+   * Writes a normalized value as JSON.
+   *
+   * @param sb the string builder to write.
+   * @param value the value to write.
+   */
+  private static void writeValue(final StringBuilder sb, final Object value) {
+    if (value == null) {
+      sb.append("null");
+    } else if (value instanceof String) {
+      sb.append(JSONObject.quote((String) value));
+    } else if (value instanceof Metadata) {
+      Object[] entries = ((Metadata) value).entries;
+      sb.append('{');
+
+      for (int i = 0; i < entries.length; i += 2) {
+        if (i > 0) {
+          sb.append(',');
+        }
+
+        sb.append(JSONObject.quote((String) entries[i])).append(':');
+        writeValue(sb, entries[i + 1]);
+      }
+
+      sb.append('}');
+    } else if (value instanceof List) {
+      boolean first = true;
+      sb.append('[');
+
+      for (Object element : (List<?>) value) {
+        if (!first) {
+          sb.append(',');
+        }
+
+        writeValue(sb, element);
+        first = false;
+      }
+
+      sb.append(']');
+    } else {
+      sb.append(value);
+    }
+  }
+}
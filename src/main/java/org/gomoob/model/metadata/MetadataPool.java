@@ -0,0 +1,346 @@
+/**
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2017, GOMOOB All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided with
+ * the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.gomoob.model.metadata;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+
+/**
+ * Canonicalization pool used to share equal metadata between actions and states.
+ *
+ * <p>
+ * The pool interns the immutable forms of the metadata, that's to say the raw UTF-8 bytes of
+ * {@link JsonMetadata} and the {@link Metadata} instances. The values are found using their content
+ * hash and are compared by content, so equal metadata are replaced by one canonical instance. The
+ * pool only keeps weak references to the canonical instances, an instance is removed from the pool
+ * once it is not used by any entity anymore.
+ * </p>
+ * <p>
+ * The pooling is opt-in, once a default pool has been installed using
+ * {@link #setDefault(MetadataPool)} the metadata created from raw bytes or from immutable metadata
+ * are interned automatically, for example the metadata of the actions and states decoded by the
+ * codecs or read by the JSON readers. The metadata held as `JSONObject` trees are never interned
+ * because they can be modified.
+ * </p>
+ *
+ * <pre>
+ * MetadataPool.setDefault(new MetadataPool());
+ * </pre>
+ *
+ * <p>
+ * Pools are thread safe, the canonical instances are spread over several segments which are locked
+ * independently, so threads which intern different values rarely wait for each other.
+ * </p>
+ *
+ * @author GOMOOB SARL (contact@gomoob.com)
+ */
+public final class MetadataPool {
+
+  /**
+   * Weak reference to a canonical instance, chained with the other entries of the same bucket.
+   *
+   * @author GOMOOB SARL (contact@gomoob.com)
+   */
+  private static final class Entry extends WeakReference<Object> {
+
+    /**
+     * The content hash of the canonical instance.
+     */
+    private final int hash;
+
+    /**
+     * The next entry of the bucket, `null` if this entry is the last one.
+     */
+    private Entry next;
+
+    /**
+     * Creates a new entry.
+     *
+     * @param value the canonical instance.
+     * @param hash the content hash of the canonical instance.
+     * @param next the next entry of the bucket.
+     * @param queue the queue in which one the entry is enqueued once the instance is collected.
+     */
+    private Entry(final Object value, final int hash, final Entry next,
+        final ReferenceQueue<Object> queue) {
+      super(value, queue);
+      this.hash = hash;
+      this.next = next;
+    }
+  }
+
+  /**
+   * Independently locked part of a pool, which holds the canonical instances whose hash selects the
+   * segment.
+   *
+   * @author GOMOOB SARL (contact@gomoob.com)
+   */
+  private static final class Segment {
+
+    /**
+     * The queue of the entries whose canonical instance has been collected.
+     */
+    private final ReferenceQueue<Object> queue = new ReferenceQueue<Object>();
+
+    /**
+     * The number of entries.
+     */
+    private int size;
+
+    /**
+     * The buckets of entries, the number of buckets is a power of 2.
+     */
+    private Entry[] table = new Entry[16];
+
+    /**
+     * Removes all the canonical instances from the segment.
+     */
+    private synchronized void clear() {
+      Arrays.fill(this.table, null);
+      this.size = 0;
+
+      while (this.queue.poll() != null) {
+        // The removed entries do not need to be expunged
+      }
+    }
+
+    /**
+     * Removes the entries whose canonical instance has been collected.
+     */
+    private void expunge() {
+      for (Object reference = this.queue.poll(); reference != null;
+          reference = this.queue.poll()) {
+        Entry entry = (Entry) reference;
+        int index = entry.hash & (this.table.length - 1);
+        Entry previous = null;
+
+        for (Entry e = this.table[index]; e != null; previous = e, e = e.next) {
+          if (e == entry) {
+            if (previous == null) {
+              this.table[index] = e.next;
+            } else {
+              previous.next = e.next;
+            }
+
+            --this.size;
+            break;
+          }
+        }
+      }
+    }
+
+    /**
+     * Interns a value.
+     *
+     * @param value the value to intern.
+     * @param hash the content hash of the value.
+     *
+     * @return the canonical value.
+     */
+    private synchronized Object intern(final Object value, final int hash) {
+      this.expunge();
+
+      int index = hash & (this.table.length - 1);
+
+      for (Entry e = this.table[index]; e != null; e = e.next) {
+        Object canonicalValue = e.get();
+
+        if (e.hash == hash && canonicalValue != null && contentEquals(value, canonicalValue)) {
+          return canonicalValue;
+        }
+      }
+
+      this.table[index] = new Entry(value, hash, this.table[index], this.queue);
+
+      if (++this.size > this.table.length * 3 / 4) {
+        this.resize();
+      }
+
+      return value;
+    }
+
+    /**
+     * Doubles the number of buckets.
+     */
+    private void resize() {
+      Entry[] newTable = new Entry[this.table.length << 1];
+
+      for (Entry e : this.table) {
+        while (e != null) {
+          Entry next = e.next;
+          int index = e.hash & (newTable.length - 1);
+          e.next = newTable[index];
+          newTable[index] = e;
+          e = next;
+        }
+      }
+
+      this.table = newTable;
+    }
+
+    /**
+     * Gets the number of canonical instances in the segment.
+     *
+     * @return the number of canonical instances.
+     */
+    private synchronized int size() {
+      this.expunge();
+
+      return this.size;
+    }
+  }
+
+  /**
+   * The number of segments, this is a power of 2.
+   */
+  private static final int SEGMENT_COUNT = 16;
+
+  /**
+   * The shift which gives the index of a segment from the high bits of a mixed hash.
+   */
+  private static final int SEGMENT_SHIFT =
+      Integer.SIZE - Integer.numberOfTrailingZeros(SEGMENT_COUNT);
+
+  /**
+   * The default pool used to intern the metadata, `null` if the metadata are not interned.
+   */
+  private static volatile MetadataPool defaultPool;
+
+  /**
+   * The segments of the pool.
+   */
+  private final Segment[] segments = new Segment[SEGMENT_COUNT];
+
+  /**
+   * Creates a new empty pool.
+   */
+  public MetadataPool() {
+    for (int i = 0; i < SEGMENT_COUNT; ++i) {
+      this.segments[i] = new Segment();
+    }
+  }
+
+  /**
+   * Removes all the canonical instances from the pool.
+   */
+  public void clear() {
+    for (Segment segment : this.segments) {
+      segment.clear();
+    }
+  }
+
+  /**
+   * Checks if two values have the same content.
+   *
+   * @param value the first value.
+   * @param other the second value.
+   *
+   * @return `true` if the values have the same content, `false` otherwise.
+   */
+  private static boolean contentEquals(final Object value, final Object other) {
+    if (value instanceof byte[]) {
+      return other instanceof byte[] && Arrays.equals((byte[]) value, (byte[]) other);
+    }
+
+    return value.equals(other);
+  }
+
+  /**
+   * Gets the default pool used to intern the metadata.
+   *
+   * @return the default pool, `null` if the metadata are not interned.
+   */
+  public static MetadataPool getDefault() {
+    return defaultPool;
+  }
+
+  /**
+   * Interns raw UTF-8 bytes of JSON metadata.
+   *
+   * @param bytes the bytes to intern, the array must not be modified after the call.
+   *
+   * @return the canonical array having the same content, `bytes` itself if the pool did not contain
+   *         such an array.
+   */
+  public byte[] intern(final byte[] bytes) {
+    return (byte[]) this.intern(bytes, Arrays.hashCode(bytes));
+  }
+
+  /**
+   * Interns immutable metadata.
+   *
+   * @param metadata the metadata to intern.
+   *
+   * @return the canonical metadata equal to `metadata`, `metadata` itself if the pool did not
+   *         contain equal metadata.
+   */
+  public Metadata intern(final Metadata metadata) {
+    return (Metadata) this.intern(metadata, metadata.hashCode());
+  }
+
+  /**
+   * Interns a value.
+   *
+   * @param value the value to intern.
+   * @param hash the content hash of the value.
+   *
+   * @return the canonical value.
+   */
+  private Object intern(final Object value, final int hash) {
+    // The low bits of the hash select the bucket in the segment, so the segment is selected using
+    // the high bits of the hash multiplied by the golden ratio which depend on all its bits
+    return this.segments[(hash * 0x9E3779B9) >>> SEGMENT_SHIFT].intern(value, hash);
+  }
+
+  /**
+   * Sets the default pool used to intern the metadata.
+   *
+   * @param pool the default pool, `null` to stop interning the metadata.
+   */
+  public static void setDefault(final MetadataPool pool) {
+    defaultPool = pool;
+  }
+
+  /**
+   * Gets the number of canonical instances in the pool, the instances which are not used anymore
+   * but have not been collected yet are counted.
+   *
+   * @return the number of canonical instances.
+   */
+  public int size() {
+    int size = 0;
+
+    for (Segment segment : this.segments) {
+      size += segment.size();
+    }
+
+    return size;
+  }
+}
@@ -28,6 +28,8 @@ package org.gomoob.model.state;
 
 import org.gomoob.model.AbstractEntityWithCreationDate;
 import org.gomoob.model.IState;
+import org.gomoob.model.metadata.JsonMetadata;
+import org.gomoob.model.metadata.Metadata;
 import org.json.JSONObject;
 
 /**
@@ -37,6 +39,11 @@ import org.json.JSONObject;
  */
 public class State extends AbstractEntityWithCreationDate<String> implements IState {
 
+    /**
+     * The version of the serialized form.
+     */
+    private static final long serialVersionUID = 1L;
+
     /**
      * The message, in most cases this message is empty. The message is used to describe the state or to describe the
      * reason why this state has been created.
@@ -45,9 +52,10 @@ public class State extends AbstractEntityWithCreationDate<String> implements ISt
 
     /**
      * The generic metadata attached to this state, this is an array which can contain any keys or values. This is
-     * useful to make the state usable in every application.
+     * useful to make the state usable in every application. The metadata are kept as raw JSON bytes until they are
+     * read, the `metadata` attribute is nevertheless a `JSONObject` attribute which is parsed by the generic getters.
      */
-    private JSONObject metadata;
+    private JsonMetadata metadata;
 
     /**
      * The name of the state.
@@ -62,12 +70,30 @@ public class State extends AbstractEntityWithCreationDate<String> implements ISt
         return this.message;
     }
 
+    /**
+     * Gets the lazy holder of the generic metadata attached to this state, reading the holder does not parse the
+     * metadata.
+     *
+     * @return the holder of the metadata, `null` if no metadata are attached to this state.
+     */
+    public JsonMetadata getJsonMetadata() {
+        return this.metadata;
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public JSONObject getMetadata() {
-        return this.metadata;
+        return this.metadata == null ? null : this.metadata.getJSONObject();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Metadata getMetadataView() {
+        return this.metadata == null ? null : this.metadata.getMetadataView();
     }
 
     /**
@@ -78,6 +104,16 @@ public class State extends AbstractEntityWithCreationDate<String> implements ISt
         return this.name;
     }
 
+    /**
+     * Sets the lazy holder of the generic metadata attached to this state, for example to attach the raw bytes of JSON
+     * metadata without parsing them.
+     *
+     * @param metadata the holder of the metadata, `null` to remove the metadata.
+     */
+    public void setJsonMetadata(final JsonMetadata metadata) {
+        this.metadata = metadata;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -91,7 +127,15 @@ public class State extends AbstractEntityWithCreationDate<String> implements ISt
      */
     @Override
     public void setMetadata(final JSONObject metadata) {
-        this.metadata = metadata;
+        this.metadata = metadata == null ? null : new JsonMetadata(metadata);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setMetadataView(final Metadata metadata) {
+        this.metadata = metadata == null ? null : new JsonMetadata(metadata);
     }
 
     /**
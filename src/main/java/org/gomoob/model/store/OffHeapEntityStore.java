@@ -0,0 +1,424 @@
+/**
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2017, GOMOOB All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided with
+ * the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.gomoob.model.store;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.gomoob.model.AbstractEntity;
+import org.gomoob.model.codec.EntityCodec;
+
+/**
+ * Store which keeps the entities of one entity class encoded outside of the Java heap, in a
+ * direct byte buffer or in a memory mapped file.
+ *
+ * <p>
+ * The entities are encoded using the {@link EntityCodec} of the entity class, only a small index
+ * which associates the technical identifiers of the entities to their slots in the buffer is kept
+ * on the heap. An entity is decoded each time it is got from the store, so large datasets (for
+ * example catalogues of translatable entities) do not put pressure on the garbage collector.
+ * </p>
+ * <p>
+ * When an entity is stored again its slot is reused if the new encoded entity fits into it,
+ * otherwise a new slot is allocated and the old one is freed. Freed slots are reused in a best fit
+ * manner and split when they are much larger than the entity to store.
+ * </p>
+ * <p>
+ * The index is not written into the buffer, so a memory mapped file cannot be reopened to get the
+ * entities it contains back. Reading entities is thread safe as long as no entity is written at
+ * the same time, writing entities requires an external synchronization.
+ * </p>
+ *
+ * @author GOMOOB SARL (contact@gomoob.com)
+ *
+ * @param <E> the type of the entities stored.
+ */
+public final class OffHeapEntityStore<E extends AbstractEntity<?>> {
+
+  /**
+   * The minimal number of bytes which must remain in a free slot to split it.
+   */
+  private static final int MIN_SPLIT_SIZE = 32;
+
+  /**
+   * The buffer which contains the encoded entities.
+   */
+  private final ByteBuffer buffer;
+
+  /**
+   * The codec used to encode and decode the entities.
+   */
+  private final EntityCodec<E> codec;
+
+  /**
+   * The entity class.
+   */
+  private final Class<E> entityClass;
+
+  /**
+   * The offsets of the free slots, indexed by the capacity of the slots.
+   */
+  private final TreeMap<Integer, ArrayDeque<Integer>> freeSlots =
+      new TreeMap<Integer, ArrayDeque<Integer>>();
+
+  /**
+   * The slots of the stored entities, indexed by the technical identifiers of the entities.
+   */
+  private final Map<Serializable, Slot> index = new HashMap<Serializable, Slot>();
+
+  /**
+   * The offset of the first byte which has never been allocated.
+   */
+  private int top;
+
+  /**
+   * The number of bytes in the slots of the stored entities.
+   */
+  private int usedBytes;
+
+  /**
+   * Creates a new store.
+   *
+   * @param entityClass the entity class.
+   * @param buffer the buffer in which one to write the encoded entities, the whole buffer is used
+   *          by the store and must not be modified by other components.
+   */
+  public OffHeapEntityStore(final Class<E> entityClass, final ByteBuffer buffer) {
+    this.entityClass = entityClass;
+    this.codec = EntityCodec.of(entityClass);
+    this.buffer = buffer.duplicate();
+    this.buffer.clear();
+  }
+
+  /**
+   * Allocates a slot, the smallest free slot is reused if possible.
+   *
+   * @param length the number of bytes to store in the slot.
+   *
+   * @return the allocated slot.
+   *
+   * @throws IllegalStateException if the store is full.
+   */
+  private Slot allocate(final int length) {
+    Map.Entry<Integer, ArrayDeque<Integer>> freeSlot = this.freeSlots.ceilingEntry(length);
+
+    if (freeSlot != null) {
+      int capacity = freeSlot.getKey();
+      int offset = freeSlot.getValue().poll();
+
+      if (freeSlot.getValue().isEmpty()) {
+        this.freeSlots.remove(capacity);
+      }
+
+      // Splits the free slot if it is much larger than required
+      if (capacity - length >= MIN_SPLIT_SIZE) {
+        this.release(offset + length, capacity - length);
+        capacity = length;
+      }
+
+      return new Slot(offset, capacity);
+    }
+
+    if (length > this.buffer.capacity() - this.top) {
+      throw new IllegalStateException("The store cannot store more entities !");
+    }
+
+    Slot slot = new Slot(this.top, length);
+    this.top += length;
+
+    return slot;
+  }
+
+  /**
+   * Creates a new store backed by a direct byte buffer.
+   *
+   * @param entityClass the entity class.
+   * @param capacity the capacity of the store in bytes.
+   *
+   * @return the created store.
+   */
+  public static <E extends AbstractEntity<?>> OffHeapEntityStore<E> allocateDirect(
+      final Class<E> entityClass, final int capacity) {
+    return new OffHeapEntityStore<E>(entityClass, ByteBuffer.allocateDirect(capacity));
+  }
+
+  /**
+   * Removes all the entities from the store.
+   */
+  public void clear() {
+    this.index.clear();
+    this.freeSlots.clear();
+    this.top = 0;
+    this.usedBytes = 0;
+  }
+
+  /**
+   * Indicates if the store contains an entity.
+   *
+   * @param id the technical identifier of the entity.
+   *
+   * @return `true` if the store contains an entity having the technical identifier, `false`
+   *         otherwise.
+   */
+  public boolean contains(final Serializable id) {
+    return this.index.containsKey(id);
+  }
+
+  /**
+   * Gets and decodes an entity.
+   *
+   * @param id the technical identifier of the entity.
+   *
+   * @return the decoded entity, `null` if the store does not contain an entity having the
+   *         technical identifier.
+   */
+  public E get(final Serializable id) {
+    Slot slot = this.index.get(id);
+
+    return slot == null ? null : this.codec.decode(this.read(slot));
+  }
+
+  /**
+   * Gets and decodes an entity into an existing entity, this allows to reuse the same entity
+   * instance to browse the entities of the store.
+   *
+   * @param id the technical identifier of the entity.
+   * @param entity the entity in which one to write the decoded attribute values.
+   *
+   * @return `true` if the store contains an entity having the technical identifier, `false`
+   *         otherwise (the entity is then left unchanged).
+   */
+  public boolean get(final Serializable id, final E entity) {
+    Slot slot = this.index.get(id);
+
+    if (slot == null) {
+      return false;
+    }
+
+    this.codec.decode(this.read(slot), entity);
+
+    return true;
+  }
+
+  /**
+   * Gets the capacity of the store in bytes.
+   *
+   * @return the capacity of the store in bytes.
+   */
+  public int getCapacity() {
+    return this.buffer.capacity();
+  }
+
+  /**
+   * Gets the entity class.
+   *
+   * @return the entity class.
+   */
+  public Class<E> getEntityClass() {
+    return this.entityClass;
+  }
+
+  /**
+   * Gets the number of bytes in the slots of the stored entities.
+   *
+   * @return the number of bytes in the slots of the stored entities.
+   */
+  public int getUsedBytes() {
+    return this.usedBytes;
+  }
+
+  /**
+   * Creates a new store backed by a memory mapped file, the file is created if it does not exist.
+   *
+   * @param entityClass the entity class.
+   * @param file the file to map.
+   * @param capacity the capacity of the store in bytes.
+   *
+   * @return the created store.
+   *
+   * @throws IOException if the file cannot be opened or mapped.
+   */
+  public static <E extends AbstractEntity<?>> OffHeapEntityStore<E> map(final Class<E> entityClass,
+      final Path file, final int capacity) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      return new OffHeapEntityStore<E>(entityClass,
+          channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity));
+    }
+  }
+
+  /**
+   * Encodes and stores an entity, an entity previously stored with the same technical identifier
+   * is replaced.
+   *
+   * @param entity the entity to store.
+   *
+   * @throws IllegalArgumentException if the entity does not have a technical identifier or if an
+   *           attribute value of the entity cannot be encoded.
+   * @throws IllegalStateException if the store is full, the store is then left unchanged.
+   */
+  public void put(final E entity) {
+    Serializable id = entity.getId();
+
+    if (id == null) {
+      throw new IllegalArgumentException("Cannot store an entity without technical identifier !");
+    }
+
+    byte[] bytes = this.codec.encode(entity);
+    Slot slot = this.index.get(id);
+
+    if (slot == null || bytes.length > slot.capacity) {
+      Slot newSlot = this.allocate(bytes.length);
+
+      if (slot != null) {
+        this.release(slot.offset, slot.capacity);
+        this.usedBytes -= slot.capacity;
+      }
+
+      slot = newSlot;
+      this.index.put(id, slot);
+      this.usedBytes += slot.capacity;
+    }
+
+    ByteBuffer view = this.buffer.duplicate();
+    view.position(slot.offset);
+    view.put(bytes);
+    slot.length = bytes.length;
+  }
+
+  /**
+   * Gets a read only view of the bytes of a slot.
+   *
+   * @param slot the slot to read.
+   *
+   * @return the view of the bytes of the slot.
+   */
+  private ByteBuffer read(final Slot slot) {
+    ByteBuffer view = this.buffer.asReadOnlyBuffer();
+    view.limit(slot.offset + slot.length);
+    view.position(slot.offset);
+
+    return view;
+  }
+
+  /**
+   * Frees a slot.
+   *
+   * @param offset the offset of the slot.
+   * @param capacity the capacity of the slot.
+   */
+  private void release(final int offset, final int capacity) {
+    // The last allocated bytes are given back to the never allocated bytes
+    if (offset + capacity == this.top) {
+      this.top = offset;
+      return;
+    }
+
+    ArrayDeque<Integer> offsets = this.freeSlots.get(capacity);
+
+    if (offsets == null) {
+      offsets = new ArrayDeque<Integer>();
+      this.freeSlots.put(capacity, offsets);
+    }
+
+    offsets.add(offset);
+  }
+
+  /**
+   * Removes an entity from the store.
+   *
+   * @param id the technical identifier of the entity.
+   *
+   * @return `true` if the store contained an entity having the technical identifier, `false`
+   *         otherwise.
+   */
+  public boolean remove(final Serializable id) {
+    Slot slot = this.index.remove(id);
+
+    if (slot == null) {
+      return false;
+    }
+
+    this.release(slot.offset, slot.capacity);
+    this.usedBytes -= slot.capacity;
+
+    return true;
+  }
+
+  /**
+   * Gets the number of entities in the store.
+   *
+   * @return the number of entities in the store.
+   */
+  public int size() {
+    return this.index.size();
+  }
+
+  /**
+   * Slot of a stored entity.
+   *
+   * @author GOMOOB SARL (contact@gomoob.com)
+   */
+  private static final class Slot {
+
+    /**
+     * The number of bytes of the slot.
+     */
+    private final int capacity;
+
+    /**
+     * The number of bytes of the encoded entity.
+     */
+    private int length;
+
+    /**
+     * The offset of the slot in the buffer.
+     */
+    private final int offset;
+
+    /**
+     * Creates a new slot.
+     *
+     * @param offset the offset of the slot in the buffer.
+     * @param capacity the number of bytes of the slot.
+     */
+    private Slot(final int offset, final int capacity) {
+      this.offset = offset;
+      this.capacity = capacity;
+    }
+  }
+}
@@ -29,7 +29,6 @@
 package org.gomoob.model.translation;
 
 import java.io.Serializable;
-import java.lang.reflect.Field;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -38,6 +37,8 @@ import java.util.Map;
 import org.gomoob.model.AbstractEntity;
 import org.gomoob.model.ITranslatableEntity;
 import org.gomoob.model.ITranslation;
+import org.gomoob.model.attribute.EntityAttribute;
+import org.gomoob.model.attribute.EntityAttributes;
 
 /**
  * Abstract class to be extended by Translatable Business entities.
@@ -49,6 +50,11 @@ import org.gomoob.model.ITranslation;
 public abstract class AbstractTranslatableEntity<IDT extends Serializable>
     extends AbstractEntity<IDT> implements ITranslatableEntity<IDT> {
 
+  /**
+   * The version of the serialized form.
+   */
+  private static final long serialVersionUID = 1L;
+
   /**
    * The language which was used when the entity was created. In most cases this is the language
    * which was used by the user who created the entity.
@@ -123,25 +129,25 @@ public abstract class AbstractTranslatableEntity<IDT extends Serializable>
         String attributeName = entry.getKey();
 
         // Checks that the attribute to translate is of String Type
-        Field field = null;
-        try {
-          field = this.getClass().getDeclaredField(attributeName);
-        } catch (NoSuchFieldException | SecurityException e) {
-          throw new RuntimeException("Fail to get value of property '" + attributeName + "' !", e);
+        EntityAttribute attribute =
+            EntityAttributes.of(this.getClass()).getAttribute(attributeName);
+        if (attribute == null) {
+          throw new RuntimeException("Fail to get value of property '" + attributeName + "' !",
+              new NoSuchFieldException(attributeName));
         }
 
-        if (!field.getType().equals(String.class)) {
+        if (!attribute.getType().equals(String.class)) {
           throw new IllegalStateException(
               "Translation attribute values must be of type 'String' !");
         }
 
         // Sets the previous translation attribute with the entity attribute value
-        previousTranslation.setAttributeTranslation(attributeName,
-            (String) this.get(attributeName));
+        previousTranslation.setAttributeTranslation(attributeName, (String) attribute.get(this));
 
-        // Set the entity attribute value with the translation attribute to apply
+        // Set the entity attribute value with the translation attribute to apply, this is not a
+        // modification of the entity so the attribute is not marked dirty
         String attributeValue = entry.getValue();
-        this.set(attributeName, attributeValue);
+        attribute.set(this, attributeValue);
       }
 
       // Sets the new translations and translation language code
@@ -43,6 +43,11 @@ import org.gomoob.model.ITranslatableEntityWithCreationDate;
 public abstract class AbstractTranslatableEntityWithCreationDate<IDT extends Serializable>
     extends AbstractTranslatableEntity<IDT> implements ITranslatableEntityWithCreationDate<IDT> {
 
+  /**
+   * The version of the serialized form.
+   */
+  private static final long serialVersionUID = 1L;
+
   /**
    * The creation date of the entity.
    */
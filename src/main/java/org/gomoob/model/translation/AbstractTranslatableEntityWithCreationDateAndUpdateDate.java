@@ -45,6 +45,11 @@ public class AbstractTranslatableEntityWithCreationDateAndUpdateDate<IDT extends
     extends AbstractTranslatableEntityWithCreationDate<IDT>
     implements ITranslatableEntityWithCreationDateAndUpdateDate<IDT> {
 
+  /**
+   * The version of the serialized form.
+   */
+  private static final long serialVersionUID = 1L;
+
   /**
    * The update date of the entity.
    */
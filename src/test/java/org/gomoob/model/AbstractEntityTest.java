@@ -28,8 +28,35 @@
 
 package org.gomoob.model;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.Field;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
 
+import org.gomoob.model.attribute.AttributeKey;
+import org.gomoob.model.attribute.EntityAttributes;
+import org.gomoob.model.codec.SerializedEntity;
+import org.gomoob.model.copy.EntityCopier;
+import org.gomoob.model.translation.SampleTranslatableEntity;
+import org.gomoob.model.translation.Translation;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -40,6 +67,80 @@ import org.junit.Test;
  */
 public class AbstractEntityTest {
 
+  /**
+   * Sample entity with a creation date and an update date which uses the compact serialized form.
+   */
+  @CompactSerialization
+  public static class CompactSampleEntity extends SampleEntityWithCreationDateAndUpdateDate {
+
+    /**
+     * The version of the serialized form.
+     */
+    private static final long serialVersionUID = 1L;
+  }
+
+  /**
+   * Sample translatable entity which uses the compact serialized form.
+   */
+  @CompactSerialization
+  public static class CompactSampleTranslatableEntity extends SampleTranslatableEntity {
+
+    /**
+     * The version of the serialized form.
+     */
+    private static final long serialVersionUID = 1L;
+  }
+
+  /**
+   * Sample entity which uses the compact serialized form having attributes whose values can be
+   * decoded as instances of other classes.
+   */
+  @CompactSerialization
+  public static class CompactSampleEntityWithCollections extends AbstractEntity<Integer> {
+
+    /**
+     * The version of the serialized form.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * A date attribute.
+     */
+    private Date date;
+
+    /**
+     * A list attribute.
+     */
+    private List<String> list;
+
+    /**
+     * A map attribute.
+     */
+    private Map<String, String> map;
+  }
+
+  /**
+   * Sample entity having attributes which cannot use the compact serialized form.
+   */
+  @CompactSerialization
+  public static class SampleEntityWithSetAndUuid extends AbstractEntity<Integer> {
+
+    /**
+     * The version of the serialized form.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * A set attribute.
+     */
+    private Set<String> names;
+
+    /**
+     * An UUID attribute.
+     */
+    private UUID uuid;
+  }
+
   /**
    * Test method for {@link AbstractEntity} creation.
    */
@@ -79,6 +180,12 @@ public class AbstractEntityTest {
     Assert.assertSame(1, sampleEntity.getId());
     Assert.assertEquals(currentDate, sampleEntity.getCreationDate());
     Assert.assertSame("A_VALUE", sampleEntity.getA());
+
+    // Inherited attributes are also accessible by name
+    Date newDate = new Date(0);
+    sampleEntity.set("creationDate", newDate);
+    Assert.assertSame(newDate, sampleEntity.get("creationDate"));
+    Assert.assertSame(1, sampleEntity.get("id"));
   }
 
   /**
@@ -106,4 +213,397 @@ public class AbstractEntityTest {
     Assert.assertEquals(updateDate, sampleEntity.getUpdateDate());
     Assert.assertSame("A_VALUE", sampleEntity.getA());
   }
+
+  /**
+   * Test method for {@link AbstractEntity#getAll(String...)} and
+   * {@link AbstractEntity#setAll(Map)}.
+   */
+  @Test
+  public void testGetAllAndSetAll() {
+    SampleEntityWithCreationDate sampleEntity = new SampleEntityWithCreationDate();
+
+    Date creationDate = new Date();
+    Map<String, Object> attributeValues = new HashMap<String, Object>();
+    attributeValues.put("id", 1);
+    attributeValues.put("creationDate", creationDate);
+    attributeValues.put("attr", "A_VALUE");
+    sampleEntity.setAll(attributeValues);
+
+    Assert.assertSame(1, sampleEntity.getId());
+    Assert.assertSame(creationDate, sampleEntity.getCreationDate());
+    Assert.assertSame("A_VALUE", sampleEntity.getA());
+    Assert.assertArrayEquals(new Object[] {"A_VALUE", 1, creationDate},
+        sampleEntity.getAll("attr", "id", "creationDate"));
+  }
+
+  /**
+   * Test method for {@link AbstractEntity#getDirtyAttributes()}, {@link AbstractEntity#isDirty()}
+   * and {@link AbstractEntity#clearDirty()}.
+   */
+  @Test
+  public void testDirtyAttributes() {
+    SampleEntityWithCreationDateAndUpdateDate sampleEntity =
+        new SampleEntityWithCreationDateAndUpdateDate();
+
+    Assert.assertFalse(sampleEntity.isDirty());
+    Assert.assertTrue(sampleEntity.getDirtyAttributes().isEmpty());
+
+    // Specific setters are not tracked
+    sampleEntity.setA("A_VALUE");
+    sampleEntity.setUpdateDate(new Date());
+    Assert.assertFalse(sampleEntity.isDirty());
+
+    // Generic setters are tracked
+    sampleEntity.set("attr", "NEW_A_VALUE");
+    sampleEntity.set(AttributeKey.of(SampleEntityWithCreationDateAndUpdateDate.class, "id",
+        Integer.class), 1);
+    Assert.assertTrue(sampleEntity.isDirty());
+    Assert.assertEquals(new LinkedHashSet<String>(Arrays.asList("id", "attr")),
+        sampleEntity.getDirtyAttributes());
+
+    sampleEntity.clearDirty();
+    Assert.assertFalse(sampleEntity.isDirty());
+    Assert.assertTrue(sampleEntity.getDirtyAttributes().isEmpty());
+
+    Map<String, Object> attributeValues = new HashMap<String, Object>();
+    attributeValues.put("creationDate", new Date());
+    sampleEntity.setAll(attributeValues);
+    Assert.assertEquals(new LinkedHashSet<String>(Arrays.asList("creationDate")),
+        sampleEntity.getDirtyAttributes());
+
+    // A failed modification does not mark the attribute as dirty
+    sampleEntity.clearDirty();
+    try {
+      sampleEntity.set("attr", 10);
+      Assert.fail("A RuntimeException should be thrown !");
+    } catch (RuntimeException rex) {
+      Assert.assertFalse(sampleEntity.isDirty());
+    }
+
+    // Primitive setters are tracked
+    SampleEntityWithPrimitives otherSampleEntity = new SampleEntityWithPrimitives();
+    otherSampleEntity.setLong("total", 10L);
+    otherSampleEntity.setBoolean("enabled", true);
+    Assert.assertEquals(new LinkedHashSet<String>(Arrays.asList("enabled", "total")),
+        otherSampleEntity.getDirtyAttributes());
+  }
+
+  /**
+   * Test method for {@link AbstractEntity#equals(Object)} and {@link AbstractEntity#hashCode()}.
+   */
+  @Test
+  public void testEqualsAndHashCode() {
+    // Entities which do not opt in to the identifier based equality are only equal to themselves
+    SampleEntity sampleEntity1 = new SampleEntity();
+    sampleEntity1.setId(1);
+    SampleEntity sampleEntity2 = new SampleEntity();
+    sampleEntity2.setId(1);
+    Assert.assertEquals(sampleEntity1, sampleEntity1);
+    Assert.assertNotEquals(sampleEntity1, sampleEntity2);
+    Assert.assertEquals(System.identityHashCode(sampleEntity1), sampleEntity1.hashCode());
+
+    // Entities without technical identifiers are only equal to themselves
+    SampleEntityWithIdEquality entity1 = new SampleEntityWithIdEquality();
+    SampleEntityWithIdEquality entity2 = new SampleEntityWithIdEquality();
+    Assert.assertEquals(entity1, entity1);
+    Assert.assertNotEquals(entity1, entity2);
+    Assert.assertEquals(System.identityHashCode(entity1), entity1.hashCode());
+
+    // Entities with equal technical identifiers are equal
+    entity1.setId("ID");
+    entity2.setId(new String("ID"));
+    entity2.setA("OTHER_VALUE");
+    Assert.assertEquals(entity1, entity2);
+    Assert.assertEquals("ID".hashCode(), entity1.hashCode());
+    Assert.assertEquals(entity1.hashCode(), entity2.hashCode());
+    Assert.assertNotEquals(entity1, null);
+    Assert.assertNotEquals(entity1, "ID");
+
+    Set<SampleEntityWithIdEquality> entities = new HashSet<SampleEntityWithIdEquality>();
+    entities.add(entity1);
+    entities.add(entity2);
+    Assert.assertEquals(1, entities.size());
+
+    // The cached hash code follows the technical identifier
+    entity2.set("id", "OTHER_ID");
+    Assert.assertNotEquals(entity1, entity2);
+    Assert.assertEquals("OTHER_ID".hashCode(), entity2.hashCode());
+  }
+
+  /**
+   * Test method for {@link AbstractIntIdEntity}.
+   */
+  @Test
+  public void testAbstractIntIdEntity() {
+    SampleIntIdEntity sampleEntity = new SampleIntIdEntity();
+    Assert.assertNull(sampleEntity.getId());
+    Assert.assertNull(sampleEntity.get("id"));
+    Assert.assertEquals(0, sampleEntity.getIntId());
+    Assert.assertEquals(0, sampleEntity.getInt("id"));
+
+    sampleEntity.setId(12);
+    Assert.assertEquals(Integer.valueOf(12), sampleEntity.getId());
+    Assert.assertEquals(12, sampleEntity.getIntId());
+    Assert.assertEquals(12, sampleEntity.getInt("id"));
+
+    sampleEntity.setInt("id", 13);
+    Assert.assertEquals(13, sampleEntity.getIntId());
+    Assert.assertEquals(Integer.valueOf(13), sampleEntity.get("id"));
+    Assert.assertSame(int.class,
+        EntityAttributes.of(SampleIntIdEntity.class).getAttribute("id").getType());
+
+    sampleEntity.setId(null);
+    Assert.assertEquals(0, sampleEntity.getIntId());
+
+    // The generic accessors use null for the 0 identifier, like getId() and setId()
+    sampleEntity.set("id", 14);
+    Assert.assertEquals(sampleEntity.getId(), sampleEntity.get("id"));
+    sampleEntity.set("id", null);
+    Assert.assertEquals(0, sampleEntity.getIntId());
+    Assert.assertNull(sampleEntity.get("id"));
+  }
+
+  /**
+   * Test method for {@link AbstractLongIdEntity}.
+   *
+   * @throws IllegalAccessException if the hidden identifier field cannot be read.
+   * @throws NoSuchFieldException if the hidden identifier field does not exist.
+   */
+  @Test
+  public void testAbstractLongIdEntity() throws IllegalAccessException, NoSuchFieldException {
+    SampleLongIdEntity sampleEntity1 = new SampleLongIdEntity();
+    Assert.assertNull(sampleEntity1.getId());
+    Assert.assertEquals(0L, sampleEntity1.getLongId());
+
+    sampleEntity1.setLongId(12L);
+    Assert.assertEquals(Long.valueOf(12L), sampleEntity1.getId());
+    Assert.assertEquals(12L, sampleEntity1.getLong("id"));
+
+    // The primitive identifier replaces the identifier of the parent class
+    EntityAttributes attributes = EntityAttributes.of(SampleLongIdEntity.class);
+    Assert.assertEquals(2, attributes.getAttributes().size());
+    Assert.assertEquals("id", attributes.getAttribute(0).getName());
+    Assert.assertSame(long.class, attributes.getAttribute(0).getType());
+    Assert.assertNull(attributes.getAttribute("longId"));
+    Assert.assertEquals(sampleEntity1.getId(), sampleEntity1.get("id"));
+
+    // The hidden identifier field of the parent class is never used
+    Field hiddenId = AbstractEntity.class.getDeclaredField("id");
+    hiddenId.setAccessible(true);
+    Assert.assertNull(hiddenId.get(sampleEntity1));
+    Assert.assertNull(hiddenId.get(EntityCopier.of(SampleLongIdEntity.class).copy(sampleEntity1)));
+    Assert.assertNull(new SampleLongIdEntity().get("id"));
+
+    // Identifier based equality without boxing
+    SampleLongIdEntity sampleEntity2 = new SampleLongIdEntity();
+    Assert.assertNotEquals(new SampleLongIdEntity(), sampleEntity2);
+    sampleEntity2.setId(12L);
+    Assert.assertEquals(sampleEntity1, sampleEntity2);
+    Assert.assertEquals(Long.hashCode(12L), sampleEntity2.hashCode());
+
+    sampleEntity2.setLong("id", 13L);
+    Assert.assertNotEquals(sampleEntity1, sampleEntity2);
+    Assert.assertTrue(sampleEntity2.getDirtyAttributes().contains("id"));
+  }
+
+  /**
+   * Test method for the Java serialization of the entities.
+   *
+   * @throws ClassNotFoundException if a serialized class cannot be found.
+   * @throws IOException if an entity cannot be serialized or deserialized.
+   */
+  @Test
+  public void testSerialization() throws ClassNotFoundException, IOException {
+    Date creationDate = new Date();
+    CompactSampleEntity sampleEntity = new CompactSampleEntity();
+    sampleEntity.setId(1);
+    sampleEntity.setA("A_VALUE");
+    sampleEntity.set("creationDate", creationDate);
+
+    Translation translation = new Translation();
+    translation.setLanguageCode("EN");
+    translation.setAttributeTranslation("translatableAttribute", "Hello");
+
+    CompactSampleTranslatableEntity translatableEntity = new CompactSampleTranslatableEntity();
+    translatableEntity.setId(2);
+    translatableEntity.setDefaultLanguageCode("FR");
+    translatableEntity.setTranslatableAttribute("Bonjour");
+    translatableEntity.setTranslation(translation);
+
+    Assert.assertTrue(SerializedEntity.replace(sampleEntity) instanceof SerializedEntity);
+    Assert.assertTrue(SerializedEntity.replace(translatableEntity) instanceof SerializedEntity);
+
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(outputStream)) {
+      objectOutputStream.writeObject(sampleEntity);
+      objectOutputStream.writeObject(translatableEntity);
+      objectOutputStream.writeObject(sampleEntity);
+    }
+
+    try (ObjectInputStream objectInputStream =
+        new ObjectInputStream(new ByteArrayInputStream(outputStream.toByteArray()))) {
+      CompactSampleEntity deserializedSampleEntity =
+          (CompactSampleEntity) objectInputStream.readObject();
+      Assert.assertEquals(Integer.valueOf(1), deserializedSampleEntity.getId());
+      Assert.assertEquals("A_VALUE", deserializedSampleEntity.getA());
+      Assert.assertEquals(creationDate, deserializedSampleEntity.getCreationDate());
+      Assert.assertNull(deserializedSampleEntity.getUpdateDate());
+
+      // The dirty attributes are not serialized
+      Assert.assertFalse(deserializedSampleEntity.isDirty());
+
+      CompactSampleTranslatableEntity deserializedTranslatableEntity =
+          (CompactSampleTranslatableEntity) objectInputStream.readObject();
+      Assert.assertEquals(Integer.valueOf(2), deserializedTranslatableEntity.getId());
+      Assert.assertEquals("FR", deserializedTranslatableEntity.getDefaultLanguageCode());
+      Assert.assertEquals("Bonjour", deserializedTranslatableEntity.getTranslatableAttribute());
+      Assert.assertEquals("Hello", deserializedTranslatableEntity.getTranslation("EN")
+          .getAttributeTranslation("translatableAttribute"));
+
+      // Shared references are preserved
+      Assert.assertSame(deserializedSampleEntity, objectInputStream.readObject());
+    }
+  }
+
+  /**
+   * Test method for the Java serialization of entities which cannot use the compact serialized
+   * form.
+   */
+  @Test
+  public void testSerializationWithDefaultForm() throws ClassNotFoundException, IOException {
+    SampleEntityWithSetAndUuid setAndUuidEntity = new SampleEntityWithSetAndUuid();
+    setAndUuidEntity.setId(1);
+    setAndUuidEntity.set("names", new HashSet<String>(Arrays.asList("A", "B")));
+    setAndUuidEntity.set("uuid", UUID.randomUUID());
+
+    SampleEntity sampleEntity = new SampleEntity();
+    sampleEntity.setId(2);
+    sampleEntity.setA("A_VALUE");
+
+    // The compact form is opt in and requires attribute types which can hold the decoded values
+    Assert.assertSame(setAndUuidEntity, SerializedEntity.replace(setAndUuidEntity));
+    Assert.assertSame(sampleEntity, SerializedEntity.replace(sampleEntity));
+
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(outputStream)) {
+      objectOutputStream.writeObject(setAndUuidEntity);
+      objectOutputStream.writeObject(sampleEntity);
+    }
+
+    try (ObjectInputStream objectInputStream =
+        new ObjectInputStream(new ByteArrayInputStream(outputStream.toByteArray()))) {
+      SampleEntityWithSetAndUuid deserializedSetAndUuidEntity =
+          (SampleEntityWithSetAndUuid) objectInputStream.readObject();
+      Assert.assertEquals(Integer.valueOf(1), deserializedSetAndUuidEntity.getId());
+      Assert.assertEquals(setAndUuidEntity.get("names"), deserializedSetAndUuidEntity.get("names"));
+      Assert.assertTrue(deserializedSetAndUuidEntity.get("names") instanceof HashSet);
+      Assert.assertEquals(setAndUuidEntity.get("uuid"), deserializedSetAndUuidEntity.get("uuid"));
+      Assert.assertFalse(deserializedSetAndUuidEntity.isDirty());
+
+      SampleEntity deserializedSampleEntity = (SampleEntity) objectInputStream.readObject();
+      Assert.assertEquals(Integer.valueOf(2), deserializedSampleEntity.getId());
+      Assert.assertEquals("A_VALUE", deserializedSampleEntity.getA());
+    }
+
+    // A serialized form which references a class which is not an entity is rejected
+    outputStream = new ByteArrayOutputStream();
+    try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(outputStream)) {
+      objectOutputStream.writeObject(String.class);
+      objectOutputStream.writeInt(0);
+    }
+
+    try (ObjectInputStream objectInputStream =
+        new ObjectInputStream(new ByteArrayInputStream(outputStream.toByteArray()))) {
+      new SerializedEntity().readExternal(objectInputStream);
+      Assert.fail("Must have thrown an InvalidObjectException !");
+    } catch (InvalidObjectException ioex) {
+      Assert.assertEquals("Invalid entity class 'class java.lang.String' !", ioex.getMessage());
+    }
+  }
+
+  /**
+   * Test method for the Java serialization of entities having attribute values which the compact
+   * serialized form would decode as instances of other classes.
+   *
+   * @throws ClassNotFoundException if a serialized class cannot be found.
+   * @throws IOException if an entity cannot be serialized or deserialized.
+   */
+  @Test
+  public void testSerializationWithNotRestoredValues() throws ClassNotFoundException, IOException {
+    CompactSampleEntityWithCollections entity = new CompactSampleEntityWithCollections();
+    entity.setId(1);
+    entity.set("date", new Date(1000L));
+    entity.set("list", new ArrayList<String>(Arrays.asList("A", "B")));
+    entity.set("map", new HashMap<String, String>(Collections.singletonMap("A", "B")));
+    Assert.assertTrue(SerializedEntity.replace(entity) instanceof SerializedEntity);
+
+    Timestamp timestamp = new Timestamp(1000L);
+    timestamp.setNanos(123456789);
+    entity.set("date", timestamp);
+    Assert.assertSame(entity, SerializedEntity.replace(entity));
+    Assert.assertEquals(timestamp, serializeAndDeserialize(entity).get("date"));
+
+    entity.set("date", new Date(1000L));
+    entity.set("map", new TreeMap<String, String>(Collections.singletonMap("A", "B")));
+    Assert.assertSame(entity, SerializedEntity.replace(entity));
+    Assert.assertTrue(serializeAndDeserialize(entity).get("map") instanceof TreeMap);
+
+    entity.set("map", new LinkedHashMap<String, String>(Collections.singletonMap("A", "B")));
+    Assert.assertSame(entity, SerializedEntity.replace(entity));
+    Assert.assertTrue(serializeAndDeserialize(entity).get("map") instanceof LinkedHashMap);
+
+    entity.set("map", null);
+    entity.set("list", new LinkedList<String>(Arrays.asList("A", "B")));
+    Assert.assertSame(entity, SerializedEntity.replace(entity));
+    Assert.assertTrue(serializeAndDeserialize(entity).get("list") instanceof LinkedList);
+  }
+
+  /**
+   * Test method for the rejection of compact serialized forms whose schema fingerprint does not
+   * match the entity class.
+   *
+   * @throws IOException if the serialized form cannot be written or read.
+   * @throws ClassNotFoundException if a serialized class cannot be found.
+   */
+  @Test
+  public void testSerializationWithIncompatibleForm() throws ClassNotFoundException, IOException {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(outputStream)) {
+      objectOutputStream.writeObject(CompactSampleEntity.class);
+      objectOutputStream.writeLong(0L);
+      objectOutputStream.writeInt(0);
+    }
+
+    try (ObjectInputStream objectInputStream =
+        new ObjectInputStream(new ByteArrayInputStream(outputStream.toByteArray()))) {
+      new SerializedEntity().readExternal(objectInputStream);
+      Assert.fail("Must have thrown an InvalidObjectException !");
+    } catch (InvalidObjectException ioex) {
+      Assert.assertEquals("Incompatible serialized form of entity class '"
+          + CompactSampleEntity.class.getName() + "' !", ioex.getMessage());
+    }
+  }
+
+  /**
+   * Serializes an entity and deserializes it using Java serialization.
+   *
+   * @param entity the entity to serialize.
+   *
+   * @return the deserialized entity.
+   *
+   * @throws ClassNotFoundException if a serialized class cannot be found.
+   * @throws IOException if the entity cannot be serialized or deserialized.
+   */
+  private static IEntity<?> serializeAndDeserialize(final IEntity<?> entity)
+      throws ClassNotFoundException, IOException {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(outputStream)) {
+      objectOutputStream.writeObject(entity);
+    }
+
+    try (ObjectInputStream objectInputStream =
+        new ObjectInputStream(new ByteArrayInputStream(outputStream.toByteArray()))) {
+      return (IEntity<?>) objectInputStream.readObject();
+    }
+  }
 }
@@ -34,11 +34,33 @@ package org.gomoob.model;
  * @author Simon BAUDRY (simon.baudry@gomoob.com)
  */
 public class SampleEntity extends AbstractEntity<Integer> implements IEntity<Integer> {
+
+  /**
+   * The version of the serialized form.
+   */
+  private static final long serialVersionUID = 1L;
+
   /**
    * A sample attribute to get / set.
    */
   private String attr;
 
+  /**
+   * Creates a new sample entity without technical identifier.
+   */
+  public SampleEntity() {
+    // Nothing to do
+  }
+
+  /**
+   * Creates a new sample entity.
+   *
+   * @param id the technical identifier of the entity.
+   */
+  public SampleEntity(final Integer id) {
+    this.setId(id);
+  }
+
   /**
    * Gets the value of the a attribute.
    *
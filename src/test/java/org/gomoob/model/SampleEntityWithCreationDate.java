@@ -35,6 +35,12 @@ package org.gomoob.model;
  */
 public class SampleEntityWithCreationDate extends AbstractEntityWithCreationDate<Integer>
     implements IEntityWithCreationDate<Integer> {
+
+  /**
+   * The version of the serialized form.
+   */
+  private static final long serialVersionUID = 1L;
+
   /**
    * A sample attribute to get / set.
    */
@@ -28,6 +28,8 @@
 
 package org.gomoob.model;
 
+import java.util.Date;
+
 /**
  * Sample entity used to test the `SampleEntityWithCreationDateAndUpdateDate` class.
  *
@@ -36,11 +38,35 @@ package org.gomoob.model;
 public class SampleEntityWithCreationDateAndUpdateDate
     extends AbstractEntityWithCreationDateAndUpdateDate<Integer>
     implements IEntityWithCreationDateAndUpdateDate<Integer> {
+
+  /**
+   * The version of the serialized form.
+   */
+  private static final long serialVersionUID = 1L;
+
   /**
    * A sample attribute to get / set.
    */
   private String attr;
 
+  /**
+   * Creates a new sample entity without technical identifier.
+   */
+  public SampleEntityWithCreationDateAndUpdateDate() {
+    // Nothing to do
+  }
+
+  /**
+   * Creates a new sample entity.
+   *
+   * @param id the technical identifier of the entity.
+   * @param updateDate the update date of the entity.
+   */
+  public SampleEntityWithCreationDateAndUpdateDate(final Integer id, final Date updateDate) {
+    this.setId(id);
+    this.setUpdateDate(updateDate);
+  }
+
   /**
    * Gets the value of the a attribute.
    *
@@ -0,0 +1,160 @@
+/**
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2017, GOMOOB All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided with
+ * the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.gomoob.model;
+
+/**
+ * Sample entity having primitive attributes used to test the `AbstractEntity` class.
+ *
+ * @author GOMOOB SARL (contact@gomoob.com)
+ */
+public class SampleEntityWithPrimitives extends AbstractEntity<Integer>
+    implements IEntity<Integer> {
+
+  /**
+   * The version of the serialized form.
+   */
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * A sample `boolean` attribute to get / set.
+   */
+  private boolean enabled;
+
+  /**
+   * A sample `double` attribute to get / set.
+   */
+  private double ratio;
+
+  /**
+   * A sample `int` attribute to get / set.
+   */
+  private int count;
+
+  /**
+   * A sample `long` attribute to get / set.
+   */
+  private long total;
+
+  /**
+   * Creates a new sample entity without technical identifier.
+   */
+  public SampleEntityWithPrimitives() {
+    // Nothing to do
+  }
+
+  /**
+   * Creates a new sample entity.
+   *
+   * @param id the technical identifier of the entity.
+   * @param enabled the value of the enabled attribute.
+   * @param ratio the value of the ratio attribute.
+   * @param count the value of the count attribute.
+   * @param total the value of the total attribute.
+   */
+  public SampleEntityWithPrimitives(final Integer id, final boolean enabled, final double ratio,
+      final int count, final long total) {
+    this.setId(id);
+    this.setEnabled(enabled);
+    this.setRatio(ratio);
+    this.setCount(count);
+    this.setTotal(total);
+  }
+
+  /**
+   * Gets the value of the count attribute.
+   *
+   * @return The value of the count attribute.
+   */
+  public int getCount() {
+    return this.count;
+  }
+
+  /**
+   * Gets the value of the ratio attribute.
+   *
+   * @return The value of the ratio attribute.
+   */
+  public double getRatio() {
+    return this.ratio;
+  }
+
+  /**
+   * Gets the value of the total attribute.
+   *
+   * @return The value of the total attribute.
+   */
+  public long getTotal() {
+    return this.total;
+  }
+
+  /**
+   * Gets the value of the enabled attribute.
+   *
+   * @return The value of the enabled attribute.
+   */
+  public boolean isEnabled() {
+    return this.enabled;
+  }
+
+  /**
+   * Sets the value of the count attribute.
+   *
+   * @param count The value of the count attribute to set.
+   */
+  public void setCount(final int count) {
+    this.count = count;
+  }
+
+  /**
+   * Sets the value of the enabled attribute.
+   *
+   * @param enabled The value of the enabled attribute to set.
+   */
+  public void setEnabled(final boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  /**
+   * Sets the value of the ratio attribute.
+   *
+   * @param ratio The value of the ratio attribute to set.
+   */
+  public void setRatio(final double ratio) {
+    this.ratio = ratio;
+  }
+
+  /**
+   * Sets the value of the total attribute.
+   *
+   * @param total The value of the total attribute to set.
+   */
+  public void setTotal(final long total) {
+    this.total = total;
+  }
+}
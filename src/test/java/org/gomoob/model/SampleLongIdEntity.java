@@ -0,0 +1,83 @@
+/**
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2017, GOMOOB All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided with
+ * the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.gomoob.model;
+
+/**
+ * Sample entity used to test the `AbstractLongIdEntity` class.
+ *
+ * @author GOMOOB SARL (contact@gomoob.com)
+ */
+@IdEquality
+public class SampleLongIdEntity extends AbstractLongIdEntity {
+
+  /**
+   * The version of the serialized form.
+   */
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * A sample attribute to get / set.
+   */
+  private String attr;
+
+  /**
+   * Creates a new sample entity without technical identifier.
+   */
+  public SampleLongIdEntity() {
+    // Nothing to do
+  }
+
+  /**
+   * Creates a new sample entity.
+   *
+   * @param id the technical identifier of the entity, `0` if the entity does not have any
+   *          technical identifier.
+   */
+  public SampleLongIdEntity(final long id) {
+    this.setLongId(id);
+  }
+
+  /**
+   * Gets the value of the a attribute.
+   *
+   * @return The value of the a attribute.
+   */
+  public String getA() {
+    return this.attr;
+  }
+
+  /**
+   * Sets the value of the a attribute.
+   *
+   * @param a The value of the a attribute to set.
+   */
+  public void setA(final String a) {
+    this.attr = a;
+  }
+}
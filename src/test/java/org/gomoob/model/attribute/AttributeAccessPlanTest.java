@@ -0,0 +1,96 @@
+/**
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2017, GOMOOB All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided with
+ * the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.gomoob.model.attribute;
+
+import java.util.Date;
+
+import org.gomoob.model.SampleEntityWithCreationDate;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test case for the {@link AttributeAccessPlan} class.
+ *
+ * @author GOMOOB SARL (contact@gomoob.com)
+ */
+public class AttributeAccessPlanTest {
+
+  /**
+   * Test method for {@link AttributeAccessPlan#compile(Class, String...)}.
+   */
+  @Test
+  public void testCompile() {
+    AttributeAccessPlan<SampleEntityWithCreationDate> plan =
+        AttributeAccessPlan.compile(SampleEntityWithCreationDate.class, "attr", "id");
+
+    Assert.assertSame(SampleEntityWithCreationDate.class, plan.getEntityClass());
+    Assert.assertEquals(2, plan.size());
+    Assert.assertArrayEquals(new String[] {"attr", "id"}, plan.getAttributeNames());
+
+    // Test with an unknown attribute
+    try {
+      AttributeAccessPlan.compile(SampleEntityWithCreationDate.class, "id", "unknownProperty");
+      Assert.fail("An IllegalArgumentException should be thrown !");
+    } catch (IllegalArgumentException iaex) {
+      Assert.assertEquals("No attribute named 'unknownProperty' has been found in class '"
+          + SampleEntityWithCreationDate.class.getName() + "' !", iaex.getMessage());
+    }
+  }
+
+  /**
+   * Test method for {@link AttributeAccessPlan#read(Object, Object[])} and
+   * {@link AttributeAccessPlan#write(Object, Object[])}.
+   */
+  @Test
+  public void testReadAndWrite() {
+    AttributeAccessPlan<SampleEntityWithCreationDate> plan = AttributeAccessPlan
+        .compile(SampleEntityWithCreationDate.class, "id", "creationDate", "attr");
+
+    Date creationDate = new Date();
+    SampleEntityWithCreationDate sampleEntity = new SampleEntityWithCreationDate();
+    plan.write(sampleEntity, new Object[] {1, creationDate, "A_VALUE"});
+
+    Assert.assertEquals(Integer.valueOf(1), sampleEntity.getId());
+    Assert.assertSame(creationDate, sampleEntity.getCreationDate());
+    Assert.assertSame("A_VALUE", sampleEntity.getA());
+
+    Object[] values = new Object[plan.size()];
+    plan.read(sampleEntity, values);
+    Assert.assertArrayEquals(new Object[] {1, creationDate, "A_VALUE"}, values);
+    Assert.assertArrayEquals(values, plan.read(sampleEntity));
+
+    // Test with a bad values array
+    try {
+      plan.read(sampleEntity, new Object[2]);
+      Assert.fail("An IllegalArgumentException should be thrown !");
+    } catch (IllegalArgumentException iaex) {
+      Assert.assertEquals("The values array must have a length equal to 3 !", iaex.getMessage());
+    }
+  }
+}
@@ -0,0 +1,125 @@
+/**
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2017, GOMOOB All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided with
+ * the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.gomoob.model.attribute;
+
+import java.util.Date;
+
+import org.gomoob.model.AbstractEntityWithCreationDate;
+import org.gomoob.model.IEntity;
+import org.gomoob.model.SampleEntity;
+import org.gomoob.model.SampleEntityWithCreationDate;
+import org.gomoob.model.SampleEntityWithCreationDateAndUpdateDate;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test case for the {@link AttributeKey} class.
+ *
+ * @author GOMOOB SARL (contact@gomoob.com)
+ */
+public class AttributeKeyTest {
+
+  /**
+   * Test method for {@link AttributeKey#of(Class, String, Class)}.
+   */
+  @Test
+  public void testOf() {
+    AttributeKey<SampleEntity, String> key =
+        AttributeKey.of(SampleEntity.class, "attr", String.class);
+
+    Assert.assertSame(SampleEntity.class, key.getEntityClass());
+    Assert.assertEquals("attr", key.getName());
+    Assert.assertSame(String.class, key.getType());
+    Assert.assertEquals(1, key.getIndex());
+
+    // Test with an unknown attribute
+    try {
+      AttributeKey.of(SampleEntity.class, "unknownProperty", String.class);
+      Assert.fail("An IllegalArgumentException should be thrown !");
+    } catch (IllegalArgumentException iaex) {
+      Assert.assertEquals("No attribute named 'unknownProperty' has been found in class '"
+          + SampleEntity.class.getName() + "' !", iaex.getMessage());
+    }
+
+    // Test with an incompatible type
+    try {
+      AttributeKey.of(SampleEntity.class, "attr", Date.class);
+      Assert.fail("An IllegalArgumentException should be thrown !");
+    } catch (IllegalArgumentException iaex) {
+      Assert.assertEquals("Attribute 'attr' is of type 'java.lang.String' which is not compatible "
+          + "with type 'java.util.Date' !", iaex.getMessage());
+    }
+  }
+
+  /**
+   * Test method for {@link IEntity#get(AttributeKey)} and
+   * {@link IEntity#set(AttributeKey, Object)}.
+   */
+  @Test
+  public void testGetAndSet() {
+    AttributeKey<SampleEntity, String> attr =
+        AttributeKey.of(SampleEntity.class, "attr", String.class);
+    AttributeKey<SampleEntity, Integer> id =
+        AttributeKey.of(SampleEntity.class, "id", Integer.class);
+
+    SampleEntity sampleEntity = new SampleEntity();
+    sampleEntity.set(attr, "A_VALUE");
+    sampleEntity.set(id, 1);
+
+    Assert.assertSame("A_VALUE", sampleEntity.getA());
+    Assert.assertEquals(Integer.valueOf(1), sampleEntity.getId());
+    Assert.assertSame("A_VALUE", sampleEntity.get(attr));
+    Assert.assertEquals(Integer.valueOf(1), sampleEntity.get(id));
+  }
+
+  /**
+   * Test method for {@link IEntity#get(AttributeKey)} and {@link IEntity#set(AttributeKey, Object)}
+   * with a key created for a parent class.
+   */
+  @SuppressWarnings("rawtypes")
+  @Test
+  public void testGetAndSetWithParentClassKey() {
+    AttributeKey<AbstractEntityWithCreationDate, Date> creationDate =
+        AttributeKey.of(AbstractEntityWithCreationDate.class, "creationDate", Date.class);
+
+    Date date = new Date();
+    SampleEntityWithCreationDate sampleEntity = new SampleEntityWithCreationDate();
+    SampleEntityWithCreationDateAndUpdateDate otherSampleEntity =
+        new SampleEntityWithCreationDateAndUpdateDate();
+
+    sampleEntity.set(creationDate, date);
+    otherSampleEntity.set(creationDate, date);
+
+    Assert.assertSame(date, sampleEntity.getCreationDate());
+    Assert.assertSame(date, otherSampleEntity.getCreationDate());
+    Assert.assertEquals(creationDate.getIndex(),
+        EntityAttributes.of(SampleEntityWithCreationDateAndUpdateDate.class)
+            .getAttribute("creationDate").getIndex());
+  }
+}
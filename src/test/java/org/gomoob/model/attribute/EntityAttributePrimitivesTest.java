@@ -0,0 +1,165 @@
+/**
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2017, GOMOOB All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided with
+ * the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.gomoob.model.attribute;
+
+import java.lang.management.ManagementFactory;
+
+import org.gomoob.model.SampleEntity;
+import org.gomoob.model.SampleEntityWithPrimitives;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test case for the primitive accessors of the {@link EntityAttribute} class.
+ *
+ * @author GOMOOB SARL (contact@gomoob.com)
+ */
+public class EntityAttributePrimitivesTest {
+
+  /**
+   * The number of iterations used to check that primitive accessors do not allocate memory.
+   */
+  private static final int ITERATIONS = 100000;
+
+  /**
+   * Test method for the primitive getters and setters of {@link org.gomoob.model.AbstractEntity}.
+   */
+  @Test
+  public void testGetAndSet() {
+    SampleEntityWithPrimitives sampleEntity = new SampleEntityWithPrimitives();
+
+    sampleEntity.setInt("count", 10);
+    sampleEntity.setLong("total", 20L);
+    sampleEntity.setDouble("ratio", 0.5);
+    sampleEntity.setBoolean("enabled", true);
+
+    Assert.assertEquals(10, sampleEntity.getCount());
+    Assert.assertEquals(20L, sampleEntity.getTotal());
+    Assert.assertEquals(0.5, sampleEntity.getRatio(), 0.0);
+    Assert.assertTrue(sampleEntity.isEnabled());
+
+    Assert.assertEquals(10, sampleEntity.getInt("count"));
+    Assert.assertEquals(20L, sampleEntity.getLong("total"));
+    Assert.assertEquals(0.5, sampleEntity.getDouble("ratio"), 0.0);
+    Assert.assertTrue(sampleEntity.getBoolean("enabled"));
+
+    // Widening conversions are allowed
+    Assert.assertEquals(10L, sampleEntity.getLong("count"));
+    Assert.assertEquals(20.0, sampleEntity.getDouble("total"), 0.0);
+    sampleEntity.setLong("ratio", 3L);
+    Assert.assertEquals(3.0, sampleEntity.getRatio(), 0.0);
+
+    // Boxed attributes are unboxed
+    sampleEntity.setId(5);
+    Assert.assertEquals(5, sampleEntity.getInt("id"));
+
+    // Narrowing conversions are not allowed
+    try {
+      sampleEntity.getInt("total");
+      Assert.fail("A RuntimeException should be thrown !");
+    } catch (RuntimeException rex) {
+      Assert.assertEquals("Fail to get value of property 'total' !", rex.getMessage());
+      Assert.assertEquals("Property 'total' of type 'long' cannot be converted to 'int' !",
+          rex.getCause().getMessage());
+    }
+
+    try {
+      sampleEntity.setDouble("count", 1.5);
+      Assert.fail("A RuntimeException should be thrown !");
+    } catch (RuntimeException rex) {
+      Assert.assertEquals("Fail to set value of property 'count' !", rex.getMessage());
+    }
+
+    // Test with a non numeric attribute
+    SampleEntity otherSampleEntity = new SampleEntity();
+    otherSampleEntity.setA("A_VALUE");
+    try {
+      otherSampleEntity.getInt("attr");
+      Assert.fail("A RuntimeException should be thrown !");
+    } catch (RuntimeException rex) {
+      Assert.assertEquals("Fail to get value of property 'attr' !", rex.getMessage());
+    }
+  }
+
+  /**
+   * Checks that the primitive getters and setters of {@link org.gomoob.model.AbstractEntity} do not
+   * allocate any memory.
+   */
+  @Test
+  public void testGetAndSetDoNotAllocate() {
+    if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+      return;
+    }
+
+    com.sun.management.ThreadMXBean threadMxBean =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    if (!threadMxBean.isThreadAllocatedMemorySupported()) {
+      return;
+    }
+    threadMxBean.setThreadAllocatedMemoryEnabled(true);
+
+    SampleEntityWithPrimitives sampleEntity = new SampleEntityWithPrimitives();
+
+    // Warm up
+    long checksum = this.readAndWrite(sampleEntity);
+
+    long threadId = Thread.currentThread().getId();
+    long allocatedBytes = threadMxBean.getThreadAllocatedBytes(threadId);
+    checksum += this.readAndWrite(sampleEntity);
+    allocatedBytes = threadMxBean.getThreadAllocatedBytes(threadId) - allocatedBytes;
+
+    // Boxing would allocate several megabytes, a few bytes can be allocated by the measure itself
+    Assert.assertTrue("Primitive accessors allocated " + allocatedBytes + " bytes !",
+        allocatedBytes < 1024);
+    Assert.assertTrue(checksum != 0);
+  }
+
+  /**
+   * Reads and writes the primitive attributes of an entity a large number of times.
+   *
+   * @param sampleEntity the entity to read and write.
+   *
+   * @return a checksum of the values which have been read.
+   */
+  private long readAndWrite(final SampleEntityWithPrimitives sampleEntity) {
+    long checksum = 0;
+
+    for (int i = 0; i < ITERATIONS; ++i) {
+      sampleEntity.setInt("count", i + 1000);
+      sampleEntity.setLong("total", i + 100000L);
+      sampleEntity.setDouble("ratio", i + 0.5);
+      sampleEntity.setBoolean("enabled", (i & 1) == 0);
+
+      checksum += sampleEntity.getInt("count") + sampleEntity.getLong("total")
+          + (long) sampleEntity.getDouble("ratio") + (sampleEntity.getBoolean("enabled") ? 1 : 0);
+    }
+
+    return checksum;
+  }
+}
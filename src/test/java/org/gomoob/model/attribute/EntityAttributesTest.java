@@ -0,0 +1,173 @@
+/**
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2017, GOMOOB All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided with
+ * the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.gomoob.model.attribute;
+
+import java.util.Date;
+
+import org.gomoob.model.AbstractEntity;
+import org.gomoob.model.SampleEntity;
+import org.gomoob.model.SampleEntityWithCreationDateAndUpdateDate;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test case for the {@link EntityAttributes} class.
+ *
+ * @author GOMOOB SARL (contact@gomoob.com)
+ */
+public class EntityAttributesTest {
+
+  /**
+   * Sample entity having a transient attribute.
+   */
+  public static class SampleEntityWithTransientAttribute extends AbstractEntity<Integer> {
+
+    /**
+     * The version of the serialized form.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * A transient attribute, which is not serialized but is still an attribute of the entity.
+     */
+    private transient String cached;
+  }
+
+  /**
+   * Test method for {@link EntityAttributes#of(Class)}.
+   */
+  @Test
+  public void testOf() {
+    EntityAttributes attributes = EntityAttributes.of(SampleEntity.class);
+
+    Assert.assertSame(attributes, EntityAttributes.of(SampleEntity.class));
+    Assert.assertSame(SampleEntity.class, attributes.getType());
+    Assert.assertEquals(2, attributes.getAttributes().size());
+    Assert.assertNull(attributes.getAttribute("unknownProperty"));
+
+    // The attributes of the parent classes come first
+    Assert.assertEquals("id", attributes.getAttributes().get(0).getName());
+    Assert.assertEquals("attr", attributes.getAttributes().get(1).getName());
+
+    EntityAttribute attribute = attributes.getAttribute("attr");
+    Assert.assertEquals("attr", attribute.getName());
+    Assert.assertSame(String.class, attribute.getType());
+  }
+
+  /**
+   * Test method for {@link EntityAttributes#get(Object, String)} and
+   * {@link EntityAttributes#set(Object, String, Object)}.
+   */
+  @Test
+  public void testGetAndSet() {
+    EntityAttributes attributes = EntityAttributes.of(SampleEntity.class);
+    SampleEntity sampleEntity = new SampleEntity();
+
+    attributes.set(sampleEntity, "attr", "A_VALUE");
+    Assert.assertSame("A_VALUE", sampleEntity.getA());
+    Assert.assertSame("A_VALUE", attributes.get(sampleEntity, "attr"));
+
+    // Test with an unknown attribute
+    try {
+      attributes.get(sampleEntity, "unknownProperty");
+      Assert.fail("A RuntimeException should be thrown !");
+    } catch (RuntimeException rex) {
+      Assert.assertEquals("Fail to get value of property 'unknownProperty' !", rex.getMessage());
+      Assert.assertTrue(rex.getCause() instanceof NoSuchFieldException);
+    }
+
+    try {
+      attributes.set(sampleEntity, "unknownProperty", "A_VALUE");
+      Assert.fail("A RuntimeException should be thrown !");
+    } catch (RuntimeException rex) {
+      Assert.assertEquals("Fail to set value of property 'unknownProperty' !", rex.getMessage());
+      Assert.assertTrue(rex.getCause() instanceof NoSuchFieldException);
+    }
+
+    // Test with a value having a bad type
+    try {
+      attributes.set(sampleEntity, "attr", 10);
+      Assert.fail("A RuntimeException should be thrown !");
+    } catch (RuntimeException rex) {
+      Assert.assertEquals("Fail to set value of property 'attr' !", rex.getMessage());
+    }
+
+    Assert.assertSame("A_VALUE", sampleEntity.getA());
+  }
+
+  /**
+   * Test method for {@link EntityAttributes#get(Object, String)} and
+   * {@link EntityAttributes#set(Object, String, Object)} with inherited attributes.
+   */
+  @Test
+  public void testGetAndSetInheritedAttributes() {
+    EntityAttributes attributes =
+        EntityAttributes.of(SampleEntityWithCreationDateAndUpdateDate.class);
+    SampleEntityWithCreationDateAndUpdateDate sampleEntity =
+        new SampleEntityWithCreationDateAndUpdateDate();
+
+    Assert.assertEquals(4, attributes.getAttributes().size());
+    Assert.assertEquals("id", attributes.getAttributes().get(0).getName());
+    Assert.assertEquals("creationDate", attributes.getAttributes().get(1).getName());
+    Assert.assertEquals("updateDate", attributes.getAttributes().get(2).getName());
+    Assert.assertEquals("attr", attributes.getAttributes().get(3).getName());
+
+    Date creationDate = new Date();
+    Date updateDate = new Date();
+    attributes.set(sampleEntity, "id", 1);
+    attributes.set(sampleEntity, "creationDate", creationDate);
+    attributes.set(sampleEntity, "updateDate", updateDate);
+
+    Assert.assertEquals(Integer.valueOf(1), sampleEntity.getId());
+    Assert.assertSame(creationDate, sampleEntity.getCreationDate());
+    Assert.assertSame(updateDate, sampleEntity.getUpdateDate());
+    Assert.assertSame(creationDate, attributes.get(sampleEntity, "creationDate"));
+    Assert.assertSame(updateDate, attributes.get(sampleEntity, "updateDate"));
+  }
+
+  /**
+   * Test method for {@link EntityAttributes#of(Class)} with an entity class declaring a transient
+   * field.
+   */
+  @Test
+  public void testOfWithTransientField() {
+    EntityAttributes attributes = EntityAttributes.of(SampleEntityWithTransientAttribute.class);
+    SampleEntityWithTransientAttribute sampleEntity = new SampleEntityWithTransientAttribute();
+
+    // The transient fields of the entity class are attributes, the ones of AbstractEntity are not
+    Assert.assertEquals(2, attributes.getAttributes().size());
+    Assert.assertEquals("id", attributes.getAttributes().get(0).getName());
+    Assert.assertEquals("cached", attributes.getAttributes().get(1).getName());
+    Assert.assertNull(attributes.getAttribute("dirtyAttributes"));
+
+    sampleEntity.set("cached", "A_VALUE");
+    Assert.assertEquals("A_VALUE", sampleEntity.cached);
+    Assert.assertEquals("A_VALUE", sampleEntity.get("cached"));
+  }
+}
@@ -0,0 +1,220 @@
+/**
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2017, GOMOOB All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided with
+ * the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.gomoob.model.cache;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.gomoob.model.SampleEntityWithCreationDateAndUpdateDate;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test case for the {@link EntityCache} class.
+ *
+ * @author GOMOOB SARL (contact@gomoob.com)
+ */
+public class EntityCacheTest {
+
+  /**
+   * Test method for {@link EntityCache#get(java.io.Serializable)} with expiration and eviction.
+   */
+  @Test
+  public void testExpirationAndEviction() {
+    AtomicLong clock = new AtomicLong();
+    AtomicInteger loadCount = new AtomicInteger();
+    EntityCache<Integer, SampleEntityWithCreationDateAndUpdateDate> cache =
+        new EntityCache<Integer, SampleEntityWithCreationDateAndUpdateDate>(id -> {
+          loadCount.incrementAndGet();
+          return id < 0 ? null : new SampleEntityWithCreationDateAndUpdateDate(id, null);
+        }, null, 2, 10, 5, TimeUnit.NANOSECONDS, Runnable::run, clock::get);
+
+    SampleEntityWithCreationDateAndUpdateDate sampleEntity = cache.get(1);
+    Assert.assertSame(sampleEntity, cache.get(1));
+    Assert.assertEquals(1, loadCount.get());
+
+    // Expired entities are loaded again
+    clock.set(10);
+    Assert.assertNotSame(sampleEntity, cache.get(1));
+    Assert.assertEquals(2, loadCount.get());
+
+    // Entities which do not exist are not cached
+    Assert.assertNull(cache.get(-1));
+    Assert.assertEquals(1, cache.size());
+
+    // The oldest entities are evicted
+    cache.get(2);
+    cache.get(3);
+    Assert.assertEquals(2, cache.size());
+    cache.get(1);
+    Assert.assertEquals(6, loadCount.get());
+
+    cache.invalidate(1);
+    Assert.assertEquals(1, cache.size());
+    cache.invalidateAll();
+    Assert.assertEquals(0, cache.size());
+
+    // Invalidated entities are skipped by the eviction, even if they are cached again
+    cache.get(4);
+    cache.get(5);
+    cache.invalidate(4);
+    cache.get(4);
+    cache.get(6);
+    Assert.assertEquals(2, cache.size());
+    loadCount.set(0);
+    cache.get(4);
+    cache.get(6);
+    Assert.assertEquals(0, loadCount.get());
+
+    // The dead entries are purged once enough entities have been invalidated
+    for (int i = 0; i < 10; ++i) {
+      cache.get(7);
+      cache.invalidate(7);
+    }
+    Assert.assertEquals(1, cache.size());
+    cache.get(8);
+    cache.get(9);
+    Assert.assertEquals(2, cache.size());
+    loadCount.set(0);
+    cache.get(8);
+    cache.get(9);
+    Assert.assertEquals(0, loadCount.get());
+
+    // Failed loads are not cached
+    EntityCache<Integer, SampleEntityWithCreationDateAndUpdateDate> failingCache =
+        new EntityCache<Integer, SampleEntityWithCreationDateAndUpdateDate>(id -> {
+          throw new IllegalStateException("Database unavailable !");
+        }, 10, 10, 5, TimeUnit.MINUTES, Runnable::run);
+
+    try {
+      failingCache.get(1);
+      Assert.fail("An IllegalStateException should be thrown !");
+    } catch (IllegalStateException isex) {
+      Assert.assertEquals("Database unavailable !", isex.getMessage());
+      Assert.assertEquals(0, failingCache.size());
+    }
+  }
+
+  /**
+   * Test method for {@link EntityCache#get(java.io.Serializable)} with asynchronous refreshes.
+   */
+  @Test
+  public void testRefresh() {
+    AtomicLong clock = new AtomicLong();
+    AtomicInteger loadCount = new AtomicInteger();
+    AtomicLong updateTime = new AtomicLong(1000L);
+    List<Runnable> refreshes = new ArrayList<Runnable>();
+    EntityCache<Integer, SampleEntityWithCreationDateAndUpdateDate> cache =
+        new EntityCache<Integer, SampleEntityWithCreationDateAndUpdateDate>(id -> {
+          loadCount.incrementAndGet();
+          return new SampleEntityWithCreationDateAndUpdateDate(id, new Date(updateTime.get()));
+        }, id -> new Date(updateTime.get()), 10, 10, 5, TimeUnit.NANOSECONDS, refreshes::add,
+            clock::get);
+
+    SampleEntityWithCreationDateAndUpdateDate sampleEntity = cache.get(1);
+
+    // The cached entity is returned while the refresh is scheduled only once
+    clock.set(5);
+    Assert.assertSame(sampleEntity, cache.get(1));
+    Assert.assertSame(sampleEntity, cache.get(1));
+    Assert.assertEquals(1, refreshes.size());
+
+    // The update date has not changed, the entity is not loaded again
+    refreshes.remove(0).run();
+    Assert.assertSame(sampleEntity, cache.get(1));
+    Assert.assertEquals(1, loadCount.get());
+
+    // The update date has changed, the entity is loaded again
+    clock.set(10);
+    updateTime.set(2000L);
+    Assert.assertSame(sampleEntity, cache.get(1));
+    refreshes.remove(0).run();
+    Assert.assertEquals(2, loadCount.get());
+    Assert.assertEquals(new Date(2000L), cache.get(1).getUpdateDate());
+
+    // Put entities are returned without any load
+    SampleEntityWithCreationDateAndUpdateDate savedEntity =
+        new SampleEntityWithCreationDateAndUpdateDate(2, null);
+    cache.put(savedEntity);
+    Assert.assertSame(savedEntity, cache.get(2));
+    Assert.assertEquals(2, loadCount.get());
+  }
+
+  /**
+   * Test method for {@link EntityCache#get(java.io.Serializable)} with concurrent requests.
+   *
+   * @throws InterruptedException if the test is interrupted.
+   */
+  @Test
+  public void testSingleFlight() throws InterruptedException {
+    int threadCount = 8;
+    CountDownLatch startLatch = new CountDownLatch(threadCount);
+    AtomicInteger loadCount = new AtomicInteger();
+    EntityCache<Integer, SampleEntityWithCreationDateAndUpdateDate> cache =
+        new EntityCache<Integer, SampleEntityWithCreationDateAndUpdateDate>(id -> {
+          loadCount.incrementAndGet();
+          try {
+            Thread.sleep(100);
+          } catch (InterruptedException iex) {
+            Thread.currentThread().interrupt();
+          }
+          return new SampleEntityWithCreationDateAndUpdateDate(id, null);
+        }, 10, 10, 5, TimeUnit.MINUTES, Runnable::run);
+
+    Object[] results = new Object[threadCount];
+    Thread[] threads = new Thread[threadCount];
+    for (int i = 0; i < threadCount; ++i) {
+      int index = i;
+      threads[i] = new Thread(() -> {
+        startLatch.countDown();
+        try {
+          startLatch.await();
+        } catch (InterruptedException iex) {
+          Thread.currentThread().interrupt();
+        }
+        results[index] = cache.get(1);
+      });
+      threads[i].start();
+    }
+
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    Assert.assertEquals(1, loadCount.get());
+    for (Object result : results) {
+      Assert.assertSame(results[0], result);
+    }
+  }
+}
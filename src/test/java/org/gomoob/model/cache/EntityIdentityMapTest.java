@@ -0,0 +1,160 @@
+/**
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2017, GOMOOB All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided with
+ * the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.gomoob.model.cache;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.gomoob.model.SampleEntity;
+import org.gomoob.model.SampleEntityWithCreationDate;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test case for the {@link EntityIdentityMap} class.
+ *
+ * @author GOMOOB SARL (contact@gomoob.com)
+ */
+public class EntityIdentityMapTest {
+
+  /**
+   * Subclass of a sample entity, like the proxies created by persistence frameworks.
+   */
+  public static class SampleEntityProxy extends SampleEntity {
+
+    /**
+     * The version of the serialized form.
+     */
+    private static final long serialVersionUID = 1L;
+  }
+
+  /**
+   * Test method for {@link EntityIdentityMap#EntityIdentityMap(int)}.
+   */
+  @Test
+  public void testEviction() {
+    EntityIdentityMap identityMap = new EntityIdentityMap(2);
+    Assert.assertEquals(2, identityMap.getMaxSize());
+
+    SampleEntity sampleEntity1 = identityMap.register(new SampleEntity(1));
+    identityMap.register(new SampleEntity(2));
+
+    // Accessing the first entity makes the second one the least recently used
+    Assert.assertSame(sampleEntity1, identityMap.get(SampleEntity.class, 1));
+    identityMap.register(new SampleEntity(3));
+
+    Assert.assertEquals(2, identityMap.size());
+    Assert.assertTrue(identityMap.contains(SampleEntity.class, 1));
+    Assert.assertFalse(identityMap.contains(SampleEntity.class, 2));
+    Assert.assertTrue(identityMap.contains(SampleEntity.class, 3));
+
+    // Test with an invalid maximum size
+    try {
+      new EntityIdentityMap(0);
+      Assert.fail("An IllegalArgumentException should be thrown !");
+    } catch (IllegalArgumentException iaex) {
+      Assert.assertEquals("The maximum size must be strictly positive !", iaex.getMessage());
+    }
+  }
+
+  /**
+   * Test method for {@link EntityIdentityMap#load(Class, java.io.Serializable,
+   * java.util.function.Function)}.
+   */
+  @Test
+  public void testLoad() {
+    EntityIdentityMap identityMap = new EntityIdentityMap();
+    AtomicInteger loadCount = new AtomicInteger();
+
+    SampleEntity sampleEntity = identityMap.load(SampleEntity.class, 1, id -> {
+      loadCount.incrementAndGet();
+      return new SampleEntity(id);
+    });
+    SampleEntity sameSampleEntity = identityMap.load(SampleEntity.class, 1, id -> {
+      loadCount.incrementAndGet();
+      return new SampleEntity(id);
+    });
+
+    Assert.assertSame(sampleEntity, sameSampleEntity);
+    Assert.assertEquals(1, loadCount.get());
+
+    // The loaded entities are registered under the requested class
+    SampleEntityProxy sampleEntityProxy = new SampleEntityProxy();
+    sampleEntityProxy.setId(3);
+    Assert.assertSame(sampleEntityProxy,
+        identityMap.load(SampleEntity.class, 3, id -> sampleEntityProxy));
+    Assert.assertSame(sampleEntityProxy, identityMap.load(SampleEntity.class, 3, id -> {
+      loadCount.incrementAndGet();
+      return new SampleEntity(id);
+    }));
+    Assert.assertEquals(1, loadCount.get());
+    Assert.assertFalse(identityMap.contains(SampleEntityProxy.class, 3));
+
+    // Entities which are not found are not registered
+    Assert.assertNull(identityMap.load(SampleEntity.class, 2, id -> null));
+    Assert.assertEquals(2, identityMap.size());
+  }
+
+  /**
+   * Test method for {@link EntityIdentityMap#register(org.gomoob.model.IEntity)},
+   * {@link EntityIdentityMap#get(Class, java.io.Serializable)} and
+   * {@link EntityIdentityMap#remove(Class, java.io.Serializable)}.
+   */
+  @Test
+  public void testRegister() {
+    EntityIdentityMap identityMap = new EntityIdentityMap();
+    SampleEntity sampleEntity = new SampleEntity(1);
+
+    Assert.assertSame(sampleEntity, identityMap.register(sampleEntity));
+    Assert.assertSame(sampleEntity, identityMap.register(new SampleEntity(1)));
+    Assert.assertSame(sampleEntity, identityMap.get(SampleEntity.class, 1));
+    Assert.assertNull(identityMap.get(SampleEntity.class, 2));
+    Assert.assertNull(identityMap.get(SampleEntity.class, null));
+
+    // The entity class is part of the key
+    SampleEntityWithCreationDate otherSampleEntity = new SampleEntityWithCreationDate();
+    otherSampleEntity.setId(1);
+    Assert.assertSame(otherSampleEntity, identityMap.register(otherSampleEntity));
+    Assert.assertSame(otherSampleEntity, identityMap.get(SampleEntityWithCreationDate.class, 1));
+    Assert.assertEquals(2, identityMap.size());
+
+    Assert.assertSame(sampleEntity, identityMap.remove(SampleEntity.class, 1));
+    Assert.assertFalse(identityMap.contains(SampleEntity.class, 1));
+    identityMap.clear();
+    Assert.assertEquals(0, identityMap.size());
+
+    // Test with an entity without technical identifier
+    try {
+      identityMap.register(new SampleEntity());
+      Assert.fail("An IllegalArgumentException should be thrown !");
+    } catch (IllegalArgumentException iaex) {
+      Assert.assertEquals("Cannot register an entity without technical identifier !",
+          iaex.getMessage());
+    }
+  }
+}
@@ -0,0 +1,220 @@
+/**
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2017, GOMOOB All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided with
+ * the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.gomoob.model.codec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Date;
+
+import org.gomoob.model.SampleEntity;
+import org.gomoob.model.SampleEntityWithCreationDateAndUpdateDate;
+import org.gomoob.model.SampleEntityWithPrimitives;
+import org.gomoob.model.action.Action;
+import org.gomoob.model.translation.SampleTranslatableEntity;
+import org.gomoob.model.translation.Translation;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test case for the {@link EntityCodec} class.
+ *
+ * @author GOMOOB SARL (contact@gomoob.com)
+ */
+public class EntityCodecTest {
+
+  /**
+   * Test method for {@link EntityCodec#encode(Object)} and {@link EntityCodec#decode(ByteBuffer)}.
+   */
+  @Test
+  public void testEncodeAndDecode() {
+    EntityCodec<Action> codec = EntityCodec.of(Action.class);
+    Assert.assertSame(codec, EntityCodec.of(Action.class));
+
+    Action action = new Action();
+    action.setId("5");
+    action.setName("ACTION");
+    action.setCreationDate(new Date());
+    action.setMetadata(new JSONObject().put("a", 1).put("b", new JSONArray().put("c")));
+
+    Action decodedAction = codec.decode(ByteBuffer.wrap(codec.encode(action)));
+    Assert.assertEquals("5", decodedAction.getId());
+    Assert.assertEquals("ACTION", decodedAction.getName());
+    Assert.assertEquals(action.getCreationDate(), decodedAction.getCreationDate());
+
+    // The metadata are decoded as raw bytes and parsed only when they are read
+    Assert.assertFalse(decodedAction.getJsonMetadata().isParsed());
+    Action reencodedAction = codec.decode(ByteBuffer.wrap(codec.encode(decodedAction)));
+    Assert.assertFalse(decodedAction.getJsonMetadata().isParsed());
+    Assert.assertTrue(action.getMetadata().similar(decodedAction.getMetadata()));
+    Assert.assertTrue(decodedAction.getJsonMetadata().isParsed());
+    Assert.assertTrue(action.getMetadata().similar(reencodedAction.getMetadata()));
+
+    // Primitive attributes
+    SampleEntityWithPrimitives sampleEntity = new SampleEntityWithPrimitives();
+    sampleEntity.setBoolean("enabled", true);
+    sampleEntity.setDouble("ratio", 0.25);
+    sampleEntity.setInt("count", -3);
+    sampleEntity.setLong("total", Long.MAX_VALUE);
+
+    SampleEntityWithPrimitives decodedSampleEntity = EntityCodec
+        .of(SampleEntityWithPrimitives.class).decode(ByteBuffer.wrap(
+            EntityCodec.of(SampleEntityWithPrimitives.class).encode(sampleEntity)));
+    Assert.assertTrue(decodedSampleEntity.getBoolean("enabled"));
+    Assert.assertEquals(0.25, decodedSampleEntity.getDouble("ratio"), 0.0);
+    Assert.assertEquals(-3, decodedSampleEntity.getInt("count"));
+    Assert.assertEquals(Long.MAX_VALUE, decodedSampleEntity.getLong("total"));
+
+    // Numbers close to 0 use less bytes
+    int length = EntityCodec.of(SampleEntityWithPrimitives.class).encode(sampleEntity).length;
+    sampleEntity.setInt("count", Integer.MIN_VALUE);
+    Assert.assertEquals(length + 4,
+        EntityCodec.of(SampleEntityWithPrimitives.class).encode(sampleEntity).length);
+
+    // Translatable entities
+    Translation translation = new Translation();
+    translation.setLanguageCode("EN");
+    translation.setAttributeTranslation("translatableAttribute", "Hello");
+
+    SampleTranslatableEntity translatableEntity = new SampleTranslatableEntity();
+    translatableEntity.setId(1);
+    translatableEntity.setDefaultLanguageCode("FR");
+    translatableEntity.setTranslatableAttribute("Bonjour \u00e9t\u00e9 \u20ac \ud83c\udf0d");
+    translatableEntity.setTranslation(translation);
+
+    EntityCodec<SampleTranslatableEntity> translatableCodec =
+        EntityCodec.of(SampleTranslatableEntity.class);
+    SampleTranslatableEntity decodedTranslatableEntity =
+        translatableCodec.decode(ByteBuffer.wrap(translatableCodec.encode(translatableEntity)));
+    Assert.assertEquals(Integer.valueOf(1), decodedTranslatableEntity.getId());
+    Assert.assertEquals("FR", decodedTranslatableEntity.getDefaultLanguageCode());
+    Assert.assertEquals("Bonjour \u00e9t\u00e9 \u20ac \ud83c\udf0d",
+        decodedTranslatableEntity.getTranslatableAttribute());
+    Assert.assertNull(decodedTranslatableEntity.getNotTranslatableAttribute());
+    Assert.assertEquals("EN", decodedTranslatableEntity.getTranslation("EN").getLanguageCode());
+    Assert.assertEquals("Hello", decodedTranslatableEntity.getTranslation("EN")
+        .getAttributeTranslation("translatableAttribute"));
+
+    // Decoding into an existing entity resets the null attributes
+    SampleTranslatableEntity target = new SampleTranslatableEntity();
+    target.setNotTranslatableAttribute(5);
+    translatableCodec.decode(ByteBuffer.wrap(translatableCodec.encode(translatableEntity)), target);
+    Assert.assertEquals(translatableEntity.getTranslatableAttribute(),
+        target.getTranslatableAttribute());
+    Assert.assertNull(target.getNotTranslatableAttribute());
+  }
+
+  /**
+   * Test method for {@link EntityCodec#encode(Object, ByteBuffer)}.
+   */
+  @Test
+  public void testEncodeIntoBuffer() {
+    EntityCodec<SampleEntity> codec = EntityCodec.of(SampleEntity.class);
+
+    SampleEntity sampleEntity = new SampleEntity();
+    sampleEntity.setId(1);
+    sampleEntity.setA("A_VALUE");
+
+    // Several entities can be written one after the other
+    ByteBuffer buffer = ByteBuffer.allocate(1024);
+    codec.encode(sampleEntity, buffer);
+    int length = buffer.position();
+    codec.encode(sampleEntity, buffer);
+    Assert.assertEquals(2 * length, buffer.position());
+    Assert.assertArrayEquals(codec.encode(sampleEntity), Arrays.copyOf(buffer.array(), length));
+
+    buffer.flip();
+    Assert.assertEquals("A_VALUE", codec.decode(buffer).getA());
+    Assert.assertEquals("A_VALUE", codec.decode(buffer).getA());
+    Assert.assertFalse(buffer.hasRemaining());
+
+    // Test with a too small buffer
+    try {
+      codec.encode(sampleEntity, ByteBuffer.allocate(4));
+      Assert.fail("A BufferOverflowException should be thrown !");
+    } catch (BufferOverflowException boex) {
+      // Expected
+    }
+  }
+
+  /**
+   * Test method for {@link EntityCodec#encode(Object, OutputStream)} and
+   * {@link EntityCodec#decode(InputStream)}.
+   *
+   * @throws IOException if an entity cannot be encoded or decoded.
+   */
+  @Test
+  public void testEncodeAndDecodeStreams() throws IOException {
+    EntityCodec<SampleEntityWithCreationDateAndUpdateDate> codec =
+        EntityCodec.of(SampleEntityWithCreationDateAndUpdateDate.class);
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+    for (int i = 0; i < 3; ++i) {
+      SampleEntityWithCreationDateAndUpdateDate sampleEntity =
+          new SampleEntityWithCreationDateAndUpdateDate();
+      sampleEntity.setId(i);
+      sampleEntity.setA("A_" + i);
+      sampleEntity.setCreationDate(new Date(1500000000000L + i));
+      codec.encode(sampleEntity, outputStream);
+    }
+
+    // The stream and buffer encodings are identical
+    byte[] bytes = outputStream.toByteArray();
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    InputStream inputStream = new ByteArrayInputStream(bytes);
+
+    for (int i = 0; i < 3; ++i) {
+      SampleEntityWithCreationDateAndUpdateDate sampleEntity = codec.decode(inputStream);
+      Assert.assertEquals(Integer.valueOf(i), sampleEntity.getId());
+      Assert.assertEquals("A_" + i, sampleEntity.getA());
+      Assert.assertEquals(new Date(1500000000000L + i), sampleEntity.getCreationDate());
+      Assert.assertNull(sampleEntity.getUpdateDate());
+      Assert.assertEquals("A_" + i, codec.decode(buffer).getA());
+    }
+
+    Assert.assertEquals(-1, inputStream.read());
+    Assert.assertFalse(buffer.hasRemaining());
+
+    // Test with a truncated stream
+    try {
+      codec.decode(new ByteArrayInputStream(Arrays.copyOf(bytes, 4)));
+      Assert.fail("An EOFException should be thrown !");
+    } catch (EOFException eofex) {
+      Assert.assertEquals("Unexpected end of stream !", eofex.getMessage());
+    }
+  }
+}
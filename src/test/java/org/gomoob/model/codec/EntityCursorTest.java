@@ -0,0 +1,194 @@
+/**
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2017, GOMOOB All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided with
+ * the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.gomoob.model.codec;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.gomoob.model.SampleEntityWithPrimitives;
+import org.gomoob.model.SampleIntIdEntity;
+import org.gomoob.model.SampleLongIdEntity;
+import org.gomoob.model.translation.SampleTranslatableEntity;
+import org.gomoob.model.translation.Translation;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test case for the {@link EntityCursor} class.
+ *
+ * @author GOMOOB SARL (contact@gomoob.com)
+ */
+public class EntityCursorTest {
+
+  /**
+   * Test method for {@link EntityCursor#moveTo(ByteBuffer)} and {@link EntityCursor#materialize()}.
+   */
+  @Test
+  public void testMoveToAndMaterialize() {
+    EntityCodec<SampleTranslatableEntity> codec = EntityCodec.of(SampleTranslatableEntity.class);
+    ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+
+    for (int i = 0; i < 100; ++i) {
+      Translation translation = new Translation();
+      translation.setLanguageCode("EN");
+      translation.setAttributeTranslation("translatableAttribute", "Product " + i);
+
+      SampleTranslatableEntity sampleEntity = new SampleTranslatableEntity();
+      sampleEntity.setId(i);
+      sampleEntity.setTranslatableAttribute(i % 10 == 0 ? "Produit " + i : null);
+      sampleEntity.setNotTranslatableAttribute(i);
+      sampleEntity.setTranslation(translation);
+      codec.encode(sampleEntity, buffer);
+    }
+
+    buffer.flip();
+
+    // Browses the entities and only decodes the matching ones
+    EntityCursor<SampleTranslatableEntity> cursor =
+        new EntityCursor<SampleTranslatableEntity>(SampleTranslatableEntity.class);
+    Assert.assertEquals(SampleTranslatableEntity.class, cursor.getEntityClass());
+    List<SampleTranslatableEntity> sampleEntities = new ArrayList<SampleTranslatableEntity>();
+    List<Integer> offsets = new ArrayList<Integer>();
+
+    while (buffer.hasRemaining()) {
+      offsets.add(buffer.position());
+      cursor.moveTo(buffer);
+      Assert.assertEquals(offsets.get(offsets.size() - 1).intValue(), cursor.getOffset());
+      Assert.assertEquals(buffer.position(), cursor.getOffset() + cursor.getLength());
+
+      if (cursor.get("translatableAttribute") != null) {
+        Assert.assertEquals(cursor.getId(), cursor.getInt("notTranslatableAttribute"));
+        sampleEntities.add(cursor.materialize());
+      }
+    }
+
+    Assert.assertEquals(100, offsets.size());
+    Assert.assertEquals(10, sampleEntities.size());
+    Assert.assertEquals(Integer.valueOf(30), sampleEntities.get(3).getId());
+    Assert.assertEquals("Produit 30", sampleEntities.get(3).getTranslatableAttribute());
+    Assert.assertEquals("Product 30", sampleEntities.get(3).getTranslation("EN")
+        .getAttributeTranslation("translatableAttribute"));
+
+    // Moves the cursor to an offset
+    cursor.moveTo(buffer, offsets.get(42));
+    Assert.assertEquals(buffer.limit(), buffer.position());
+    Assert.assertEquals(Integer.valueOf(42), cursor.getId());
+    Assert.assertNull(cursor.get("translatableAttribute"));
+    Assert.assertEquals(Integer.valueOf(42), cursor.get("notTranslatableAttribute"));
+
+    SampleTranslatableEntity target = new SampleTranslatableEntity();
+    cursor.materialize(target);
+    Assert.assertEquals(Integer.valueOf(42), target.getId());
+    Assert.assertFalse(cursor.isDirty());
+    Assert.assertTrue(cursor.getDirtyAttributes().isEmpty());
+
+    // Cursors are read only
+    try {
+      cursor.set("translatableAttribute", "Produit");
+      Assert.fail("An UnsupportedOperationException should be thrown !");
+    } catch (UnsupportedOperationException uoex) {
+      Assert.assertEquals("Entity cursors are read only !", uoex.getMessage());
+    }
+  }
+
+  /**
+   * Test method for {@link EntityCursor#get(String)} and {@link EntityCursor#getId()} with entities
+   * whose technical identifier is stored in a primitive field in which one `0` means that the
+   * entity has no identifier.
+   */
+  @Test
+  public void testPrimitiveId() {
+    EntityCodec<SampleLongIdEntity> codec = EntityCodec.of(SampleLongIdEntity.class);
+    EntityCursor<SampleLongIdEntity> cursor =
+        new EntityCursor<SampleLongIdEntity>(SampleLongIdEntity.class);
+
+    SampleLongIdEntity sampleEntity = new SampleLongIdEntity();
+    cursor.moveTo(ByteBuffer.wrap(codec.encode(sampleEntity)));
+    Assert.assertNull(cursor.getId());
+    Assert.assertNull(cursor.get("id"));
+    Assert.assertEquals(0L, cursor.getLong("id"));
+
+    sampleEntity.setId(5L);
+    cursor.moveTo(ByteBuffer.wrap(codec.encode(sampleEntity)));
+    Assert.assertEquals(Long.valueOf(5L), cursor.getId());
+
+    EntityCursor<SampleIntIdEntity> intIdCursor =
+        new EntityCursor<SampleIntIdEntity>(SampleIntIdEntity.class);
+    intIdCursor.moveTo(
+        ByteBuffer.wrap(EntityCodec.of(SampleIntIdEntity.class).encode(new SampleIntIdEntity())));
+    Assert.assertNull(intIdCursor.getId());
+  }
+
+  /**
+   * Test method for {@link EntityCursor#getBoolean(String)},
+   * {@link EntityCursor#getDouble(String)}, {@link EntityCursor#getInt(String)} and
+   * {@link EntityCursor#getLong(String)}.
+   */
+  @Test
+  public void testPrimitives() {
+    EntityCursor<SampleEntityWithPrimitives> cursor =
+        new EntityCursor<SampleEntityWithPrimitives>(SampleEntityWithPrimitives.class);
+
+    // Test with a cursor which is not positioned
+    try {
+      cursor.getInt("count");
+      Assert.fail("An IllegalStateException should be thrown !");
+    } catch (IllegalStateException isex) {
+      Assert.assertEquals("The cursor is not positioned on an entity !", isex.getMessage());
+    }
+
+    SampleEntityWithPrimitives sampleEntity = new SampleEntityWithPrimitives();
+    sampleEntity.setId(7);
+    sampleEntity.setBoolean("enabled", true);
+    sampleEntity.setDouble("ratio", 0.75);
+    sampleEntity.setInt("count", 12);
+    sampleEntity.setLong("total", 1L << 40);
+
+    ByteBuffer buffer =
+        ByteBuffer.wrap(EntityCodec.of(SampleEntityWithPrimitives.class).encode(sampleEntity));
+    cursor.moveTo(buffer);
+    Assert.assertFalse(buffer.hasRemaining());
+    Assert.assertTrue(cursor.getBoolean("enabled"));
+    Assert.assertEquals(0.75, cursor.getDouble("ratio"), 0.0);
+    Assert.assertEquals(12, cursor.getInt("count"));
+    Assert.assertEquals(1L << 40, cursor.getLong("total"));
+    Assert.assertEquals(12L, cursor.getLong("count"));
+    Assert.assertEquals(Long.valueOf(1L << 40), cursor.get("total"));
+    Assert.assertEquals(7, cursor.getInt("id"));
+
+    // Test with an attribute which does not exist
+    try {
+      cursor.get("unknown");
+      Assert.fail("A RuntimeException should be thrown !");
+    } catch (RuntimeException rex) {
+      Assert.assertEquals("Fail to get value of property 'unknown' !", rex.getMessage());
+    }
+  }
+}
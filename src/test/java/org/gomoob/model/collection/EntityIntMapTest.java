@@ -0,0 +1,114 @@
+/**
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2017, GOMOOB All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided with
+ * the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.gomoob.model.collection;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.gomoob.model.SampleEntity;
+import org.gomoob.model.SampleIntIdEntity;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test case for the {@link EntityIntMap} class.
+ *
+ * @author GOMOOB SARL (contact@gomoob.com)
+ */
+public class EntityIntMapTest {
+
+  /**
+   * Test method for {@link EntityIntMap#put(org.gomoob.model.IEntity)} with entities having a
+   * boxed technical identifier.
+   */
+  @Test
+  public void testPutWithBoxedIdentifiers() {
+    SampleEntity sampleEntity1 = new SampleEntity();
+    sampleEntity1.setId(1);
+    SampleEntity sampleEntity2 = new SampleEntity();
+    sampleEntity2.setId(2);
+
+    EntityIntMap<SampleEntity> map = new EntityIntMap<SampleEntity>();
+    map.putAll(Arrays.asList(sampleEntity1, sampleEntity2));
+    Assert.assertSame(sampleEntity1, map.get(1));
+    Assert.assertSame(sampleEntity2, map.get(2));
+
+    // Test with an entity without technical identifier
+    try {
+      map.put(new SampleEntity());
+      Assert.fail("An IllegalArgumentException should be thrown !");
+    } catch (IllegalArgumentException iaex) {
+      Assert.assertEquals("Cannot store an entity without technical identifier !",
+          iaex.getMessage());
+    }
+  }
+
+  /**
+   * Test method for {@link EntityIntMap#put(org.gomoob.model.IEntity)},
+   * {@link EntityIntMap#get(int)} and {@link EntityIntMap#remove(int)} compared to a `HashMap`.
+   */
+  @Test
+  public void testPutGetAndRemove() {
+    EntityIntMap<SampleIntIdEntity> map = new EntityIntMap<SampleIntIdEntity>();
+    Map<Integer, SampleIntIdEntity> expectedMap = new HashMap<Integer, SampleIntIdEntity>();
+    Random random = new Random(42L);
+
+    for (int i = 0; i < 100000; ++i) {
+      int id = random.nextBoolean() ? random.nextInt(2000) - 1000 : random.nextInt();
+
+      if (random.nextInt(3) == 0) {
+        Assert.assertSame(expectedMap.remove(id), map.remove(id));
+      } else {
+        SampleIntIdEntity entity = new SampleIntIdEntity();
+        entity.setIntId(id);
+        Assert.assertSame(expectedMap.put(id, entity), map.put(id, entity));
+      }
+
+      Assert.assertEquals(expectedMap.size(), map.size());
+    }
+
+    int count = 0;
+    for (SampleIntIdEntity entity : map) {
+      Assert.assertSame(expectedMap.get(entity.getIntId()), entity);
+      ++count;
+    }
+    Assert.assertEquals(expectedMap.size(), count);
+
+    // Entities without technical identifier cannot be stored using their identifier
+    try {
+      map.put(new SampleIntIdEntity());
+      Assert.fail("An IllegalArgumentException should be thrown !");
+    } catch (IllegalArgumentException iaex) {
+      Assert.assertEquals("Cannot store an entity without technical identifier !",
+          iaex.getMessage());
+    }
+  }
+}
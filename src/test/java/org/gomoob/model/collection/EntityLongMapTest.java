@@ -0,0 +1,145 @@
+/**
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2017, GOMOOB All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided with
+ * the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.gomoob.model.collection;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.gomoob.model.SampleLongIdEntity;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test case for the {@link EntityLongMap} class.
+ *
+ * @author GOMOOB SARL (contact@gomoob.com)
+ */
+public class EntityLongMapTest {
+
+  /**
+   * Test method for {@link EntityLongMap#iterator()} and
+   * {@link EntityLongMap#forEach(java.util.function.ObjLongConsumer)}.
+   */
+  @Test
+  public void testIteration() {
+    EntityLongMap<SampleLongIdEntity> map = new EntityLongMap<SampleLongIdEntity>(0);
+    List<SampleLongIdEntity> entities = new ArrayList<SampleLongIdEntity>();
+    for (long id = 1; id <= 100; ++id) {
+      entities.add(new SampleLongIdEntity(id * 7));
+    }
+    map.putAll(entities);
+    Assert.assertEquals(100, map.size());
+
+    Set<SampleLongIdEntity> iteratedEntities = new HashSet<SampleLongIdEntity>();
+    for (SampleLongIdEntity entity : map) {
+      iteratedEntities.add(entity);
+    }
+    Assert.assertEquals(new HashSet<SampleLongIdEntity>(entities), iteratedEntities);
+
+    long[] idSum = new long[1];
+    map.forEach((entity, id) -> {
+      Assert.assertEquals(entity.getLongId(), id);
+      idSum[0] += id;
+    });
+    Assert.assertEquals(7 * 100 * 101 / 2, idSum[0]);
+
+    try {
+      map.forEach((entity, id) -> map.remove(id));
+      Assert.fail("A ConcurrentModificationException should be thrown !");
+    } catch (ConcurrentModificationException cmex) {
+      // Expected
+    }
+  }
+
+  /**
+   * Test method for {@link EntityLongMap#put(org.gomoob.model.IEntity)},
+   * {@link EntityLongMap#get(long)} and {@link EntityLongMap#remove(long)} compared to a
+   * `HashMap`.
+   */
+  @Test
+  public void testPutGetAndRemove() {
+    EntityLongMap<SampleLongIdEntity> map = new EntityLongMap<SampleLongIdEntity>();
+    Map<Long, SampleLongIdEntity> expectedMap = new HashMap<Long, SampleLongIdEntity>();
+    Random random = new Random(42L);
+
+    for (int i = 0; i < 100000; ++i) {
+      // Small identifiers create collisions, large ones create sparse keys
+      long id = random.nextBoolean() ? random.nextInt(2000) - 1000 : random.nextLong();
+
+      if (random.nextInt(3) == 0) {
+        Assert.assertSame(expectedMap.remove(id), map.remove(id));
+      } else {
+        SampleLongIdEntity entity = new SampleLongIdEntity(id);
+        Assert.assertSame(expectedMap.put(id, entity), map.put(id, entity));
+      }
+
+      Assert.assertEquals(expectedMap.size(), map.size());
+    }
+
+    for (Map.Entry<Long, SampleLongIdEntity> entry : expectedMap.entrySet()) {
+      Assert.assertSame(entry.getValue(), map.get(entry.getKey()));
+    }
+    for (long id = -1000; id < 1000; ++id) {
+      Assert.assertEquals(expectedMap.containsKey(id), map.containsKey(id));
+    }
+
+    map.clear();
+    Assert.assertTrue(map.isEmpty());
+    Assert.assertNull(map.get(0L));
+
+    // Test with an entity without technical identifier
+    try {
+      map.put(new SampleLongIdEntity());
+      Assert.fail("An IllegalArgumentException should be thrown !");
+    } catch (IllegalArgumentException iaex) {
+      Assert.assertEquals("Cannot store an entity without technical identifier !",
+          iaex.getMessage());
+    }
+
+    // The 0 identifier is supported when it is explicitly provided
+    SampleLongIdEntity zeroEntity = new SampleLongIdEntity();
+    map.put(0L, zeroEntity);
+    Assert.assertSame(zeroEntity, map.get(0L));
+    Assert.assertSame(zeroEntity, map.iterator().next());
+
+    // Test with a null entity
+    try {
+      map.put(0L, null);
+      Assert.fail("An IllegalArgumentException should be thrown !");
+    } catch (IllegalArgumentException iaex) {
+      Assert.assertEquals("Cannot store a null entity !", iaex.getMessage());
+    }
+  }
+}
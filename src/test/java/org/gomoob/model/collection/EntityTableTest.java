@@ -0,0 +1,261 @@
+/**
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2017, GOMOOB All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided with
+ * the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.gomoob.model.collection;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.gomoob.model.IEntity;
+import org.gomoob.model.SampleEntityWithPrimitives;
+import org.gomoob.model.SampleIntIdEntity;
+import org.gomoob.model.SampleLongIdEntity;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test case for the {@link EntityTable} class.
+ *
+ * @author GOMOOB SARL (contact@gomoob.com)
+ */
+public class EntityTableTest {
+
+  /**
+   * Test method for {@link EntityTable#add(org.gomoob.model.AbstractEntity)} and the column
+   * accessors.
+   */
+  @Test
+  public void testColumns() {
+    EntityTable<SampleEntityWithPrimitives> table =
+        new EntityTable<SampleEntityWithPrimitives>(SampleEntityWithPrimitives.class, 0);
+    List<SampleEntityWithPrimitives> entities = new ArrayList<SampleEntityWithPrimitives>();
+    for (int id = 1; id <= 1000; ++id) {
+      entities.add(new SampleEntityWithPrimitives(id, id % 2 == 0, id / 2.0, id * 10, id * 100L));
+    }
+    table.addAll(entities);
+    Assert.assertEquals(1000, table.size());
+    Assert.assertSame(SampleEntityWithPrimitives.class, table.getEntityClass());
+
+    int totalColumn = table.getColumnIndex("total");
+    long total = 0;
+    for (int row = 0; row < table.size(); ++row) {
+      total += table.getLong(row, totalColumn);
+    }
+    Assert.assertEquals(100L * 1000 * 1001 / 2, total);
+
+    Assert.assertEquals(Integer.valueOf(1), table.get(0, table.getColumnIndex("id")));
+    Assert.assertTrue(table.getBoolean(1, table.getColumnIndex("enabled")));
+    Assert.assertEquals(1.5, table.getDouble(2, table.getColumnIndex("ratio")), 0.0);
+    Assert.assertEquals(40, table.getInt(3, table.getColumnIndex("count")));
+
+    table.setLong(0, totalColumn, 7L);
+    table.set(0, table.getColumnIndex("count"), 8);
+    SampleEntityWithPrimitives sampleEntity = new SampleEntityWithPrimitives();
+    table.read(0, sampleEntity);
+    Assert.assertEquals(Integer.valueOf(1), sampleEntity.getId());
+    Assert.assertEquals(7L, sampleEntity.getLong("total"));
+    Assert.assertEquals(8, sampleEntity.getInt("count"));
+
+    // Test with a column of an other type
+    try {
+      table.getInt(0, totalColumn);
+      Assert.fail("A RuntimeException should be thrown !");
+    } catch (RuntimeException rex) {
+      Assert.assertEquals("Fail to get value of property 'total' !", rex.getMessage());
+    }
+
+    try {
+      table.set(0, totalColumn, null);
+      Assert.fail("A RuntimeException should be thrown !");
+    } catch (RuntimeException rex) {
+      Assert.assertEquals("Fail to set value of property 'total' !", rex.getMessage());
+    }
+
+    // Test with an unknown attribute
+    try {
+      table.getColumnIndex("unknownProperty");
+      Assert.fail("An IllegalArgumentException should be thrown !");
+    } catch (IllegalArgumentException iaex) {
+      Assert.assertEquals("No attribute named 'unknownProperty' has been found in class '"
+          + SampleEntityWithPrimitives.class.getName() + "' !", iaex.getMessage());
+    }
+
+    table.clear();
+    Assert.assertEquals(0, table.size());
+  }
+
+  /**
+   * Test method for {@link EntityTable#row(int)}.
+   */
+  @Test
+  public void testRow() {
+    EntityTable<SampleEntityWithPrimitives> table =
+        new EntityTable<SampleEntityWithPrimitives>(SampleEntityWithPrimitives.class);
+    table.add(new SampleEntityWithPrimitives(1, false, 0.5, 10, 100L));
+    table.add(new SampleEntityWithPrimitives(2, true, 1.0, 20, 200L));
+
+    IEntity<?> row = table.row(1);
+    Assert.assertEquals(2, row.getId());
+    Assert.assertEquals(20, row.getInt("count"));
+    Assert.assertEquals(Long.valueOf(200L), row.get("total"));
+    Assert.assertArrayEquals(new Object[] {true, 1.0}, row.getAll("enabled", "ratio"));
+
+    row.setLong("total", 201L);
+    row.set("count", 21);
+    Assert.assertEquals(201L, table.getLong(1, table.getColumnIndex("total")));
+    Assert.assertEquals(21, table.getInt(1, table.getColumnIndex("count")));
+    Assert.assertFalse(row.isDirty());
+
+    // Test with an unknown attribute
+    try {
+      row.get("unknownProperty");
+      Assert.fail("A RuntimeException should be thrown !");
+    } catch (RuntimeException rex) {
+      Assert.assertEquals("Fail to get value of property 'unknownProperty' !", rex.getMessage());
+    }
+
+    try {
+      table.row(2);
+      Assert.fail("An IndexOutOfBoundsException should be thrown !");
+    } catch (IndexOutOfBoundsException ioobex) {
+      Assert.assertEquals("Row: 2, Size: 2", ioobex.getMessage());
+    }
+  }
+  /**
+   * Test method for the primitive accessors of {@link EntityTable.Row} with widening conversions,
+   * which must behave like the accessors of the entities.
+   */
+  @Test
+  public void testRowWidening() {
+    EntityTable<SampleEntityWithPrimitives> table =
+        new EntityTable<SampleEntityWithPrimitives>(SampleEntityWithPrimitives.class);
+    SampleEntityWithPrimitives sampleEntity =
+        new SampleEntityWithPrimitives(3, false, 1.5, 30, 300L);
+    table.add(sampleEntity);
+    IEntity<?> row = table.row(0);
+
+    // Widening getters, including on the boxed identifier column
+    Assert.assertEquals(sampleEntity.getLong("count"), row.getLong("count"));
+    Assert.assertEquals(sampleEntity.getDouble("count"), row.getDouble("count"), 0.0);
+    Assert.assertEquals(sampleEntity.getDouble("total"), row.getDouble("total"), 0.0);
+    Assert.assertEquals(sampleEntity.getLong("id"), row.getLong("id"));
+    Assert.assertEquals(3, row.getInt("id"));
+
+    // Widening setters
+    sampleEntity.set("total", 301);
+    row.set("total", 301);
+    sampleEntity.setInt("ratio", 2);
+    row.setInt("ratio", 2);
+    sampleEntity.setLong("ratio", 4L);
+    row.setLong("ratio", 4L);
+    sampleEntity.set("id", 4);
+    row.setInt("id", 4);
+    Assert.assertEquals(sampleEntity.getLong("total"), row.getLong("total"));
+    Assert.assertEquals(sampleEntity.getDouble("ratio"), row.getDouble("ratio"), 0.0);
+    Assert.assertEquals(sampleEntity.getId(), row.getId());
+
+    row.setInt("total", 302);
+    row.set("ratio", 5L);
+    Assert.assertEquals(302L, row.getLong("total"));
+    Assert.assertEquals(5.0, row.getDouble("ratio"), 0.0);
+
+    // Narrowing conversions are rejected
+    try {
+      row.getInt("total");
+      Assert.fail("A RuntimeException should be thrown !");
+    } catch (RuntimeException rex) {
+      Assert.assertEquals("Fail to get value of property 'total' !", rex.getMessage());
+    }
+
+    try {
+      row.setLong("count", 1L);
+      Assert.fail("A RuntimeException should be thrown !");
+    } catch (RuntimeException rex) {
+      Assert.assertEquals("Fail to set value of property 'count' !", rex.getMessage());
+    }
+
+    try {
+      row.set("count", 1L);
+      Assert.fail("A RuntimeException should be thrown !");
+    } catch (RuntimeException rex) {
+      Assert.assertEquals("Fail to set value of property 'count' !", rex.getMessage());
+    }
+
+    try {
+      row.getBoolean("count");
+      Assert.fail("A RuntimeException should be thrown !");
+    } catch (RuntimeException rex) {
+      Assert.assertEquals("Fail to get value of property 'count' !", rex.getMessage());
+    }
+  }
+
+  /**
+   * Test method for the rows of entities whose technical identifier is stored in a primitive field
+   * in which one `0` means that the entity has no identifier.
+   */
+  @Test
+  public void testRowWithPrimitiveId() {
+    EntityTable<SampleLongIdEntity> table =
+        new EntityTable<SampleLongIdEntity>(SampleLongIdEntity.class);
+    table.add(new SampleLongIdEntity());
+    EntityTable<SampleLongIdEntity>.Row row = table.row(0);
+    int idColumn = table.getColumnIndex("id");
+
+    // The identifier 0 is read as null like on the entities
+    Assert.assertNull(row.getId());
+    Assert.assertNull(row.get("id"));
+    Assert.assertNull(table.get(0, idColumn));
+    Assert.assertEquals(0L, row.getLong("id"));
+
+    row.setId(5L);
+    Assert.assertEquals(Long.valueOf(5L), row.getId());
+    Assert.assertEquals(5L, table.getLong(0, idColumn));
+
+    // Setting a null identifier stores 0
+    row.setId(null);
+    Assert.assertNull(row.getId());
+    Assert.assertEquals(0L, table.getLong(0, idColumn));
+    table.set(0, idColumn, 6L);
+    table.set(0, idColumn, null);
+    Assert.assertEquals(0L, table.getLong(0, idColumn));
+
+    SampleLongIdEntity sampleEntity = new SampleLongIdEntity();
+    sampleEntity.setId(7L);
+    table.read(0, sampleEntity);
+    Assert.assertNull(sampleEntity.getId());
+
+    EntityTable<SampleIntIdEntity> intIdTable =
+        new EntityTable<SampleIntIdEntity>(SampleIntIdEntity.class);
+    intIdTable.add(new SampleIntIdEntity());
+    Assert.assertNull(intIdTable.row(0).getId());
+    intIdTable.row(0).setId(3);
+    Assert.assertEquals(Integer.valueOf(3), intIdTable.row(0).getId());
+    intIdTable.row(0).setId(null);
+    Assert.assertEquals(0, intIdTable.getInt(0, intIdTable.getColumnIndex("id")));
+  }
+}
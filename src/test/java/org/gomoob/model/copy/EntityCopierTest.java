@@ -0,0 +1,208 @@
+/**
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2017, GOMOOB All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided with
+ * the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.gomoob.model.copy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.TreeMap;
+
+import org.gomoob.model.AbstractEntity;
+import org.gomoob.model.SampleEntityWithCreationDateAndUpdateDate;
+import org.gomoob.model.SampleEntityWithPrimitives;
+import org.gomoob.model.action.Action;
+import org.gomoob.model.translation.SampleTranslatableEntity;
+import org.gomoob.model.translation.Translation;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test case for the {@link EntityCopier} class.
+ *
+ * @author GOMOOB SARL (contact@gomoob.com)
+ */
+public class EntityCopierTest {
+
+  /**
+   * Sample entity having collection attributes.
+   */
+  public static class SampleEntityWithCollections extends AbstractEntity<Integer> {
+
+    /**
+     * The version of the serialized form.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * A list attribute.
+     */
+    private List<Date> dates;
+
+    /**
+     * A sorted map attribute.
+     */
+    private TreeMap<String, Date> sortedDates;
+  }
+
+  /**
+   * Test method for {@link EntityCopier#copy(Object)} and
+   * {@link EntityCopier#copyInto(Object, Object)}.
+   */
+  @Test
+  public void testCopy() {
+    EntityCopier<SampleEntityWithCreationDateAndUpdateDate> copier =
+        EntityCopier.of(SampleEntityWithCreationDateAndUpdateDate.class);
+    Assert.assertSame(copier, EntityCopier.of(SampleEntityWithCreationDateAndUpdateDate.class));
+
+    Date creationDate = new Date();
+    SampleEntityWithCreationDateAndUpdateDate sampleEntity =
+        new SampleEntityWithCreationDateAndUpdateDate();
+    sampleEntity.setId(1);
+    sampleEntity.setA("A_VALUE");
+    sampleEntity.setCreationDate(creationDate);
+    sampleEntity.set("updateDate", new Date());
+
+    SampleEntityWithCreationDateAndUpdateDate copy = copier.copy(sampleEntity);
+    Assert.assertNotSame(sampleEntity, copy);
+    Assert.assertEquals(Integer.valueOf(1), copy.getId());
+    Assert.assertEquals("A_VALUE", copy.getA());
+    Assert.assertSame(creationDate, copy.getCreationDate());
+    Assert.assertSame(sampleEntity.getUpdateDate(), copy.getUpdateDate());
+
+    // The dirty attributes are not copied
+    Assert.assertTrue(sampleEntity.isDirty());
+    Assert.assertFalse(copy.isDirty());
+
+    // Primitive attributes
+    SampleEntityWithPrimitives otherSampleEntity = new SampleEntityWithPrimitives();
+    otherSampleEntity.setLong("total", 10L);
+    otherSampleEntity.setDouble("ratio", 0.5);
+    SampleEntityWithPrimitives otherCopy = new SampleEntityWithPrimitives();
+    EntityCopier.of(SampleEntityWithPrimitives.class).copyInto(otherSampleEntity, otherCopy);
+    Assert.assertEquals(10L, otherCopy.getLong("total"));
+    Assert.assertEquals(0.5, otherCopy.getDouble("ratio"), 0.0);
+
+    // Test with an abstract class
+    try {
+      EntityCopier.of(AbstractEntity.class).copy(sampleEntity);
+      Assert.fail("An IllegalStateException should be thrown !");
+    } catch (IllegalStateException isex) {
+      Assert.assertEquals("No constructor without parameters has been found in class '"
+          + AbstractEntity.class.getName() + "' !", isex.getMessage());
+    }
+  }
+
+  /**
+   * Test method for {@link EntityCopier#deepCopy(Object)} and
+   * {@link EntityCopier#deepCopyInto(Object, Object)}.
+   */
+  @Test
+  public void testDeepCopy() {
+    Translation translation = new Translation();
+    translation.setLanguageCode("EN");
+    translation.setAttributeTranslation("translatableAttribute", "Hello");
+
+    SampleTranslatableEntity sampleEntity = new SampleTranslatableEntity();
+    sampleEntity.setDefaultLanguageCode("FR");
+    sampleEntity.setTranslatableAttribute("Bonjour");
+    sampleEntity.setNotTranslatableAttribute(5);
+    sampleEntity.setTranslation(translation);
+
+    SampleTranslatableEntity copy =
+        EntityCopier.of(SampleTranslatableEntity.class).deepCopy(sampleEntity);
+    Assert.assertEquals("FR", copy.getDefaultLanguageCode());
+    Assert.assertEquals("Bonjour", copy.getTranslatableAttribute());
+    Assert.assertEquals(Integer.valueOf(5), copy.getNotTranslatableAttribute());
+    Assert.assertNotSame(sampleEntity.getTranslations(), copy.getTranslations());
+    Assert.assertNotSame(translation, copy.getTranslation("EN"));
+    Assert.assertEquals("EN", copy.getTranslation("EN").getLanguageCode());
+    Assert.assertEquals("Hello",
+        copy.getTranslation("EN").getAttributeTranslation("translatableAttribute"));
+
+    // Modifying the copy does not modify the source
+    copy.getTranslation("EN").setAttributeTranslation("translatableAttribute", "Hi");
+    Assert.assertEquals("Hello", translation.getAttributeTranslation("translatableAttribute"));
+
+    // JSON metadata and dates
+    Action action = new Action();
+    action.setName("ACTION");
+    action.setCreationDate(new Date());
+    action.setMetadata(new JSONObject().put("a", 1)
+        .put("b", new JSONObject().put("c", new JSONArray().put("d"))).put("e", JSONObject.NULL));
+
+    Action actionCopy = new Action();
+    EntityCopier.of(Action.class).deepCopyInto(action, actionCopy);
+    Assert.assertEquals("ACTION", actionCopy.getName());
+    Assert.assertEquals(action.getCreationDate(), actionCopy.getCreationDate());
+    Assert.assertNotSame(action.getCreationDate(), actionCopy.getCreationDate());
+    Assert.assertNotSame(action.getMetadata(), actionCopy.getMetadata());
+    Assert.assertEquals(action.getMetadata().toString(), actionCopy.getMetadata().toString());
+
+    actionCopy.getMetadata().getJSONObject("b").put("c", "f");
+    Assert.assertEquals("{\"c\":[\"d\"]}", action.getMetadata().getJSONObject("b").toString());
+  }
+
+  /**
+   * Test method for {@link EntityCopier#deepCopy(Object)} with map and list attributes.
+   */
+  @Test
+  public void testDeepCopyWithCollections() {
+    Date date = new Date();
+    SampleEntityWithCollections sampleEntity = new SampleEntityWithCollections();
+    sampleEntity.dates = new ArrayList<Date>(Arrays.asList(date));
+    sampleEntity.sortedDates = new TreeMap<String, Date>(Collections.reverseOrder());
+    sampleEntity.sortedDates.put("a", date);
+    sampleEntity.sortedDates.put("b", date);
+
+    SampleEntityWithCollections copy =
+        EntityCopier.of(SampleEntityWithCollections.class).deepCopy(sampleEntity);
+
+    // The lists are copied deeply
+    Assert.assertNotSame(sampleEntity.dates, copy.dates);
+    Assert.assertSame(ArrayList.class, copy.dates.getClass());
+    Assert.assertEquals(sampleEntity.dates, copy.dates);
+    Assert.assertNotSame(date, copy.dates.get(0));
+
+    // The maps keep their class and their comparator
+    Assert.assertNotSame(sampleEntity.sortedDates, copy.sortedDates);
+    Assert.assertSame(sampleEntity.sortedDates.comparator(), copy.sortedDates.comparator());
+    Assert.assertEquals("b", copy.sortedDates.firstKey());
+    Assert.assertEquals(date, copy.sortedDates.get("a"));
+    Assert.assertNotSame(date, copy.sortedDates.get("a"));
+
+    // The lists and maps of unknown classes are copied by reference
+    sampleEntity.dates = Collections.unmodifiableList(sampleEntity.dates);
+    copy = EntityCopier.of(SampleEntityWithCollections.class).deepCopy(sampleEntity);
+    Assert.assertSame(sampleEntity.dates, copy.dates);
+  }
+}
@@ -0,0 +1,165 @@
+/**
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2017, GOMOOB All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided with
+ * the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.gomoob.model.diff;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+
+import org.gomoob.model.SampleEntityWithCreationDateAndUpdateDate;
+import org.gomoob.model.SampleEntityWithPrimitives;
+import org.gomoob.model.action.Action;
+import org.gomoob.model.copy.EntityCopier;
+import org.gomoob.model.metadata.JsonMetadata;
+import org.gomoob.model.translation.SampleTranslatableEntity;
+import org.gomoob.model.translation.Translation;
+import org.json.JSONObject;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test case for the {@link EntityDiff} class.
+ *
+ * @author GOMOOB SARL (contact@gomoob.com)
+ */
+public class EntityDiffTest {
+
+  /**
+   * Test method for {@link EntityDiff#diff(Object, Object)}.
+   */
+  @Test
+  public void testDiff() {
+    EntityDiff<SampleEntityWithCreationDateAndUpdateDate> entityDiff =
+        EntityDiff.of(SampleEntityWithCreationDateAndUpdateDate.class);
+    Assert.assertSame(entityDiff, EntityDiff.of(SampleEntityWithCreationDateAndUpdateDate.class));
+
+    SampleEntityWithCreationDateAndUpdateDate oldEntity =
+        new SampleEntityWithCreationDateAndUpdateDate();
+    oldEntity.setId(1);
+    oldEntity.setA("A_VALUE");
+    oldEntity.setCreationDate(new Date(1000L));
+    oldEntity.setUpdateDate(new Date(1000L));
+
+    // Same references
+    Assert.assertTrue(entityDiff.diff(oldEntity, oldEntity).isEmpty());
+    Assert.assertFalse(entityDiff.hasChanges(oldEntity, oldEntity));
+
+    // Equal values
+    SampleEntityWithCreationDateAndUpdateDate newEntity =
+        EntityCopier.of(SampleEntityWithCreationDateAndUpdateDate.class).deepCopy(oldEntity);
+    Assert.assertTrue(entityDiff.diff(oldEntity, newEntity).isEmpty());
+    Assert.assertFalse(entityDiff.hasChanges(oldEntity, newEntity));
+
+    // Changed values, including inherited ones
+    newEntity.setA("NEW_A_VALUE");
+    newEntity.setUpdateDate(new Date(2000L));
+    List<AttributeChange> changes = entityDiff.diff(oldEntity, newEntity);
+    Assert.assertTrue(entityDiff.hasChanges(oldEntity, newEntity));
+    Assert.assertEquals(2, changes.size());
+    Assert.assertEquals("updateDate", changes.get(0).getAttributeName());
+    Assert.assertNull(changes.get(0).getLanguageCode());
+    Assert.assertEquals(new Date(1000L), changes.get(0).getOldValue());
+    Assert.assertEquals(new Date(2000L), changes.get(0).getNewValue());
+    Assert.assertEquals("attr", changes.get(1).getAttributeName());
+    Assert.assertEquals("attr: A_VALUE -> NEW_A_VALUE", changes.get(1).toString());
+
+    // Primitive values
+    SampleEntityWithPrimitives oldPrimitives = new SampleEntityWithPrimitives();
+    SampleEntityWithPrimitives newPrimitives = new SampleEntityWithPrimitives();
+    newPrimitives.setLong("total", 5L);
+    changes = EntityDiff.of(SampleEntityWithPrimitives.class).diff(oldPrimitives, newPrimitives);
+    Assert.assertEquals(1, changes.size());
+    Assert.assertEquals("total", changes.get(0).getAttributeName());
+    Assert.assertEquals(0L, changes.get(0).getOldValue());
+    Assert.assertEquals(5L, changes.get(0).getNewValue());
+
+    // JSON values are compared by content
+    Action oldAction = new Action();
+    oldAction.setMetadata(new JSONObject().put("a", 1));
+    Action newAction = new Action();
+    newAction.setMetadata(new JSONObject().put("a", 1));
+    Assert.assertFalse(EntityDiff.of(Action.class).hasChanges(oldAction, newAction));
+    newAction.getMetadata().put("a", 2);
+    Assert.assertEquals("metadata",
+        EntityDiff.of(Action.class).diff(oldAction, newAction).get(0).getAttributeName());
+
+    // Raw JSON metadata are compared without being parsed or modified
+    oldAction.setJsonMetadata(new JsonMetadata(" {\"a\":1}".getBytes(StandardCharsets.UTF_8)));
+    newAction.setJsonMetadata(new JsonMetadata(" {\"a\":1}".getBytes(StandardCharsets.UTF_8)));
+    Assert.assertFalse(EntityDiff.of(Action.class).hasChanges(oldAction, newAction));
+    Assert.assertFalse(oldAction.getJsonMetadata().isParsed());
+    Assert.assertFalse(newAction.getJsonMetadata().isParsed());
+    newAction.setJsonMetadata(new JsonMetadata("{\"a\":1}".getBytes(StandardCharsets.UTF_8)));
+    Assert.assertFalse(EntityDiff.of(Action.class).hasChanges(oldAction, newAction));
+    Assert.assertEquals(" {\"a\":1}", oldAction.getJsonMetadata().toString());
+    newAction.setJsonMetadata(new JsonMetadata("{\"a\":2}".getBytes(StandardCharsets.UTF_8)));
+    Assert.assertTrue(EntityDiff.of(Action.class).hasChanges(oldAction, newAction));
+  }
+
+  /**
+   * Test method for {@link EntityDiff#diff(Object, Object)} with translatable entities.
+   */
+  @Test
+  public void testDiffWithTranslations() {
+    Translation oldTranslation = new Translation();
+    oldTranslation.setLanguageCode("EN");
+    oldTranslation.setAttributeTranslation("translatableAttribute", "Hello");
+
+    SampleTranslatableEntity oldEntity = new SampleTranslatableEntity();
+    oldEntity.setDefaultLanguageCode("FR");
+    oldEntity.setTranslatableAttribute("Bonjour");
+    oldEntity.setTranslation(oldTranslation);
+
+    SampleTranslatableEntity newEntity =
+        EntityCopier.of(SampleTranslatableEntity.class).deepCopy(oldEntity);
+    EntityDiff<SampleTranslatableEntity> entityDiff = EntityDiff.of(SampleTranslatableEntity.class);
+    Assert.assertFalse(entityDiff.hasChanges(oldEntity, newEntity));
+
+    Translation newTranslation = new Translation();
+    newTranslation.setLanguageCode("DE");
+    newTranslation.setAttributeTranslation("translatableAttribute", "Hallo");
+    newEntity.getTranslation("EN").setAttributeTranslation("translatableAttribute", "Hi");
+    newEntity.setTranslation(newTranslation);
+
+    List<AttributeChange> changes = entityDiff.diff(oldEntity, newEntity);
+    Assert.assertTrue(entityDiff.hasChanges(oldEntity, newEntity));
+    Assert.assertEquals(2, changes.size());
+    Assert.assertEquals("translatableAttribute[EN]: Hello -> Hi", changes.get(0).toString());
+    Assert.assertEquals("translatableAttribute[DE]: null -> Hallo", changes.get(1).toString());
+
+    // Entities of an other class
+    try {
+      EntityDiff.of(SampleTranslatableEntity.class).diff(oldEntity, null);
+      Assert.fail("An IllegalArgumentException should be thrown !");
+    } catch (IllegalArgumentException iaex) {
+      Assert.assertEquals("The entities to compare must be instances of class '"
+          + SampleTranslatableEntity.class.getName() + "' !", iaex.getMessage());
+    }
+  }
+}
@@ -0,0 +1,240 @@
+/**
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2017, GOMOOB All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided with
+ * the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.gomoob.model.json;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.gomoob.model.AbstractEntity;
+import org.gomoob.model.SampleEntity;
+import org.gomoob.model.SampleEntityWithCreationDateAndUpdateDate;
+import org.gomoob.model.SampleEntityWithPrimitives;
+import org.gomoob.model.SampleIntIdEntity;
+import org.gomoob.model.SampleLongIdEntity;
+import org.gomoob.model.action.Action;
+import org.gomoob.model.translation.SampleTranslatableEntity;
+import org.gomoob.model.translation.Translation;
+import org.json.JSONObject;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test case for the {@link EntityJsonReader} class.
+ *
+ * @author GOMOOB SARL (contact@gomoob.com)
+ */
+public class EntityJsonReaderTest {
+
+  /**
+   * Sample entity having an attribute of type `Object`.
+   */
+  public static class SampleEntityWithPayload extends AbstractEntity<Integer> {
+
+    /**
+     * The version of the serialized form.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * An attribute which can hold any value.
+     */
+    private Object payload;
+  }
+
+  /**
+   * Test method for {@link EntityJsonReader#read(java.io.Reader)}.
+   *
+   * @throws IOException if an entity cannot be read.
+   */
+  @Test
+  public void testRead() throws IOException {
+    EntityJsonReader<SampleEntityWithCreationDateAndUpdateDate> reader =
+        EntityJsonReader.of(SampleEntityWithCreationDateAndUpdateDate.class);
+    Assert.assertSame(reader, EntityJsonReader.of(SampleEntityWithCreationDateAndUpdateDate.class));
+
+    // Round trip with the writer, the identifier type is resolved from the generic parent class
+    SampleEntityWithCreationDateAndUpdateDate sampleEntity =
+        new SampleEntityWithCreationDateAndUpdateDate();
+    sampleEntity.setId(1);
+    sampleEntity.setA("\"A\"\n\u00e9\u0001\ud83c\udf0d");
+    sampleEntity.setCreationDate(new Date(1500000000123L));
+    SampleEntityWithCreationDateAndUpdateDate readEntity = reader.read(new StringReader(
+        EntityJsonWriter.of(SampleEntityWithCreationDateAndUpdateDate.class).toJson(sampleEntity)));
+    Assert.assertEquals(Integer.valueOf(1), readEntity.getId());
+    Assert.assertEquals(sampleEntity.getA(), readEntity.getA());
+    Assert.assertEquals(sampleEntity.getCreationDate(), readEntity.getCreationDate());
+    Assert.assertNull(readEntity.getUpdateDate());
+
+    // Epoch, offset and local dates, unknown properties are ignored
+    readEntity = reader.read(new StringReader("{\"creationDate\":1500000000123,"
+        + "\"updateDate\":\"2017-07-14T04:40:00+02:00\",\"unknown\":{\"a\":[1,true,null]}}"));
+    Assert.assertNull(readEntity.getId());
+    Assert.assertEquals(new Date(1500000000123L), readEntity.getCreationDate());
+    Assert.assertEquals(new Date(1500000000000L), readEntity.getUpdateDate());
+    reader.read(new StringReader("{\"creationDate\":\"2017-07-14T02:40:00\","
+        + "\"updateDate\":\"2017-07-14\"}"), readEntity);
+    Assert.assertEquals(new Date(1500000000000L), readEntity.getCreationDate());
+    Assert.assertEquals(new Date(1499990400000L), readEntity.getUpdateDate());
+
+    // Translations are read directly into translation objects
+    SampleTranslatableEntity translatableEntity = EntityJsonReader
+        .of(SampleTranslatableEntity.class)
+        .read(new ByteArrayInputStream(("{\"id\":2,\"defaultLanguageCode\":\"FR\","
+            + "\"translations\":{\"EN\":{\"translatableAttribute\":\"Hello\"}},"
+            + "\"translatableAttribute\":\"Bonjour\"}").getBytes(StandardCharsets.UTF_8)));
+    Assert.assertEquals(Integer.valueOf(2), translatableEntity.getId());
+    Assert.assertEquals("FR", translatableEntity.getDefaultLanguageCode());
+    Assert.assertEquals("Bonjour", translatableEntity.getTranslatableAttribute());
+    Assert.assertTrue(translatableEntity.getTranslation("EN") instanceof Translation);
+    Assert.assertEquals("EN", translatableEntity.getTranslation("EN").getLanguageCode());
+    Assert.assertEquals("Hello",
+        translatableEntity.getTranslation("EN").getAttributeTranslation("translatableAttribute"));
+
+    // JSON metadata and primitive attributes
+    Action action = EntityJsonReader.of(Action.class).read(
+        new StringReader("{\"id\":\"ACTION_ID\",\"metadata\": { \"a\" : 1, \"b\" : [\"c\"] }}"));
+    Assert.assertEquals("ACTION_ID", action.getId());
+    Assert.assertFalse(action.getJsonMetadata().isParsed());
+    Assert.assertEquals("{\"a\":1,\"b\":[\"c\"]}",
+        new String(action.getJsonMetadata().getBytes(), StandardCharsets.UTF_8));
+    Assert.assertEquals(1, action.getMetadata().getInt("a"));
+    Assert.assertEquals("c", action.getMetadata().getJSONArray("b").getString(0));
+
+    SampleEntityWithPrimitives otherSampleEntity = EntityJsonReader
+        .of(SampleEntityWithPrimitives.class).read(new StringReader(
+            "{\"enabled\":true,\"ratio\":0.5,\"count\":3,\"total\":-9223372036854775808}"));
+    Assert.assertTrue(otherSampleEntity.isEnabled());
+    Assert.assertEquals(0.5, otherSampleEntity.getRatio(), 0.0);
+    Assert.assertEquals(3, otherSampleEntity.getCount());
+    Assert.assertEquals(Long.MIN_VALUE, otherSampleEntity.getTotal());
+
+    // Invalid documents
+    for (String json : Arrays.asList("{\"attr\":\"a\"", "{\"attr\":1}", "{\"attr\":\"a\"} {}",
+        "{\"creationDate\":\"tomorrow\"}")) {
+      try {
+        reader.read(new StringReader(json));
+        Assert.fail("An IOException should be thrown for '" + json + "' !");
+      } catch (IOException ioex) {
+        Assert.assertTrue(ioex.getMessage().startsWith("Invalid JSON at offset "));
+      }
+    }
+
+    try {
+      EntityJsonReader.of(SampleEntityWithPrimitives.class)
+          .read(new StringReader("{\"count\":null}"));
+      Assert.fail("An IOException should be thrown !");
+    } catch (IOException ioex) {
+      Assert.assertTrue(ioex.getMessage().endsWith("cannot set null to property 'count' !"));
+    }
+  }
+
+  /**
+   * Test method for
+   * {@link EntityJsonReader#readArray(java.io.Reader, java.util.function.Consumer)}.
+   *
+   * @throws IOException if an entity cannot be read.
+   */
+  @Test
+  public void testReadArray() throws IOException {
+    SampleEntity[] sampleEntities = new SampleEntity[1000];
+
+    for (int i = 0; i < sampleEntities.length; ++i) {
+      sampleEntities[i] = new SampleEntity();
+      sampleEntities[i].setId(i);
+      sampleEntities[i].setA("\u00e9t\u00e9 " + i);
+    }
+
+    StringBuilder sb = new StringBuilder();
+    EntityJsonWriter.writeArray(Arrays.asList(sampleEntities), sb);
+
+    // The entities are given to the consumer as soon as they are read
+    List<SampleEntity> readEntities = new ArrayList<SampleEntity>();
+    EntityJsonReader.of(SampleEntity.class).readArray(new StringReader(sb.toString()),
+        readEntities::add);
+    Assert.assertEquals(sampleEntities.length, readEntities.size());
+
+    for (int i = 0; i < sampleEntities.length; ++i) {
+      Assert.assertEquals(Integer.valueOf(i), readEntities.get(i).getId());
+      Assert.assertEquals(sampleEntities[i].getA(), readEntities.get(i).getA());
+    }
+
+    readEntities = EntityJsonReader.of(SampleEntity.class).readArray(
+        new ByteArrayInputStream(" [ ] ".getBytes(StandardCharsets.UTF_8)));
+    Assert.assertTrue(readEntities.isEmpty());
+  }
+
+  /**
+   * Test method for {@link EntityJsonReader#read(java.io.Reader)} with entities whose technical
+   * identifier is stored in a primitive field in which one `0` means that the entity has no
+   * identifier.
+   *
+   * @throws IOException if an entity cannot be read.
+   */
+  @Test
+  public void testReadNullPrimitiveId() throws IOException {
+    SampleLongIdEntity longIdEntity = EntityJsonReader.of(SampleLongIdEntity.class)
+        .read(new StringReader("{\"id\":null,\"attr\":\"A\"}"));
+    Assert.assertNull(longIdEntity.getId());
+    Assert.assertEquals("A", longIdEntity.getA());
+    Assert.assertEquals(Long.valueOf(5L), EntityJsonReader.of(SampleLongIdEntity.class)
+        .read(new StringReader("{\"id\":5}")).getId());
+
+    SampleIntIdEntity intIdEntity =
+        EntityJsonReader.of(SampleIntIdEntity.class).read(new StringReader("{\"id\":null}"));
+    Assert.assertNull(intIdEntity.getId());
+  }
+
+  /**
+   * Test method for {@link EntityJsonReader#read(java.io.Reader)} with an attribute of type
+   * `Object`.
+   *
+   * @throws IOException if an entity cannot be read.
+   */
+  @Test
+  public void testReadObjectAttribute() throws IOException {
+    EntityJsonReader<SampleEntityWithPayload> reader =
+        EntityJsonReader.of(SampleEntityWithPayload.class);
+
+    SampleEntityWithPayload readEntity = reader.read(new StringReader("{\"payload\":5}"));
+    Assert.assertEquals(Integer.valueOf(5), readEntity.get("payload"));
+
+    // JSON objects are read as maps and never as translations
+    readEntity = reader.read(new StringReader("{\"payload\":{\"x\":\"y\"}}"));
+    Assert.assertTrue(readEntity.get("payload") instanceof Map);
+    Assert.assertEquals(Collections.singletonMap("x", "y"), readEntity.get("payload"));
+  }
+}
@@ -0,0 +1,257 @@
+/**
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2017, GOMOOB All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided with
+ * the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.gomoob.model.json;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+
+import org.gomoob.model.SampleEntity;
+import org.gomoob.model.SampleEntityWithCreationDateAndUpdateDate;
+import org.gomoob.model.SampleEntityWithPrimitives;
+import org.gomoob.model.SampleIntIdEntity;
+import org.gomoob.model.SampleLongIdEntity;
+import org.gomoob.model.action.Action;
+import org.gomoob.model.codec.EntityCodec;
+import org.gomoob.model.codec.EntityCursor;
+import org.gomoob.model.collection.EntityTable;
+import org.gomoob.model.metadata.JsonMetadata;
+import org.gomoob.model.translation.SampleTranslatableEntity;
+import org.gomoob.model.translation.Translation;
+import org.json.JSONObject;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test case for the {@link EntityJsonWriter} class.
+ *
+ * @author GOMOOB SARL (contact@gomoob.com)
+ */
+public class EntityJsonWriterTest {
+
+  /**
+   * Test method for {@link EntityJsonWriter#toJson(org.gomoob.model.IEntity)}.
+   */
+  @Test
+  public void testToJson() {
+    EntityJsonWriter writer = EntityJsonWriter.of(SampleEntityWithCreationDateAndUpdateDate.class);
+    Assert.assertSame(writer, EntityJsonWriter.of(SampleEntityWithCreationDateAndUpdateDate.class));
+
+    SampleEntityWithCreationDateAndUpdateDate sampleEntity =
+        new SampleEntityWithCreationDateAndUpdateDate();
+    sampleEntity.setId(1);
+    sampleEntity.setA("\"A\"\n\u00e9\u0001");
+    sampleEntity.setCreationDate(new Date(1500000000123L));
+    Assert.assertEquals("{\"id\":1,\"creationDate\":\"2017-07-14T02:40:00.123Z\","
+        + "\"updateDate\":null,\"attr\":\"\\\"A\\\"\\n\u00e9\\u0001\"}",
+        writer.toJson(sampleEntity));
+
+    // Translatable entities
+    Translation translation = new Translation();
+    translation.setLanguageCode("EN");
+    translation.setAttributeTranslation("translatableAttribute", "Hello");
+
+    SampleTranslatableEntity translatableEntity = new SampleTranslatableEntity();
+    translatableEntity.setId(2);
+    translatableEntity.setDefaultLanguageCode("FR");
+    translatableEntity.setTranslatableAttribute("Bonjour");
+    translatableEntity.setTranslation(translation);
+    Assert.assertEquals("{\"id\":2,\"defaultLanguageCode\":\"FR\",\"translationLanguageCode\":null,"
+        + "\"translations\":{\"EN\":{\"translatableAttribute\":\"Hello\"}},"
+        + "\"notTranslatableAttribute\":null,\"translatableAttribute\":\"Bonjour\"}",
+        EntityJsonWriter.of(SampleTranslatableEntity.class).toJson(translatableEntity));
+
+    // JSON metadata
+    Action action = new Action();
+    action.setId("ACTION_ID");
+    action.setMetadata(new JSONObject().put("a", 1));
+    Assert.assertEquals(
+        "{\"id\":\"ACTION_ID\",\"creationDate\":null,\"metadata\":{\"a\":1},\"name\":null}",
+        EntityJsonWriter.of(Action.class).toJson(action));
+
+    // The raw bytes of JSON metadata are written without being parsed
+    action.setJsonMetadata(new JsonMetadata("{\"b\":1}".getBytes(StandardCharsets.UTF_8)));
+    Assert.assertEquals(
+        "{\"id\":\"ACTION_ID\",\"creationDate\":null,\"metadata\":{\"b\":1},\"name\":null}",
+        EntityJsonWriter.of(Action.class).toJson(action));
+    Assert.assertFalse(action.getJsonMetadata().isParsed());
+
+    // Primitive attributes
+    SampleEntityWithPrimitives otherSampleEntity = new SampleEntityWithPrimitives();
+    otherSampleEntity.setDouble("ratio", 0.5);
+    otherSampleEntity.setLong("total", Long.MIN_VALUE);
+    Assert.assertEquals("{\"id\":null,\"enabled\":false,\"ratio\":0.5,\"count\":0,"
+        + "\"total\":-9223372036854775808}",
+        EntityJsonWriter.of(SampleEntityWithPrimitives.class).toJson(otherSampleEntity));
+
+    // The primitive identifier 0 means that the entity has no identifier
+    SampleLongIdEntity longIdEntity = new SampleLongIdEntity();
+    Assert.assertEquals("{\"id\":null,\"attr\":null}",
+        EntityJsonWriter.of(SampleLongIdEntity.class).toJson(longIdEntity));
+    longIdEntity.setId(5L);
+    Assert.assertEquals("{\"id\":5,\"attr\":null}",
+        EntityJsonWriter.of(SampleLongIdEntity.class).toJson(longIdEntity));
+    Assert.assertEquals("{\"id\":null,\"attr\":null}",
+        EntityJsonWriter.of(SampleIntIdEntity.class).toJson(new SampleIntIdEntity()));
+
+    otherSampleEntity.setDouble("ratio", Double.NaN);
+    try {
+      EntityJsonWriter.of(SampleEntityWithPrimitives.class).toJson(otherSampleEntity);
+      Assert.fail("An IllegalArgumentException should be thrown !");
+    } catch (IllegalArgumentException iaex) {
+      Assert.assertEquals("Cannot write non finite value of property 'ratio' !", iaex.getMessage());
+    }
+  }
+
+  /**
+   * Test method for {@link EntityJsonWriter#toJson(org.gomoob.model.IEntity, String)}.
+   *
+   * @throws IOException if an entity cannot be written.
+   */
+  @Test
+  public void testToJsonWithLanguageCode() throws IOException {
+    Translation translation = new Translation();
+    translation.setLanguageCode("EN");
+    translation.setAttributeTranslation("translatableAttribute", "Hello");
+
+    SampleTranslatableEntity translatableEntity = new SampleTranslatableEntity();
+    translatableEntity.setId(1);
+    translatableEntity.setDefaultLanguageCode("FR");
+    translatableEntity.setTranslatableAttribute("Bonjour");
+    translatableEntity.setNotTranslatableAttribute(5);
+    translatableEntity.setTranslation(translation);
+
+    EntityJsonWriter writer = EntityJsonWriter.of(SampleTranslatableEntity.class);
+
+    // The translated values are read from the stored translations
+    Assert.assertEquals("{\"id\":1,\"defaultLanguageCode\":\"FR\","
+        + "\"translationLanguageCode\":\"EN\",\"translations\":null,"
+        + "\"notTranslatableAttribute\":5,\"translatableAttribute\":\"Hello\"}",
+        writer.toJson(translatableEntity, "EN"));
+    Assert.assertEquals("{\"id\":1,\"defaultLanguageCode\":\"FR\","
+        + "\"translationLanguageCode\":null,\"translations\":null,"
+        + "\"notTranslatableAttribute\":5,\"translatableAttribute\":\"Bonjour\"}",
+        writer.toJson(translatableEntity, "FR"));
+
+    // The attribute values are used and labeled with their language when no translation exists
+    Assert.assertEquals("{\"id\":1,\"defaultLanguageCode\":\"FR\","
+        + "\"translationLanguageCode\":null,\"translations\":null,"
+        + "\"notTranslatableAttribute\":5,\"translatableAttribute\":\"Bonjour\"}",
+        writer.toJson(translatableEntity, "DE"));
+
+    // The entity is not modified and gives the same JSON as an entity which has been translated
+    Assert.assertEquals("Bonjour", translatableEntity.getTranslatableAttribute());
+    Assert.assertNull(translatableEntity.getTranslationLanguageCode());
+    Assert.assertSame(translation, translatableEntity.getTranslation("EN"));
+
+    String json = writer.toJson(translatableEntity, "EN");
+    translatableEntity.applyTranslation("EN");
+    Assert.assertEquals(json, writer.toJson(translatableEntity, "EN"));
+    Assert.assertTrue(writer.toJson(translatableEntity, "FR").endsWith("\"Bonjour\"}"));
+    Assert.assertEquals("{\"id\":1,\"defaultLanguageCode\":\"FR\","
+        + "\"translationLanguageCode\":\"EN\",\"translations\":null,"
+        + "\"notTranslatableAttribute\":5,\"translatableAttribute\":\"Hello\"}",
+        writer.toJson(translatableEntity, "DE"));
+
+    // Arrays of entities
+    StringBuilder sb = new StringBuilder();
+    translatableEntity.applyTranslation("FR");
+    EntityJsonWriter.writeArray(Arrays.asList(translatableEntity, translatableEntity), "EN", sb);
+    Assert.assertEquals("[" + json + "," + json + "]", sb.toString());
+  }
+
+  /**
+   * Test method for {@link EntityJsonWriter#write(org.gomoob.model.IEntity, java.io.OutputStream)}
+   * and {@link EntityJsonWriter#writeArray(Iterable, Appendable)}.
+   *
+   * @throws IOException if an entity cannot be written.
+   */
+  @Test
+  public void testWrite() throws IOException {
+    SampleEntity sampleEntity = new SampleEntity();
+    sampleEntity.setId(1);
+    sampleEntity.setA("\u00e9t\u00e9 \ud83c\udf0d");
+
+    // The stream is written using UTF-8
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    EntityJsonWriter.of(SampleEntity.class).write(sampleEntity, outputStream);
+    Assert.assertEquals("{\"id\":1,\"attr\":\"\u00e9t\u00e9 \ud83c\udf0d\"}",
+        new String(outputStream.toByteArray(), StandardCharsets.UTF_8));
+
+    // The rows of entity tables are written using their generic getters
+    EntityTable<SampleEntity> table = new EntityTable<SampleEntity>(SampleEntity.class);
+    table.add(sampleEntity);
+    Assert.assertEquals("{\"id\":1,\"attr\":\"\u00e9t\u00e9 \ud83c\udf0d\"}",
+        EntityJsonWriter.of(SampleEntity.class).toJson(table.row(0)));
+
+    // Arrays of entities of different classes
+    SampleEntityWithPrimitives otherSampleEntity = new SampleEntityWithPrimitives();
+    otherSampleEntity.setId(2);
+    StringBuilder sb = new StringBuilder();
+    EntityJsonWriter.writeArray(Arrays.asList(sampleEntity, otherSampleEntity), sb);
+    Assert.assertEquals("[{\"id\":1,\"attr\":\"\u00e9t\u00e9 \ud83c\udf0d\"},"
+        + "{\"id\":2,\"enabled\":false,\"ratio\":0.0,\"count\":0,\"total\":0}]", sb.toString());
+
+    // Table rows and entity cursors are written using the attributes of their entity class
+    EntityCursor<SampleEntity> cursor = new EntityCursor<SampleEntity>(SampleEntity.class);
+    cursor.moveTo(ByteBuffer.wrap(EntityCodec.of(SampleEntity.class).encode(sampleEntity)));
+    sb.setLength(0);
+    EntityJsonWriter.writeArray(Arrays.asList(table.row(0), cursor), sb);
+    Assert.assertEquals("[{\"id\":1,\"attr\":\"\u00e9t\u00e9 \ud83c\udf0d\"},"
+        + "{\"id\":1,\"attr\":\"\u00e9t\u00e9 \ud83c\udf0d\"}]", sb.toString());
+
+    // The raw bytes of large JSON metadata are copied into the stream buffer in several parts
+    StringBuilder metadata = new StringBuilder("{\"a\":\"");
+    for (int i = 0; i < 20000; ++i) {
+      metadata.append((char) ('a' + i % 26));
+    }
+
+    Action action = new Action();
+    action.setJsonMetadata(new JsonMetadata(
+        metadata.append("\"}").toString().getBytes(StandardCharsets.UTF_8)));
+    outputStream.reset();
+    EntityJsonWriter.of(Action.class).write(action, outputStream);
+    Assert.assertEquals(EntityJsonWriter.of(Action.class).toJson(action),
+        new String(outputStream.toByteArray(), StandardCharsets.UTF_8));
+    Assert.assertFalse(action.getJsonMetadata().isParsed());
+
+    // A large array written to a stream is flushed several times
+    SampleEntity[] sampleEntities = new SampleEntity[1000];
+    Arrays.fill(sampleEntities, sampleEntity);
+    outputStream.reset();
+    EntityJsonWriter.writeArray(Arrays.asList(sampleEntities), outputStream);
+    sb.setLength(0);
+    EntityJsonWriter.writeArray(Arrays.asList(sampleEntities), sb);
+    Assert.assertEquals(sb.toString(),
+        new String(outputStream.toByteArray(), StandardCharsets.UTF_8));
+  }
+}
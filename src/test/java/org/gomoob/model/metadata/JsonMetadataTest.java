@@ -0,0 +1,230 @@
+/**
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2017, GOMOOB All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided with
+ * the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.gomoob.model.metadata;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.gomoob.model.action.Action;
+import org.gomoob.model.attribute.EntityAttribute;
+import org.gomoob.model.attribute.EntityAttributes;
+import org.gomoob.model.codec.EntityCodec;
+import org.gomoob.model.codec.EntityCursor;
+import org.gomoob.model.collection.EntityTable;
+import org.gomoob.model.copy.EntityCopier;
+import org.gomoob.model.state.State;
+import org.json.JSONObject;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test case for the {@link JsonMetadata} class.
+ *
+ * @author GOMOOB SARL (contact@gomoob.com)
+ */
+public class JsonMetadataTest {
+
+  /**
+   * Test method for {@link JsonMetadata#copy()}.
+   */
+  @Test
+  public void testCopy() {
+    byte[] bytes = "{\"a\":1}".getBytes(StandardCharsets.UTF_8);
+    JsonMetadata metadata = new JsonMetadata(bytes);
+
+    // The raw bytes are shared
+    JsonMetadata copy = metadata.copy();
+    Assert.assertNotSame(metadata, copy);
+    Assert.assertEquals(ByteBuffer.wrap(bytes), copy.getByteBuffer());
+
+    // The parsed JSON objects are not shared
+    metadata.getJSONObject().put("a", 2);
+    copy = metadata.copy();
+    Assert.assertFalse(copy.isParsed());
+    Assert.assertNotSame(metadata.getJSONObject(), copy.getJSONObject());
+    Assert.assertEquals(2, copy.getJSONObject().getInt("a"));
+  }
+
+  /**
+   * Test method for {@link JsonMetadata#getBytes()} and {@link JsonMetadata#getByteBuffer()}.
+   */
+  @Test
+  public void testGetBytes() {
+    byte[] bytes = "{\"a\":1}".getBytes(StandardCharsets.UTF_8);
+    JsonMetadata metadata = new JsonMetadata(bytes);
+
+    // The raw bytes cannot be modified through the metadata
+    byte[] readBytes = metadata.getBytes();
+    Assert.assertNotSame(bytes, readBytes);
+    Assert.assertArrayEquals(bytes, readBytes);
+    readBytes[5] = '2';
+    Assert.assertArrayEquals(bytes, metadata.getBytes());
+
+    ByteBuffer buffer = metadata.getByteBuffer();
+    Assert.assertTrue(buffer.isReadOnly());
+    Assert.assertEquals(ByteBuffer.wrap(bytes), buffer);
+    Assert.assertEquals(1, metadata.getJSONObject().getInt("a"));
+
+    // The bytes of parsed metadata are computed from the JSON object
+    metadata.getJSONObject().put("a", 3);
+    Assert.assertEquals("{\"a\":3}", new String(metadata.getBytes(), StandardCharsets.UTF_8));
+    Assert.assertEquals("{\"a\":3}", StandardCharsets.UTF_8.decode(metadata.getByteBuffer())
+        .toString());
+  }
+
+  /**
+   * Test method for {@link JsonMetadata#getJSONObject()}.
+   */
+  @Test
+  public void testGetJSONObject() {
+    JsonMetadata metadata = new JsonMetadata("{\"a\":\"\u00e9\"}".getBytes(StandardCharsets.UTF_8));
+    Assert.assertFalse(metadata.isParsed());
+    Assert.assertEquals("{\"a\":\"\u00e9\"}", metadata.toString());
+    Assert.assertFalse(metadata.isParsed());
+
+    // The metadata are parsed only once
+    JSONObject jsonObject = metadata.getJSONObject();
+    Assert.assertTrue(metadata.isParsed());
+    Assert.assertEquals("\u00e9", jsonObject.getString("a"));
+    Assert.assertSame(jsonObject, metadata.getJSONObject());
+
+    // The bytes are computed from the modified JSON object
+    jsonObject.put("a", 1);
+    Assert.assertEquals("{\"a\":1}", new String(metadata.getBytes(), StandardCharsets.UTF_8));
+
+    try {
+      new JsonMetadata((byte[]) null);
+      Assert.fail("An IllegalArgumentException should be thrown !");
+    } catch (IllegalArgumentException iaex) {
+      Assert.assertEquals("The bytes of JSON metadata must not be null !", iaex.getMessage());
+    }
+  }
+
+  /**
+   * Test method for {@link JsonMetadata#getMetadataView()}.
+   */
+  @Test
+  public void testGetMetadataView() {
+    JsonMetadata metadata = new JsonMetadata("{\"b\":2,\"a\":1}".getBytes(StandardCharsets.UTF_8));
+
+    // The raw bytes are parsed only once
+    Metadata view = metadata.getMetadataView();
+    Assert.assertEquals(1L, view.getLong("a"));
+    Assert.assertSame(view, metadata.getMetadataView());
+    Assert.assertSame(view, metadata.copy().getMetadataView());
+    Assert.assertEquals("{\"a\":1,\"b\":2}",
+        new String(metadata.getBytes(), StandardCharsets.UTF_8));
+    Assert.assertFalse(metadata.isParsed());
+
+    // The views of JSON objects are snapshots
+    JSONObject jsonObject = metadata.getJSONObject();
+    Assert.assertEquals(2, jsonObject.getInt("b"));
+    jsonObject.put("b", 3);
+    Assert.assertEquals(2L, view.getLong("b"));
+    Assert.assertEquals(3L, metadata.getMetadataView().getLong("b"));
+    Assert.assertNotSame(metadata.getMetadataView(), metadata.getMetadataView());
+  }
+
+  /**
+   * Test method for the `metadata` attribute of actions and states which is a `JSONObject`
+   * attribute stored in a {@link JsonMetadata} field.
+   */
+  @Test
+  public void testMetadataAttribute() {
+    EntityAttribute attribute = EntityAttributes.of(Action.class).getAttribute("metadata");
+    Assert.assertSame(JSONObject.class, attribute.getType());
+    Assert.assertSame(JsonMetadata.class, attribute.getStoredType());
+    Assert.assertSame(JSONObject.class, EntityAttributes.of(State.class).getAttribute("metadata")
+        .getType());
+
+    // The generic getters and setters read and write JSON objects
+    Action action = new Action();
+    action.setJsonMetadata(new JsonMetadata("{\"a\":1}".getBytes(StandardCharsets.UTF_8)));
+    Assert.assertFalse(action.getJsonMetadata().isParsed());
+    Assert.assertEquals(1, ((JSONObject) action.get("metadata")).getInt("a"));
+    Assert.assertSame(action.getMetadata(), action.get("metadata"));
+
+    JSONObject jsonObject = new JSONObject().put("b", 2);
+    action.set("metadata", jsonObject);
+    Assert.assertSame(jsonObject, action.getMetadata());
+    action.set("metadata", null);
+    Assert.assertNull(action.get("metadata"));
+    Assert.assertNull(action.getJsonMetadata());
+
+    State state = new State();
+    state.set("metadata", jsonObject);
+    Assert.assertSame(jsonObject, state.get("metadata"));
+
+    // The copies, the tables and the codecs keep JSON objects
+    action.setJsonMetadata(new JsonMetadata("{\"a\":1}".getBytes(StandardCharsets.UTF_8)));
+    Action copy = EntityCopier.of(Action.class).deepCopy(action);
+    Assert.assertFalse(copy.getJsonMetadata().isParsed());
+    Assert.assertEquals(1, copy.getMetadata().getInt("a"));
+
+    EntityTable<Action> table = new EntityTable<Action>(Action.class);
+    table.add(action);
+    Assert.assertTrue(table.row(0).get("metadata") instanceof JSONObject);
+    table.row(0).set("metadata", jsonObject);
+    Assert.assertSame(jsonObject, table.row(0).get("metadata"));
+
+    action.setJsonMetadata(new JsonMetadata("{\"a\":1}".getBytes(StandardCharsets.UTF_8)));
+    byte[] encodedAction = EntityCodec.of(Action.class).encode(action);
+    Assert.assertFalse(action.getJsonMetadata().isParsed());
+    Assert.assertFalse(EntityCodec.of(Action.class).decode(ByteBuffer.wrap(encodedAction))
+        .getJsonMetadata().isParsed());
+
+    EntityCursor<Action> cursor = new EntityCursor<Action>(Action.class);
+    cursor.moveTo(ByteBuffer.wrap(encodedAction));
+    Assert.assertEquals(1, ((JSONObject) cursor.get("metadata")).getInt("a"));
+  }
+
+  /**
+   * Test method for {@link JsonMetadata#similar(Object)}.
+   */
+  @Test
+  public void testSimilar() {
+    JsonMetadata metadata = new JsonMetadata("{\"a\":1,\"b\":2}".getBytes(StandardCharsets.UTF_8));
+
+    // Identical bytes are compared without parsing
+    Assert.assertTrue(
+        metadata.similar(new JsonMetadata("{\"a\":1,\"b\":2}".getBytes(StandardCharsets.UTF_8))));
+    Assert.assertFalse(metadata.isParsed());
+
+    // Metadata which have to be parsed are not modified
+    JsonMetadata otherMetadata =
+        new JsonMetadata(" {\"b\":2, \"a\":1}".getBytes(StandardCharsets.UTF_8));
+    Assert.assertTrue(metadata.similar(otherMetadata));
+    Assert.assertEquals("{\"a\":1,\"b\":2}", metadata.toString());
+    Assert.assertEquals(" {\"b\":2, \"a\":1}", otherMetadata.toString());
+
+    Assert.assertTrue(metadata.similar(new JsonMetadata(new JSONObject().put("b", 2).put("a", 1))));
+    Assert.assertFalse(metadata.similar(new JsonMetadata(new JSONObject().put("a", 1))));
+    Assert.assertFalse(metadata.similar(new JSONObject().put("a", 1).put("b", 2)));
+  }
+}
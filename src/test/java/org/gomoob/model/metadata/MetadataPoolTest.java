@@ -0,0 +1,158 @@
+/**
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2017, GOMOOB All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided with
+ * the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.gomoob.model.metadata;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.gomoob.model.action.Action;
+import org.gomoob.model.codec.EntityCodec;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test case for the {@link MetadataPool} class.
+ *
+ * @author GOMOOB SARL (contact@gomoob.com)
+ */
+public class MetadataPoolTest {
+
+  /**
+   * Test method for {@link MetadataPool#intern(byte[])} and {@link MetadataPool#intern(Metadata)}.
+   *
+   * @throws InterruptedException if the test is interrupted while waiting for the garbage
+   *           collector.
+   */
+  @Test
+  public void testIntern() throws InterruptedException {
+    MetadataPool pool = new MetadataPool();
+
+    // Equal values are replaced by one canonical instance
+    byte[] bytes = "{\"a\":1}".getBytes(StandardCharsets.UTF_8);
+    Assert.assertSame(bytes, pool.intern(bytes));
+    Assert.assertSame(bytes, pool.intern("{\"a\":1}".getBytes(StandardCharsets.UTF_8)));
+    Assert.assertNotSame(bytes, pool.intern("{\"a\":2}".getBytes(StandardCharsets.UTF_8)));
+
+    Metadata metadata = Metadata.EMPTY.with("a", 1);
+    Assert.assertSame(metadata, pool.intern(metadata));
+    Assert.assertSame(metadata, pool.intern(Metadata.EMPTY.with("a", 1L)));
+
+    // Many values are interned
+    for (int i = 0; i < 1000; ++i) {
+      Assert.assertEquals(i, pool.intern(Metadata.EMPTY.with("i", i)).getInt("i"));
+    }
+
+    Assert.assertSame(pool.intern(Metadata.EMPTY.with("i", 1)),
+        pool.intern(Metadata.EMPTY.with("i", 1L)));
+    Assert.assertSame(bytes, pool.intern("{\"a\":1}".getBytes(StandardCharsets.UTF_8)));
+
+    // The values which are not used anymore are removed
+    for (int i = 0; i < 100 && pool.size() > 2; ++i) {
+      System.gc();
+      Thread.sleep(10);
+    }
+
+    Assert.assertEquals(2, pool.size());
+
+    pool.clear();
+    Assert.assertEquals(0, pool.size());
+    Assert.assertNotSame(bytes, pool.intern("{\"a\":1}".getBytes(StandardCharsets.UTF_8)));
+  }
+
+  /**
+   * Test method for {@link MetadataPool#intern(Metadata)} called by several threads.
+   *
+   * @throws InterruptedException if the test is interrupted while waiting for the threads.
+   */
+  @Test
+  public void testInternConcurrently() throws InterruptedException {
+    MetadataPool pool = new MetadataPool();
+    Metadata[][] canonicalMetadata = new Metadata[4][1000];
+    Thread[] threads = new Thread[canonicalMetadata.length];
+
+    for (int t = 0; t < threads.length; ++t) {
+      Metadata[] threadMetadata = canonicalMetadata[t];
+      threads[t] = new Thread(() -> {
+        for (int i = 0; i < threadMetadata.length; ++i) {
+          threadMetadata[i] = pool.intern(Metadata.EMPTY.with("i", i));
+        }
+      });
+      threads[t].start();
+    }
+
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    // All the threads get the same canonical instances
+    for (int i = 0; i < canonicalMetadata[0].length; ++i) {
+      for (int t = 1; t < threads.length; ++t) {
+        Assert.assertSame(canonicalMetadata[0][i], canonicalMetadata[t][i]);
+      }
+    }
+
+    Assert.assertEquals(canonicalMetadata[0].length, pool.size());
+  }
+
+  /**
+   * Test method for {@link MetadataPool#setDefault(MetadataPool)}.
+   */
+  @Test
+  public void testSetDefault() {
+    Action action = new Action();
+    action.setId("1");
+    action.setJsonMetadata(new JsonMetadata("{\"a\":1}".getBytes(StandardCharsets.UTF_8)));
+    byte[] encodedAction = EntityCodec.of(Action.class).encode(action);
+
+    // The metadata are not interned by default
+    Assert.assertNull(MetadataPool.getDefault());
+
+    MetadataPool pool = new MetadataPool();
+    MetadataPool.setDefault(pool);
+
+    try {
+      // The decoded metadata share the same bytes and views
+      Action decodedAction = EntityCodec.of(Action.class).decode(ByteBuffer.wrap(encodedAction));
+      Action otherDecodedAction =
+          EntityCodec.of(Action.class).decode(ByteBuffer.wrap(encodedAction));
+      Assert.assertEquals(1, pool.size());
+      Assert.assertEquals(decodedAction.getJsonMetadata().getByteBuffer(),
+          otherDecodedAction.getJsonMetadata().getByteBuffer());
+      Assert.assertSame(decodedAction.getMetadataView(), otherDecodedAction.getMetadataView());
+      Assert.assertSame(decodedAction.getMetadataView(), pool.intern(Metadata.EMPTY.with("a", 1)));
+
+      // The parsed metadata are not shared
+      decodedAction.getMetadata().put("a", 2);
+      Assert.assertEquals(1L, otherDecodedAction.getMetadataView().getLong("a"));
+      Assert.assertEquals(2, decodedAction.getMetadata().getInt("a"));
+    } finally {
+      MetadataPool.setDefault(null);
+    }
+  }
+}
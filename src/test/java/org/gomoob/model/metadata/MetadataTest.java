@@ -0,0 +1,253 @@
+/**
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2017, GOMOOB All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided with
+ * the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.gomoob.model.metadata;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import org.gomoob.model.AbstractEntityWithCreationDate;
+import org.gomoob.model.IAction;
+import org.gomoob.model.action.Action;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test case for the {@link Metadata} class.
+ *
+ * @author GOMOOB SARL (contact@gomoob.com)
+ */
+public class MetadataTest {
+
+  /**
+   * Sample action which only implements the `JSONObject` metadata accessors.
+   */
+  public static class SampleAction extends AbstractEntityWithCreationDate<String>
+      implements IAction {
+
+    /**
+     * The version of the serialized form.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The metadata of the action.
+     */
+    private JSONObject metadata;
+
+    /**
+     * The name of the action.
+     */
+    private String name;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public JSONObject getMetadata() {
+      return this.metadata;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName() {
+      return this.name;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setMetadata(final JSONObject metadata) {
+      this.metadata = metadata;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setName(final String name) {
+      this.name = name;
+    }
+  }
+
+  /**
+   * Test method for the default implementations of {@link IAction#getMetadataView()} and
+   * {@link IAction#setMetadataView(Metadata)}.
+   */
+  @Test
+  public void testDefaultMetadataView() {
+    SampleAction action = new SampleAction();
+    Assert.assertNull(action.getMetadataView());
+
+    action.setMetadata(new JSONObject().put("a", 1));
+    Metadata metadata = action.getMetadataView();
+    Assert.assertEquals(1, metadata.getInt("a"));
+
+    // The view is a snapshot of the JSON object
+    action.getMetadata().put("a", 2);
+    Assert.assertEquals(1, metadata.getInt("a"));
+    Assert.assertEquals(2, action.getMetadataView().getInt("a"));
+
+    action.setMetadataView(metadata.with("b", "c"));
+    Assert.assertEquals(1, action.getMetadata().getInt("a"));
+    Assert.assertEquals("c", action.getMetadata().getString("b"));
+
+    action.setMetadataView(null);
+    Assert.assertNull(action.getMetadata());
+  }
+
+  /**
+   * Test method for {@link Metadata#of(JSONObject)}.
+   */
+  @Test
+  public void testOf() {
+    Metadata metadata = Metadata.of(new JSONObject().put("s", "web").put("i", 3).put("d", 0.5)
+        .put("b", true).put("n", JSONObject.NULL).put("o", new JSONObject().put("x", 1L))
+        .put("a", new JSONArray().put(1).put("y"))
+        .put("l", new BigInteger("123456789012345678901")));
+
+    // The entries are sorted by key
+    Assert.assertEquals(8, metadata.size());
+    Assert.assertEquals("a", metadata.getKey(0));
+    Assert.assertEquals("s", metadata.getKey(7));
+    Assert.assertEquals("web", metadata.getValue(7));
+
+    // Typed accessors
+    Assert.assertEquals("web", metadata.getString("s"));
+    Assert.assertEquals(3L, metadata.getLong("i"));
+    Assert.assertEquals(3, metadata.getInt("i"));
+    Assert.assertEquals(3.0, metadata.getDouble("i"), 0.0);
+    Assert.assertEquals(0.5, metadata.getDouble("d"), 0.0);
+    Assert.assertTrue(metadata.getBoolean("b"));
+    Assert.assertEquals(1L, metadata.getMetadata("o").getLong("x"));
+    Assert.assertEquals(Arrays.asList(1L, "y"), metadata.getList("a"));
+    Assert.assertEquals(new BigInteger("123456789012345678901"), metadata.get("l"));
+    Assert.assertTrue(metadata.has("n"));
+    Assert.assertNull(metadata.get("n"));
+    Assert.assertFalse(metadata.has("z"));
+    Assert.assertNull(metadata.getString("z"));
+
+    try {
+      metadata.getLong("z");
+      Assert.fail("An IllegalArgumentException should be thrown !");
+    } catch (IllegalArgumentException iaex) {
+      Assert.assertEquals("No metadata value with the key 'z' !", iaex.getMessage());
+    }
+
+    try {
+      metadata.getInt("l");
+      Assert.fail("An IllegalArgumentException should be thrown !");
+    } catch (IllegalArgumentException iaex) {
+      Assert.assertEquals("The metadata value with the key 'l' is not a 'int' !",
+          iaex.getMessage());
+    }
+
+    try {
+      metadata.getList("s");
+      Assert.fail("An IllegalArgumentException should be thrown !");
+    } catch (IllegalArgumentException iaex) {
+      Assert.assertEquals("The metadata value with the key 's' is not a 'list' !",
+          iaex.getMessage());
+    }
+
+    try {
+      metadata.getList("a").add(2);
+      Assert.fail("An UnsupportedOperationException should be thrown !");
+    } catch (UnsupportedOperationException uoex) {
+      // Expected
+    }
+
+    // JSON conversions
+    Assert.assertEquals("{\"a\":[1,\"y\"],\"b\":true,\"d\":0.5,\"i\":3,\"l\":123456789012345678901,"
+        + "\"n\":null,\"o\":{\"x\":1},\"s\":\"web\"}", metadata.toString());
+    Assert.assertEquals(metadata, Metadata.of(metadata.toJSONObject()));
+    Assert.assertEquals(metadata.without("l"),
+        Metadata.of(new JSONObject(metadata.without("l").toString())));
+    Assert.assertSame(Metadata.EMPTY, Metadata.of(new JSONObject()));
+
+    // Actions give their metadata as immutable metadata
+    Action action = new Action();
+    Assert.assertNull(action.getMetadataView());
+    action.setMetadata(metadata.toJSONObject());
+    Assert.assertEquals(metadata, action.getMetadataView());
+    action.getMetadata().put("s", "ios");
+    Assert.assertEquals("ios", action.getMetadataView().getString("s"));
+    action.setMetadataView(metadata.with("s", "android"));
+    Assert.assertEquals("android", action.getMetadataView().getString("s"));
+    Assert.assertEquals("android", action.getMetadata().getString("s"));
+  }
+
+  /**
+   * Test method for {@link Metadata#with(String, Object)} and {@link Metadata#without(String)}.
+   */
+  @Test
+  public void testWith() {
+    Metadata nested = Metadata.EMPTY.with("x", 1);
+    Metadata metadata = Metadata.EMPTY.with("c", "C").with("a", nested).with("b", 2.5f);
+    Assert.assertEquals("{\"a\":{\"x\":1},\"b\":2.5,\"c\":\"C\"}", metadata.toString());
+
+    // The values are shared by the copies
+    Metadata copy = metadata.with("c", "D");
+    Assert.assertNotSame(metadata, copy);
+    Assert.assertSame(nested, copy.getMetadata("a"));
+    Assert.assertEquals("C", metadata.getString("c"));
+    Assert.assertEquals("D", copy.getString("c"));
+    Assert.assertSame(metadata, metadata.with("c", "C"));
+    Assert.assertSame(metadata, metadata.with("b", 2.5));
+
+    // Metadata are compared by content
+    Assert.assertEquals(metadata, copy.with("c", "C"));
+    Assert.assertEquals(metadata.hashCode(), copy.with("c", "C").hashCode());
+    Assert.assertEquals(Metadata.EMPTY.with("i", 1L), Metadata.EMPTY.with("i", 1));
+    Assert.assertNotEquals(metadata, copy);
+
+    Assert.assertEquals("{\"a\":{\"x\":1},\"c\":\"C\"}", metadata.without("b").toString());
+    Assert.assertSame(metadata, metadata.without("z"));
+    Assert.assertSame(Metadata.EMPTY, nested.without("x"));
+
+    try {
+      metadata.with("e", new Object());
+      Assert.fail("An IllegalArgumentException should be thrown !");
+    } catch (IllegalArgumentException iaex) {
+      Assert.assertEquals("Cannot store a metadata value of type 'java.lang.Object' !",
+          iaex.getMessage());
+    }
+
+    try {
+      metadata.with("e", Double.NaN);
+      Assert.fail("An IllegalArgumentException should be thrown !");
+    } catch (IllegalArgumentException iaex) {
+      Assert.assertEquals("Cannot store a non finite metadata value !", iaex.getMessage());
+    }
+  }
+}
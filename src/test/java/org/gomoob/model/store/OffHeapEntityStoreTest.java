@@ -0,0 +1,172 @@
+/**
+ * BSD 3-Clause License
+ *
+ * Copyright (c) 2017, GOMOOB All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of conditions
+ * and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright notice, this list of
+ * conditions and the following disclaimer in the documentation and/or other materials provided with
+ * the distribution.
+ *
+ * * Neither the name of the copyright holder nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.gomoob.model.store;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.gomoob.model.SampleEntity;
+import org.gomoob.model.translation.SampleTranslatableEntity;
+import org.gomoob.model.translation.Translation;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test case for the {@link OffHeapEntityStore} class.
+ *
+ * @author GOMOOB SARL (contact@gomoob.com)
+ */
+public class OffHeapEntityStoreTest {
+
+  /**
+   * Test method for {@link OffHeapEntityStore#put(org.gomoob.model.AbstractEntity)} and
+   * {@link OffHeapEntityStore#get(java.io.Serializable)}.
+   *
+   * @throws IOException if the temporary file cannot be created.
+   */
+  @Test
+  public void testPutAndGet() throws IOException {
+    File file = File.createTempFile("entities", ".bin");
+    file.deleteOnExit();
+
+    OffHeapEntityStore<SampleTranslatableEntity> store =
+        OffHeapEntityStore.map(SampleTranslatableEntity.class, file.toPath(), 64 * 1024);
+    Assert.assertEquals(SampleTranslatableEntity.class, store.getEntityClass());
+    Assert.assertEquals(64 * 1024, store.getCapacity());
+
+    for (int i = 0; i < 100; ++i) {
+      Translation translation = new Translation();
+      translation.setLanguageCode("EN");
+      translation.setAttributeTranslation("translatableAttribute", "Product " + i);
+
+      SampleTranslatableEntity sampleEntity = new SampleTranslatableEntity();
+      sampleEntity.setId(i);
+      sampleEntity.setDefaultLanguageCode("FR");
+      sampleEntity.setTranslatableAttribute("Produit " + i);
+      sampleEntity.setNotTranslatableAttribute(i * 10);
+      sampleEntity.setTranslation(translation);
+      store.put(sampleEntity);
+    }
+
+    Assert.assertEquals(100, store.size());
+    Assert.assertTrue(store.contains(42));
+    Assert.assertFalse(store.contains(100));
+    Assert.assertNull(store.get(100));
+
+    // Each get decodes a new entity
+    SampleTranslatableEntity sampleEntity = store.get(42);
+    Assert.assertNotSame(sampleEntity, store.get(42));
+    Assert.assertEquals(Integer.valueOf(42), sampleEntity.getId());
+    Assert.assertEquals("Produit 42", sampleEntity.getTranslatableAttribute());
+    Assert.assertEquals(Integer.valueOf(420), sampleEntity.getNotTranslatableAttribute());
+    Assert.assertEquals("Product 42",
+        sampleEntity.getTranslation("EN").getAttributeTranslation("translatableAttribute"));
+
+    // Decoding into an existing entity
+    SampleTranslatableEntity target = new SampleTranslatableEntity();
+    Assert.assertTrue(store.get(7, target));
+    Assert.assertEquals("Produit 7", target.getTranslatableAttribute());
+    Assert.assertFalse(store.get(100, target));
+    Assert.assertEquals("Produit 7", target.getTranslatableAttribute());
+
+    // Test with an entity without technical identifier
+    try {
+      store.put(new SampleTranslatableEntity());
+      Assert.fail("An IllegalArgumentException should be thrown !");
+    } catch (IllegalArgumentException iaex) {
+      Assert.assertEquals("Cannot store an entity without technical identifier !",
+          iaex.getMessage());
+    }
+
+    store.clear();
+    Assert.assertEquals(0, store.size());
+    Assert.assertEquals(0, store.getUsedBytes());
+    Assert.assertNull(store.get(42));
+  }
+
+  /**
+   * Test method for {@link OffHeapEntityStore#remove(java.io.Serializable)}.
+   */
+  @Test
+  public void testRemove() {
+    OffHeapEntityStore<SampleEntity> store = OffHeapEntityStore.allocateDirect(SampleEntity.class,
+        1024);
+
+    SampleEntity sampleEntity = new SampleEntity();
+    sampleEntity.setId(1);
+    sampleEntity.setA("A");
+    store.put(sampleEntity);
+    int slotSize = store.getUsedBytes();
+
+    sampleEntity.setId(2);
+    store.put(sampleEntity);
+    sampleEntity.setId(3);
+    store.put(sampleEntity);
+    Assert.assertEquals(3 * slotSize, store.getUsedBytes());
+
+    // A smaller entity is written in place
+    sampleEntity.setA("");
+    store.put(sampleEntity);
+    Assert.assertEquals("", store.get(3).getA());
+    Assert.assertEquals(3 * slotSize, store.getUsedBytes());
+
+    // The freed slot is reused
+    Assert.assertTrue(store.remove(1));
+    Assert.assertFalse(store.remove(1));
+    Assert.assertFalse(store.contains(1));
+    Assert.assertEquals(2 * slotSize, store.getUsedBytes());
+
+    sampleEntity.setId(4);
+    sampleEntity.setA("B");
+    store.put(sampleEntity);
+    Assert.assertEquals(3 * slotSize, store.getUsedBytes());
+    Assert.assertEquals("B", store.get(4).getA());
+    Assert.assertEquals("A", store.get(2).getA());
+
+    // Fills the store
+    try {
+      for (int i = 5; i < 1024; ++i) {
+        sampleEntity.setId(i);
+        store.put(sampleEntity);
+      }
+      Assert.fail("An IllegalStateException should be thrown !");
+    } catch (IllegalStateException isex) {
+      Assert.assertEquals("The store cannot store more entities !", isex.getMessage());
+    }
+
+    // Space is available again once an entity is removed
+    int size = store.size();
+    Assert.assertTrue(store.remove(3));
+    sampleEntity.setId(1);
+    store.put(sampleEntity);
+    Assert.assertEquals(size, store.size());
+    Assert.assertEquals("B", store.get(1).getA());
+  }
+}
@@ -159,6 +159,9 @@ public class AbstractTranslatableEntityTest {
     Assert.assertSame("Londres", sampleEntity.getTranslatableAttribute());
     Assert.assertSame(100, sampleEntity.getNotTranslatableAttribute());
 
+    // Applying a translation does not mark the translated attributes dirty
+    Assert.assertFalse(sampleEntity.isDirty());
+
     /*
      * Test deleteTranslation method
      */
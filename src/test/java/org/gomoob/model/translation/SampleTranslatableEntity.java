@@ -37,6 +37,12 @@ import org.gomoob.model.ITranslatableEntity;
  */
 public class SampleTranslatableEntity extends AbstractTranslatableEntity<Integer>
     implements ITranslatableEntity<Integer> {
+
+  /**
+   * The version of the serialized form.
+   */
+  private static final long serialVersionUID = 1L;
+
   /**
    * A sample attribute to get / set.
    */
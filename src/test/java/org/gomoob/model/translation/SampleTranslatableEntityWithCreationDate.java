@@ -38,6 +38,12 @@ import org.gomoob.model.ITranslatableEntityWithCreationDate;
 public class SampleTranslatableEntityWithCreationDate
     extends AbstractTranslatableEntityWithCreationDate<Integer>
     implements ITranslatableEntityWithCreationDate<Integer> {
+
+  /**
+   * The version of the serialized form.
+   */
+  private static final long serialVersionUID = 1L;
+
   /**
    * A sample attribute to get / set.
    */
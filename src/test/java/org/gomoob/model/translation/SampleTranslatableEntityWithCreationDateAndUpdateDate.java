@@ -39,6 +39,11 @@ public class SampleTranslatableEntityWithCreationDateAndUpdateDate
     extends AbstractTranslatableEntityWithCreationDateAndUpdateDate<Integer>
     implements ITranslatableEntityWithCreationDateAndUpdateDate<Integer> {
 
+  /**
+   * The version of the serialized form.
+   */
+  private static final long serialVersionUID = 1L;
+
   /**
    * A sample attribute to get / set.
    */